@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.benchmarks;
+
+import java.util.Random;
+
+import com.yahoo.sketches.memory.AllocMemory;
+import com.yahoo.sketches.memory.NativeMemory;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so that results are comparable between runs
+ * and between versions of the library.
+ */
+final class BenchmarkUtil {
+  static final long SEED = 12345L;
+
+  private BenchmarkUtil() {}
+
+  /**
+   * Returns n consecutive distinct keys.
+   * @param start the first key
+   * @param n the number of keys
+   * @return n consecutive distinct keys
+   */
+  static long[] sequentialKeys(long start, int n) {
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      keys[i] = start + i;
+    }
+    return keys;
+  }
+
+  /**
+   * Returns n keys drawn from a Zipf-like distribution over the given number of distinct
+   * keys, so that a few keys are very frequent.
+   * @param distinct the number of distinct keys
+   * @param n the number of keys
+   * @return n skewed keys
+   */
+  static long[] skewedKeys(int distinct, int n) {
+    Random rand = new Random(SEED);
+    long[] keys = new long[n];
+    for (int i = 0; i < n; i++) {
+      //inverse of the CDF of 1/x
+      keys[i] = (long) Math.pow(distinct, rand.nextDouble());
+    }
+    return keys;
+  }
+
+  /**
+   * Returns n uniformly distributed values.
+   * @param n the number of values
+   * @return n uniformly distributed values
+   */
+  static double[] uniformValues(int n) {
+    Random rand = new Random(SEED);
+    double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = rand.nextDouble();
+    }
+    return values;
+  }
+
+  /**
+   * Returns a Memory that holds a copy of the given bytes.
+   * @param bytes the given bytes
+   * @param direct if true the Memory is off-heap and must be freed by the caller
+   * @return a Memory that holds a copy of the given bytes
+   */
+  static NativeMemory toMemory(byte[] bytes, boolean direct) {
+    if (!direct) {
+      return new NativeMemory(bytes.clone());
+    }
+    NativeMemory mem = new AllocMemory(bytes.length);
+    mem.putByteArray(0, bytes, 0, bytes.length);
+    return mem;
+  }
+
+}
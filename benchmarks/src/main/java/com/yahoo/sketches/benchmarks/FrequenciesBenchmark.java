@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.sketches.frequencies.ErrorType;
+import com.yahoo.sketches.frequencies.LongsSketch;
+import com.yahoo.sketches.memory.NativeMemory;
+
+/**
+ * Frequent items benchmarks of the LongsSketch, where <i>k</i> is the maximum map size.
+ * The stream of <i>n</i> items is skewed over 100 * <i>k</i> distinct items, so that the
+ * sketch purges. The sketches live on the heap; with <i>direct</i> the serialized image that is
+ * heapified is off-heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FrequenciesBenchmark {
+
+  @Param({"1024", "8192"})
+  int k;
+
+  @Param({"10000", "1000000"})
+  int n;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private long[] items_;
+  private LongsSketch skA_;
+  private LongsSketch skB_;
+  private NativeMemory imageMem_;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    items_ = BenchmarkUtil.skewedKeys(100 * k, n);
+    skA_ = new LongsSketch(k);
+    skB_ = new LongsSketch(k);
+    for (int i = 0; i < n; i++) {
+      skA_.update(items_[i]);
+      skB_.update(items_[n - 1 - i] + 1);
+    }
+    imageMem_ = BenchmarkUtil.toMemory(skA_.toByteArray(), direct);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (direct) {
+      imageMem_.freeMemory();
+    }
+  }
+
+  @Benchmark
+  public LongsSketch update() {
+    LongsSketch sketch = new LongsSketch(k);
+    for (int i = 0; i < n; i++) {
+      sketch.update(items_[i]);
+    }
+    return sketch;
+  }
+
+  @Benchmark
+  public LongsSketch merge() {
+    LongsSketch sketch = new LongsSketch(k);
+    sketch.merge(skA_);
+    return sketch.merge(skB_);
+  }
+
+  @Benchmark
+  public LongsSketch.Row[] getFrequentItems() {
+    return skA_.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+  }
+
+  @Benchmark
+  public long getEstimate() {
+    return skA_.getEstimate(items_[0]);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return skA_.toByteArray();
+  }
+
+  @Benchmark
+  public LongsSketch heapify() {
+    return LongsSketch.getInstance(imageMem_);
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.hll.HllSketchBuilder;
+
+/**
+ * HLL sketch benchmarks, where <i>k</i> is the log_base2 of the number of buckets.
+ * The union is presented two sketches of <i>n</i> keys that overlap by half.
+ * The HLL sketches live on the heap only, so instead of heap vs direct the benchmarks are
+ * parameterized by sparse vs dense mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HllBenchmark {
+
+  @Param({"10", "12", "14"})
+  int k;
+
+  @Param({"1000", "100000"})
+  int n;
+
+  @Param({"false", "true"})
+  boolean dense;
+
+  private HllSketchBuilder bldr_;
+  private long[] keys_;
+  private HllSketch skA_;
+  private HllSketch skB_;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    keys_ = BenchmarkUtil.sequentialKeys(0, n);
+    bldr_ = HllSketch.builder().setLogBuckets(k).setDenseMode(dense);
+    skA_ = bldr_.build();
+    skB_ = bldr_.build();
+    for (int i = 0; i < n; i++) {
+      skA_.update(keys_[i]);
+      skB_.update(keys_[i] + (n / 2));
+    }
+  }
+
+  @Benchmark
+  public HllSketch update() {
+    HllSketch sketch = bldr_.build();
+    for (int i = 0; i < n; i++) {
+      sketch.update(keys_[i]);
+    }
+    return sketch;
+  }
+
+  @Benchmark
+  public HllSketch union() {
+    HllSketch sketch = bldr_.build();
+    sketch.union(skA_);
+    return sketch.union(skB_);
+  }
+
+  @Benchmark
+  public double getEstimate() {
+    return skA_.getEstimate();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return skA_.toByteArray();
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.sketches.memory.NativeMemory;
+import com.yahoo.sketches.quantiles.DoublesSketch;
+import com.yahoo.sketches.quantiles.DoublesUnion;
+
+/**
+ * Quantiles sketch benchmarks of the DoublesSketch. The union is presented two sketches of
+ * <i>n</i> values. The sketches live on the heap; with <i>direct</i> the serialized image that
+ * is heapified and merged is off-heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class QuantilesBenchmark {
+  private static final double[] FRACTIONS = { 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99 };
+  private static final double[] SPLIT_POINTS = { 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9 };
+
+  @Param({"128", "1024"})
+  int k;
+
+  @Param({"1000", "1000000"})
+  int n;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private double[] values_;
+  private DoublesSketch skA_;
+  private DoublesSketch skB_;
+  private NativeMemory imageMem_;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    values_ = BenchmarkUtil.uniformValues(n);
+    skA_ = DoublesSketch.builder().build(k);
+    skB_ = DoublesSketch.builder().build(k);
+    for (int i = 0; i < n; i++) {
+      skA_.update(values_[i]);
+      skB_.update(1.0 - values_[i]);
+    }
+    imageMem_ = BenchmarkUtil.toMemory(skA_.toByteArray(), direct);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (direct) {
+      imageMem_.freeMemory();
+    }
+  }
+
+  @Benchmark
+  public DoublesSketch update() {
+    DoublesSketch sketch = DoublesSketch.builder().build(k);
+    for (int i = 0; i < n; i++) {
+      sketch.update(values_[i]);
+    }
+    return sketch;
+  }
+
+  @Benchmark
+  public DoublesSketch union() {
+    DoublesUnion union = DoublesUnion.builder().setK(k).build();
+    union.update(skA_);
+    union.update(skB_);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public DoublesSketch unionMemory() {
+    DoublesUnion union = DoublesUnion.builder().setK(k).build();
+    union.update(skB_);
+    union.update(imageMem_);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public double getQuantile() {
+    return skA_.getQuantile(0.5);
+  }
+
+  @Benchmark
+  public double[] getQuantiles() {
+    return skA_.getQuantiles(FRACTIONS);
+  }
+
+  @Benchmark
+  public double[] getPMF() {
+    return skA_.getPMF(SPLIT_POINTS);
+  }
+
+  @Benchmark
+  public double[] getCDF() {
+    return skA_.getCDF(SPLIT_POINTS);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return skA_.toByteArray();
+  }
+
+  @Benchmark
+  public DoublesSketch heapify() {
+    return DoublesSketch.heapify(imageMem_);
+  }
+
+}
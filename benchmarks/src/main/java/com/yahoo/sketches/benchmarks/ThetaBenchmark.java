@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.sketches.memory.AllocMemory;
+import com.yahoo.sketches.memory.NativeMemory;
+import com.yahoo.sketches.theta.AnotB;
+import com.yahoo.sketches.theta.CompactSketch;
+import com.yahoo.sketches.theta.Intersection;
+import com.yahoo.sketches.theta.SetOperation;
+import com.yahoo.sketches.theta.SetOperationBuilder;
+import com.yahoo.sketches.theta.Sketch;
+import com.yahoo.sketches.theta.Sketches;
+import com.yahoo.sketches.theta.Union;
+import com.yahoo.sketches.theta.UpdateSketch;
+import com.yahoo.sketches.theta.UpdateSketchBuilder;
+
+/**
+ * Theta sketch benchmarks. The set operations are presented two sketches of <i>n</i> keys that
+ * overlap by half. With <i>direct</i> the update sketch, the union and the intersection are built
+ * in off-heap Memory, and the input sketches are wrapped from off-heap images, which are also the
+ * source of heapify and wrap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ThetaBenchmark {
+
+  @Param({"1024", "4096", "16384"})
+  int k;
+
+  @Param({"1000", "100000"})
+  int n;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private UpdateSketchBuilder updateBldr_;
+  private SetOperationBuilder setOpBldr_;
+  private NativeMemory sketchMem_;
+  private NativeMemory setOpMem_;
+  private NativeMemory imageMemA_;
+  private NativeMemory imageMemB_;
+  private long[] keys_;
+  private Sketch skA_;
+  private Sketch skB_;
+  private CompactSketch compact_;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    keys_ = BenchmarkUtil.sequentialKeys(0, n);
+    updateBldr_ = UpdateSketch.builder().setNominalEntries(k);
+    setOpBldr_ = SetOperation.builder().setNominalEntries(k);
+    if (direct) {
+      sketchMem_ = new AllocMemory(Sketches.getMaxUpdateSketchBytes(k));
+      setOpMem_ = new AllocMemory(
+          Math.max(Sketches.getMaxUnionBytes(k), Sketches.getMaxIntersectionBytes(k)));
+      updateBldr_.initMemory(sketchMem_);
+      setOpBldr_.initMemory(setOpMem_);
+    }
+
+    UpdateSketch a = UpdateSketch.builder().setNominalEntries(k).build();
+    UpdateSketch b = UpdateSketch.builder().setNominalEntries(k).build();
+    for (int i = 0; i < n; i++) {
+      a.update(keys_[i]);
+      b.update(keys_[i] + (n / 2));
+    }
+    compact_ = a.compact(true, null);
+    imageMemA_ = BenchmarkUtil.toMemory(compact_.toByteArray(), direct);
+    if (direct) {
+      imageMemB_ = BenchmarkUtil.toMemory(b.compact(true, null).toByteArray(), direct);
+      skA_ = Sketch.wrap(imageMemA_);
+      skB_ = Sketch.wrap(imageMemB_);
+    } else {
+      skA_ = compact_;
+      skB_ = b.compact(true, null);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (direct) {
+      sketchMem_.freeMemory();
+      setOpMem_.freeMemory();
+      imageMemA_.freeMemory();
+      imageMemB_.freeMemory();
+    }
+  }
+
+  @Benchmark
+  public UpdateSketch update() {
+    UpdateSketch sketch = updateBldr_.build();
+    for (int i = 0; i < n; i++) {
+      sketch.update(keys_[i]);
+    }
+    return sketch;
+  }
+
+  @Benchmark
+  public CompactSketch union() {
+    Union union = setOpBldr_.buildUnion();
+    union.update(skA_);
+    union.update(skB_);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public CompactSketch intersection() {
+    Intersection inter = setOpBldr_.buildIntersection();
+    inter.update(skA_);
+    inter.update(skB_);
+    return inter.getResult();
+  }
+
+  @Benchmark
+  public CompactSketch aNotB() {
+    AnotB aNotB = SetOperation.builder().buildANotB(); //stateless, always on the heap
+    aNotB.update(skA_, skB_);
+    return aNotB.getResult();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return compact_.toByteArray();
+  }
+
+  @Benchmark
+  public Sketch heapify() {
+    return Sketch.heapify(imageMemA_);
+  }
+
+  @Benchmark
+  public double wrap() {
+    return Sketch.wrap(imageMemA_).getEstimate();
+  }
+
+}
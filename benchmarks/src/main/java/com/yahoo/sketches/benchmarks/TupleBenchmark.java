@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yahoo.sketches.memory.AllocMemory;
+import com.yahoo.sketches.memory.NativeMemory;
+import com.yahoo.sketches.tuple.ArrayOfDoublesCombiner;
+import com.yahoo.sketches.tuple.ArrayOfDoublesCompactSketch;
+import com.yahoo.sketches.tuple.ArrayOfDoublesIntersection;
+import com.yahoo.sketches.tuple.ArrayOfDoublesSetOperationBuilder;
+import com.yahoo.sketches.tuple.ArrayOfDoublesSketch;
+import com.yahoo.sketches.tuple.ArrayOfDoublesSketches;
+import com.yahoo.sketches.tuple.ArrayOfDoublesUnion;
+import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketch;
+import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketchBuilder;
+
+/**
+ * Tuple sketch benchmarks of the ArrayOfDoubles sketches with one value per key.
+ * The set operations are presented two sketches of <i>n</i> keys that overlap by half.
+ * With <i>direct</i> the updatable sketch, the union and the intersection are built in off-heap
+ * Memory, and the input sketches are wrapped from off-heap images, which are also the source of
+ * heapify and wrap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TupleBenchmark {
+  private static final int NUM_VALUES = 1;
+
+  @Param({"1024", "4096", "16384"})
+  int k;
+
+  @Param({"1000", "100000"})
+  int n;
+
+  @Param({"false", "true"})
+  boolean direct;
+
+  private ArrayOfDoublesUpdatableSketchBuilder updateBldr_;
+  private ArrayOfDoublesSetOperationBuilder setOpBldr_;
+  private NativeMemory sketchMem_;
+  private NativeMemory setOpMem_;
+  private NativeMemory imageMemA_;
+  private NativeMemory imageMemB_;
+  private long[] keys_;
+  private double[] values_;
+  private ArrayOfDoublesSketch skA_;
+  private ArrayOfDoublesSketch skB_;
+  private ArrayOfDoublesCompactSketch compact_;
+  private ArrayOfDoublesCombiner combiner_;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    keys_ = BenchmarkUtil.sequentialKeys(0, n);
+    values_ = new double[] { 1.0 };
+    updateBldr_ = new ArrayOfDoublesUpdatableSketchBuilder()
+        .setNominalEntries(k).setNumberOfValues(NUM_VALUES);
+    setOpBldr_ = new ArrayOfDoublesSetOperationBuilder()
+        .setNominalEntries(k).setNumberOfValues(NUM_VALUES);
+    if (direct) {
+      sketchMem_ = new AllocMemory(ArrayOfDoublesUnion.getMaxBytes(k, NUM_VALUES));
+      //the intersection sizes its table for twice the entries of the first sketch
+      setOpMem_ = new AllocMemory(ArrayOfDoublesUnion.getMaxBytes(2 * k, NUM_VALUES));
+      updateBldr_.setMemory(sketchMem_);
+      setOpBldr_.setMemory(setOpMem_);
+    }
+    combiner_ = new ArrayOfDoublesCombiner() {
+      @Override
+      public double[] combine(double[] a, double[] b) {
+        return new double[] { a[0] + b[0] };
+      }
+    };
+
+    ArrayOfDoublesUpdatableSketch a = new ArrayOfDoublesUpdatableSketchBuilder()
+        .setNominalEntries(k).setNumberOfValues(NUM_VALUES).build();
+    ArrayOfDoublesUpdatableSketch b = new ArrayOfDoublesUpdatableSketchBuilder()
+        .setNominalEntries(k).setNumberOfValues(NUM_VALUES).build();
+    for (int i = 0; i < n; i++) {
+      a.update(keys_[i], values_);
+      b.update(keys_[i] + (n / 2), values_);
+    }
+    compact_ = a.compact();
+    imageMemA_ = BenchmarkUtil.toMemory(compact_.toByteArray(), direct);
+    if (direct) {
+      imageMemB_ = BenchmarkUtil.toMemory(b.compact().toByteArray(), direct);
+      skA_ = ArrayOfDoublesSketches.wrapSketch(imageMemA_);
+      skB_ = ArrayOfDoublesSketches.wrapSketch(imageMemB_);
+    } else {
+      skA_ = compact_;
+      skB_ = b.compact();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (direct) {
+      sketchMem_.freeMemory();
+      setOpMem_.freeMemory();
+      imageMemA_.freeMemory();
+      imageMemB_.freeMemory();
+    }
+  }
+
+  @Benchmark
+  public ArrayOfDoublesUpdatableSketch update() {
+    ArrayOfDoublesUpdatableSketch sketch = updateBldr_.build();
+    for (int i = 0; i < n; i++) {
+      sketch.update(keys_[i], values_);
+    }
+    return sketch;
+  }
+
+  @Benchmark
+  public ArrayOfDoublesCompactSketch union() {
+    ArrayOfDoublesUnion union = setOpBldr_.buildUnion();
+    union.update(skA_);
+    union.update(skB_);
+    return union.getResult();
+  }
+
+  @Benchmark
+  public ArrayOfDoublesCompactSketch intersection() {
+    ArrayOfDoublesIntersection inter = setOpBldr_.buildIntersection();
+    inter.update(skA_, combiner_);
+    inter.update(skB_, combiner_);
+    return inter.getResult();
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return compact_.toByteArray();
+  }
+
+  @Benchmark
+  public ArrayOfDoublesSketch heapify() {
+    return ArrayOfDoublesSketches.heapifySketch(imageMemA_);
+  }
+
+  @Benchmark
+  public double wrap() {
+    return ArrayOfDoublesSketches.wrapSketch(imageMemA_).getEstimate();
+  }
+
+}
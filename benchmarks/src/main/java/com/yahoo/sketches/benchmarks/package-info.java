@@ -0,0 +1,17 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root
+ * for terms.
+ */
+
+/**
+ * <p>JMH benchmarks of the hot paths of every sketch family: update, union, intersection,
+ * serialization, heapify and wrap, and the queries of the quantiles and frequencies sketches.
+ * The benchmarks are parameterized by <i>k</i>, by the stream length <i>n</i> and, where the
+ * sketch can live in Memory, by heap vs direct.</p>
+ *
+ * <p>Every benchmark presents the same deterministic stream of keys and returns its result so
+ * that it cannot be eliminated. Only the public API of sketches-core is used, so the same
+ * benchmarks can be run against other versions of the library and the results compared.</p>
+ */
+package com.yahoo.sketches.benchmarks;
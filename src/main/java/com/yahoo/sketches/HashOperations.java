@@ -6,6 +6,8 @@
 package com.yahoo.sketches;
 
 import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.MemoryUtil;
+import com.yahoo.sketches.memory.UncheckedMemory;
 
 /**
  * Helper class for the common hash table methods.
@@ -205,6 +207,41 @@ public final class HashOperations {
     return ~curProbe;
   }
 
+  /**
+   * This is a classical Knuth-style Open Addressing, Double Hash search and insert scheme that
+   * may be called concurrently by many threads on the same Memory hash table.
+   * Empty slots are claimed with an atomic compare-and-swap, so a given hash is inserted at most
+   * once. The caller must guarantee that the hash table always has at least one empty slot and
+   * that no slot is cleared while this method may be running.
+   *
+   * @param mem The Memory hash table to insert into, which must support compare-and-swap.
+   * See {@link MemoryUtil#isCompareAndSwapSupported(Memory)}.
+   * @param lgArrLongs <a href="{@docRoot}/resources/dictionary.html#lgArrLongs">See lgArrLongs</a>.
+   * lgArrLongs &le; log2(hashTable.length).
+   * @param hash A hash value that must not be zero and if not a duplicate will be inserted into the
+   * array into an empty slot.
+   * @param memOffsetBytes offset in the memory where the hash array starts
+   * @return index &ge; 0 if found (duplicate); &lt; 0 if inserted, inserted at -(index + 1).
+   */
+  public static int hashSearchOrInsertCAS(final Memory mem, final int lgArrLongs, final long hash,
+      final int memOffsetBytes) {
+    final int arrayMask = (1 << lgArrLongs) - 1; // current Size -1
+    final int stride = getStride(hash, lgArrLongs);
+    int curProbe = (int) (hash & arrayMask);
+    while (true) {
+      int curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes;
+      long curArrayHash = mem.getLong(curProbeOffsetBytes);
+      if (curArrayHash == 0) {
+        if (MemoryUtil.compareAndSwapLong(mem, curProbeOffsetBytes, 0L, hash)) return ~curProbe;
+        // lost the race for this slot, see what the winner inserted
+        curArrayHash = mem.getLong(curProbeOffsetBytes);
+      }
+      if (curArrayHash == hash) return curProbe; // curArrayHash is a duplicate
+      // curArrayHash is not a duplicate and not zero, continue searching
+      curProbe = (curProbe + stride) & arrayMask;
+    }
+  }
+
   /**
    * This is a classical Knuth-style Open Addressing, Double Hash search scheme.
    * 
@@ -261,6 +298,92 @@ public final class HashOperations {
     return curProbe;
   }
 
+  /**
+   * This is the same as {@link #hashSearchOrInsert(Memory, int, long, int)}, but on an
+   * UncheckedMemory, whose bounds have been validated in advance.
+   *
+   * @param mem The UncheckedMemory hash table to insert into.
+   * @param lgArrLongs <a href="{@docRoot}/resources/dictionary.html#lgArrLongs">See lgArrLongs</a>.
+   * lgArrLongs &le; log2(hashTable.length).
+   * @param hash A hash value that must not be zero and if not a duplicate will be inserted into the
+   * array into an empty slot.
+   * @param memOffsetBytes offset in the memory where the hash array starts
+   * @return index &ge; 0 if found (duplicate); &lt; 0 if inserted, inserted at -(index + 1).
+   */
+  public static int hashSearchOrInsert(final UncheckedMemory mem, final int lgArrLongs,
+      final long hash, final int memOffsetBytes) {
+    final int arrayMask = (1 << lgArrLongs) - 1; // current Size -1
+    final int stride = getStride(hash, lgArrLongs);
+    int curProbe = (int) (hash & arrayMask);
+    int curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes; 
+    long curArrayHash = mem.getLong(curProbeOffsetBytes);
+    // search for duplicate or zero
+    while (curArrayHash != 0) {
+      if (curArrayHash == hash) return curProbe; // curArrayHash is a duplicate
+      // curArrayHash is not a duplicate and not zero, continue searching
+      curProbe = (curProbe + stride) & arrayMask;
+      curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes;
+      curArrayHash = mem.getLong(curProbeOffsetBytes);
+    }
+    // must be zero, so insert
+    mem.putLong(curProbeOffsetBytes, hash);
+    return ~curProbe;
+  }
+
+  /**
+   * This is the same as {@link #hashSearch(Memory, int, long, int)}, but on an
+   * UncheckedMemory, whose bounds have been validated in advance.
+   * 
+   * @param mem The UncheckedMemory hash table to search.
+   * @param lgArrLongs <a href="{@docRoot}/resources/dictionary.html#lgArrLongs">See lgArrLongs</a>.
+   * lgArrLongs &le; log2(hashTable.length).
+   * @param hash A hash value to search for. Must not be zero.
+   * @param memOffsetBytes offset in the memory where the hash array starts
+   * @return index if found, -1 if not found.
+   */
+  public static int hashSearch(final UncheckedMemory mem, final int lgArrLongs, final long hash, 
+      final int memOffsetBytes) {
+    final int arrayMask = (1 << lgArrLongs) - 1;
+    final int stride = getStride(hash, lgArrLongs);
+    int curProbe = (int) (hash & arrayMask);
+    int curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes; 
+    long curArrayHash = mem.getLong(curProbeOffsetBytes);
+    while (curArrayHash != 0) {
+      if (curArrayHash == hash) return curProbe;
+      curProbe = (curProbe + stride) & arrayMask;
+      curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes;
+      curArrayHash = mem.getLong(curProbeOffsetBytes);
+    }
+    return -1;
+  }
+
+  /**
+   * This is the same as {@link #hashInsertOnly(Memory, int, long, int)}, but on an
+   * UncheckedMemory, whose bounds have been validated in advance.
+   *
+   * @param mem The UncheckedMemory hash table to insert into.
+   * @param lgArrLongs <a href="{@docRoot}/resources/dictionary.html#lgArrLongs">See lgArrLongs</a>.
+   * lgArrLongs &le; log2(hashTable.length).
+   * @param hash value that must not be zero and will be inserted into the array into an empty slot.
+   * @param memOffsetBytes offset in the memory where the hash array starts
+   * @return index of insertion.  Always positive or zero.
+   */
+  public static int hashInsertOnly(final UncheckedMemory mem, final int lgArrLongs,
+      final long hash, final int memOffsetBytes) {
+    final int arrayMask = (1 << lgArrLongs) - 1; // current Size -1
+    final int stride = getStride(hash, lgArrLongs);
+    int curProbe = (int) (hash & arrayMask);
+    int curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes; 
+    long curArrayHash = mem.getLong(curProbeOffsetBytes);
+    while (curArrayHash != 0L) {
+      curProbe = (curProbe + stride) & arrayMask;
+      curProbeOffsetBytes = (curProbe << 3) + memOffsetBytes;
+      curArrayHash = mem.getLong(curProbeOffsetBytes);
+    }
+    mem.putLong(curProbeOffsetBytes, hash);
+    return curProbe;
+  }
+
   /**
    * @param thetaLong must be greater than zero otherwise throws an exception.
    * <a href="{@docRoot}/resources/dictionary.html#thetaLong">See Theta Long</a>
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016, Yahoo! Inc. Licensed under the terms of the Apache License 2.0. See LICENSE file
+ * at the project root for terms.
+ */
+
+package com.yahoo.sketches.frequencies;
+
+import static com.yahoo.sketches.Util.ceilingPowerOf2;
+import static com.yahoo.sketches.frequencies.Util.hash;
+
+import com.yahoo.sketches.SketchesArgumentException;
+
+/**
+ * A thread-safe frequent-items sketch for long items that is updated by many threads.
+ *
+ * <p>The items are striped by their hash across a power of 2 number of shards. Each shard is a
+ * {@link LongsSketch} guarded by its own monitor, so threads that update items of different
+ * shards do not contend. The shard of an item is selected by the high bits of its hash, while the
+ * hash map of a shard probes with the low bits, so the striping does not cluster the items within
+ * a shard.</p>
+ *
+ * <p>Since every item is counted by exactly one shard, the estimate and bounds of an item are
+ * those of its shard, and the error of an item is at most the maximum error of its shard. The
+ * guaranteed maximum error of a shard is proportional to the stream length presented to that
+ * shard, so the maximum error over all shards is guaranteed by the same bound as a single
+ * LongsSketch of the same maxMapSize presented the whole stream. The cost is that each shard
+ * has the full maxMapSize, so the total size grows with the number of shards.</p>
+ *
+ * <p>{@link #getResult()} merges all shards into a single LongsSketch of the given maxMapSize with
+ * {@link LongsSketch#merge(LongsSketch)}, which carries the guarantees of merging. Each shard is
+ * locked only while it is being merged, so updates continue during the merge and the result is
+ * not an atomic snapshot across shards.</p>
+ */
+public final class ConcurrentLongsSketch {
+  private static final int MAX_NUM_SHARDS = 1024;
+  private final int maxMapSize;
+  private final int lgNumShards;
+  private final LongsSketch[] shards;
+
+  /**
+   * Construct this sketch with the given maxMapSize and a number of shards equal to the smallest
+   * power of 2 that is at least the number of available processors.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map of each shard and
+   * must be a power of 2. See {@link LongsSketch#LongsSketch(int)}.
+   */
+  public ConcurrentLongsSketch(final int maxMapSize) {
+    this(maxMapSize, Math.min(ceilingPowerOf2(Runtime.getRuntime().availableProcessors()),
+        MAX_NUM_SHARDS));
+  }
+
+  /**
+   * Construct this sketch with the given maxMapSize and number of shards.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map of each shard and
+   * must be a power of 2. See {@link LongsSketch#LongsSketch(int)}.
+   * @param numShards the number of shards, which must be a power of 2 from 1 to 1024.
+   */
+  public ConcurrentLongsSketch(final int maxMapSize, final int numShards) {
+    if (numShards < 1 || numShards > MAX_NUM_SHARDS || Integer.bitCount(numShards) != 1) {
+      throw new SketchesArgumentException("numShards must be a power of 2 from 1 to "
+          + MAX_NUM_SHARDS + ": " + numShards);
+    }
+    this.maxMapSize = maxMapSize;
+    this.lgNumShards = Integer.numberOfTrailingZeros(numShards);
+    this.shards = new LongsSketch[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shards[i] = new LongsSketch(maxMapSize);
+    }
+  }
+
+  /**
+   * Update this sketch with an item and a frequency count of one.
+   * @param item for which the frequency should be increased.
+   */
+  public void update(final long item) {
+    update(item, 1);
+  }
+
+  /**
+   * Update this sketch with an item and a positive frequency count.
+   * @param item for which the frequency should be increased.
+   * @param count the amount by which the frequency of the item should be increased.
+   * A count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final long item, final long count) {
+    final LongsSketch shard = getShard(item);
+    synchronized (shard) {
+      shard.update(item, count);
+    }
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given item from its shard.
+   * See {@link LongsSketch#getEstimate(long)}.
+   *
+   * @param item the given item
+   * @return the estimate of the frequency of the given item
+   */
+  public long getEstimate(final long item) {
+    final LongsSketch shard = getShard(item);
+    synchronized (shard) {
+      return shard.getEstimate(item);
+    }
+  }
+
+  /**
+   * Gets the upper bound of the frequency of the given item from its shard.
+   * See {@link LongsSketch#getUpperBound(long)}.
+   *
+   * @param item the given item
+   * @return the guaranteed upper bound of the frequency of the given item
+   */
+  public long getUpperBound(final long item) {
+    final LongsSketch shard = getShard(item);
+    synchronized (shard) {
+      return shard.getUpperBound(item);
+    }
+  }
+
+  /**
+   * Gets the lower bound of the frequency of the given item from its shard.
+   * See {@link LongsSketch#getLowerBound(long)}.
+   *
+   * @param item the given item
+   * @return the guaranteed lower bound of the frequency of the given item
+   */
+  public long getLowerBound(final long item) {
+    final LongsSketch shard = getShard(item);
+    synchronized (shard) {
+      return shard.getLowerBound(item);
+    }
+  }
+
+  /**
+   * Returns the maximum error over all shards, which bounds the difference between the estimate
+   * and the bounds of any item returned by this sketch.
+   * @return the maximum error over all shards
+   */
+  public long getMaximumError() {
+    long maxError = 0;
+    for (final LongsSketch shard : shards) {
+      synchronized (shard) {
+        maxError = Math.max(maxError, shard.getMaximumError());
+      }
+    }
+    return maxError;
+  }
+
+  /**
+   * Returns the sum of the frequencies presented to all shards.
+   * @return the sum of the frequencies presented to all shards
+   */
+  public long getStreamLength() {
+    long streamLength = 0;
+    for (final LongsSketch shard : shards) {
+      synchronized (shard) {
+        streamLength += shard.getStreamLength();
+      }
+    }
+    return streamLength;
+  }
+
+  /**
+   * Returns true if no shard has been presented any data.
+   * @return true if no shard has been presented any data
+   */
+  public boolean isEmpty() {
+    for (final LongsSketch shard : shards) {
+      synchronized (shard) {
+        if (!shard.isEmpty()) return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of shards
+   * @return the number of shards
+   */
+  public int getNumShards() {
+    return shards.length;
+  }
+
+  /**
+   * Returns a new LongsSketch of the configured maxMapSize into which all shards have been merged.
+   * @return a new LongsSketch into which all shards have been merged
+   */
+  public LongsSketch getResult() {
+    final LongsSketch result = new LongsSketch(maxMapSize);
+    for (final LongsSketch shard : shards) {
+      synchronized (shard) {
+        result.merge(shard);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the frequent items of the merged result.
+   * This is equivalent to <i>getResult().getFrequentItems(errorType)</i>.
+   *
+   * @param errorType determines whether no false positives or no false negatives are desired.
+   * @return an array of frequent items
+   */
+  public LongsSketch.Row[] getFrequentItems(final ErrorType errorType) {
+    return getResult().getFrequentItems(errorType);
+  }
+
+  /**
+   * Resets all shards to their initial state.
+   */
+  public void reset() {
+    for (final LongsSketch shard : shards) {
+      synchronized (shard) {
+        shard.reset();
+      }
+    }
+  }
+
+  private LongsSketch getShard(final long item) {
+    //the high bits of the hash, which the hash maps of the shards do not use for probing
+    return (lgNumShards == 0) ? shards[0] : shards[(int) (hash(item) >>> (64 - lgNumShards))];
+  }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2016, Yahoo! Inc. Licensed under the terms of the Apache License 2.0. See LICENSE file
+ * at the project root for terms.
+ */
+
+package com.yahoo.sketches.frequencies;
+
+import static com.yahoo.sketches.Util.LS;
+import static com.yahoo.sketches.Util.toLog2;
+import static com.yahoo.sketches.frequencies.PreambleUtil.DIRECT_FLAG_MASK;
+import static com.yahoo.sketches.frequencies.PreambleUtil.OFFSET_LONG;
+import static com.yahoo.sketches.frequencies.PreambleUtil.SER_VER;
+import static com.yahoo.sketches.frequencies.PreambleUtil.STREAMLENGTH_LONG;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractFamilyID;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractFlags;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractLgCurMapSize;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractLgMaxMapSize;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractPreLongs;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractSerDeId;
+import static com.yahoo.sketches.frequencies.PreambleUtil.extractSerVer;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertActiveItems;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertFamilyID;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertFlags;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertLgCurMapSize;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertLgMaxMapSize;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertPreLongs;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertSerDeId;
+import static com.yahoo.sketches.frequencies.PreambleUtil.insertSerVer;
+import static com.yahoo.sketches.frequencies.Util.LG_MIN_MAP_SIZE;
+import static com.yahoo.sketches.frequencies.Util.SAMPLE_SIZE;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import com.yahoo.sketches.ArrayOfLongsSerDe;
+import com.yahoo.sketches.Family;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.SketchesStateException;
+import com.yahoo.sketches.frequencies.LongsSketch.Row;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.NativeMemory;
+
+/**
+ * A frequent-items sketch for long items with the same algorithm and error guarantees as
+ * {@link LongsSketch}, whose entire state lives in a Memory instead of the Java heap.
+ *
+ * <p>The Memory holds the preamble of the sketch followed by the reverse-purge hash map, which is
+ * allocated at its maximum size of maxMapSize slots when the sketch is created, so it never
+ * grows or moves. The Memory requires {@link #getRequiredBytes(int)} bytes, which is
+ * 32 + 18 * maxMapSize. All updates, purges and merges are performed in place, so the Memory is
+ * always a complete image of the sketch: it can be off-heap or a memory-mapped file, and it can be
+ * wrapped again with {@link #wrap(Memory)} at any time, or heapified with
+ * {@link LongsSketch#getInstance(Memory)}.</p>
+ *
+ * <p>The compact serialized form produced by {@link #toByteArray()} is the same as that of
+ * LongsSketch.</p>
+ */
+public final class DirectLongsSketch {
+  private static final short ARRAY_OF_LONGS_SERDE_ID = new ArrayOfLongsSerDe().getId();
+  private static final int PREAMBLE_LONGS = Family.FREQUENCY.getMaxPreLongs();
+  private static final int PREAMBLE_BYTES = PREAMBLE_LONGS << 3;
+
+  private final Memory mem;
+  private final int lgMaxMapSize;
+  private final int sampleSize;
+  private final DirectReversePurgeLongHashMap hashMap;
+
+  private DirectLongsSketch(final Memory mem, final int lgMaxMapSize) {
+    this.mem = mem;
+    this.lgMaxMapSize = lgMaxMapSize;
+    this.hashMap = new DirectReversePurgeLongHashMap(mem, PREAMBLE_BYTES, lgMaxMapSize);
+    this.sampleSize = Math.min(SAMPLE_SIZE, hashMap.getCapacity());
+  }
+
+  /**
+   * Creates a new empty sketch in the given Memory, overwriting its first
+   * <i>getRequiredBytes(maxMapSize)</i> bytes.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map and must be a power
+   * of 2 that is at least 8. See {@link LongsSketch#LongsSketch(int)}.
+   * @param dstMem the destination Memory, which must have a capacity of at least
+   * <i>getRequiredBytes(maxMapSize)</i> bytes.
+   * @return a new sketch in the given Memory
+   */
+  public static DirectLongsSketch initNew(final int maxMapSize, final Memory dstMem) {
+    final long reqBytes = getRequiredBytes(maxMapSize);
+    checkCapacity(dstMem, reqBytes);
+    final int lgMaxMapSize = toLog2(maxMapSize, "maxMapSize");
+    long pre0 = 0L;
+    pre0 = insertPreLongs(PREAMBLE_LONGS, pre0);            //Byte 0
+    pre0 = insertSerVer(SER_VER, pre0);                     //Byte 1
+    pre0 = insertFamilyID(Family.FREQUENCY.getID(), pre0);  //Byte 2
+    pre0 = insertLgMaxMapSize(lgMaxMapSize, pre0);          //Byte 3
+    pre0 = insertLgCurMapSize(lgMaxMapSize, pre0);          //Byte 4
+    pre0 = insertFlags(DIRECT_FLAG_MASK, pre0);             //Byte 5
+    pre0 = insertSerDeId(ARRAY_OF_LONGS_SERDE_ID, pre0);    //Byte 6,7
+    dstMem.putLong(0, pre0);
+    dstMem.putLong(8, insertActiveItems(0, 0L));
+    dstMem.putLong(STREAMLENGTH_LONG, 0L);
+    dstMem.putLong(OFFSET_LONG, 0L);
+    final DirectLongsSketch sketch = new DirectLongsSketch(dstMem, lgMaxMapSize);
+    sketch.hashMap.clear();
+    return sketch;
+  }
+
+  /**
+   * Wraps a sketch that was created in the given Memory by {@link #initNew(int, Memory)}.
+   * Updates of the returned sketch modify the given Memory.
+   *
+   * @param srcMem the Memory holding the image of a DirectLongsSketch
+   * @return a sketch that operates on the given Memory
+   */
+  public static DirectLongsSketch wrap(final Memory srcMem) {
+    final long pre0 = PreambleUtil.checkPreambleSize(srcMem);
+    final int preLongs = extractPreLongs(pre0);         //Byte 0
+    final int serVer = extractSerVer(pre0);             //Byte 1
+    final int familyID = extractFamilyID(pre0);         //Byte 2
+    final int lgMaxMapSize = extractLgMaxMapSize(pre0); //Byte 3
+    final int lgCurMapSize = extractLgCurMapSize(pre0); //Byte 4
+    final int flags = extractFlags(pre0);               //Byte 5
+    final int serDeId = extractSerDeId(pre0);           //Byte 6
+
+    if (preLongs != PREAMBLE_LONGS) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: PreLongs must be " + PREAMBLE_LONGS + ": " + preLongs);
+    }
+    if (serVer != SER_VER) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: Ser Ver must be " + SER_VER + ": " + serVer);
+    }
+    if (familyID != Family.FREQUENCY.getID()) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: FamilyID must be " + Family.FREQUENCY.getID() + ": " + familyID);
+    }
+    if ((flags & DIRECT_FLAG_MASK) == 0) {
+      throw new SketchesArgumentException(
+          "Memory does not hold a DirectLongsSketch. Use LongsSketch.getInstance(Memory).");
+    }
+    if (lgMaxMapSize < LG_MIN_MAP_SIZE || lgMaxMapSize > 30 || lgCurMapSize != lgMaxMapSize) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: LgMax: " + lgMaxMapSize + ", LgCur: " + lgCurMapSize);
+    }
+    if (serDeId != ARRAY_OF_LONGS_SERDE_ID) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: serDeId incorrect: " + serDeId + " != "
+              + ARRAY_OF_LONGS_SERDE_ID);
+    }
+    checkCapacity(srcMem, getRequiredBytes(1 << lgMaxMapSize));
+    return new DirectLongsSketch(srcMem, lgMaxMapSize);
+  }
+
+  /**
+   * Returns the number of bytes of Memory required by a sketch with the given maxMapSize.
+   * @param maxMapSize the maxMapSize of the sketch, which must be a power of 2 that is at least 8.
+   * @return the number of bytes of Memory required by a sketch with the given maxMapSize
+   */
+  public static long getRequiredBytes(final int maxMapSize) {
+    final int lgMaxMapSize = toLog2(maxMapSize, "maxMapSize");
+    if (lgMaxMapSize < LG_MIN_MAP_SIZE) {
+      throw new SketchesArgumentException("maxMapSize must be at least " + (1 << LG_MIN_MAP_SIZE)
+          + ": " + maxMapSize);
+    }
+    return PREAMBLE_BYTES + DirectReversePurgeLongHashMap.getTableBytes(maxMapSize);
+  }
+
+  /**
+   * Update this sketch with an item and a frequency count of one.
+   * @param item for which the frequency should be increased.
+   */
+  public void update(final long item) {
+    update(item, 1);
+  }
+
+  /**
+   * Update this sketch with a item and a positive frequency count.
+   * See {@link LongsSketch#update(long, long)}.
+   * @param item for which the frequency should be increased.
+   * @param count the amount by which the frequency of the item should be increased.
+   * An count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final long item, final long count) {
+    if (count == 0) return;
+    if (count < 0) {
+      throw new SketchesArgumentException("Count may not be negative");
+    }
+    mem.putLong(STREAMLENGTH_LONG, mem.getLong(STREAMLENGTH_LONG) + count);
+    hashMap.adjustOrPutValue(item, count);
+
+    if (hashMap.getNumActive() > hashMap.getCapacity()) { //At max size, must purge
+      mem.putLong(OFFSET_LONG, mem.getLong(OFFSET_LONG) + hashMap.purge(sampleSize));
+      if (hashMap.getNumActive() > hashMap.getCapacity()) {
+        throw new SketchesStateException("Purge did not reduce active items.");
+      }
+    }
+  }
+
+  /**
+   * Merges the given heap sketch into this one in place.
+   * See {@link LongsSketch#merge(LongsSketch)}.
+   *
+   * @param other the given heap sketch
+   * @return this sketch
+   */
+  public DirectLongsSketch merge(final LongsSketch other) {
+    if (other == null || other.isEmpty()) return this;
+    final long streamLen = getStreamLength() + other.getStreamLength(); //capture before merge
+    final ReversePurgeLongHashMap.Iterator iter = other.getHashMap().iterator();
+    while (iter.next()) { //this may add to offset during purges
+      update(iter.getKey(), iter.getValue());
+    }
+    mem.putLong(OFFSET_LONG, getMaximumError() + other.getMaximumError());
+    mem.putLong(STREAMLENGTH_LONG, streamLen); //corrected streamLength
+    return this;
+  }
+
+  /**
+   * Merges the given direct sketch into this one in place.
+   * See {@link LongsSketch#merge(LongsSketch)}.
+   *
+   * @param other the given direct sketch, which must not share the Memory of this sketch
+   * @return this sketch
+   */
+  public DirectLongsSketch merge(final DirectLongsSketch other) {
+    if (other == null || other.isEmpty()) return this;
+    final long streamLen = getStreamLength() + other.getStreamLength(); //capture before merge
+    final DirectReversePurgeLongHashMap otherMap = other.hashMap;
+    for (int i = 0; i < otherMap.getLength(); i++) { //this may add to offset during purges
+      if (otherMap.isActive(i)) {
+        update(otherMap.getKey(i), otherMap.getValue(i));
+      }
+    }
+    mem.putLong(OFFSET_LONG, getMaximumError() + other.getMaximumError());
+    mem.putLong(STREAMLENGTH_LONG, streamLen); //corrected streamLength
+    return this;
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given item.
+   * See {@link LongsSketch#getEstimate(long)}.
+   *
+   * @param item the given item
+   * @return the estimate of the frequency of the given item
+   */
+  public long getEstimate(final long item) {
+    final long itemCount = hashMap.get(item);
+    return (itemCount > 0) ? itemCount + getMaximumError() : 0;
+  }
+
+  /**
+   * Gets the guaranteed upper bound frequency of the given item.
+   * See {@link LongsSketch#getUpperBound(long)}.
+   *
+   * @param item the given item
+   * @return the guaranteed upper bound frequency of the given item
+   */
+  public long getUpperBound(final long item) {
+    return hashMap.get(item) + getMaximumError();
+  }
+
+  /**
+   * Gets the guaranteed lower bound frequency of the given item, which can never be negative.
+   * See {@link LongsSketch#getLowerBound(long)}.
+   *
+   * @param item the given item.
+   * @return the guaranteed lower bound frequency of the given item
+   */
+  public long getLowerBound(final long item) {
+    return hashMap.get(item);
+  }
+
+  /**
+   * Returns an array of Rows that include frequent items, estimates, upper and lower bounds
+   * given an ErrorCondition. See {@link LongsSketch#getFrequentItems(ErrorType)}.
+   *
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row[] getFrequentItems(final ErrorType errorType) {
+    final long threshold = getMaximumError();
+    final ArrayList<Row> rowList = new ArrayList<Row>();
+    for (int i = 0; i < hashMap.getLength(); i++) {
+      if (!hashMap.isActive(i)) continue;
+      final long item = hashMap.getKey(i);
+      final long lb = hashMap.getValue(i);
+      final long ub = lb + threshold;
+      if ((errorType == ErrorType.NO_FALSE_NEGATIVES) ? ub >= threshold : lb >= threshold) {
+        rowList.add(new Row(item, ub, ub, lb)); //the estimate of an active item is its ub
+      }
+    }
+
+    // descending order
+    rowList.sort(new Comparator<Row>() {
+      @Override
+      public int compare(final Row r1, final Row r2) {
+        return r2.compareTo(r1);
+      }
+    });
+    return rowList.toArray(new Row[rowList.size()]);
+  }
+
+  /**
+   * @return An upper bound on the maximum error of getEstimate(item) for any item.
+   * See {@link LongsSketch#getMaximumError()}.
+   */
+  public long getMaximumError() {
+    return mem.getLong(OFFSET_LONG);
+  }
+
+  /**
+   * Returns true if this sketch is empty
+   * @return true if this sketch is empty
+   */
+  public boolean isEmpty() {
+    return getNumActiveItems() == 0;
+  }
+
+  /**
+   * Returns the sum of the frequencies in the stream seen so far by the sketch
+   * @return the sum of the frequencies in the stream seen so far by the sketch
+   */
+  public long getStreamLength() {
+    return mem.getLong(STREAMLENGTH_LONG);
+  }
+
+  /**
+   * Returns the maximum number of counters the sketch is configured to support.
+   * @return the maximum number of counters the sketch is configured to support.
+   */
+  public int getMaximumMapCapacity() {
+    return hashMap.getCapacity();
+  }
+
+  /**
+   * @return the number of active items in the sketch.
+   */
+  public int getNumActiveItems() {
+    return hashMap.getNumActive();
+  }
+
+  /**
+   * Returns the Memory that holds this sketch
+   * @return the Memory that holds this sketch
+   */
+  public Memory getMemory() {
+    return mem;
+  }
+
+  /**
+   * Returns the compact serialized form of this sketch, which is the same as that of
+   * {@link LongsSketch#toByteArray()}.
+   * @return a byte array representation of this sketch
+   */
+  public byte[] toByteArray() {
+    final boolean empty = isEmpty();
+    final int activeItems = getNumActiveItems();
+    final int preLongs = empty ? 1 : PREAMBLE_LONGS;
+    final byte[] outArr = new byte[(preLongs + 2 * activeItems) << 3];
+    final Memory outMem = new NativeMemory(outArr);
+
+    long pre0 = 0L;
+    pre0 = insertPreLongs(preLongs, pre0);                  //Byte 0
+    pre0 = insertSerVer(SER_VER, pre0);                     //Byte 1
+    pre0 = insertFamilyID(Family.FREQUENCY.getID(), pre0);  //Byte 2
+    pre0 = insertLgMaxMapSize(lgMaxMapSize, pre0);          //Byte 3
+    pre0 = insertLgCurMapSize(lgMaxMapSize, pre0);          //Byte 4
+    pre0 = insertFlags(empty ? PreambleUtil.EMPTY_FLAG_MASK : 0, pre0); //Byte 5
+    pre0 = insertSerDeId(ARRAY_OF_LONGS_SERDE_ID, pre0);    //Byte 6,7
+    outMem.putLong(0, pre0);
+    if (!empty) {
+      outMem.putLong(8, insertActiveItems(activeItems, 0L));
+      outMem.putLong(STREAMLENGTH_LONG, getStreamLength());
+      outMem.putLong(OFFSET_LONG, getMaximumError());
+      final long valuesOffset = PREAMBLE_BYTES;
+      final long keysOffset = valuesOffset + (activeItems << 3);
+      int j = 0;
+      for (int i = 0; i < hashMap.getLength(); i++) {
+        if (hashMap.isActive(i)) {
+          outMem.putLong(valuesOffset + (j << 3), hashMap.getValue(i));
+          outMem.putLong(keysOffset + (j << 3), hashMap.getKey(i));
+          j++;
+        }
+      }
+      assert j == activeItems;
+    }
+    return outArr;
+  }
+
+  /**
+   * Returns a heap copy of this sketch.
+   * @return a heap copy of this sketch
+   */
+  public LongsSketch toHeap() {
+    return LongsSketch.getInstance(new NativeMemory(toByteArray()));
+  }
+
+  /**
+   * Resets this sketch to a virgin state.
+   */
+  public void reset() {
+    hashMap.clear();
+    mem.putLong(STREAMLENGTH_LONG, 0L);
+    mem.putLong(OFFSET_LONG, 0L);
+  }
+
+  /**
+   * Returns a human readable summary of this sketch.
+   * @return a human readable summary of this sketch.
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("DirectFrequentLongsSketch:").append(LS);
+    sb.append("  Stream Length    : " + getStreamLength()).append(LS);
+    sb.append("  Max Error Offset : " + getMaximumError()).append(LS);
+    sb.append("  Active Items     : " + getNumActiveItems()).append(LS);
+    sb.append("  Max Map Capacity : " + getMaximumMapCapacity()).append(LS);
+    return sb.toString();
+  }
+
+  private static void checkCapacity(final Memory mem, final long reqBytes) {
+    if (mem.getCapacity() < reqBytes) {
+      throw new SketchesArgumentException("Memory capacity: " + mem.getCapacity()
+          + " is less than required: " + reqBytes);
+    }
+  }
+
+}
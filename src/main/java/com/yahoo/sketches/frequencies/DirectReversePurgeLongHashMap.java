@@ -0,0 +1,281 @@
+/*
+ * Copyright 2016, Yahoo! Inc. Licensed under the terms of the Apache License 2.0. See LICENSE file
+ * at the project root for terms.
+ */
+
+package com.yahoo.sketches.frequencies;
+
+import static com.yahoo.sketches.frequencies.PreambleUtil.ACTIVE_ITEMS_INT;
+import static com.yahoo.sketches.frequencies.Util.hash;
+
+import com.yahoo.sketches.QuickSelect;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.UncheckedMemory;
+
+/**
+ * The counterpart of {@link ReversePurgeLongHashMap} whose keys, values and states arrays live in
+ * a Memory, starting at the given tableOffsetBytes, in that order. The number of active keys is
+ * kept in the ActiveItems field of the preamble of the same Memory, so the Memory is always a
+ * complete image of the map. The length of the map is fixed.
+ *
+ * <p>The linear probing, the reverse purge and the deletion logic are the same as those of
+ * ReversePurgeLongHashMap.</p>
+ */
+final class DirectReversePurgeLongHashMap {
+  private static final double LOAD_FACTOR = ReversePurgeLongHashMap.getLoadFactor();
+  private static final int DRIFT_LIMIT = 1024; //used only in stress testing
+  private final UncheckedMemory mem;
+  private final int length;
+  private final int loadThreshold;
+  private final long keysOffset;
+  private final long valuesOffset;
+  private final long statesOffset;
+  private long[] samples; //reused by every purge
+
+  /**
+   * Creates a view of a map in the given Memory.
+   *
+   * @param mem the Memory holding the preamble and the map
+   * @param tableOffsetBytes the offset of the keys array in the Memory
+   * @param lgLength log2 of the length of the map
+   */
+  DirectReversePurgeLongHashMap(final Memory mem, final long tableOffsetBytes,
+      final int lgLength) {
+    this.length = 1 << lgLength;
+    this.loadThreshold = (int) (length * LOAD_FACTOR);
+    this.keysOffset = tableOffsetBytes;
+    this.valuesOffset = keysOffset + ((long) length << 3);
+    this.statesOffset = valuesOffset + ((long) length << 3);
+    this.mem = UncheckedMemory.wrap(mem, 0, tableOffsetBytes + getTableBytes(length));
+  }
+
+  /**
+   * @param length the length of the map
+   * @return the number of bytes of the keys, values and states arrays of a map of this length
+   */
+  static long getTableBytes(final int length) {
+    return 18L * length; //8 bytes per key, 8 bytes per value, 2 bytes per state
+  }
+
+  /**
+   * Removes all keys from the map.
+   */
+  void clear() {
+    mem.getMemory().clear(keysOffset, getTableBytes(length));
+    setNumActive(0);
+  }
+
+  /**
+   * Gets the current value with the given key
+   * @param key the given key
+   * @return the positive value the key corresponds to or zero if if the key is not found in the
+   * hash map.
+   */
+  long get(final long key) {
+    final int probe = hashProbe(key);
+    if (getState(probe) > 0) {
+      assert (getKey(probe) == key);
+      return getValue(probe);
+    }
+    return 0;
+  }
+
+  /**
+   * Increments the value mapped to the key if the key is present in the map. Otherwise,
+   * the key is inserted with the putAmount.
+   *
+   * @param key the key of the value to increment
+   * @param adjustAmount the amount by which to increment the value
+   */
+  void adjustOrPutValue(final long key, final long adjustAmount) {
+    final int arrayMask = length - 1;
+    int probe = (int) hash(key) & arrayMask;
+    int drift = 1;
+    while (getState(probe) != 0 && getKey(probe) != key) {
+      probe = (probe + 1) & arrayMask;
+      drift++;
+      //only used for theoretical analysis
+      assert (drift < DRIFT_LIMIT) : "drift: " + drift + " >= DRIFT_LIMIT";
+    }
+
+    if (getState(probe) == 0) {
+      // adding the key to the table the value
+      final int numActive = getNumActive();
+      assert (numActive <= loadThreshold)
+        : "numActive: " + numActive + " > loadThreshold : " + loadThreshold;
+      putKey(probe, key);
+      putValue(probe, adjustAmount);
+      putState(probe, (short) drift);
+      setNumActive(numActive + 1);
+    } else {
+      // adjusting the value of an existing key
+      assert (getKey(probe) == key);
+      putValue(probe, getValue(probe) + adjustAmount);
+    }
+  }
+
+  /**
+   * Estimates the median of the values via sampling, decrements all values by this estimate and
+   * throws out all keys whose values are no longer positive.
+   * See {@link ReversePurgeLongHashMap#purge(int)}. The samples are collected in a buffer that is
+   * reused by every purge, and the values are decremented by the same reverse pass that throws out
+   * the keys, so the map is read and written only once per purge.
+   * @param sampleSize number of samples
+   * @return the median value
+   */
+  long purge(final int sampleSize) {
+    final int limit = Math.min(sampleSize, getNumActive());
+    if (samples == null || samples.length < limit) {
+      samples = new long[limit];
+    }
+
+    int numSamples = 0;
+    int i = 0;
+
+    while (numSamples < limit) {
+      if (isActive(i)) {
+        samples[numSamples] = getValue(i);
+        numSamples++;
+      }
+      i++;
+    }
+
+    final long val = QuickSelect.select(samples, 0, numSamples - 1, limit / 2);
+    adjustAndKeepOnlyPositiveCounts(val);
+    return val;
+  }
+
+  /**
+   * @return length of the map
+   */
+  int getLength() {
+    return length;
+  }
+
+  /**
+   * @return capacity of the map (i.e., max number of keys that can be stored)
+   */
+  int getCapacity() {
+    return loadThreshold;
+  }
+
+  /**
+   * @return number of populated keys
+   */
+  int getNumActive() {
+    return mem.getInt(ACTIVE_ITEMS_INT);
+  }
+
+  /**
+   * @param probe location in the map
+   * @return true if the cell in the map contains an active key
+   */
+  boolean isActive(final int probe) {
+    return getState(probe) > 0;
+  }
+
+  long getKey(final int probe) {
+    return mem.getLong(keysOffset + ((long) probe << 3));
+  }
+
+  long getValue(final int probe) {
+    return mem.getLong(valuesOffset + ((long) probe << 3));
+  }
+
+  /**
+   * Decrements every value by the given amount and deletes the keys whose values are no longer
+   * positive, in one reverse pass. A deletion only moves keys that the pass has already visited,
+   * and only into cells that it has already visited, so every key is decremented exactly once.
+   * @param decrement the amount to subtract from every value
+   */
+  private void adjustAndKeepOnlyPositiveCounts(final long decrement) {
+    // Starting from the back, find the first empty cell,
+    //  which establishes the high end of a cluster.
+    int firstProbe = length - 1;
+    while (getState(firstProbe) > 0) {
+      firstProbe--;
+    }
+    int numActive = getNumActive();
+    // Work towards the front; delete any non-positive entries.
+    for (int probe = firstProbe; probe-- > 0;) {
+      if (getState(probe) > 0 && !adjustValue(probe, decrement)) {
+        hashDelete(probe);
+        numActive--;
+      }
+    }
+    //now work on the first cluster that was skipped.
+    for (int probe = length; probe-- > firstProbe;) {
+      if (getState(probe) > 0 && !adjustValue(probe, decrement)) {
+        hashDelete(probe);
+        numActive--;
+      }
+    }
+    setNumActive(numActive);
+  }
+
+  //decrements the value of an occupied cell and returns true if it is still positive
+  private boolean adjustValue(final int probe, final long decrement) {
+    final long value = getValue(probe) - decrement;
+    if (value <= 0) return false;
+    putValue(probe, value);
+    return true;
+  }
+
+  private void hashDelete(int deleteProbe) {
+    // Looks ahead in the table to search for another
+    // item to move to this location
+    // if none are found, the status is changed
+    putState(deleteProbe, (short) 0); //mark as empty
+    int drift = 1;
+    final int arrayMask = length - 1;
+    int probe = (deleteProbe + drift) & arrayMask; //map length must be a power of 2
+    // advance until you find a free location replacing locations as needed
+    while (getState(probe) != 0) {
+      final short state = getState(probe);
+      if (state > drift) {
+        // move current element
+        putKey(deleteProbe, getKey(probe));
+        putValue(deleteProbe, getValue(probe));
+        putState(deleteProbe, (short) (state - drift));
+        // marking this location as deleted
+        putState(probe, (short) 0);
+        drift = 0;
+        deleteProbe = probe;
+      }
+      probe = (probe + 1) & arrayMask;
+      drift++;
+      //only used for theoretical analysis
+      assert (drift < DRIFT_LIMIT) : "drift: " + drift + " >= DRIFT_LIMIT";
+    }
+  }
+
+  private int hashProbe(final long key) {
+    final int arrayMask = length - 1;
+    int probe = (int) hash(key) & arrayMask;
+    while (getState(probe) > 0 && getKey(probe) != key) {
+      probe = (probe + 1) & arrayMask;
+    }
+    return probe;
+  }
+
+  private void setNumActive(final int numActive) {
+    mem.putInt(ACTIVE_ITEMS_INT, numActive);
+  }
+
+  private short getState(final int probe) {
+    return mem.getShort(statesOffset + ((long) probe << 1));
+  }
+
+  private void putKey(final int probe, final long key) {
+    mem.putLong(keysOffset + ((long) probe << 3), key);
+  }
+
+  private void putValue(final int probe, final long value) {
+    mem.putLong(valuesOffset + ((long) probe << 3), value);
+  }
+
+  private void putState(final int probe, final short state) {
+    mem.putShort(statesOffset + ((long) probe << 1), state);
+  }
+
+}
@@ -7,6 +7,7 @@ package com.yahoo.sketches.frequencies;
 
 import static com.yahoo.sketches.Util.LS;
 import static com.yahoo.sketches.Util.toLog2;
+import static com.yahoo.sketches.frequencies.PreambleUtil.DIRECT_FLAG_MASK;
 import static com.yahoo.sketches.frequencies.PreambleUtil.EMPTY_FLAG_MASK;
 import static com.yahoo.sketches.frequencies.PreambleUtil.SER_VER;
 import static com.yahoo.sketches.frequencies.PreambleUtil.extractActiveItems;
@@ -27,6 +28,7 @@ import static com.yahoo.sketches.frequencies.PreambleUtil.insertSerDeId;
 import static com.yahoo.sketches.frequencies.PreambleUtil.insertSerVer;
 import static com.yahoo.sketches.frequencies.Util.LG_MIN_MAP_SIZE;
 import static com.yahoo.sketches.frequencies.Util.SAMPLE_SIZE;
+import static com.yahoo.sketches.frequencies.Util.hash;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -34,7 +36,6 @@ import java.util.Comparator;
 import com.yahoo.sketches.ArrayOfLongsSerDe;
 import com.yahoo.sketches.Family;
 import com.yahoo.sketches.SketchesArgumentException;
-import com.yahoo.sketches.SketchesStateException;
 import com.yahoo.sketches.memory.Memory;
 import com.yahoo.sketches.memory.NativeMemory;
 
@@ -132,6 +133,13 @@ public class LongsSketch {
   private static final int STR_PREAMBLE_TOKENS = 7;
 
   private static final short ARRAY_OF_LONGS_SERDE_ID = new ArrayOfLongsSerDe().getId();
+
+  /**
+   * The number of items of a batch update that are pre-aggregated before the distinct items are
+   * applied to the hash map. The local table has twice as many slots.
+   */
+  private static final int BATCH_CHUNK_ITEMS = 1024;
+
   /**
    * Log2 Maximum length of the arrays internal to the hash map supported by the data 
    * structure.
@@ -164,6 +172,15 @@ public class LongsSketch {
    */
   private ReversePurgeLongHashMap hashMap;
 
+  /**
+   * Local open-addressing table that pre-aggregates the items of a batch update, allocated on the
+   * first batch update. A slot is empty if its count is zero. batchSlots lists the occupied slots
+   * in the order their items were first seen.
+   */
+  private long[] batchKeys;
+  private long[] batchCounts;
+  private int[] batchSlots;
+
   /**
    * Construct this sketch with the parameter maxMapSize and the default initialMapSize (8).
    * 
@@ -209,6 +226,9 @@ public class LongsSketch {
    */
   public static LongsSketch getInstance(final Memory srcMem) {
     final long pre0 = PreambleUtil.checkPreambleSize(srcMem); //make sure preamble will fit
+    if ((extractFlags(pre0) & DIRECT_FLAG_MASK) != 0) { //the image of a DirectLongsSketch
+      return DirectLongsSketch.wrap(srcMem).toHeap();
+    }
     final int maxPreLongs = Family.FREQUENCY.getMaxPreLongs();
 
     final int preLongs = extractPreLongs(pre0);         //Byte 0
@@ -422,17 +442,60 @@ public class LongsSketch {
     this.streamLength += count;
     hashMap.adjustOrPutValue(item, count);
 
-    if (getNumActiveItems() > curMapCap) { //over the threshold, we need to do something
+    if (hashMap.getNumOccupied() > curMapCap) { //over the threshold, we need to do something
       if (hashMap.getLgLength() < lgMaxMapSize) { //below tgt size, we can grow
         hashMap.resize(2 * hashMap.getLength());
         curMapCap = hashMap.getCapacity();
-      } else { //At tgt size, must purge
-        offset += hashMap.purge(sampleSize);
-        if (getNumActiveItems() > getMaximumMapCapacity()) {
-          throw new SketchesStateException("Purge did not reduce active items.");
-        }
+      } else if (!hashMap.isPurging()) { //At tgt size, must purge
+        // The keys removed by the purge are deleted by the following updates, a few cells
+        // at a time, and the next purge waits until they have all been deleted.
+        offset += hashMap.purgeIncrementally(sampleSize);
+      }
+    }
+  }
+
+  /**
+   * Update this sketch with each item of the given array in the range <i>[from, to)</i> with a
+   * frequency count of one.
+   * 
+   * <p>Duplicate items within each chunk of the batch are first aggregated in a small local table
+   * and each distinct item is then applied to the sketch once with its total count. On skewed
+   * streams this greatly reduces the number of probes of the internal hash map and of purge
+   * checks. The resulting sketch is the one obtained by presenting the aggregated counts with
+   * {@link #update(long, long)}, which has the same error guarantees as presenting the items one
+   * at a time, although the estimates may differ within those guarantees once purges occur.</p>
+   * 
+   * @param items the given items. If null, or if the range is empty, this is a no-op.
+   * @param from the index of the first item, inclusive
+   * @param to the index of the last item, exclusive
+   */
+  public void update(final long[] items, final int from, final int to) {
+    if (items == null) return;
+    checkBatchRange(from, to, items.length);
+    updateBatch(items, null, from, to);
+  }
+
+  /**
+   * Update this sketch with each item of the given array in the range <i>[from, to)</i> with the
+   * frequency count at the same index of the counts array. Duplicate items are pre-aggregated as
+   * described in {@link #update(long[], int, int)}.
+   * 
+   * @param items the given items. If null, or if the range is empty, this is a no-op.
+   * @param counts the frequency counts of the items, which must not be negative. A count of zero
+   * is a no-op for its item.
+   * @param from the index of the first item and count, inclusive
+   * @param to the index of the last item and count, exclusive
+   */
+  public void update(final long[] items, final long[] counts, final int from, final int to) {
+    if (items == null) return;
+    checkBatchRange(from, to, items.length);
+    checkBatchRange(from, to, counts.length);
+    for (int i = from; i < to; i++) {
+      if (counts[i] < 0) {
+        throw new SketchesArgumentException("Count may not be negative");
       }
     }
+    updateBatch(items, counts, from, to);
   }
 
   /**
@@ -458,6 +521,46 @@ public class LongsSketch {
     return this;
   }
 
+  private void updateBatch(final long[] items, final long[] counts, final int from,
+      final int to) {
+    if (batchKeys == null) {
+      batchKeys = new long[2 * BATCH_CHUNK_ITEMS];
+      batchCounts = new long[2 * BATCH_CHUNK_ITEMS];
+      batchSlots = new int[BATCH_CHUNK_ITEMS];
+    }
+    final int mask = batchKeys.length - 1;
+    for (int start = from; start < to; start += BATCH_CHUNK_ITEMS) {
+      final int end = Math.min(start + BATCH_CHUNK_ITEMS, to);
+      int numDistinct = 0;
+      for (int i = start; i < end; i++) {
+        final long count = (counts == null) ? 1 : counts[i];
+        if (count == 0) continue;
+        final long item = items[i];
+        int slot = (int) hash(item) & mask;
+        while (batchCounts[slot] != 0 && batchKeys[slot] != item) {
+          slot = (slot + 1) & mask;
+        }
+        if (batchCounts[slot] == 0) {
+          batchKeys[slot] = item;
+          batchSlots[numDistinct++] = slot;
+        }
+        batchCounts[slot] += count;
+      }
+      for (int j = 0; j < numDistinct; j++) {
+        final int slot = batchSlots[j];
+        update(batchKeys[slot], batchCounts[slot]);
+        batchCounts[slot] = 0;
+      }
+    }
+  }
+
+  private static void checkBatchRange(final int from, final int to, final int length) {
+    if (from < 0 || from > to || to > length) {
+      throw new SketchesArgumentException("Invalid range: from: " + from + ", to: " + to 
+          + ", length: " + length);
+    }
+  }
+
   /**
    * Gets the estimate of the frequency of the given item. 
    * Note: The true frequency of a item would be the sum of the counts as a result of the 
@@ -621,6 +724,10 @@ public class LongsSketch {
     
   } // End of class Row
 
+  ReversePurgeLongHashMap getHashMap() {
+    return hashMap;
+  }
+
   Row[] sortItems(final long threshold, final ErrorType errorType) {
     final ArrayList<Row> rowList = new ArrayList<Row>();
     final ReversePurgeLongHashMap.Iterator iter = hashMap.iterator();
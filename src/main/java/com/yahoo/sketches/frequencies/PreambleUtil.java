@@ -48,6 +48,13 @@ import com.yahoo.sketches.memory.Memory;
  *  5   ||----------start of values buffer, followed by keys buffer------------------------|
  * </pre>
  * 
+ * <p>
+ * The updatable image of a DirectLongsSketch has the same 4 preamble longs with the DIRECT flag
+ * set, where LgCur equals LgMax and ActiveItems is the number of keys in the hash table. It is
+ * followed by the hash table itself, which is not compacted: the keys array of 2^LgMax longs,
+ * the values array of 2^LgMax longs and the states array of 2^LgMax shorts, in that order.
+ * </p>
+ * 
  * @author Lee Rhodes
  */
 final class PreambleUtil {
@@ -69,6 +76,7 @@ final class PreambleUtil {
 
   // flag bit masks
   static final int EMPTY_FLAG_MASK      = 4;
+  static final int DIRECT_FLAG_MASK     = 8;
 
   // Specific values for this implementation
   static final int SER_VER = 1;
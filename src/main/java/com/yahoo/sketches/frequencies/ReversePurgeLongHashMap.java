@@ -17,6 +17,16 @@ import com.yahoo.sketches.SketchesArgumentException;
  * "reverse" purge operation that removes all keys in the map whose associated values are &le; 0 
  * and is performed in reverse, starting at the "back" of the array and moving toward the front.
  * 
+ * <p>The purge can also be performed incrementally with {@link #purgeIncrementally(int)}. The
+ * values are stored relative to a valueOffset, so decrementing all values by the median is a
+ * single subtraction from every value read, and a key whose stored value is &le; valueOffset is
+ * dead: it is not active and it is not returned by any accessor. The dead keys still occupy their
+ * cells until a sweep in reverse order deletes them, which is performed a few cells at a time by
+ * each subsequent call of {@link #adjustOrPutValue(long, long)}. While the sweep is pending, the
+ * number of occupied cells may exceed the capacity by at most a sixteenth of the length of the
+ * map. The accessors skip the dead keys and never change the map; only resize and serialization
+ * finish the pending sweep first.</p>
+ * 
  * @author Edo Liberty
  * @author Justin Thaler
  * @author Lee Rhodes
@@ -24,12 +34,20 @@ import com.yahoo.sketches.SketchesArgumentException;
 class ReversePurgeLongHashMap {
   private static final double LOAD_FACTOR = 0.75;
   private static final int DRIFT_LIMIT = 1024; //used only in stress testing
+  private static final int SWEEP_PROBES = 16; //cells swept per call of adjustOrPutValue
   private int lgLength;
   private int loadThreshold;
   private long[] keys;
   private long[] values;
   private short[] states;
-  private int numActive = 0;
+  private int numActive = 0; //number of live keys
+  private int numOccupied = 0; //number of occupied cells, including dead keys while sweeping
+  private long valueOffset = 0; //the sum of the medians of all purges since the last resize
+  private long[] samples; //reused by every purge
+  private int sweepProbe = -1; //next cell to sweep, or -1 if no sweep is pending
+  private int sweepFirstProbe; //an empty cell when the sweep started
+  private int sweepRemaining; //number of cells left to sweep
+  private boolean sweepMissed; //true if the sweep may have missed dead keys
 
   /**
    * Constructor will create arrays of length mapSize, which must be a power of two.
@@ -82,12 +100,13 @@ class ReversePurgeLongHashMap {
    * @return a String representation of this hash map.
    */
   String serializeToString() {
+    finishPurge();
     final StringBuilder sb = new StringBuilder();
     sb.append(String.format("%d,%d,", numActive, keys.length));
 
     for (int i = 0; i < keys.length; i++) {
       if (states[i] != 0) {
-        sb.append(String.format("%d,%d,", keys[i], values[i]));
+        sb.append(String.format("%d,%d,", keys[i], values[i] - valueOffset));
       }
     }
     return sb.toString();
@@ -98,7 +117,7 @@ class ReversePurgeLongHashMap {
    * @return true if the cell in the array contains an active key
    */
   boolean isActive(final int probe) {
-    return (states[probe] > 0);
+    return (states[probe] > 0) && (values[probe] > valueOffset);
   }
 
   /**
@@ -109,9 +128,9 @@ class ReversePurgeLongHashMap {
    */
   long get(final long key) {
     final int probe = hashProbe(key);
-    if (states[probe] > 0) {
+    if (isActive(probe)) {
       assert (keys[probe] == key);
-      return values[probe];
+      return values[probe] - valueOffset;
     }
     return 0;
   }
@@ -124,6 +143,13 @@ class ReversePurgeLongHashMap {
    * @param adjustAmount the amount by which to increment the value
    */
   void adjustOrPutValue(final long key, final long adjustAmount) {
+    if (sweepProbe >= 0) {
+      if (numOccupied < getSweepLimit()) {
+        sweep(SWEEP_PROBES);
+      } else { //only if repeated sweeps have missed dead keys
+        finishPurge();
+      }
+    }
     final int arrayMask = keys.length - 1;
     int probe = (int) hash(key) & arrayMask;
     int drift = 1;
@@ -136,16 +162,20 @@ class ReversePurgeLongHashMap {
 
     if (states[probe] == 0) {
       // adding the key to the table the value
-      assert (numActive <= loadThreshold) 
-        : "numActive: " + numActive + " > loadThreshold : " + loadThreshold;
+      assert (numOccupied <= getSweepLimit()) 
+        : "numOccupied: " + numOccupied + " > sweepLimit : " + getSweepLimit();
       keys[probe] = key;
-      values[probe] = adjustAmount;
+      values[probe] = valueOffset + adjustAmount;
       states[probe] = (short) drift;
-      numActive++;
+      numOccupied++;
+      if (adjustAmount > 0) { numActive++; }
     } else {
-      // adjusting the value of an existing key
+      // adjusting the value of an existing key, which restarts from zero if it is dead
       assert (keys[probe] == key);
-      values[probe] += adjustAmount;
+      final boolean wasLive = values[probe] > valueOffset;
+      values[probe] = Math.max(values[probe], valueOffset) + adjustAmount;
+      final boolean isLive = values[probe] > valueOffset;
+      if (wasLive != isLive) { numActive += isLive ? 1 : -1; }
     }
   }
   
@@ -163,18 +193,19 @@ class ReversePurgeLongHashMap {
     // When we find the next non-empty cell, we know we are at the high end of a cluster
     // Work towards the front; delete any non-positive entries.
     for (int probe = firstProbe; probe-- > 0;) {
-      if (states[probe] > 0 && values[probe] <= 0) {
+      if (states[probe] > 0 && values[probe] <= valueOffset) {
         hashDelete(probe); //does the work of deletion and moving higher items towards the front.
-        numActive--;
+        numOccupied--;
       }
     }
     //now work on the first cluster that was skipped.
     for (int probe = keys.length; probe-- > firstProbe;) {
-      if (states[probe] > 0 && values[probe] <= 0) {
+      if (states[probe] > 0 && values[probe] <= valueOffset) {
         hashDelete(probe);
-        numActive--;
+        numOccupied--;
       }
     }
+    numActive = numOccupied;
   }
 
   /**
@@ -185,6 +216,7 @@ class ReversePurgeLongHashMap {
     for (int i = keys.length; i-- > 0; ) {
       values[i] += adjustAmount;
     }
+    numActive = countLive();
   }
 
   /**
@@ -213,7 +245,7 @@ class ReversePurgeLongHashMap {
     int j = 0;
     for (int i = 0; i < values.length; i++) {
       if (isActive(i)) {
-        returnedValues[j] = values[i];
+        returnedValues[j] = values[i] - valueOffset;
         j++;
       }
     }
@@ -223,18 +255,22 @@ class ReversePurgeLongHashMap {
 
   // assume newSize is power of 2
   void resize(final int newSize) {
+    finishPurge();
     final long[] oldKeys = keys;
     final long[] oldValues = values;
     final short[] oldStates = states;
+    final long oldValueOffset = valueOffset;
     keys = new long[newSize];
     values = new long[newSize];
     states = new short[newSize];
     loadThreshold = (int) (newSize * LOAD_FACTOR);
     lgLength = Integer.numberOfTrailingZeros(newSize);
     numActive = 0;
+    numOccupied = 0;
+    valueOffset = 0;
     for (int i = 0; i < oldKeys.length; i++) {
       if (oldStates[i] > 0) {
-        adjustOrPutValue(oldKeys[i], oldValues[i]);
+        adjustOrPutValue(oldKeys[i], oldValues[i] - oldValueOffset);
       }
     }
   }
@@ -264,6 +300,20 @@ class ReversePurgeLongHashMap {
     return numActive;
   }
 
+  /**
+   * @return number of occupied cells, which includes the dead keys of a pending sweep
+   */
+  int getNumOccupied() {
+    return numOccupied;
+  }
+
+  /**
+   * @return true if the sweep of an incremental purge is pending
+   */
+  boolean isPurging() {
+    return sweepProbe >= 0;
+  }
+
   /**
    * Returns the hash table as a human readable string.
    */
@@ -276,8 +326,8 @@ class ReversePurgeLongHashMap {
     sb.append(String.format(hfmt, "Index","States","Values","Keys")).append(LS);
 
     for (int i = 0; i < keys.length; i++) {
-      if (states[i] <= 0) continue;
-      sb.append(String.format(fmt, i, states[i], values[i], keys[i])).append(LS);
+      if (!isActive(i)) continue;
+      sb.append(String.format(fmt, i, states[i], values[i] - valueOffset, keys[i])).append(LS);
     }
     return sb.toString();
   }
@@ -299,26 +349,107 @@ class ReversePurgeLongHashMap {
    * @return the median value
    */
   long purge(final int sampleSize) {
-    final int limit = Math.min(sampleSize, getNumActive());
+    final long val = purgeIncrementally(sampleSize);
+    finishPurge();
+    return val;
+  }
+
+  /**
+   * Performs the same purge as {@link #purge(int)}, except that the keys whose values are no
+   * longer positive are only marked as dead. They are deleted by a sweep that is spread over the
+   * subsequent calls of {@link #adjustOrPutValue(long, long)}, so the cost of this call is only
+   * that of sampling and of counting the keys that are still live, which does not move any keys.
+   * The samples are collected in a buffer that is reused by every purge.
+   * A previous sweep must not be pending.
+   * @param sampleSize number of samples
+   * @return the median value
+   */
+  long purgeIncrementally(final int sampleSize) {
+    assert (sweepProbe < 0) : "Previous sweep is pending";
+    final int limit = Math.min(sampleSize, numActive);
+    if (samples == null || samples.length < limit) {
+      samples = new long[limit];
+    }
 
     int numSamples = 0;
     int i = 0;
-    final long[] samples = new long[limit];
-
     while (numSamples < limit) {
       if (isActive(i)) {
-        samples[numSamples] = values[i];
+        samples[numSamples] = values[i] - valueOffset;
         numSamples++;
       }
       i++;
     }
 
     final long val = QuickSelect.select(samples, 0, numSamples - 1, limit / 2);
-    adjustAllValuesBy(-1 * val);
-    keepOnlyPositiveCounts();
+    valueOffset += val;
+    numActive = countLive();
+    startSweep();
     return val;
   }
 
+  /**
+   * Deletes all dead keys of a pending sweep at once.
+   */
+  void finishPurge() {
+    if (sweepProbe < 0) return;
+    keepOnlyPositiveCounts();
+    sweepProbe = -1;
+  }
+
+  private void startSweep() {
+    // Same order as keepOnlyPositiveCounts(): from an empty cell towards the front, wrapping
+    // around to the back.
+    int firstProbe = keys.length - 1;
+    while (states[firstProbe] > 0) {
+      firstProbe--;
+    }
+    sweepFirstProbe = firstProbe;
+    sweepProbe = (firstProbe - 1) & (keys.length - 1);
+    sweepRemaining = keys.length;
+    sweepMissed = false;
+  }
+
+  private void sweep(final int numProbes) {
+    // If a new key took the empty cell where the sweep started, a deletion may move a dead key
+    // from the cells not yet swept into the cells already swept, so another sweep is needed.
+    if (states[sweepFirstProbe] != 0) {
+      sweepMissed = true;
+    }
+    final int arrayMask = keys.length - 1;
+    final int n = Math.min(numProbes, sweepRemaining);
+    for (int j = 0; j < n; j++) {
+      if (states[sweepProbe] > 0 && values[sweepProbe] <= valueOffset) {
+        hashDelete(sweepProbe);
+        numOccupied--;
+      }
+      sweepProbe = (sweepProbe - 1) & arrayMask;
+    }
+    sweepRemaining -= n;
+    if (sweepRemaining == 0) {
+      if (sweepMissed) {
+        startSweep();
+      } else {
+        sweepProbe = -1;
+      }
+    }
+  }
+
+  /**
+   * @return the number of occupied cells beyond which a pending sweep is finished at once
+   */
+  private int getSweepLimit() {
+    return keys.length - (keys.length >>> 3);
+  }
+
+  private int countLive() {
+    int count = 0;
+    for (int i = values.length; i-- > 0; ) {
+      if (isActive(i)) { count++; }
+    }
+    return count;
+  }
+
   private void hashDelete(int deleteProbe) {
     // Looks ahead in the table to search for another
     // item to move to this location
@@ -356,26 +487,29 @@ class ReversePurgeLongHashMap {
   }
 
   Iterator iterator() {
-    return new Iterator(keys, values, states);
+    return new Iterator(keys, values, states, valueOffset);
   }
 
   static class Iterator {
     private final long[] iKeys;
     private final long[] iValues;
     private final short[] iStates;
+    private final long iValueOffset;
     private int i;
 
-    Iterator(final long[] keys, final long[] values, final short[] states) {
+    Iterator(final long[] keys, final long[] values, final short[] states,
+        final long valueOffset) {
       iKeys = keys;
       iValues = values;
       iStates = states;
+      iValueOffset = valueOffset;
       i = -1;
     }
 
     boolean next() {
       i++;
       while (i < iKeys.length) {
-        if (iStates[i] > 0) return true;
+        if ((iStates[i] > 0) && (iValues[i] > iValueOffset)) return true;
         i++;
       }
       return false;
@@ -386,7 +520,7 @@ class ReversePurgeLongHashMap {
     }
 
     long getValue() {
-      return iValues[i];
+      return iValues[i] - iValueOffset;
     }
   }
 }
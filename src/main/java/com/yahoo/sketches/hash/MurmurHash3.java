@@ -6,6 +6,12 @@
 package com.yahoo.sketches.hash;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.UncheckedMemory;
 
 
 /**
@@ -44,9 +50,173 @@ import java.io.Serializable;
  */
 public final class MurmurHash3 implements Serializable {
   private static final long serialVersionUID = 0L;
+  private static final boolean NATIVE_LITTLE_ENDIAN =
+      ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
   
   private MurmurHash3() {}
-  
+
+  //--Hash of long------------------------------------------------------
+  /**
+   * Returns the first 64 bits of the 128-bit hash of a single long without allocating any arrays.
+   * This produces the same result as <i>hash(new long[] {key}, seed)[0]</i>.
+   *
+   * @param key The input long.
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the 128-bit hash.
+   */
+  public static long hash(long key, long seed) {
+    return hashSingleK1(key, seed, Long.BYTES);
+  }
+
+  /**
+   * Computes the 128-bit hash of a single long into the given array of size 2, which may be
+   * reused across calls. This produces the same result as <i>hash(new long[] {key}, seed)</i>.
+   *
+   * @param key The input long.
+   * @param seed A long valued seed.
+   * @param hashOut A long array of size at least 2 that receives the hash.
+   * @return the given hashOut array.
+   */
+  public static long[] hash(long key, long seed, long[] hashOut) {
+    long h1 = seed ^ HashState.mixK1(key);
+    long h2 = seed; //mixK2(0) == 0
+    h1 ^= Long.BYTES;
+    h2 ^= Long.BYTES;
+    h1 += h2;
+    h2 += h1;
+    h1 = HashState.finalMix64(h1);
+    h2 = HashState.finalMix64(h2);
+    h1 += h2;
+    h2 += h1;
+    hashOut[0] = h1;
+    hashOut[1] = h2;
+    return hashOut;
+  }
+
+  //--Hash of double----------------------------------------------------
+  /**
+   * Returns the first 64 bits of the 128-bit hash of a single double without allocating any
+   * arrays. The double is canonicalized exactly as the sketch update methods do: plus and minus
+   * zero are normalized to plus zero, and all NaN forms are normalized by
+   * Double.doubleToLongBits(datum).
+   *
+   * @param key The input double.
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the 128-bit hash.
+   */
+  public static long hash(double key, long seed) {
+    return hash(doubleToCanonicalLong(key), seed);
+  }
+
+  /**
+   * Computes the 128-bit hash of a single double into the given array of size 2, which may be
+   * reused across calls. The double is canonicalized as in {@link #hash(double, long)}.
+   *
+   * @param key The input double.
+   * @param seed A long valued seed.
+   * @param hashOut A long array of size at least 2 that receives the hash.
+   * @return the given hashOut array.
+   */
+  public static long[] hash(double key, long seed, long[] hashOut) {
+    return hash(doubleToCanonicalLong(key), seed, hashOut);
+  }
+
+  //--Bulk hash of independent keys------------------------------------
+  /**
+   * Hashes each element of the given range of a long array as an independent key into the given
+   * output array. The element at <i>keys[from + i]</i> produces <i>hashesOut[i]</i>, which is
+   * exactly <i>hash(keys[from + i], seed)</i>, the first 64 bits of its 128-bit hash.
+   *
+   * <p>The loop is unrolled over independent keys, allocates nothing and makes no calls that the
+   * JIT compiler cannot inline, so the multiply chains of adjacent keys can be overlapped.</p>
+   *
+   * @param keys the input keys
+   * @param from the index of the first key, inclusive
+   * @param to the index of the last key, exclusive
+   * @param seed A long valued seed.
+   * @param hashesOut receives the hashes starting at index zero. Its length must be at least
+   * <i>to - from</i>.
+   */
+  public static void hashEach(long[] keys, int from, int to, long seed, long[] hashesOut) {
+    final int count = checkBulkRange(from, to, keys.length, hashesOut.length);
+    final int unrolled = count & ~3;
+    int i = 0;
+    for (; i < unrolled; i += 4) {
+      final int k = from + i;
+      hashesOut[i] = hashSingleK1(keys[k], seed, Long.BYTES);
+      hashesOut[i + 1] = hashSingleK1(keys[k + 1], seed, Long.BYTES);
+      hashesOut[i + 2] = hashSingleK1(keys[k + 2], seed, Long.BYTES);
+      hashesOut[i + 3] = hashSingleK1(keys[k + 3], seed, Long.BYTES);
+    }
+    for (; i < count; i++) {
+      hashesOut[i] = hashSingleK1(keys[from + i], seed, Long.BYTES);
+    }
+  }
+
+  /**
+   * Hashes each element of the given range of an int array as an independent key into the given
+   * output array. The element at <i>keys[from + i]</i> produces <i>hashesOut[i]</i>, which is
+   * exactly <i>hash(new int[] {keys[from + i]}, seed)[0]</i>. Note that this differs from
+   * hashing the int widened to a long.
+   *
+   * @param keys the input keys
+   * @param from the index of the first key, inclusive
+   * @param to the index of the last key, exclusive
+   * @param seed A long valued seed.
+   * @param hashesOut receives the hashes starting at index zero. Its length must be at least
+   * <i>to - from</i>.
+   */
+  public static void hashEach(int[] keys, int from, int to, long seed, long[] hashesOut) {
+    final int count = checkBulkRange(from, to, keys.length, hashesOut.length);
+    final int unrolled = count & ~3;
+    int i = 0;
+    for (; i < unrolled; i += 4) {
+      final int k = from + i;
+      hashesOut[i] = hashSingleK1(keys[k] & 0xFFFFFFFFL, seed, Integer.BYTES);
+      hashesOut[i + 1] = hashSingleK1(keys[k + 1] & 0xFFFFFFFFL, seed, Integer.BYTES);
+      hashesOut[i + 2] = hashSingleK1(keys[k + 2] & 0xFFFFFFFFL, seed, Integer.BYTES);
+      hashesOut[i + 3] = hashSingleK1(keys[k + 3] & 0xFFFFFFFFL, seed, Integer.BYTES);
+    }
+    for (; i < count; i++) {
+      hashesOut[i] = hashSingleK1(keys[from + i] & 0xFFFFFFFFL, seed, Integer.BYTES);
+    }
+  }
+
+  /**
+   * Hashes each long of a column of longs in the given Memory as an independent key into the
+   * given output array. The long at <i>offsetBytes + 8 * i</i> produces <i>hashesOut[i]</i>,
+   * which is exactly <i>hash(mem.getLong(offsetBytes + 8 * i), seed)</i>. The column is checked
+   * against the capacity of the Memory once, before any key is read.
+   *
+   * @param mem the Memory holding the column
+   * @param offsetBytes the offset of the first key in the Memory
+   * @param count the number of keys
+   * @param seed A long valued seed.
+   * @param hashesOut receives the hashes starting at index zero. Its length must be at least
+   * <i>count</i>.
+   */
+  public static void hashEach(Memory mem, long offsetBytes, int count, long seed,
+      long[] hashesOut) {
+    if ((count < 0) || (count > hashesOut.length)) {
+      throw new SketchesArgumentException("Invalid count: " + count + ", output length: "
+          + hashesOut.length);
+    }
+    if (count == 0) { return; }
+    final UncheckedMemory col = UncheckedMemory.wrap(mem, offsetBytes, (long) count << 3);
+    final int unrolled = count & ~3;
+    int i = 0;
+    for (; i < unrolled; i += 4) {
+      final long off = (long) i << 3;
+      hashesOut[i] = hashSingleK1(col.getLong(off), seed, Long.BYTES);
+      hashesOut[i + 1] = hashSingleK1(col.getLong(off + 8), seed, Long.BYTES);
+      hashesOut[i + 2] = hashSingleK1(col.getLong(off + 16), seed, Long.BYTES);
+      hashesOut[i + 3] = hashSingleK1(col.getLong(off + 24), seed, Long.BYTES);
+    }
+    for (; i < count; i++) {
+      hashesOut[i] = hashSingleK1(col.getLong((long) i << 3), seed, Long.BYTES);
+    }
+  }
+
   //--Hash of long[]----------------------------------------------------
   /**
    * Returns a long array of size 2, which is a 128-bit hash of the input.
@@ -122,6 +292,129 @@ public final class MurmurHash3 implements Serializable {
     return hashState.finalMix128(k1, k2, ints * Integer.BYTES); //convert to bytes
   }
   
+  //--Hash of String as UTF-8------------------------------------------
+  /**
+   * Returns a long array of size 2, which is a 128-bit hash of the UTF-8 encoding of the input.
+   * This produces the same result as <i>hash(key.getBytes(StandardCharsets.UTF_8), seed)</i>, but
+   * the String is encoded on the fly into the hash state without allocating the encoded bytes.
+   *
+   * @param key The input String. Must be non-null.
+   * @param seed A long valued seed.
+   * @return the hash.
+   */
+  public static long[] hash(String key, long seed) {
+    return hash(key, seed, new long[2]);
+  }
+
+  /**
+   * Computes the 128-bit hash of the UTF-8 encoding of the input into the given array of size 2,
+   * which may be reused across calls. See {@link #hash(String, long)}.
+   *
+   * @param key The input String. Must be non-null.
+   * @param seed A long valued seed.
+   * @param hashOut A long array of size at least 2 that receives the hash.
+   * @return the given hashOut array.
+   */
+  public static long[] hash(String key, long seed, long[] hashOut) {
+    hashUtf8(key, seed, hashOut);
+    return hashOut;
+  }
+
+  /**
+   * Returns the first 64 bits of the 128-bit hash of the UTF-8 encoding of the input without
+   * allocating any arrays. See {@link #hash(String, long)}.
+   *
+   * @param key The input String. Must be non-null.
+   * @param seed A long valued seed.
+   * @return the first 64 bits of the 128-bit hash.
+   */
+  public static long hash64(String key, long seed) {
+    return hashUtf8(key, seed, null);
+  }
+
+  /**
+   * Hashes the UTF-8 encoding of the given String. Each char is encoded into at most 4 bytes,
+   * which are appended to the pending 128-bit block held in k1 and k2. A full block is mixed into
+   * the state as soon as it is filled. Runs of 16 ASCII chars that start on a block boundary are
+   * gathered into a block directly. The other chars are encoded by
+   * {@link HashState#utf8Char(String, int)}, as in {@link MurmurHash3Hasher#putString(String)}.
+   *
+   * @param key the String
+   * @param seed the seed
+   * @param hashOut receives the 128-bit hash if not null
+   * @return the first 64 bits of the hash
+   */
+  private static long hashUtf8(String key, long seed, long[] hashOut) {
+    final int len = key.length();
+    long h1 = seed;
+    long h2 = seed;
+    long k1 = 0;
+    long k2 = 0;
+    int pos = 0; //pending bytes in k1, k2
+    long lengthBytes = 0;
+    int i = 0;
+    while (i < len) {
+      if ((pos == 0) && ((len - i) >= 16)) { //ASCII block fast path
+        long b1 = 0;
+        long b2 = 0;
+        int ascii = 0;
+        for (int j = 0; j < 8; j++) {
+          final char c1 = key.charAt(i + j);
+          final char c2 = key.charAt(i + j + 8);
+          ascii |= c1 | c2;
+          b1 |= (long) c1 << (j << 3);
+          b2 |= (long) c2 << (j << 3);
+        }
+        if (ascii < 0x80) {
+          h1 = HashState.blockMixH1(h1, h2, b1);
+          h2 = HashState.blockMixH2(h2, h1, b2);
+          lengthBytes += 16;
+          i += 16;
+          continue;
+        }
+      }
+      final long utf8 = HashState.utf8Char(key, i);
+      final long bits = utf8 & 0xFFFFFFFFL;
+      final int n = (int) (utf8 >>> 32);
+      i += (n == 4) ? 2 : 1;
+      lengthBytes += n;
+      //append the n <= 4 bytes, which may straddle k1 and k2 or the end of the block
+      final int shift = (pos & 7) << 3;
+      if (pos < 8) {
+        k1 |= bits << shift;
+      } else {
+        k2 |= bits << shift;
+      }
+      final int room = 8 - (pos & 7);
+      final long rest = (n > room) ? bits >>> (room << 3) : 0; //bytes past the filled lane
+      pos += n;
+      if (pos < 16) {
+        if (n > room) { k2 = rest; } //k1 was filled and k2 was empty
+      } else { //the block is full, any rest starts the next block
+        h1 = HashState.blockMixH1(h1, h2, k1);
+        h2 = HashState.blockMixH2(h2, h1, k2);
+        k1 = rest;
+        k2 = 0;
+        pos -= 16;
+      }
+    }
+    // Mix the tail into the hash
+    h1 ^= HashState.mixK1(k1);
+    h2 ^= HashState.mixK2(k2);
+    h1 ^= lengthBytes;
+    h2 ^= lengthBytes;
+    h1 += h2;
+    h2 += h1;
+    h1 = HashState.finalMix64(h1);
+    h2 = HashState.finalMix64(h2);
+    h1 += h2;
+    if (hashOut != null) {
+      hashOut[0] = h1;
+      hashOut[1] = h2 + h1;
+    }
+    return h1;
+  }
+
   //--Hash of char[]----------------------------------------------------
   /**
    * Returns a long array of size 2, which is a 128-bit hash of the input.
@@ -206,11 +499,121 @@ public final class MurmurHash3 implements Serializable {
     return hashState.finalMix128(k1, k2, bytes);
   }
   
+  //--Hash of a byte region of Memory----------------------------------
+  /**
+   * Returns a long array of size 2, which is a 128-bit hash of the given region of bytes in the
+   * given Memory. The bytes are read in place, and the result is the same as
+   * <i>hash(bytes, seed)</i> of a byte array holding a copy of the region.
+   *
+   * @param mem The Memory holding the input bytes.
+   * @param offsetBytes the offset of the first byte of the region in the Memory
+   * @param lengthBytes the length of the region in bytes
+   * @param seed A long valued seed.
+   * @return the hash.
+   */
+  public static long[] hash(Memory mem, long offsetBytes, long lengthBytes, long seed) {
+    final long cap = mem.getCapacity();
+    if ((offsetBytes < 0) || (lengthBytes < 0) || ((offsetBytes + lengthBytes) > cap)) {
+      throw new SketchesArgumentException("Region out of bounds: offset: " + offsetBytes
+          + ", length: " + lengthBytes + ", Memory capacity: " + cap);
+    }
+    HashState hashState = new HashState(seed, seed);
+    if (lengthBytes == 0) { return hashState.finalMix128(0, 0, 0); }
+    final UncheckedMemory key = UncheckedMemory.wrap(mem, offsetBytes, lengthBytes);
+    
+    // Number of full 128-bit blocks of 16 bytes.
+    // Possible exclusion of a remainder of up to 15 bytes.
+    final long nblocks = lengthBytes >> 4; //bytes / 16
+    
+    // Process the 128-bit blocks (the body) into the hash
+    for (long i = 0; i < nblocks; i++ ) { //16 bytes per block
+      long k1 = toLittleEndian(key.getLong(16 * i)); //0, 16, 32, ...
+      long k2 = toLittleEndian(key.getLong((16 * i) + 8)); //8, 24, 40, ...
+      hashState.blockMix128(k1, k2);
+    }
+    
+    // Get the tail index, remainder length
+    long tail = nblocks * 16; //16 bytes per block
+    int rem = (int) (lengthBytes - tail); // remainder bytes: 0,1,...,15
+    
+    // Get the tail
+    long k1;
+    long k2;
+    if (rem > 8) { //k1 -> whole; k2 -> partial
+      k1 = toLittleEndian(key.getLong(tail));
+      k2 = getLong(key, tail + 8, rem - 8);
+    } 
+    else { //k1 -> whole, partial or 0; k2 == 0
+      k1 = (rem == 0) ? 0 : getLong(key, tail, rem);
+      k2 = 0;
+    }
+    // Mix the tail into the hash and return
+    return hashState.finalMix128(k1, k2, lengthBytes);
+  }
+
+  //--Hash of a byte region of ByteBuffer-------------------------------
+  /**
+   * Returns a long array of size 2, which is a 128-bit hash of the given region of bytes in the
+   * given ByteBuffer. The bytes are read in place with absolute gets, so the position, limit and
+   * byte order of the buffer are not changed, and the result does not depend on its byte order.
+   * The result is the same as <i>hash(bytes, seed)</i> of a byte array holding a copy of the
+   * region.
+   *
+   * @param buf The ByteBuffer holding the input bytes, which may be a heap or a direct buffer.
+   * @param offset the absolute index of the first byte of the region in the buffer
+   * @param length the length of the region in bytes, which must not extend past the limit of the
+   * buffer
+   * @param seed A long valued seed.
+   * @return the hash.
+   */
+  public static long[] hash(ByteBuffer buf, int offset, int length, long seed) {
+    final int limit = buf.limit();
+    if ((offset < 0) || (length < 0) || (((long) offset + length) > limit)) {
+      throw new SketchesArgumentException("Region out of bounds: offset: " + offset
+          + ", length: " + length + ", buffer limit: " + limit);
+    }
+    final boolean swap = buf.order() != ByteOrder.LITTLE_ENDIAN;
+    HashState hashState = new HashState(seed, seed);
+    
+    // Number of full 128-bit blocks of 16 bytes.
+    // Possible exclusion of a remainder of up to 15 bytes.
+    final int nblocks = length >> 4; //bytes / 16
+    
+    // Process the 128-bit blocks (the body) into the hash
+    for (int i = 0; i < nblocks; i++ ) { //16 bytes per block
+      long k1 = buf.getLong(offset + (16 * i)); //0, 16, 32, ...
+      long k2 = buf.getLong(offset + (16 * i) + 8); //8, 24, 40, ...
+      if (swap) {
+        k1 = Long.reverseBytes(k1);
+        k2 = Long.reverseBytes(k2);
+      }
+      hashState.blockMix128(k1, k2);
+    }
+    
+    // Get the tail index, remainder length
+    int tail = offset + (nblocks * 16); //16 bytes per block
+    int rem = (offset + length) - tail; // remainder bytes: 0,1,...,15
+    
+    // Get the tail
+    long k1;
+    long k2;
+    if (rem > 8) { //k1 -> whole; k2 -> partial
+      k1 = getLong(buf, tail, 8);
+      k2 = getLong(buf, tail + 8, rem - 8);
+    } 
+    else { //k1 -> whole, partial or 0; k2 == 0
+      k1 = (rem == 0) ? 0 : getLong(buf, tail, rem);
+      k2 = 0;
+    }
+    // Mix the tail into the hash and return
+    return hashState.finalMix128(k1, k2, length);
+  }
+  
   //--HashState class---------------------------------------------------
   /**
    * Common processing of the 128-bit hash state independent of input type.
    */
-  private static final class HashState {
+  static final class HashState {
     private static final long C1 = 0x87c37b91114253d5L;
     private static final long C2 = 0x4cf5ad432745937fL;
     private long h1;
@@ -228,15 +631,70 @@ public final class MurmurHash3 implements Serializable {
      * @param k2 intermediate mix value
      */
     void blockMix128(long k1, long k2) {
+      h1 = blockMixH1(h1, h2, k1);
+      h2 = blockMixH2(h2, h1, k2);
+    }
+    
+    /**
+     * First half of the block mix of a 128-bit block: returns the new h1.
+     * 
+     * @param h1 the current h1
+     * @param h2 the current h2
+     * @param k1 the low 8 bytes of the block
+     * @return the new h1
+     */
+    static long blockMixH1(long h1, long h2, long k1) {
       h1 ^= mixK1(k1);
       h1 = Long.rotateLeft(h1, 27);
       h1 += h2;
-      h1 = (h1 * 5) + 0x52dce729;
-      
+      return (h1 * 5) + 0x52dce729;
+    }
+    
+    /**
+     * Second half of the block mix of a 128-bit block: returns the new h2.
+     * 
+     * @param h2 the current h2
+     * @param h1 the new h1 returned by {@link #blockMixH1(long, long, long)}
+     * @param k2 the high 8 bytes of the block
+     * @return the new h2
+     */
+    static long blockMixH2(long h2, long h1, long k2) {
       h2 ^= mixK2(k2);
       h2 = Long.rotateLeft(h2, 31);
       h2 += h1;
-      h2 = (h2 * 5) + 0x38495ab5;
+      return (h2 * 5) + 0x38495ab5;
+    }
+    
+    /**
+     * Returns the UTF-8 encoding of the char of the given String at the given index, or of the
+     * code point if that char starts a valid surrogate pair. The low 32 bits hold the bytes in
+     * little-endian order and the high 32 bits hold the number of bytes, 1 to 4. Only the 4-byte
+     * encoding consumes two chars. As in String.getBytes(UTF_8), a surrogate that is not part of
+     * a valid pair is encoded as '?'.
+     * 
+     * @param s the String
+     * @param i the index of the char, which must be less than the length of the String
+     * @return the number of bytes in the high 32 bits and the bytes in the low 32 bits
+     */
+    static long utf8Char(String s, int i) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        return (1L << 32) | c;
+      }
+      if (c < 0x800) {
+        return (2L << 32) | (0xC0 | (c >> 6)) | ((0x80 | (c & 0x3F)) << 8);
+      }
+      if (!Character.isSurrogate(c)) {
+        return (3L << 32) | (0xE0 | (c >> 12)) | ((0x80 | ((c >> 6) & 0x3F)) << 8)
+            | ((0x80 | (c & 0x3F)) << 16);
+      }
+      if (Character.isHighSurrogate(c) && ((i + 1) < s.length())
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, s.charAt(i + 1));
+        return (4L << 32) | (0xF0 | (cp >> 18)) | ((0x80 | ((cp >> 12) & 0x3F)) << 8)
+            | ((0x80 | ((cp >> 6) & 0x3F)) << 16) | ((0x80L | (cp & 0x3F)) << 24);
+      }
+      return (1L << 32) | '?';
     }
     
     long[] finalMix128(long k1, long k2, long inputLengthBytes) {
@@ -259,7 +717,7 @@ public final class MurmurHash3 implements Serializable {
      * @param h input to final mix
      * @return mix
      */
-    private static long finalMix64(long h) {
+    static long finalMix64(long h) {
       h ^= h >>> 33;
       h *= 0xff51afd7ed558ccdL;
       h ^= h >>> 33;
@@ -274,7 +732,7 @@ public final class MurmurHash3 implements Serializable {
      * @param k1 input argument
      * @return mix
      */
-    private static long mixK1(long k1) {
+    static long mixK1(long k1) {
       k1 *= C1;
       k1 = Long.rotateLeft(k1, 31);
       k1 *= C2;
@@ -287,7 +745,7 @@ public final class MurmurHash3 implements Serializable {
      * @param k2 input argument
      * @return mix
      */
-    private static long mixK2(long k2) {
+    static long mixK2(long k2) {
       k2 *= C2;
       k2 = Long.rotateLeft(k2, 33);
       k2 *= C1;
@@ -296,6 +754,46 @@ public final class MurmurHash3 implements Serializable {
   }
   
   //--Helper methods----------------------------------------------------
+  /**
+   * Returns the first 64 bits of the hash of a key of at most 8 bytes, which fits entirely in k1.
+   * This is the body-less path of finalMix128(k1, 0, inputLengthBytes) from the initial state.
+   *
+   * @param k1 the key bytes in little-endian order
+   * @param seed A long valued seed.
+   * @param inputLengthBytes the length of the key in bytes
+   * @return the first 64 bits of the 128-bit hash
+   */
+  private static long hashSingleK1(long k1, long seed, long inputLengthBytes) {
+    long h1 = seed ^ HashState.mixK1(k1);
+    long h2 = seed; //mixK2(0) == 0
+    h1 ^= inputLengthBytes;
+    h2 ^= inputLengthBytes;
+    h1 += h2;
+    h2 += h1;
+    h1 = HashState.finalMix64(h1);
+    h2 = HashState.finalMix64(h2);
+    return h1 + h2;
+  }
+
+  private static int checkBulkRange(int from, int to, int keysLength, int outLength) {
+    if ((from < 0) || (from > to) || (to > keysLength) || ((to - from) > outLength)) {
+      throw new SketchesArgumentException("Invalid range: from: " + from + ", to: " + to
+          + ", keys length: " + keysLength + ", output length: " + outLength);
+    }
+    return to - from;
+  }
+
+  /**
+   * Converts the given double to a long, normalizing -0.0 to 0.0 and all NaN forms to a single
+   * NaN representation.
+   *
+   * @param d the given double
+   * @return the canonical long bits of the double
+   */
+  private static long doubleToCanonicalLong(double d) {
+    return Double.doubleToLongBits((d == 0.0) ? 0.0 : d);
+  }
+
   /**
    * Gets a long from the given byte array starting at the given byte array index and continuing for
    * remainder (rem) bytes. The bytes are extracted in little-endian order. There is no limit
@@ -353,4 +851,53 @@ public final class MurmurHash3 implements Serializable {
     return out;
   }
 
+  /**
+   * Gets a long from the given UncheckedMemory starting at the given offset and continuing for
+   * remainder (rem) bytes. The bytes are extracted in little-endian order. There is no limit
+   * checking.
+   * 
+   * @param mem The given input UncheckedMemory.
+   * @param offsetBytes Zero-based offset from the start of the UncheckedMemory.
+   * @param rem Remainder bytes. An integer in the range [1,8].
+   * @return long
+   */
+  private static long getLong(UncheckedMemory mem, long offsetBytes, int rem) {
+    long out = 0L;
+    for (int i = rem; i-- > 0;) { //i= 7,6,5,4,3,2,1,0
+      byte b = mem.getByte(offsetBytes + i);
+      out ^= (b & 0xFFL) << (i * 8); //equivalent to |=
+    }
+    return out;
+  }
+
+  /**
+   * Gets a long from the given ByteBuffer starting at the given absolute index and continuing for
+   * remainder (rem) bytes. The bytes are extracted in little-endian order regardless of the byte
+   * order of the buffer.
+   * 
+   * @param buf The given input ByteBuffer.
+   * @param index Zero-based absolute index in the buffer.
+   * @param rem Remainder bytes. An integer in the range [1,8].
+   * @return long
+   */
+  private static long getLong(ByteBuffer buf, int index, int rem) {
+    long out = 0L;
+    for (int i = rem; i-- > 0;) { //i= 7,6,5,4,3,2,1,0
+      byte b = buf.get(index + i);
+      out ^= (b & 0xFFL) << (i * 8); //equivalent to |=
+    }
+    return out;
+  }
+
+  /**
+   * Converts a long read in the native byte order of the platform to the little-endian order in
+   * which the hash consumes its input.
+   *
+   * @param v a long read in native byte order
+   * @return the long in little-endian order
+   */
+  private static long toLittleEndian(long v) {
+    return NATIVE_LITTLE_ENDIAN ? v : Long.reverseBytes(v);
+  }
+
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.hash;
+
+import static com.yahoo.sketches.hash.MurmurHash3.HashState.blockMixH1;
+import static com.yahoo.sketches.hash.MurmurHash3.HashState.blockMixH2;
+import static com.yahoo.sketches.hash.MurmurHash3.HashState.finalMix64;
+import static com.yahoo.sketches.hash.MurmurHash3.HashState.mixK1;
+import static com.yahoo.sketches.hash.MurmurHash3.HashState.mixK2;
+import static com.yahoo.sketches.hash.MurmurHash3.HashState.utf8Char;
+
+import com.yahoo.sketches.SketchesArgumentException;
+
+/**
+ * An incremental form of the {@link MurmurHash3} 128-bit hash for keys that are composed of
+ * several fields, such as a tenant, a user and an event.
+ *
+ * <p>The fields are appended with the put methods and the hash is obtained with one of the finish
+ * methods. The result is identical to <i>MurmurHash3.hash(bytes, seed)</i> of a byte array
+ * holding the concatenation of the little-endian bytes of the fields. For example, a sequence of
+ * calls to {@link #putLong(long)} produces the same hash as
+ * <i>MurmurHash3.hash(long[], seed)</i> of the same longs, and a single call to
+ * {@link #putString(String)} produces the same hash as the UTF-8 bytes of the String.</p>
+ *
+ * <p>Complete 128-bit blocks are mixed into the state as soon as they are filled, so a hasher holds
+ * at most 15 pending bytes. A hasher never allocates after construction except in
+ * {@link #finish()}. The finish methods do not change the state, and {@link #reset()} makes the
+ * hasher ready for the next key, so a single instance can be reused for every key of a stream.
+ * A hasher is not thread-safe.</p>
+ *
+ * <p>The hasher can be passed directly to the update methods of the theta UpdateSketch, the
+ * HllSketch and the updatable tuple sketches, which require that its seed is the seed of the
+ * sketch.</p>
+ */
+public final class MurmurHash3Hasher {
+  private final long seed_;
+  private long h1_;
+  private long h2_;
+  private long k1_; //pending bytes 0 to 7 of the current block
+  private long k2_; //pending bytes 8 to 15 of the current block
+  private int pos_; //number of pending bytes in the current block
+  private long lengthBytes_;
+
+  /**
+   * Creates a hasher with the given seed.
+   * @param seed A long valued seed.
+   */
+  public MurmurHash3Hasher(long seed) {
+    seed_ = seed;
+    reset();
+  }
+
+  /**
+   * Returns the seed of this hasher
+   * @return the seed of this hasher
+   */
+  public long getSeed() {
+    return seed_;
+  }
+
+  /**
+   * Checks that the seed of this hasher is the given seed, which is the seed of a sketch that is
+   * about to be updated with the hash of this hasher.
+   * @param seed the expected seed
+   * @throws SketchesArgumentException if the seeds differ
+   */
+  public void checkSeed(long seed) {
+    if (seed != seed_) {
+      throw new SketchesArgumentException("Hasher seed: " + seed_ + " does not match seed: "
+          + seed);
+    }
+  }
+
+  /**
+   * Returns the number of bytes presented to this hasher since it was created or last reset
+   * @return the number of bytes presented to this hasher since it was created or last reset
+   */
+  public long getLengthBytes() {
+    return lengthBytes_;
+  }
+
+  /**
+   * Discards all presented bytes so that this hasher can be used for the next key.
+   * @return this hasher
+   */
+  public MurmurHash3Hasher reset() {
+    h1_ = seed_;
+    h2_ = seed_;
+    k1_ = 0;
+    k2_ = 0;
+    pos_ = 0;
+    lengthBytes_ = 0;
+    return this;
+  }
+
+  /**
+   * Appends a byte.
+   * @param value the byte to append
+   * @return this hasher
+   */
+  public MurmurHash3Hasher putByte(byte value) {
+    put(value & 0xFFL, 1);
+    return this;
+  }
+
+  /**
+   * Appends the 4 little-endian bytes of an int.
+   * @param value the int to append
+   * @return this hasher
+   */
+  public MurmurHash3Hasher putInt(int value) {
+    put(value & 0xFFFFFFFFL, Integer.BYTES);
+    return this;
+  }
+
+  /**
+   * Appends the 8 little-endian bytes of a long.
+   * @param value the long to append
+   * @return this hasher
+   */
+  public MurmurHash3Hasher putLong(long value) {
+    put(value, Long.BYTES);
+    return this;
+  }
+
+  /**
+   * Appends all bytes of the given array.
+   * @param bytes the bytes to append
+   * @return this hasher
+   */
+  public MurmurHash3Hasher putBytes(byte[] bytes) {
+    return putBytes(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Appends the given range of bytes of the given array.
+   * @param bytes the array holding the bytes to append
+   * @param offset the index of the first byte to append
+   * @param length the number of bytes to append
+   * @return this hasher
+   */
+  public MurmurHash3Hasher putBytes(byte[] bytes, int offset, int length) {
+    if ((offset < 0) || (length < 0) || (((long) offset + length) > bytes.length)) {
+      throw new SketchesArgumentException("Range out of bounds: offset: " + offset
+          + ", length: " + length + ", array length: " + bytes.length);
+    }
+    int i = offset;
+    final int end = offset + length;
+    while ((pos_ != 0) && (i < end)) { //complete the pending block
+      put(bytes[i++] & 0xFFL, 1);
+    }
+    while ((end - i) >= 16) { //whole blocks bypass the pending block
+      mixBlock(getLong(bytes, i, 8), getLong(bytes, i + 8, 8));
+      lengthBytes_ += 16;
+      i += 16;
+    }
+    if ((end - i) > 8) {
+      put(getLong(bytes, i, 8), 8);
+      i += 8;
+    }
+    if (i < end) {
+      put(getLong(bytes, i, end - i), end - i);
+    }
+    return this;
+  }
+
+  /**
+   * Appends the UTF-8 encoding of the given String without allocating the encoded bytes.
+   * As in String.getBytes(StandardCharsets.UTF_8), a surrogate that is not part of a valid pair
+   * is encoded as '?'.
+   * @param value the String to append
+   * @return this hasher
+   */
+  public MurmurHash3Hasher putString(String value) {
+    final int len = value.length();
+    int i = 0;
+    while (i < len) {
+      final long utf8 = utf8Char(value, i);
+      final int n = (int) (utf8 >>> 32);
+      put(utf8 & 0xFFFFFFFFL, n);
+      i += (n == 4) ? 2 : 1;
+    }
+    return this;
+  }
+
+  /**
+   * Returns a new long array of size 2 with the 128-bit hash of the bytes presented so far.
+   * @return the hash
+   */
+  public long[] finish() {
+    return finish(new long[2]);
+  }
+
+  /**
+   * Computes the 128-bit hash of the bytes presented so far into the given array, which may be
+   * reused across calls. The state of this hasher is not changed.
+   * @param hashOut A long array of size at least 2 that receives the hash.
+   * @return the given hashOut array.
+   */
+  public long[] finish(long[] hashOut) {
+    long h1 = h1_ ^ mixK1(k1_);
+    long h2 = h2_ ^ mixK2(k2_);
+    h1 ^= lengthBytes_;
+    h2 ^= lengthBytes_;
+    h1 += h2;
+    h2 += h1;
+    h1 = finalMix64(h1);
+    h2 = finalMix64(h2);
+    h1 += h2;
+    h2 += h1;
+    hashOut[0] = h1;
+    hashOut[1] = h2;
+    return hashOut;
+  }
+
+  /**
+   * Returns the first 64 bits of the 128-bit hash of the bytes presented so far. The state of this
+   * hasher is not changed.
+   * @return the first 64 bits of the hash
+   */
+  public long finish64() {
+    long h1 = h1_ ^ mixK1(k1_);
+    long h2 = h2_ ^ mixK2(k2_);
+    h1 ^= lengthBytes_;
+    h2 ^= lengthBytes_;
+    h1 += h2;
+    h2 += h1;
+    return finalMix64(h1) + finalMix64(h2);
+  }
+
+  /**
+   * Appends the low <i>nBytes</i> bytes of the given value in little-endian order to the pending
+   * block, mixing the block into the state whenever it is filled.
+   *
+   * @param value the bytes to append in its low <i>nBytes</i> bytes. The other bytes must be zero.
+   * @param nBytes the number of bytes to append, in the range [1,8]
+   */
+  private void put(long value, int nBytes) {
+    lengthBytes_ += nBytes;
+    long v = value;
+    int n = nBytes;
+    while (n > 0) {
+      final int lanePos = pos_ & 7;
+      final int take = Math.min(8 - lanePos, n);
+      final long bits = (take == 8) ? v : v & ((1L << (take << 3)) - 1);
+      if (pos_ < 8) {
+        k1_ |= bits << (lanePos << 3);
+      } else {
+        k2_ |= bits << (lanePos << 3);
+      }
+      pos_ += take;
+      n -= take;
+      v = (take == 8) ? 0 : v >>> (take << 3);
+      if (pos_ == 16) {
+        mixBlock(k1_, k2_);
+        k1_ = 0;
+        k2_ = 0;
+        pos_ = 0;
+      }
+    }
+  }
+
+  private void mixBlock(long k1, long k2) {
+    h1_ = blockMixH1(h1_, h2_, k1);
+    h2_ = blockMixH2(h2_, h1_, k2);
+  }
+
+  /**
+   * Gets a long from the given byte array starting at the given index and continuing for rem
+   * bytes in little-endian order. There is no limit checking.
+   *
+   * @param bArr The given input byte array.
+   * @param index Zero-based index from the start of the byte array.
+   * @param rem Remainder bytes. An integer in the range [1,8].
+   * @return long
+   */
+  private static long getLong(byte[] bArr, int index, int rem) {
+    long out = 0L;
+    for (int i = rem; i-- > 0;) {
+      out |= (bArr[index + i] & 0xFFL) << (i << 3);
+    }
+    return out;
+  }
+
+}
@@ -7,7 +7,11 @@ package com.yahoo.sketches.hll;
 
 import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 import static com.yahoo.sketches.hash.MurmurHash3.hash;
-import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+
+import com.yahoo.sketches.hash.MurmurHash3Hasher;
+import com.yahoo.sketches.memory.Memory;
 
 /**
  * Top-level class for the HLL family of sketches.
@@ -31,6 +35,9 @@ public class HllSketch {
 
   private Fields fields;
 
+  //reusable 128-bit hash output for the primitive update paths
+  private final long[] hashOut = new long[2];
+
   /**
    * Construct this class with the given Fields
    * @param fields the given Fields
@@ -52,8 +59,7 @@ public class HllSketch {
    * @param datum The given long datum.
    */
   public void update(long datum) {
-    long[] data = { datum };
-    updateWithHash(hash(data, DEFAULT_UPDATE_SEED));
+    updateWithHash(hash(datum, DEFAULT_UPDATE_SEED, hashOut));
   }
   
   /**
@@ -66,14 +72,14 @@ public class HllSketch {
    * @param datum The given double datum.
    */
   public void update(double datum) {
-    double d = (datum == 0.0) ? 0.0 : datum; // canonicalize -0.0, 0.0
-    long[] data = { Double.doubleToLongBits(d) };// canonicalize all NaN forms
-    updateWithHash(hash(data, DEFAULT_UPDATE_SEED));
+    // hash() canonicalizes -0.0, 0.0 and all NaN forms
+    updateWithHash(hash(datum, DEFAULT_UPDATE_SEED, hashOut));
   }
   
   /**
    * Present this sketch with the given String. 
-   * The string is converted to a byte array using UTF8 encoding. 
+   * The string is hashed as its UTF8 encoding, which is computed on the fly without allocating a 
+   * byte array. The result is the same as updating with the UTF8 bytes of the string. 
    * If the string is null or empty no update attempt is made and the method returns.
    * 
    * @param datum The given String.
@@ -82,8 +88,7 @@ public class HllSketch {
     if (datum == null || datum.isEmpty()) {
       return; 
     }
-    byte[] data = datum.getBytes(UTF_8);
-    updateWithHash(hash(data, DEFAULT_UPDATE_SEED));
+    updateWithHash(hash(datum, DEFAULT_UPDATE_SEED, hashOut));
   }
   
   /**
@@ -99,6 +104,57 @@ public class HllSketch {
     updateWithHash(hash(data, DEFAULT_UPDATE_SEED));
   }
   
+  /**
+   * Present this sketch with the given region of bytes in the given Memory, which is hashed in
+   * place. This produces the same result as {@link #update(byte[])} of a copy of the region.
+   * If the Memory is null or the region is empty no update attempt is made and the method
+   * returns.
+   * 
+   * @param mem The given Memory.
+   * @param offsetBytes the offset of the first byte of the region in the Memory.
+   * @param lengthBytes the length of the region in bytes.
+   */
+  public void update(Memory mem, long offsetBytes, long lengthBytes) {
+    if ((mem == null) || (lengthBytes == 0)) {
+      return;
+    }
+    updateWithHash(hash(mem, offsetBytes, lengthBytes, DEFAULT_UPDATE_SEED));
+  }
+  
+  /**
+   * Present this sketch with the given region of bytes in the given ByteBuffer, which is hashed
+   * in place with absolute gets. This produces the same result as {@link #update(byte[])} of a
+   * copy of the region, regardless of the byte order of the buffer.
+   * If the buffer is null or the region is empty no update attempt is made and the method
+   * returns.
+   * 
+   * @param buf The given ByteBuffer.
+   * @param offset the absolute index of the first byte of the region in the buffer.
+   * @param length the length of the region in bytes.
+   */
+  public void update(ByteBuffer buf, int offset, int length) {
+    if ((buf == null) || (length == 0)) {
+      return;
+    }
+    updateWithHash(hash(buf, offset, length, DEFAULT_UPDATE_SEED));
+  }
+  
+  /**
+   * Present this sketch with the key presented so far to the given hasher, which allows composite
+   * keys to be hashed without building a temporary array. The hasher is not reset.
+   * If the hasher is null or has not been presented any bytes no update attempt is made and the
+   * method returns.
+   * 
+   * @param hasher The given hasher, which must have the default update seed.
+   */
+  public void update(MurmurHash3Hasher hasher) {
+    if ((hasher == null) || (hasher.getLengthBytes() == 0)) {
+      return;
+    }
+    hasher.checkSeed(DEFAULT_UPDATE_SEED);
+    updateWithHash(hasher.finish(hashOut));
+  }
+  
   /**
    * Present this sketch with the given integer array. 
    * If the integer array is null or empty no update attempt is made and the method returns.
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.memory;
+
+import static com.yahoo.sketches.memory.UnsafeUtil.LS;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.yahoo.sketches.SketchesArgumentException;
+
+/**
+ * A MemoryRequest that carves the Memory it grants out of large off-heap slabs instead of
+ * allocating each request separately. It is intended for applications that hold many direct
+ * sketches: a sketch that grows returns its old Memory to the pool, where it is reused by the
+ * next request of the same size class, and all the native memory is released at once with
+ * {@link #freeAll()}.
+ *
+ * <p>Requests are rounded up to a size class. There are four size classes per power of two,
+ * starting at {@value #MIN_BLOCK_BYTES} bytes, so at most 25% of a block is rounded away. The
+ * granted Memory is a {@link MemoryRegion} of a slab with the capacity of its size class and with
+ * this pool as its MemoryRequest. Freed blocks are kept on a free list per size class. Requests
+ * larger than a slab are granted an {@link AllocMemory} of their own.</p>
+ *
+ * <pre>
+ * MemoryPool pool = new MemoryPool();
+ * UpdateSketch sketch = UpdateSketch.builder().initMemory(pool.request(bytes)).build(k);
+ * ...
+ * pool.freeAll();
+ * </pre>
+ *
+ * <p>The granted Memory is cleared to zero. All the methods are synchronized, so a pool may be
+ * shared by sketches that are updated by different threads. After {@link #freeAll()} none of the
+ * Memory granted by the pool may be used again.</p>
+ */
+public final class MemoryPool implements MemoryRequest {
+  /**
+   * The smallest size class in bytes
+   */
+  public static final int MIN_BLOCK_BYTES = 64;
+
+  /**
+   * The default size of a slab in bytes
+   */
+  public static final long DEFAULT_SLAB_BYTES = 1L << 20;
+
+  private static final long MIN_SLAB_BYTES = 1L << 12;
+  private static final long MAX_SLAB_BYTES = 1L << 30;
+
+  private final long slabBytes_;
+  private final long[] classBytes_; //ascending, the last one equals the slab size
+  private final long[][] freeLists_; //per size class, a stack of block addresses
+  private final int[] freeCounts_;
+  private final List<AllocMemory> slabs_;
+  private final Set<AllocMemory> largeBlocks_;
+  private long slabOffset_; //next free byte of the last slab
+  private long allocatedBytes_;
+  private long requestedBytes_;
+  private long largeBytes_;
+  private int numBlocks_;
+  private int generation_; //incremented by freeAll()
+
+  /**
+   * Constructs a pool with slabs of {@link #DEFAULT_SLAB_BYTES}.
+   */
+  public MemoryPool() {
+    this(DEFAULT_SLAB_BYTES);
+  }
+
+  /**
+   * Constructs a pool with the given slab size. No memory is allocated until the first request.
+   * @param slabBytes the size of each slab in bytes, which must be a power of 2 from 4KB to 1GB
+   * and should hold many of the typical requests.
+   */
+  public MemoryPool(long slabBytes) {
+    if ((slabBytes < MIN_SLAB_BYTES) || (slabBytes > MAX_SLAB_BYTES)
+        || ((slabBytes & (slabBytes - 1)) != 0)) {
+      throw new SketchesArgumentException(
+          "Slab bytes must be a power of 2 from " + MIN_SLAB_BYTES + " to " + MAX_SLAB_BYTES
+          + ": " + slabBytes);
+    }
+    slabBytes_ = slabBytes;
+    int lgMin = Long.numberOfTrailingZeros(MIN_BLOCK_BYTES);
+    int lgSlab = Long.numberOfTrailingZeros(slabBytes);
+    int numClasses = ((lgSlab - lgMin) * 4) + 1;
+    classBytes_ = new long[numClasses];
+    for (int lg = lgMin, c = 0; lg <= lgSlab; lg++) {
+      long quarter = 1L << (lg - 2);
+      for (int q = 4; (q < 8) && (c < numClasses); q++) {
+        classBytes_[c++] = q * quarter;
+      }
+    }
+    freeLists_ = new long[numClasses][];
+    freeCounts_ = new int[numClasses];
+    slabs_ = new ArrayList<AllocMemory>();
+    largeBlocks_ = new HashSet<AllocMemory>();
+    slabOffset_ = slabBytes; //no slab yet
+  }
+
+  @Override
+  public synchronized Memory request(long capacityBytes) {
+    if (capacityBytes <= 0) {
+      throw new SketchesArgumentException("Capacity must be > 0: " + capacityBytes);
+    }
+    Memory mem;
+    if (capacityBytes > slabBytes_) {
+      AllocMemory large = new AllocMemory(capacityBytes, this);
+      largeBlocks_.add(large);
+      largeBytes_ += capacityBytes;
+      allocatedBytes_ += capacityBytes;
+      mem = large;
+    } else {
+      int sizeClass = sizeClass(capacityBytes);
+      long address = (freeCounts_[sizeClass] > 0)
+          ? freeLists_[sizeClass][--freeCounts_[sizeClass]]
+          : carve(sizeClass);
+      int slab = (int) (address / slabBytes_);
+      mem = new Block(this, slab, address - (slab * slabBytes_), sizeClass, capacityBytes);
+      allocatedBytes_ += classBytes_[sizeClass];
+    }
+    mem.clear();
+    requestedBytes_ += capacityBytes;
+    numBlocks_++;
+    return mem;
+  }
+
+  @Override
+  public synchronized Memory request(Memory origMem, long copyToBytes, long capacityBytes) {
+    Memory newMem = request(capacityBytes);
+    NativeMemory.copy(origMem, 0, newMem, 0, copyToBytes);
+    return newMem;
+  }
+
+  /**
+   * Returns the given Memory to this pool. Memory that was not granted by this pool is left to
+   * its owner and is ignored.
+   * @param mem the Memory to be freed, which must not be used again
+   */
+  @Override
+  public synchronized void free(Memory mem) {
+    if (mem instanceof Block) {
+      Block block = (Block) mem;
+      if ((block.pool != this) || (block.generation != generation_)) return;
+      if (block.freed) {
+        throw new SketchesArgumentException("Memory has already been freed.");
+      }
+      block.freed = true;
+      int sizeClass = block.sizeClass;
+      push(sizeClass, (block.slab * slabBytes_) + block.slabOffset);
+      allocatedBytes_ -= classBytes_[sizeClass];
+      requestedBytes_ -= block.requestedBytes;
+      numBlocks_--;
+      block.reassign(0, 0);
+      block.setMemoryRequest(null);
+    }
+    else if ((mem instanceof AllocMemory) && largeBlocks_.remove(mem)) {
+      long cap = mem.getCapacity();
+      largeBytes_ -= cap;
+      allocatedBytes_ -= cap;
+      requestedBytes_ -= cap;
+      numBlocks_--;
+      ((AllocMemory) mem).freeMemory();
+    }
+  }
+
+  @Override
+  public void free(Memory memToFree, Memory newMem) {
+    free(memToFree);
+  }
+
+  /**
+   * Frees all the native memory of this pool at once. None of the Memory granted by this pool
+   * may be used afterwards. The pool may be used again and will allocate new slabs as needed.
+   */
+  public synchronized void freeAll() {
+    for (int i = 0; i < slabs_.size(); i++) {
+      slabs_.get(i).freeMemory();
+    }
+    for (AllocMemory large : largeBlocks_) {
+      large.freeMemory();
+    }
+    slabs_.clear();
+    largeBlocks_.clear();
+    for (int c = 0; c < freeLists_.length; c++) {
+      freeLists_[c] = null;
+      freeCounts_[c] = 0;
+    }
+    slabOffset_ = slabBytes_;
+    allocatedBytes_ = 0;
+    requestedBytes_ = 0;
+    largeBytes_ = 0;
+    numBlocks_ = 0;
+    generation_++;
+  }
+
+  /**
+   * Returns the size of each slab in bytes
+   * @return the size of each slab in bytes
+   */
+  public long getSlabBytes() {
+    return slabBytes_;
+  }
+
+  /**
+   * Returns the number of slabs allocated
+   * @return the number of slabs allocated
+   */
+  public synchronized int getNumSlabs() {
+    return slabs_.size();
+  }
+
+  /**
+   * Returns the number of blocks currently granted and not yet freed
+   * @return the number of blocks currently granted and not yet freed
+   */
+  public synchronized int getNumBlocks() {
+    return numBlocks_;
+  }
+
+  /**
+   * Returns the total native memory held by this pool in bytes, which is the size of all the slabs
+   * plus the size of the blocks larger than a slab.
+   * @return the total native memory held by this pool in bytes
+   */
+  public synchronized long getReservedBytes() {
+    return (slabs_.size() * slabBytes_) + largeBytes_;
+  }
+
+  /**
+   * Returns the capacity in bytes of all the blocks currently granted
+   * @return the capacity in bytes of all the blocks currently granted
+   */
+  public synchronized long getAllocatedBytes() {
+    return allocatedBytes_;
+  }
+
+  /**
+   * Returns the capacity in bytes originally requested for all the blocks currently granted
+   * @return the capacity in bytes originally requested for all the blocks currently granted
+   */
+  public synchronized long getRequestedBytes() {
+    return requestedBytes_;
+  }
+
+  /**
+   * Returns the reserved bytes that are not granted, whether on the free lists or not yet carved
+   * @return the reserved bytes that are not granted
+   */
+  public synchronized long getFreeBytes() {
+    return getReservedBytes() - allocatedBytes_;
+  }
+
+  /**
+   * Returns the fraction of the reserved bytes that were requested by the blocks currently granted
+   * @return the fraction of the reserved bytes that were requested by the blocks currently granted
+   */
+  public synchronized double getUtilization() {
+    long reserved = getReservedBytes();
+    return (reserved == 0) ? 0.0 : (double) requestedBytes_ / reserved;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("### ").append(this.getClass().getSimpleName()).append(" SUMMARY: ").append(LS);
+    sb.append("   Slab Bytes              : ").append(slabBytes_).append(LS);
+    sb.append("   Slabs                   : ").append(slabs_.size()).append(LS);
+    sb.append("   Large Blocks            : ").append(largeBlocks_.size()).append(LS);
+    sb.append("   Granted Blocks          : ").append(numBlocks_).append(LS);
+    sb.append("   Reserved Bytes          : ").append(getReservedBytes()).append(LS);
+    sb.append("   Allocated Bytes         : ").append(allocatedBytes_).append(LS);
+    sb.append("   Requested Bytes         : ").append(requestedBytes_).append(LS);
+    sb.append("   Free Bytes              : ").append(getFreeBytes()).append(LS);
+    sb.append("   Utilization             : ").append(getUtilization()).append(LS);
+    sb.append("### END SUMMARY").append(LS);
+    return sb.toString();
+  }
+
+  //restricted
+
+  //the smallest size class that holds the given bytes, which must not exceed the slab size
+  int sizeClass(long bytes) {
+    int lo = 0;
+    int hi = classBytes_.length - 1;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (classBytes_[mid] < bytes) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  long getClassBytes(int sizeClass) {
+    return classBytes_[sizeClass];
+  }
+
+  //returns the address of a new block of the given size class from the end of the last slab
+  private long carve(int sizeClass) {
+    long bytes = classBytes_[sizeClass];
+    if ((slabOffset_ + bytes) > slabBytes_) {
+      //put the rest of the last slab on the free lists, largest blocks first
+      long base = (slabs_.size() - 1) * slabBytes_;
+      while ((slabBytes_ - slabOffset_) >= MIN_BLOCK_BYTES) {
+        int c = sizeClass(slabBytes_ - slabOffset_);
+        if (classBytes_[c] > (slabBytes_ - slabOffset_)) c--;
+        push(c, base + slabOffset_);
+        slabOffset_ += classBytes_[c];
+      }
+      slabs_.add(new AllocMemory(slabBytes_));
+      slabOffset_ = 0;
+    }
+    long address = ((slabs_.size() - 1) * slabBytes_) + slabOffset_;
+    slabOffset_ += bytes;
+    return address;
+  }
+
+  private void push(int sizeClass, long address) {
+    long[] list = freeLists_[sizeClass];
+    int count = freeCounts_[sizeClass];
+    if (list == null) {
+      list = new long[16];
+      freeLists_[sizeClass] = list;
+    } else if (count == list.length) {
+      long[] newList = new long[count * 2];
+      System.arraycopy(list, 0, newList, 0, count);
+      list = newList;
+      freeLists_[sizeClass] = list;
+    }
+    list[count] = address;
+    freeCounts_[sizeClass] = count + 1;
+  }
+
+  /**
+   * A block of a slab granted by a pool.
+   */
+  private static final class Block extends MemoryRegion {
+    final MemoryPool pool;
+    final int generation;
+    final int slab;
+    final long slabOffset;
+    final int sizeClass;
+    final long requestedBytes;
+    boolean freed;
+
+    Block(MemoryPool pool, int slab, long slabOffset, int sizeClass, long requestedBytes) {
+      super(pool.slabs_.get(slab), slabOffset, pool.classBytes_[sizeClass], pool);
+      this.pool = pool;
+      this.generation = pool.generation_;
+      this.slab = slab;
+      this.slabOffset = slabOffset;
+      this.sizeClass = sizeClass;
+      this.requestedBytes = requestedBytes;
+      this.freed = false;
+    }
+  }
+
+}
@@ -154,6 +154,48 @@ public class MemoryRegion implements Memory {
     return mem_.getAndSetLong(unsafeRawAddress, newValue);
   }
 
+  /**
+   * Gets the long at the given offset with volatile semantics, i.e., the value written by the
+   * last compare-and-swap or atomic update of any thread. This is not part of the Memory
+   * interface; see {@link MemoryUtil#getLongVolatile(Memory, long)}.
+   * @param offsetBytes offset bytes relative to this Memory start
+   * @return the long at the given offset
+   */
+  public long getLongVolatile(long offsetBytes) {
+    assertBounds(offsetBytes, ARRAY_LONG_INDEX_SCALE, capacityBytes_);
+    return MemoryUtil.getLongVolatile(mem_, getAddress(offsetBytes));
+  }
+
+  /**
+   * Atomically sets the integer located at offsetBytes to the given update value, but only if
+   * the current value equals the expected value. This is not part of the Memory interface;
+   * see {@link MemoryUtil#compareAndSwapInt(Memory, long, int, int)}.
+   * @param offsetBytes offset bytes relative to this Memory start
+   * @param expect the expected current value
+   * @param update the new value
+   * @return true if successful. False means the current value was not equal to the expected value.
+   */
+  public boolean compareAndSwapInt(long offsetBytes, int expect, int update) {
+    assertBounds(offsetBytes, ARRAY_INT_INDEX_SCALE, capacityBytes_);
+    long unsafeRawAddress = getAddress(offsetBytes);
+    return MemoryUtil.compareAndSwapInt(mem_, unsafeRawAddress, expect, update);
+  }
+
+  /**
+   * Atomically sets the long located at offsetBytes to the given update value, but only if
+   * the current value equals the expected value. This is not part of the Memory interface;
+   * see {@link MemoryUtil#compareAndSwapLong(Memory, long, long, long)}.
+   * @param offsetBytes offset bytes relative to this Memory start
+   * @param expect the expected current value
+   * @param update the new value
+   * @return true if successful. False means the current value was not equal to the expected value.
+   */
+  public boolean compareAndSwapLong(long offsetBytes, long expect, long update) {
+    assertBounds(offsetBytes, ARRAY_LONG_INDEX_SCALE, capacityBytes_);
+    long unsafeRawAddress = getAddress(offsetBytes);
+    return MemoryUtil.compareAndSwapLong(mem_, unsafeRawAddress, expect, update);
+  }
+
   @Override
   public boolean getBoolean(long offsetBytes) {
     assertBounds(offsetBytes, ARRAY_BOOLEAN_INDEX_SCALE, capacityBytes_);
@@ -32,6 +32,82 @@ public final class MemoryUtil {
     NativeMemory.copy(source, srcOffsetBytes, destination, dstOffsetBytes, lengthBytes);
   }
   
+  /**
+   * Returns true if the given Memory supports the compare-and-swap operations of this class.
+   * This is the case for a NativeMemory, including AllocMemory and MemoryMappedFile, and for a
+   * MemoryRegion of such a Memory. Compare-and-swap is not part of the Memory interface.
+   * @param mem the given Memory
+   * @return true if the given Memory supports compare-and-swap
+   */
+  public static boolean isCompareAndSwapSupported(Memory mem) {
+    Object m = mem;
+    while (m instanceof MemoryRegion) {
+      m = ((MemoryRegion) m).getParent();
+    }
+    return m instanceof NativeMemory;
+  }
+
+  /**
+   * Atomically sets the integer located at offsetBytes of the given Memory to the given update
+   * value, but only if the current value equals the expected value.
+   * @param mem the given Memory, which must be a NativeMemory or a MemoryRegion of one.
+   * See {@link #isCompareAndSwapSupported(Memory)}.
+   * @param offsetBytes offset bytes relative to the Memory start
+   * @param expect the expected current value
+   * @param update the new value
+   * @return true if successful. False means the current value was not equal to the expected value.
+   */
+  public static boolean compareAndSwapInt(Memory mem, long offsetBytes, int expect, int update) {
+    if (mem instanceof NativeMemory) {
+      return ((NativeMemory) mem).compareAndSwapInt(offsetBytes, expect, update);
+    }
+    if (mem instanceof MemoryRegion) {
+      return ((MemoryRegion) mem).compareAndSwapInt(offsetBytes, expect, update);
+    }
+    throw new IllegalArgumentException("Compare-and-swap is not supported by "
+        + mem.getClass().getSimpleName());
+  }
+
+  /**
+   * Atomically sets the long located at offsetBytes of the given Memory to the given update
+   * value, but only if the current value equals the expected value.
+   * @param mem the given Memory, which must be a NativeMemory or a MemoryRegion of one.
+   * See {@link #isCompareAndSwapSupported(Memory)}.
+   * @param offsetBytes offset bytes relative to the Memory start
+   * @param expect the expected current value
+   * @param update the new value
+   * @return true if successful. False means the current value was not equal to the expected value.
+   */
+  public static boolean compareAndSwapLong(Memory mem, long offsetBytes, long expect, long update) {
+    if (mem instanceof NativeMemory) {
+      return ((NativeMemory) mem).compareAndSwapLong(offsetBytes, expect, update);
+    }
+    if (mem instanceof MemoryRegion) {
+      return ((MemoryRegion) mem).compareAndSwapLong(offsetBytes, expect, update);
+    }
+    throw new IllegalArgumentException("Compare-and-swap is not supported by "
+        + mem.getClass().getSimpleName());
+  }
+
+  /**
+   * Gets the long located at offsetBytes of the given Memory with volatile semantics, i.e., the
+   * value written by the last compare-and-swap or atomic update of any thread.
+   * @param mem the given Memory, which must be a NativeMemory or a MemoryRegion of one.
+   * See {@link #isCompareAndSwapSupported(Memory)}.
+   * @param offsetBytes offset bytes relative to the Memory start
+   * @return the long at the given offset
+   */
+  public static long getLongVolatile(Memory mem, long offsetBytes) {
+    if (mem instanceof NativeMemory) {
+      return ((NativeMemory) mem).getLongVolatile(offsetBytes);
+    }
+    if (mem instanceof MemoryRegion) {
+      return ((MemoryRegion) mem).getLongVolatile(offsetBytes);
+    }
+    throw new IllegalArgumentException("Volatile reads are not supported by "
+        + mem.getClass().getSimpleName());
+  }
+
   /**
    * Searches a range of the specified array of longs for the specified value using the binary 
    * search algorithm. The range must be sorted (as by the sort(long[], int, int) method) prior 
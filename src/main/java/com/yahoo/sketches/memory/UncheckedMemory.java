@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.memory;
+
+import static com.yahoo.sketches.memory.UnsafeUtil.ARRAY_BYTE_INDEX_SCALE;
+import static com.yahoo.sketches.memory.UnsafeUtil.ARRAY_DOUBLE_INDEX_SCALE;
+import static com.yahoo.sketches.memory.UnsafeUtil.ARRAY_INT_INDEX_SCALE;
+import static com.yahoo.sketches.memory.UnsafeUtil.ARRAY_LONG_INDEX_SCALE;
+import static com.yahoo.sketches.memory.UnsafeUtil.ARRAY_SHORT_INDEX_SCALE;
+import static com.yahoo.sketches.memory.UnsafeUtil.assertBounds;
+import static com.yahoo.sketches.memory.UnsafeUtil.unsafe;
+
+import com.yahoo.sketches.SketchesArgumentException;
+
+/**
+ * A fast accessor of a Memory whose bounds have been validated once, when it was wrapped.
+ *
+ * <p>The accessors of {@link NativeMemory} and {@link MemoryRegion} read their base address from
+ * volatile fields on every call, and a MemoryRegion adds a call to its parent. This class resolves
+ * the backing object and base address of the whole hierarchy when it is created and keeps them
+ * in final fields, so that each accessor is a single Unsafe call that the JIT compiler can inline
+ * and whose address arithmetic it can hoist out of loops. As in NativeMemory, the bounds are
+ * only checked if asserts are enabled in the JVM.</p>
+ *
+ * <p>An UncheckedMemory does not follow changes to the Memory it wraps. It must not be used after
+ * that Memory has been freed, reallocated or reassigned; wrap the Memory again instead.</p>
+ */
+public final class UncheckedMemory {
+  private final Memory mem_; //keeps the backing object reachable
+  private final Object array_;
+  private final long address_;
+  private final long capacityBytes_;
+
+  private UncheckedMemory(Memory mem, Object array, long address, long capacityBytes) {
+    mem_ = mem;
+    array_ = array;
+    address_ = address;
+    capacityBytes_ = capacityBytes;
+  }
+
+  /**
+   * Wraps the whole of the given Memory.
+   * @param mem the given Memory
+   * @return an UncheckedMemory with the capacity of the given Memory
+   */
+  public static UncheckedMemory wrap(Memory mem) {
+    return wrap(mem, 0, mem.getCapacity());
+  }
+
+  /**
+   * Wraps a region of the given Memory, which is checked against the capacity of the Memory.
+   * @param mem the given Memory
+   * @param offsetBytes the start of the region in the given Memory
+   * @param capacityBytes the capacity of the region
+   * @return an UncheckedMemory of the given region
+   */
+  public static UncheckedMemory wrap(Memory mem, long offsetBytes, long capacityBytes) {
+    long memCap = mem.getCapacity();
+    if ((offsetBytes < 0) || (capacityBytes <= 0) || ((offsetBytes + capacityBytes) > memCap)) {
+      throw new SketchesArgumentException("Region out of bounds: offset: " + offsetBytes
+          + ", capacity: " + capacityBytes + ", Memory capacity: " + memCap);
+    }
+    long address = offsetBytes;
+    Object parent = mem;
+    while ((parent != null) && (parent instanceof Memory)) {
+      address = ((Memory) parent).getAddress(address);
+      parent = ((Memory) parent).getParent();
+    }
+    return new UncheckedMemory(mem, parent, address, capacityBytes);
+  }
+
+  /**
+   * Returns the Memory that was wrapped
+   * @return the Memory that was wrapped
+   */
+  public Memory getMemory() {
+    return mem_;
+  }
+
+  /**
+   * Returns the capacity of this UncheckedMemory in bytes
+   * @return the capacity of this UncheckedMemory in bytes
+   */
+  public long getCapacity() {
+    return capacityBytes_;
+  }
+
+  /**
+   * Gets the byte at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @return the byte at the given offset
+   */
+  public byte getByte(long offsetBytes) {
+    assertBounds(offsetBytes, ARRAY_BYTE_INDEX_SCALE, capacityBytes_);
+    return unsafe.getByte(array_, address_ + offsetBytes);
+  }
+
+  /**
+   * Puts the byte value at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @param srcValue the value to put
+   */
+  public void putByte(long offsetBytes, byte srcValue) {
+    assertBounds(offsetBytes, ARRAY_BYTE_INDEX_SCALE, capacityBytes_);
+    unsafe.putByte(array_, address_ + offsetBytes, srcValue);
+  }
+
+  /**
+   * Gets the short at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @return the short at the given offset
+   */
+  public short getShort(long offsetBytes) {
+    assertBounds(offsetBytes, ARRAY_SHORT_INDEX_SCALE, capacityBytes_);
+    return unsafe.getShort(array_, address_ + offsetBytes);
+  }
+
+  /**
+   * Puts the short value at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @param srcValue the value to put
+   */
+  public void putShort(long offsetBytes, short srcValue) {
+    assertBounds(offsetBytes, ARRAY_SHORT_INDEX_SCALE, capacityBytes_);
+    unsafe.putShort(array_, address_ + offsetBytes, srcValue);
+  }
+
+  /**
+   * Gets the int at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @return the int at the given offset
+   */
+  public int getInt(long offsetBytes) {
+    assertBounds(offsetBytes, ARRAY_INT_INDEX_SCALE, capacityBytes_);
+    return unsafe.getInt(array_, address_ + offsetBytes);
+  }
+
+  /**
+   * Puts the int value at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @param srcValue the value to put
+   */
+  public void putInt(long offsetBytes, int srcValue) {
+    assertBounds(offsetBytes, ARRAY_INT_INDEX_SCALE, capacityBytes_);
+    unsafe.putInt(array_, address_ + offsetBytes, srcValue);
+  }
+
+  /**
+   * Gets the long at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @return the long at the given offset
+   */
+  public long getLong(long offsetBytes) {
+    assertBounds(offsetBytes, ARRAY_LONG_INDEX_SCALE, capacityBytes_);
+    return unsafe.getLong(array_, address_ + offsetBytes);
+  }
+
+  /**
+   * Puts the long value at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @param srcValue the value to put
+   */
+  public void putLong(long offsetBytes, long srcValue) {
+    assertBounds(offsetBytes, ARRAY_LONG_INDEX_SCALE, capacityBytes_);
+    unsafe.putLong(array_, address_ + offsetBytes, srcValue);
+  }
+
+  /**
+   * Gets the double at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @return the double at the given offset
+   */
+  public double getDouble(long offsetBytes) {
+    assertBounds(offsetBytes, ARRAY_DOUBLE_INDEX_SCALE, capacityBytes_);
+    return unsafe.getDouble(array_, address_ + offsetBytes);
+  }
+
+  /**
+   * Puts the double value at the given offset
+   * @param offsetBytes offset bytes relative to the start of this UncheckedMemory
+   * @param srcValue the value to put
+   */
+  public void putDouble(long offsetBytes, double srcValue) {
+    assertBounds(offsetBytes, ARRAY_DOUBLE_INDEX_SCALE, capacityBytes_);
+    unsafe.putDouble(array_, address_ + offsetBytes, srcValue);
+  }
+
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.quantiles;
+
+import static com.yahoo.sketches.quantiles.PreambleUtil.DIRECT_FLAG_MASK;
+import static com.yahoo.sketches.quantiles.PreambleUtil.MAX_DOUBLE;
+import static com.yahoo.sketches.quantiles.PreambleUtil.MIN_DOUBLE;
+import static com.yahoo.sketches.quantiles.PreambleUtil.N_LONG;
+import static com.yahoo.sketches.quantiles.PreambleUtil.SER_VER;
+import static com.yahoo.sketches.quantiles.PreambleUtil.extractFamilyID;
+import static com.yahoo.sketches.quantiles.PreambleUtil.extractFlags;
+import static com.yahoo.sketches.quantiles.PreambleUtil.extractK;
+import static com.yahoo.sketches.quantiles.PreambleUtil.extractPreLongs;
+import static com.yahoo.sketches.quantiles.PreambleUtil.extractSerDeId;
+import static com.yahoo.sketches.quantiles.PreambleUtil.extractSerVer;
+import static com.yahoo.sketches.quantiles.PreambleUtil.insertFamilyID;
+import static com.yahoo.sketches.quantiles.PreambleUtil.insertFlags;
+import static com.yahoo.sketches.quantiles.PreambleUtil.insertK;
+import static com.yahoo.sketches.quantiles.PreambleUtil.insertPreLongs;
+import static com.yahoo.sketches.quantiles.PreambleUtil.insertSerDeId;
+import static com.yahoo.sketches.quantiles.PreambleUtil.insertSerVer;
+import static com.yahoo.sketches.quantiles.Util.computeBaseBufferItems;
+import static com.yahoo.sketches.quantiles.Util.computeBitPattern;
+import static com.yahoo.sketches.quantiles.Util.computeCombBufItemCapacity;
+
+import java.util.Arrays;
+
+import com.yahoo.sketches.ArrayOfDoublesSerDe;
+import com.yahoo.sketches.Family;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.MemoryRequest;
+
+/**
+ * Implements the DoublesSketch in a Memory, which may be off-heap. The preamble, N, the min and
+ * max values and the combined buffer of base buffer and levels all live in the Memory and are
+ * updated in place, so the Memory is always a complete image of the sketch that can be
+ * {@link DoublesSketch#wrap(Memory) wrapped} again or {@link DoublesSketch#heapify(Memory)
+ * heapified} at any time. See {@link PreambleUtil} for the layout.
+ *
+ * <p>The algorithm is the same as that of the heap sketch. When the combined buffer outgrows the
+ * Memory, a larger Memory is obtained from the MemoryRequest of the current Memory, the used part
+ * is copied, and the current Memory is freed through the same MemoryRequest.</p>
+ */
+final class DirectDoublesSketch extends DoublesSketch {
+  private static final short ARRAY_OF_DOUBLES_SERDE_ID = new ArrayOfDoublesSerDe().getId();
+  private static final int COMBINED_BUFFER = 32; //start of the base buffer and levels
+
+  private Memory mem_;
+
+  //**CONSTRUCTORS**********************************************************
+  private DirectDoublesSketch(int k, Memory mem) {
+    super(k);
+    mem_ = mem;
+  }
+
+  /**
+   * Obtains a new Direct instance of a DoublesSketch in the given Memory, which is cleared.
+   *
+   * @param k Parameter that controls space usage of sketch and accuracy of estimates.
+   * Must be greater than 0 and less than 65536 and a power of 2.
+   * @param dstMem the destination Memory, which must have a capacity of at least
+   * {@link #getUpdatableStorageBytes(int, long) getUpdatableStorageBytes(k, 0)} bytes.
+   * @return a DirectDoublesSketch
+   */
+  static DirectDoublesSketch newInstance(int k, Memory dstMem) {
+    DirectDoublesSketch dds = new DirectDoublesSketch(k, dstMem); //checks k
+    checkDirectMemCapacity(k, 0, dstMem.getCapacity());
+    dstMem.clear(0, getUpdatableStorageBytes(k, 0));
+    long pre0 = 0L;
+    pre0 = insertPreLongs(Family.QUANTILES.getMaxPreLongs(), pre0);
+    pre0 = insertSerVer(SER_VER, pre0);
+    pre0 = insertFamilyID(Family.QUANTILES.getID(), pre0);
+    pre0 = insertFlags(DIRECT_FLAG_MASK, pre0);
+    pre0 = insertK(k, pre0);
+    pre0 = insertSerDeId(ARRAY_OF_DOUBLES_SERDE_ID, pre0);
+    dstMem.putLong(0, pre0);
+    dds.reset();
+    return dds;
+  }
+
+  /**
+   * Wraps the given srcMem, which must be the updatable image of a DirectDoublesSketch.
+   * @param srcMem the updatable image of a DirectDoublesSketch.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return a DirectDoublesSketch backed by the given Memory
+   */
+  static DirectDoublesSketch wrapInstance(Memory srcMem) {
+    long memCapBytes = srcMem.getCapacity();
+    if (memCapBytes < COMBINED_BUFFER) {
+      throw new SketchesArgumentException("Memory too small: " + memCapBytes);
+    }
+    long pre0 = srcMem.getLong(0);
+    int preambleLongs = extractPreLongs(pre0);
+    int serVer = extractSerVer(pre0);
+    int familyID = extractFamilyID(pre0);
+    int flags = extractFlags(pre0);
+    int k = extractK(pre0);
+    short serDeId = extractSerDeId(pre0);
+
+    if (serDeId != ARRAY_OF_DOUBLES_SERDE_ID) {
+      throw new SketchesArgumentException(
+      "Possible Corruption: serDeId incorrect: " + serDeId + " != " + ARRAY_OF_DOUBLES_SERDE_ID);
+    }
+    Util.checkFamilyID(familyID);
+    Util.checkSerVer(serVer);
+    if (flags != DIRECT_FLAG_MASK) {
+      throw new SketchesArgumentException(
+          "Possible corruption: Not the image of a Direct sketch, flags: "
+          + Integer.toBinaryString(flags));
+    }
+    if (preambleLongs != Family.QUANTILES.getMaxPreLongs()) {
+      throw new SketchesArgumentException(
+          "Possible corruption: PreambleLongs of a Direct sketch must be "
+          + Family.QUANTILES.getMaxPreLongs() + ": " + preambleLongs);
+    }
+    DirectDoublesSketch dds = new DirectDoublesSketch(k, srcMem); //checks k
+    checkDirectMemCapacity(k, dds.getN(), memCapBytes);
+    return dds;
+  }
+
+  /**
+   * Returns the number of bytes of the updatable image of a DirectDoublesSketch given k and n.
+   * @param k the configured size of the sketch
+   * @param n the total values presented to the sketch
+   * @return the number of bytes of the updatable image of a DirectDoublesSketch
+   */
+  static long getUpdatableStorageBytes(int k, long n) {
+    return COMBINED_BUFFER + ((long) computeCombBufItemCapacity(k, n) << 3);
+  }
+
+  @Override
+  public void update(double dataItem) {
+    // this method only uses the base buffer part of the combined buffer
+    if (Double.isNaN(dataItem)) return;
+
+    final long n = getN();
+    final long newN = n + 1;
+    final long reqBytes = getUpdatableStorageBytes(k_, newN);
+    if (reqBytes > mem_.getCapacity()) {
+      growMemory(getUpdatableStorageBytes(k_, n), reqBytes);
+    }
+
+    if (dataItem > getMaxValue()) { mem_.putDouble(MAX_DOUBLE, dataItem); }
+    if (dataItem < getMinValue()) { mem_.putDouble(MIN_DOUBLE, dataItem); }
+
+    final int bbCount = computeBaseBufferItems(k_, n);
+    mem_.putDouble(COMBINED_BUFFER + ((long) bbCount << 3), dataItem);
+    mem_.putLong(N_LONG, newN);
+    if (bbCount + 1 == 2 * k_) {
+      processFullBaseBuffer(newN);
+    }
+  }
+
+  @Override
+  public double getQuantile(double fraction) {
+    if ((fraction < 0.0) || (fraction > 1.0)) {
+      throw new SketchesArgumentException("Fraction cannot be less than zero or greater than 1.0");
+    }
+    if      (fraction == 0.0) { return getMinValue(); }
+    else if (fraction == 1.0) { return getMaxValue(); }
+    else {
+      DoublesAuxiliary aux = new DoublesAuxiliary(this);
+      return aux.getQuantile(fraction);
+    }
+  }
+
+  @Override
+  public double[] getQuantiles(double[] fractions) {
+    Util.validateFractions(fractions);
+    DoublesAuxiliary aux = null;
+    double[] answers = new double[fractions.length];
+    for (int i = 0; i < fractions.length; i++) {
+      double fraction = fractions[i];
+      if      (fraction == 0.0) { answers[i] = getMinValue(); }
+      else if (fraction == 1.0) { answers[i] = getMaxValue(); }
+      else {
+        if (aux == null) aux = new DoublesAuxiliary(this);
+        answers[i] = aux.getQuantile(fraction);
+      }
+    }
+    return answers;
+  }
+
+  @Override
+  public double[] getPMF(double[] splitPoints) {
+    return getPMFOrCDF(splitPoints, false);
+  }
+
+  @Override
+  public double[] getCDF(double[] splitPoints) {
+    return getPMFOrCDF(splitPoints, true);
+  }
+
+  private double[] getPMFOrCDF(double[] splitPoints, boolean isCDF) {
+    long[] counters = DoublesUtil.internalBuildHistogram(splitPoints, this);
+    int numCounters = counters.length;
+    double[] result = new double[numCounters];
+    double n = getN();
+    long subtotal = 0;
+    for (int j = 0; j < numCounters; j++) {
+      long count = counters[j];
+      subtotal += count;
+      result[j] = (isCDF ? subtotal : count) / n; //normalize by n
+    }
+    assert subtotal == n; //internal consistency check
+    return result;
+  }
+
+  @Override
+  public int getK() {
+    return k_;
+  }
+
+  @Override
+  public long getN() {
+    return mem_.getLong(N_LONG);
+  }
+
+  @Override
+  public double getMinValue() {
+    return mem_.getDouble(MIN_DOUBLE);
+  }
+
+  @Override
+  public double getMaxValue() {
+    return mem_.getDouble(MAX_DOUBLE);
+  }
+
+  /**
+   * Resets this sketch to a virgin state, but retains the original value of k and the Memory.
+   */
+  @Override
+  public void reset() {
+    mem_.putLong(N_LONG, 0L);
+    mem_.putDouble(MIN_DOUBLE, java.lang.Double.POSITIVE_INFINITY);
+    mem_.putDouble(MAX_DOUBLE, java.lang.Double.NEGATIVE_INFINITY);
+  }
+
+  /**
+   * Serializes this sketch into the compact form of the heap sketch, which can be heapified
+   * but not wrapped.
+   */
+  @Override
+  public byte[] toByteArray(boolean sort) {
+    return HeapDoublesSketch.copy(this).toByteArray(sort);
+  }
+
+  @Override
+  public String toString(boolean sketchSummary, boolean dataDetail) {
+    return DoublesUtil.toString(sketchSummary, dataDetail, this);
+  }
+
+  @Override
+  public DoublesSketch downSample(int newK) {
+    HeapDoublesSketch newSketch = HeapDoublesSketch.getInstance(newK);
+    DoublesUtil.downSamplingMergeInto(this, newSketch);
+    return newSketch;
+  }
+
+  /**
+   * Puts the compact form of this sketch into the given Memory.
+   * See {@link #toByteArray(boolean)}.
+   */
+  @Override
+  public void putMemory(Memory dstMem, boolean sort) {
+    byte[] byteArr = toByteArray(sort);
+    int arrLen = byteArr.length;
+    long memCap = dstMem.getCapacity();
+    if (memCap < arrLen) {
+      throw new SketchesArgumentException(
+          "Destination Memory not large enough: " + memCap + " < " + arrLen);
+    }
+    dstMem.putByteArray(0, byteArr, 0, arrLen);
+  }
+
+  /**
+   * Returns the Memory that currently backs this sketch, which changes if the sketch grows
+   * beyond the capacity of the Memory.
+   * @return the Memory that currently backs this sketch
+   */
+  Memory getMemory() {
+    return mem_;
+  }
+
+  //Restricted overrides
+
+  @Override
+  int getBaseBufferCount() {
+    return computeBaseBufferItems(k_, getN());
+  }
+
+  @Override
+  int getCombinedBufferItemCapacity() {
+    return computeCombBufItemCapacity(k_, getN());
+  }
+
+  /**
+   * Returns a heap copy of the combined buffer, since the combined buffer lives in the Memory.
+   */
+  @Override
+  double[] getCombinedBuffer() {
+    final int itemCap = getCombinedBufferItemCapacity();
+    final double[] combinedBuffer = new double[itemCap];
+    mem_.getDoubleArray(COMBINED_BUFFER, combinedBuffer, 0, itemCap);
+    return combinedBuffer;
+  }
+
+  @Override
+  void getCombinedBufferItems(int srcIndex, double[] dstArr, int dstIndex, int length) {
+    mem_.getDoubleArray(COMBINED_BUFFER + ((long) srcIndex << 3), dstArr, dstIndex, length);
+  }
+
+  //Other restricted
+
+  /**
+   * Called when the base buffer has just acquired 2*k elements. This is the Memory version of
+   * DoublesUtil.processFullBaseBuffer() and DoublesUtil.inPlacePropagateCarry(), which reads each
+   * level it merges once and writes only the ending level.
+   * @param newN the value of n including the item that filled the base buffer
+   */
+  private void processFullBaseBuffer(long newN) {
+    final int k = k_;
+    final double[] size2KBuf = new double[2 * k];
+    mem_.getDoubleArray(COMBINED_BUFFER, size2KBuf, 0, 2 * k);
+    Arrays.sort(size2KBuf, 0, 2 * k);
+
+    final long bitPattern = computeBitPattern(k, newN) - 1; //the one prior to this carry
+    final int endingLevel = Util.positionOfLowestZeroBitStartingAt(bitPattern, 0);
+
+    // [0, k) holds a lower level, [k, 2k) holds the carry that ends at endingLevel
+    final double[] levelsBuf = new double[2 * k];
+    DoublesUtil.zipSize2KBuffer(size2KBuf, 0, levelsBuf, k, k);
+    for (int lvl = 0; lvl < endingLevel; lvl++) {
+      assert (bitPattern & (1L << lvl)) > 0; // internal consistency check
+      mem_.getDoubleArray(levelOffsetBytes(lvl), levelsBuf, 0, k);
+      DoublesUtil.mergeTwoSizeKBuffers(levelsBuf, 0, levelsBuf, k, size2KBuf, 0, k);
+      DoublesUtil.zipSize2KBuffer(size2KBuf, 0, levelsBuf, k, k);
+    }
+    mem_.putDoubleArray(levelOffsetBytes(endingLevel), levelsBuf, k, k);
+  }
+
+  private long levelOffsetBytes(int level) {
+    return COMBINED_BUFFER + ((long) (2 + level) * k_ << 3);
+  }
+
+  private void growMemory(long usedBytes, long reqBytes) {
+    final MemoryRequest memReq = mem_.getMemoryRequest();
+    if (memReq == null) {
+      throw new SketchesArgumentException("Memory capacity too small and no MemoryRequest: "
+          + mem_.getCapacity() + " < " + reqBytes);
+    }
+    final Memory newMem = memReq.request(mem_, Math.min(usedBytes, mem_.getCapacity()), reqBytes);
+    if (newMem == null) {
+      throw new SketchesArgumentException("MemoryRequest callback cannot be null.");
+    }
+    final long newCap = newMem.getCapacity();
+    if (newCap < reqBytes) {
+      memReq.free(newMem);
+      throw new SketchesArgumentException("Requested memory not granted: " + newCap + " < "
+          + reqBytes);
+    }
+    memReq.free(mem_, newMem); //normal free mechanism via MemoryRequest
+    mem_ = newMem;
+  }
+
+  private static void checkDirectMemCapacity(int k, long n, long memCapBytes) {
+    final long reqBytes = getUpdatableStorageBytes(k, n);
+    if (memCapBytes < reqBytes) {
+      throw new SketchesArgumentException("Possible corruption: Memory capacity too small: "
+          + memCapBytes + " < " + reqBytes);
+    }
+  }
+
+} // End of class DirectDoublesSketch
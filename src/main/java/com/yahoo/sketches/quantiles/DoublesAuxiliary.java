@@ -14,19 +14,19 @@ import java.util.Arrays;
  * @author Lee Rhodes
  */
 final class DoublesAuxiliary {
-  long auxN_;
-  double[] auxSamplesArr_; //array of size samples
-  long[] auxCumWtsArr_;
+  //final, so that an instance cached by a sketch is safely published to concurrent readers
+  final long auxN_;
+  final double[] auxSamplesArr_; //array of size samples
+  final long[] auxCumWtsArr_;
 
   /**
-   * Constructs the Auxiliary structure from the HeapQuantilesSketch
-   * @param qs a HeapQuantilesSketch
+   * Constructs the Auxiliary structure from the DoublesSketch
+   * @param qs a DoublesSketch, which may be either Direct or on-heap
    */
-  DoublesAuxiliary(HeapDoublesSketch qs ) {
+  DoublesAuxiliary(DoublesSketch qs ) {
     int k = qs.getK();
     long n = qs.getN();
     long bitPattern = qs.getBitPattern();
-    double[] combinedBuffer = qs.getCombinedBuffer();
     int baseBufferCount = qs.getBaseBufferCount();
     int numSamples = qs.getRetainedItems();
     
@@ -35,7 +35,7 @@ final class DoublesAuxiliary {
 
     // Populate from HeapQuantilesSketch:
     //  copy over the "levels" and then the base buffer, all with appropriate weights
-    populateFromQuantilesSketch(k, n, bitPattern, combinedBuffer, baseBufferCount,
+    populateFromQuantilesSketch(qs, k, n, bitPattern, baseBufferCount,
         numSamples, itemsArr, cumWtsArr);
 
     // Sort the first "numSamples" slots of the two arrays in tandem, 
@@ -71,20 +71,46 @@ final class DoublesAuxiliary {
     return (approximatelyAnswerPositionalQuery(pos));
   }
 
+  /**
+   * Returns the PMF or the CDF given the splitPoints, which gives the same answers as computing
+   * them from DoublesUtil.internalBuildHistogram().
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing doubles
+   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
+   * @param isCDF true for the CDF, false for the PMF
+   * @return an array of m+1 doubles, each of which is the fraction of the stream in an interval
+   * for the PMF, or below the right boundary of an interval for the CDF.
+   */
+  double[] getPMFOrCDF(double[] splitPoints, boolean isCDF) {
+    DoublesUtil.validateValues(splitPoints);
+    int numSplitPoints = splitPoints.length;
+    double[] result = new double[numSplitPoints + 1];
+    double n = this.auxN_;
+    long prevWeight = 0;
+    for (int j = 0; j < numSplitPoints; j++) {
+      long weight = this.auxCumWtsArr_[lowerBound(this.auxSamplesArr_, splitPoints[j])];
+      result[j] = (isCDF ? weight : weight - prevWeight) / n; //normalize by n
+      prevWeight = weight;
+    }
+    result[numSplitPoints] = (isCDF ? this.auxN_ : this.auxN_ - prevWeight) / n;
+    return result;
+  }
+
   
   /**
-   * Populate the arrays and registers from a HeapQuantilesSketch
+   * Populate the arrays and registers from a HeapQuantilesSketch. The levels and the base buffer
+   * are copied straight into itemsArr, so the combined buffer of a Direct sketch is never copied
+   * as a whole.
+   * @param qs the DoublesSketch
    * @param k K value of sketch
    * @param n The current size of the stream
    * @param bitPattern the bit pattern for valid log levels
-   * @param combinedBuffer the combined buffer reference
    * @param baseBufferCount the count of the base buffer
    * @param numSamples Total samples in the sketch
    * @param itemsArr the consolidated array of all items from the sketch populated here
    * @param cumWtsArr the cumulative weights for each item from the sketch populated here
    */
   private final static void populateFromQuantilesSketch(
-      int k, long n, long bitPattern, double[] combinedBuffer, int baseBufferCount,
+      DoublesSketch qs, int k, long n, long bitPattern, int baseBufferCount,
       int numSamples, double[] itemsArr, long[] cumWtsArr) {
     long weight = 1;
     int nxt = 0;
@@ -93,12 +119,9 @@ final class DoublesAuxiliary {
     for (int lvl = 0; bits != 0L; lvl++, bits >>>= 1) {
       weight *= 2;
       if ((bits & 1L) > 0L) {
-        int offset = (2 + lvl) * k;
-        for (int i = 0; i < k; i++) {
-          itemsArr[nxt] = combinedBuffer[i + offset];
-          cumWtsArr[nxt] = weight;
-          nxt++;
-        }
+        qs.getCombinedBufferItems((2 + lvl) * k, itemsArr, nxt, k);
+        Arrays.fill(cumWtsArr, nxt, nxt + k, weight);
+        nxt += k;
       }
     }
 
@@ -106,11 +129,9 @@ final class DoublesAuxiliary {
     int startOfBaseBufferBlock = nxt;
 
     // Copy BaseBuffer over, along with weight = 1
-    for (int i = 0; i < baseBufferCount; i++) {
-      itemsArr[nxt] = combinedBuffer[i];
-      cumWtsArr[nxt] = weight;
-      nxt++;
-    }
+    qs.getCombinedBufferItems(0, itemsArr, nxt, baseBufferCount);
+    Arrays.fill(cumWtsArr, nxt, nxt + baseBufferCount, weight);
+    nxt += baseBufferCount;
     assert nxt == numSamples;
 
     // Must sort the items that came from the base buffer.
@@ -170,6 +191,24 @@ final class DoublesAuxiliary {
     return (searchForChunkContainingPos(arr, q, l, r));
   }
   
+  /* Returns the index of the first item that is not less than the given value, or the number of
+     items if there is none. Since auxCumWtsArr_ holds the total weight preceding each slot,
+     auxCumWtsArr_ at this index is the total weight of the items less than the value. */
+  private static int lowerBound(double[] sortedItems, double value) {
+    int l = 0;
+    int r = sortedItems.length;
+    while (l < r) {
+      int m = (l + r) >>> 1;
+      if (sortedItems[m] < value) {
+        l = m + 1;
+      }
+      else {
+        r = m;
+      }
+    }
+    return l;
+  }
+
   /* Assuming that there are n items in the true stream, this asks what
      item would appear in position 0 <= pos < n of a hypothetical sorted
      version of that stream.  
@@ -108,7 +108,12 @@ Table Guide for DoublesSketch Size in Bytes and Approximate Error:
  * <p>Similarly, there may be directional inconsistencies. For example, the resulting array of 
  * values obtained from getQuantiles(fractions[]) input into the reverse directional query 
  * getPMF(splitPoints[]) may not result in the original fractional values.</p>
- * 
+ *
+ * <p>The on-heap sketch builds a sorted view of its retained items on the first quantile, PMF
+ * or CDF query and caches it, so that repeated queries of an unchanged sketch are answered by
+ * binary search. Any update, merge or reset discards the view. Queries therefore write to the
+ * sketch, but concurrent queries of a sketch that is no longer updated are safe.</p>
+ *
  * @author Kevin Lang
  * @author Lee Rhodes
  */
@@ -155,7 +160,23 @@ public abstract class DoublesSketch {
    * @param dataItem an item from a stream of items.  NaNs are ignored.
    */
   public abstract void update(double dataItem);
-  
+
+  /**
+   * Updates this sketch with each data item of the given array in the range <i>[from, to)</i>.
+   * The result is the same as calling {@link #update(double)} for each item in order.
+   * @param dataItems the given items. If null, or if the range is empty, this is a no-op.
+   * NaNs are ignored.
+   * @param from the index of the first item, inclusive
+   * @param to the index of the last item, exclusive
+   */
+  public void update(double[] dataItems, int from, int to) {
+    if (dataItems == null) return;
+    Util.checkBatchRange(from, to, dataItems.length);
+    for (int i = from; i < to; i++) {
+      update(dataItems[i]);
+    }
+  }
+
   /**
    * This returns an approximation to the value of the data item
    * that would be preceded by the given fraction of a hypothetical sorted
@@ -323,7 +344,7 @@ public abstract class DoublesSketch {
    * @return true if this sketch is empty
    */
   public boolean isEmpty() {
-   return n_ == 0; 
+   return getN() == 0; 
   }
   
   /**
@@ -387,6 +408,18 @@ public abstract class DoublesSketch {
     return HeapDoublesSketch.getInstance(srcMem);
   }
 
+  /**
+   * Wrap takes the image of a Direct sketch in Memory, which was created by a 
+   * {@link DoublesSketchBuilder} configured with {@link DoublesSketchBuilder#initMemory(Memory)},
+   * and returns a sketch that is updated in place in that Memory.
+   * @param srcMem a Memory image of a Direct sketch.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return a sketch backed by the given Memory
+   */
+  public static DoublesSketch wrap(Memory srcMem) {
+    return DirectDoublesSketch.wrapInstance(srcMem);
+  }
+
   /**
    * Computes the number of retained items (samples) in the sketch
    * @return the number of retained items (samples) in the sketch
@@ -437,7 +470,7 @@ public abstract class DoublesSketch {
    * @return the bit pattern for valid log levels
    */
   long getBitPattern() {
-    return Util.computeBitPattern(k_, n_);
+    return Util.computeBitPattern(k_, getN());
   }
 
   /**
@@ -452,4 +485,14 @@ public abstract class DoublesSketch {
    */
   abstract double[] getCombinedBuffer();
 
+  /**
+   * Copies the given range of items of the combined buffer into the given array, without
+   * copying the rest of the combined buffer
+   * @param srcIndex the index of the first item in the combined buffer
+   * @param dstArr the destination array
+   * @param dstIndex the index of the first item in the destination array
+   * @param length the number of items to copy
+   */
+  abstract void getCombinedBufferItems(int srcIndex, double[] dstArr, int dstIndex, int length);
+
 }
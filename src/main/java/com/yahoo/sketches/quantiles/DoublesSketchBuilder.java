@@ -8,6 +8,8 @@ package com.yahoo.sketches.quantiles;
 import static com.yahoo.sketches.quantiles.Util.LS;
 import static com.yahoo.sketches.quantiles.Util.TAB;
 
+import com.yahoo.sketches.memory.Memory;
+
 /**
  * For building a new QuantilesSketch.
  * 
@@ -15,6 +17,7 @@ import static com.yahoo.sketches.quantiles.Util.TAB;
  */
 public class DoublesSketchBuilder {
   private int bK;
+  private Memory bDstMem;
   
   /**
    * Constructor for building a new QuantilesSketch. The default configuration is 
@@ -27,6 +30,7 @@ public class DoublesSketchBuilder {
    */
   public DoublesSketchBuilder() {
     bK = DoublesSketch.DEFAULT_K;
+    bDstMem = null;
   }
   
   /**
@@ -52,12 +56,38 @@ public class DoublesSketchBuilder {
     return bK;
   }
 
+  /**
+   * Initialize the specified backing destination Memory store. If not null, the sketch will be
+   * Direct and will be updated in place in this Memory, which will be cleared prior to use.
+   * If the sketch grows beyond the capacity of this Memory, more Memory is requested from the
+   * MemoryRequest of this Memory, if any.
+   * @param dstMem The destination Memory. 
+   * <a href="{@docRoot}/resources/dictionary.html#dstMem">See Destination Memory</a>.
+   * @return this builder
+   */
+  public DoublesSketchBuilder initMemory(Memory dstMem) {
+    bDstMem = dstMem;
+    return this;
+  }
+
+  /**
+   * Returns the Destination Memory
+   * <a href="{@docRoot}/resources/dictionary.html#dstMem">See Destination Memory</a>.
+   * @return the Destination Memory
+   */
+  public Memory getMemory() {
+    return bDstMem;
+  }
+
   /**
    * Returns a QuantilesSketch with the current configuration of this Builder.
    * @return a QuantilesSketch
    */
   public DoublesSketch build() {
-    return HeapDoublesSketch.getInstance(bK);
+    if (bDstMem == null) {
+      return HeapDoublesSketch.getInstance(bK);
+    }
+    return DirectDoublesSketch.newInstance(bK, bDstMem);
   }
   
   /**
@@ -81,6 +111,7 @@ public class DoublesSketchBuilder {
     StringBuilder sb = new StringBuilder();
     sb.append("QuantileSketchBuilder configuration:").append(LS);
     sb.append("K:").append(TAB).append(bK).append(LS);
+    sb.append("DstMemory:").append(TAB).append(bDstMem != null).append(LS);
     return sb.toString();
   }
 
@@ -44,11 +44,12 @@ final class DoublesUtil {
    * @param sketch the given quantiles sketch
    * @return the unnormalized, accumulated counts of <i>m + 1</i> intervals.
    */
-  static long[] internalBuildHistogram(final double[] splitPoints, final HeapDoublesSketch sketch) {
-    final double[] levelsArr  = sketch.getCombinedBuffer();
-    final double[] baseBuffer = levelsArr;
+  static long[] internalBuildHistogram(final double[] splitPoints, final DoublesSketch sketch) {
     final int bbCount = sketch.getBaseBufferCount();
     validateValues(splitPoints);
+    //the base buffer and each level are read separately, so a Direct sketch is not copied whole
+    final double[] baseBuffer = new double[bbCount];
+    sketch.getCombinedBufferItems(0, baseBuffer, 0, bbCount);
 
     final int numSplitPoints = splitPoints.length;
     final int numCounters = numSplitPoints + 1;
@@ -69,12 +70,14 @@ final class DoublesUtil {
     long myBitPattern = sketch.getBitPattern();
     final int k = sketch.getK();
     assert myBitPattern == sketch.getN() / (2L * k); // internal consistency check
+    final double[] levelArr = (myBitPattern == 0L) ? null : new double[k];
     for (int lvl = 0; myBitPattern != 0L; lvl++, myBitPattern >>>= 1) {
       weight += weight; // *= 2
       if ((myBitPattern & 1L) > 0L) { //valid level exists
+        sketch.getCombinedBufferItems((2 + lvl) * k, levelArr, 0, k);
         // the levels are already sorted so we can use the fast version
         DoublesUtil.linearTimeIncrementHistogramCounters(
-            levelsArr, (2 + lvl) * k, k, weight, splitPoints, counters);
+            levelArr, 0, k, weight, splitPoints, counters);
       }
     }
     return counters;
@@ -180,10 +183,10 @@ final class DoublesUtil {
    * I.e., source.getK() = target.getK() * 2^(nonnegative integer).
    * The source is not modified.
    * 
-   * @param src The source sketch
+   * @param src The source sketch, which may be either Direct or on-heap
    * @param tgt The target sketch
    */
-  static void downSamplingMergeInto(final HeapDoublesSketch src, final HeapDoublesSketch tgt) {
+  static void downSamplingMergeInto(final DoublesSketch src, final HeapDoublesSketch tgt) {
     final int targetK = tgt.getK();
     final int sourceK = src.getK();
 
@@ -226,7 +229,8 @@ final class DoublesUtil {
         // won't update target.n_ until the very end
       }
     }
-    tgt.n_ = nFinal; 
+    tgt.n_ = nFinal;
+    tgt.aux_ = null;
 
     assert tgt.getN() / (2 * targetK) == tgt.getBitPattern(); // internal consistency check
 
@@ -239,7 +243,7 @@ final class DoublesUtil {
     if (srcMin < tgtMin) tgt.minValue_ = srcMin;
   }
 
-  private static void zipSize2KBuffer(
+  static void zipSize2KBuffer(
       final double[] bufA, final int startA, // input
       final double[] bufC, final int startC, // output
       final int k) {
@@ -262,7 +266,7 @@ final class DoublesUtil {
     }
   }
 
-  private static void mergeTwoSizeKBuffers(
+  static void mergeTwoSizeKBuffers(
       final double[] keySrc1, final int arrStart1,
       final double[] keySrc2, final int arrStart2,
       final double[] keyDst,  final int arrStart3,
@@ -483,7 +487,7 @@ final class DoublesUtil {
     }
   }
 
-  static String toString(final boolean sketchSummary, final boolean dataDetail, final HeapDoublesSketch sketch) {
+  static String toString(final boolean sketchSummary, final boolean dataDetail, final DoublesSketch sketch) {
     final StringBuilder sb = new StringBuilder();
     if (dataDetail) {
       sb.append(getDataDetail(sketch));
@@ -494,7 +498,7 @@ final class DoublesUtil {
     return sb.toString();
   }
   
-  static String getDataDetail(final HeapDoublesSketch sketch) {
+  static String getDataDetail(final DoublesSketch sketch) {
     final StringBuilder sb = new StringBuilder();
     final String thisSimpleName = sketch.getClass().getSimpleName();
     sb.append(LS).append("### ").append(thisSimpleName).append(" DATA DETAIL: ").append(LS);
@@ -532,7 +536,7 @@ final class DoublesUtil {
     return sb.toString();
   }
   
-  static String getSummary(final HeapDoublesSketch sketch) {
+  static String getSummary(final DoublesSketch sketch) {
     final StringBuilder sb = new StringBuilder();
     final String thisSimpleName = sketch.getClass().getSimpleName();
     final int k = sketch.getK();
@@ -5,6 +5,7 @@
 
 package com.yahoo.sketches.quantiles;
 
+import static com.yahoo.sketches.quantiles.PreambleUtil.DIRECT_FLAG_MASK;
 import static com.yahoo.sketches.quantiles.PreambleUtil.EMPTY_FLAG_MASK;
 import static com.yahoo.sketches.quantiles.PreambleUtil.MAX_DOUBLE;
 import static com.yahoo.sketches.quantiles.PreambleUtil.MIN_DOUBLE;
@@ -87,6 +88,16 @@ final class HeapDoublesSketch extends DoublesSketch {
    */
   double[] combinedBuffer_;
 
+  /**
+   * The sorted view of the retained items and their cumulative weights that answers the
+   * quantile, PMF and CDF queries. It is built by the first query and reused by later queries
+   * until the sketch is modified, which sets it to null. Queries therefore write this field.
+   * Concurrent queries of a sketch that is no longer updated are safe: the fields of the
+   * DoublesAuxiliary are final, so a reader sees either null or a completely built view, and
+   * racing queries at worst build the view more than once.
+   */
+  DoublesAuxiliary aux_;
+
   //**CONSTRUCTORS**********************************************************
   private HeapDoublesSketch(int k) {
     super(k);
@@ -131,6 +142,9 @@ final class HeapDoublesSketch extends DoublesSketch {
     int k = extractK(pre0);
     short serDeId = extractSerDeId(pre0);
     
+    if ((flags & DIRECT_FLAG_MASK) != 0) { //the updatable image of a DirectDoublesSketch
+      return copy(DirectDoublesSketch.wrapInstance(srcMem));
+    }
     if (serDeId != ARRAY_OF_DOUBLES_SERDE_ID) {
       throw new SketchesArgumentException(
       "Possible Corruption: serDeId incorrect: " + serDeId + " != " + ARRAY_OF_DOUBLES_SERDE_ID);
@@ -190,11 +204,12 @@ final class HeapDoublesSketch extends DoublesSketch {
     qsCopy.n_ = sketch.getN();
     qsCopy.minValue_ = sketch.getMinValue();
     qsCopy.maxValue_ = sketch.getMaxValue();
-    qsCopy.combinedBufferItemCapacity_ = sketch.getCombinedBufferItemCapacity();
+    int itemCap = sketch.getCombinedBufferItemCapacity();
+    qsCopy.combinedBufferItemCapacity_ = itemCap;
     qsCopy.baseBufferCount_ = sketch.getBaseBufferCount();
     qsCopy.bitPattern_ = sketch.getBitPattern();
-    double[] combBuf = sketch.getCombinedBuffer();
-    qsCopy.combinedBuffer_ = Arrays.copyOf(combBuf, combBuf.length);
+    qsCopy.combinedBuffer_ = new double[itemCap];
+    sketch.getCombinedBufferItems(0, qsCopy.combinedBuffer_, 0, itemCap);
     return qsCopy;
   }
   
@@ -211,11 +226,54 @@ final class HeapDoublesSketch extends DoublesSketch {
     } 
     combinedBuffer_[baseBufferCount_++] = dataItem;
     n_++;
+    aux_ = null;
     if (baseBufferCount_ == 2 * k_) {
       DoublesUtil.processFullBaseBuffer(this);
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The items are copied into the base buffer in runs that fill it up to 2*k items, with a
+   * single capacity check per run, and each full base buffer is sorted once and carried into the
+   * levels. The resulting sketch is identical to the one produced by item-at-a-time updates.</p>
+   */
+  @Override
+  public void update(double[] dataItems, int from, int to) {
+    if (dataItems == null) return;
+    Util.checkBatchRange(from, to, dataItems.length);
+    aux_ = null;
+    final int twoK = 2 * k_;
+    double minValue = minValue_;
+    double maxValue = maxValue_;
+    int i = from;
+    while (i < to) {
+      final int bbCount = baseBufferCount_;
+      while ((combinedBufferItemCapacity_ < twoK)
+          && (combinedBufferItemCapacity_ < (bbCount + (to - i)))) {
+        DoublesUtil.growBaseBuffer(this);
+      }
+      final double[] baseBuffer = combinedBuffer_;
+      final int bbLimit = Math.min(twoK, combinedBufferItemCapacity_);
+      int count = bbCount;
+      while ((i < to) && (count < bbLimit)) {
+        final double dataItem = dataItems[i++];
+        if (Double.isNaN(dataItem)) continue;
+        if (dataItem > maxValue) { maxValue = dataItem; }
+        if (dataItem < minValue) { minValue = dataItem; }
+        baseBuffer[count++] = dataItem;
+      }
+      n_ += count - bbCount;
+      baseBufferCount_ = count;
+      if (count == twoK) {
+        DoublesUtil.processFullBaseBuffer(this);
+      }
+    }
+    minValue_ = minValue;
+    maxValue_ = maxValue;
+  }
+
   @Override
   public double getQuantile(double fraction) {
     if ((fraction < 0.0) || (fraction > 1.0)) {
@@ -224,22 +282,21 @@ final class HeapDoublesSketch extends DoublesSketch {
     if      (fraction == 0.0) { return minValue_; }
     else if (fraction == 1.0) { return maxValue_; }
     else {
-      DoublesAuxiliary aux = this.constructAuxiliary();
-      return aux.getQuantile(fraction);
+      return getAuxiliary().getQuantile(fraction);
     }
   }
 
   @Override
   public double[] getQuantiles(double[] fractions) {
     Util.validateFractions(fractions);
-    DoublesAuxiliary aux = null; //
+    DoublesAuxiliary aux = null;
     double[] answers = new double[fractions.length];
     for (int i = 0; i < fractions.length; i++) {
       double fraction = fractions[i];
       if      (fraction == 0.0) { answers[i] = minValue_; }
       else if (fraction == 1.0) { answers[i] = maxValue_; }
       else {
-        if (aux == null) aux = this.constructAuxiliary();
+        if (aux == null) aux = getAuxiliary();
         answers[i] = aux.getQuantile(fraction);
       }
     }
@@ -257,26 +314,7 @@ final class HeapDoublesSketch extends DoublesSketch {
   }
 
   private double[] getPMFOrCDF(double[] splitPoints, boolean isCDF) {
-    long[] counters = DoublesUtil.internalBuildHistogram(splitPoints, this);
-    int numCounters = counters.length;
-    double[] result = new double[numCounters];
-    double n = n_;
-    long subtotal = 0;
-    if (isCDF) {
-      for (int j = 0; j < numCounters; j++) {
-        long count = counters[j];
-        subtotal += count;
-        result[j] = subtotal / n; //normalize by n
-      }
-    } else { // PMF
-      for (int j = 0; j < numCounters; j++) {
-        long count = counters[j];
-        subtotal += count;
-        result[j] = count / n; //normalize by n
-      }
-    }
-    assert subtotal == n; //internal consistency check
-    return result;
+    return getAuxiliary().getPMFOrCDF(splitPoints, isCDF);
   }
 
   @Override
@@ -297,6 +335,7 @@ final class HeapDoublesSketch extends DoublesSketch {
   @Override
   public void reset() {
     n_ = 0;
+    aux_ = null;
     combinedBufferItemCapacity_ = Math.min(Util.MIN_BASE_BUF_SIZE, 2 * k_); //the min is important
     combinedBuffer_ = new double[combinedBufferItemCapacity_];
     baseBufferCount_ = 0;
@@ -408,16 +447,34 @@ final class HeapDoublesSketch extends DoublesSketch {
   double[] getCombinedBuffer() {
     return combinedBuffer_;
   }
+
+  @Override
+  void getCombinedBufferItems(int srcIndex, double[] dstArr, int dstIndex, int length) {
+    System.arraycopy(combinedBuffer_, srcIndex, dstArr, dstIndex, length);
+  }
   
   //Other restricted
   
   /**
-   * Returns the Auxiliary data structure which is only used for getQuantile() and getQuantiles() 
-   * queries.
+   * Returns a new Auxiliary data structure built from the current state of this sketch.
    * @return the Auxiliary data structure
    */
   DoublesAuxiliary constructAuxiliary() {
     return new DoublesAuxiliary( this );
   }
+
+  /**
+   * Returns the cached Auxiliary data structure that answers the getQuantile(), getQuantiles(),
+   * getPMF() and getCDF() queries, building it if the sketch was modified since the last query.
+   * @return the Auxiliary data structure
+   */
+  DoublesAuxiliary getAuxiliary() {
+    DoublesAuxiliary aux = aux_; //read once, as a concurrent query may also write it
+    if (aux == null) {
+      aux = constructAuxiliary();
+      aux_ = aux;
+    }
+    return aux;
+  }
   
 } // End of class HeapDoublesSketch
@@ -37,7 +37,10 @@ final class HeapDoublesUnion extends DoublesUnion {
   
   @Override
   public void update(DoublesSketch sketchIn) {
-    gadget_ = updateLogic(k_, gadget_, (HeapDoublesSketch)sketchIn);
+    final HeapDoublesSketch that = ((sketchIn == null) || (sketchIn instanceof HeapDoublesSketch))
+        ? (HeapDoublesSketch) sketchIn 
+        : HeapDoublesSketch.copy(sketchIn); //a Direct sketch
+    gadget_ = updateLogic(k_, gadget_, that);
   }
 
   @Override
@@ -203,6 +206,7 @@ final class HeapDoublesUnion extends DoublesUnion {
     }
   
     tgt.n_ = nFinal;
+    tgt.aux_ = null;
     
     assert tgt.getN() / (2 * tgtK) == tgt.getBitPattern(); // internal consistency check
     
@@ -51,6 +51,12 @@ import com.yahoo.sketches.memory.NativeMemory;
  *  4   ||---------------------------------REST OF DATA----------------------------------|
  *  </pre>
  *  
+ * <p>The updatable image of a DirectDoublesSketch has the DIRECT flag set and always has 2 
+ * preamble longs followed by MIN_DOUBLE and MAX_DOUBLE, even if it is empty. The rest of the data 
+ * is the complete combined buffer of the sketch: the base buffer of 2K items, of which only the 
+ * first N % 2K are valid, followed by every level of K items, valid or not. Before the first 
+ * level is needed the base buffer may be shorter, as in the heap sketch.</p>
+ *  
  *  @author Lee Rhodes
  */
 final class PreambleUtil {
@@ -78,6 +84,7 @@ final class PreambleUtil {
   static final int BIG_ENDIAN_FLAG_MASK       = 1;
   //static final int READ_ONLY_FLAG_MASK        = 2;   //reserved
   static final int EMPTY_FLAG_MASK            = 4;
+  static final int DIRECT_FLAG_MASK           = 32;
   //static final int COMPACT_FLAG_MASK          = 8;   //reserved
   //static final int ORDERED_FLAG_MASK          = 16;  //reserved
   
@@ -47,6 +47,19 @@ final class Util {
     }
   }
 
+  /**
+   * Checks the validity of the range <i>[from, to)</i> of a batch update
+   * @param from the index of the first item, inclusive
+   * @param to the index of the last item, exclusive
+   * @param length the length of the array of items
+   */
+  static void checkBatchRange(int from, int to, int length) {
+    if ((from < 0) || (from > to) || (to > length)) {
+      throw new SketchesArgumentException("Invalid range: from: " + from + ", to: " + to
+          + ", length: " + length);
+    }
+  }
+
   /**
    * Check the validity of the given serialization version
    * @param serVer the given serialization version
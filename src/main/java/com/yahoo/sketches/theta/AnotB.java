@@ -33,6 +33,24 @@ public interface AnotB {
    */  
   void update(Sketch a, Sketch b);
   
+  /**
+   * Perform A-and-not-B set operation on the two given sketch images without heapifying them.
+   * If both images are ordered compact sketches, as are all stored sketches by default,
+   * their hashes are read in place and swept in a single pass without building a hash table.
+   * A null Memory is interpreted as an empty sketch.
+   * 
+   * <p>The default implementation wraps both images with the default seed and calls
+   * {@link #update(Sketch, Sketch)}.</p>
+   * 
+   * @param a The image of the incoming sketch for the first argument
+   * @param b The image of the incoming sketch for the second argument
+   */
+  default void update(Memory a, Memory b) {
+    Sketch skA = (a == null) ? null : Sketch.wrap(a);
+    Sketch skB = (b == null) ? null : Sketch.wrap(b);
+    update(skA, skB);
+  }
+  
   /**
    * Gets the result of this operation as a CompactSketch of the chosen form
    * @param dstOrdered 
@@ -92,7 +92,30 @@ public abstract class CompactSketch extends Sketch {
   public boolean isCompact() {
     return true;
   }
-  
+
+  /**
+   * Serialize this sketch to a byte array form, which may be compressed.
+   * The compressed form (Serialization Version 4) stores the ordered hash values as Golomb-Rice
+   * coded gaps, which saves about log2(n) bits per hash value, where n is the number of retained
+   * entries. It can be heapified, wrapped or presented to a Union like the other forms, but it is
+   * always decoded onto the heap.
+   * @param compressed if true the compressed form is returned, otherwise the same as
+   * {@link #toByteArray()}.
+   * @return byte array of this sketch
+   */
+  public byte[] toByteArray(boolean compressed) {
+    if (!compressed) {
+      return toByteArray();
+    }
+    int curCount = getRetainedEntries(true);
+    long[] cache = getCache();
+    if (!isOrdered()) {
+      cache = Arrays.copyOf(cache, curCount);
+      Arrays.sort(cache);
+    }
+    return RiceCodec.compress(cache, curCount, isEmpty(), getSeedHash(), getThetaLong());
+  }
+
   /**
    * Compact the given array.
    * @param srcCache anything
@@ -0,0 +1,530 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.QuickSelect.selectExcludingZeros;
+import static com.yahoo.sketches.Util.REBUILD_THRESHOLD;
+import static com.yahoo.sketches.hash.MurmurHash3.hash;
+import static com.yahoo.sketches.hash.MurmurHash3.hash64;
+import static com.yahoo.sketches.theta.CompactSketch.compactCache;
+import static com.yahoo.sketches.theta.CompactSketch.createCompactSketch;
+import static com.yahoo.sketches.theta.PreambleUtil.EMPTY_FLAG_MASK;
+import static com.yahoo.sketches.theta.PreambleUtil.FAMILY_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.FLAGS_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.LG_ARR_LONGS_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.LG_NOM_LONGS_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.MAX_THETA_LONG_AS_DOUBLE;
+import static com.yahoo.sketches.theta.PreambleUtil.P_FLOAT;
+import static com.yahoo.sketches.theta.PreambleUtil.RETAINED_ENTRIES_INT;
+import static com.yahoo.sketches.theta.PreambleUtil.SEED_HASH_SHORT;
+import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_COMPRESSED;
+import static com.yahoo.sketches.theta.PreambleUtil.THETA_LONG;
+import static com.yahoo.sketches.theta.PreambleUtil.UNION_THETA_LONG;
+import static java.lang.Math.min;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.yahoo.sketches.Family;
+import com.yahoo.sketches.HashOperations;
+import com.yahoo.sketches.ResizeFactor;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.MemoryUtil;
+import com.yahoo.sketches.memory.NativeMemory;
+
+/**
+ * A Union in a given Memory that can be updated concurrently by many threads, or by many
+ * processes that share the Memory through a memory-mapped file. It is lock-free: no writer ever
+ * waits for another writer, and a writer that stops at any point, e.g., because its process
+ * died, does not keep the other writers from making progress.
+ *
+ * <p>The Memory holds the standard Union image with a hash table of the full size of
+ * 2 * nomEntries, which never resizes, followed by one additional long that counts the hashes
+ * inserted since the last rebuild. Theta is only ever lowered, with compare-and-swap. A hash in
+ * the table that is not less than theta is dirty and stays dirty forever, thus its slot can be
+ * reused. A slot only ever changes from empty or dirty to a new hash, with compare-and-swap, which
+ * makes every compare-and-swap immune to ABA and means that a hash less than theta is never moved
+ * or removed. Slots are never emptied, thus the probe chains are never cut.</p>
+ *
+ * <p>A writer rejects hashes that are not less than theta, which is the common case once the
+ * union is in estimation mode, after a single volatile read of theta. Otherwise it searches the
+ * probe chain of the hash up to the first empty slot. If the hash is not found, it is inserted
+ * into the first dirty slot of the chain, or else into the empty slot, and the count is
+ * incremented. The writer whose increment reaches the rebuild threshold rebuilds: it lowers theta
+ * to the (k+1)th smallest hash of the table, which turns all but k hashes dirty, and lowers the
+ * count accordingly. The rebuild moves no data, thus any number of writers may do it at the same
+ * time. If that writer dies before it lowers the count, the next writer that finds no free slot
+ * in the probe chain of its hash rebuilds instead.</p>
+ *
+ * <p>Two writers that insert the same hash while theta is being lowered may both insert it, thus
+ * duplicates are removed whenever the table is read. Results are computed from a snapshot of the
+ * hash table, which is filtered with the theta that is read after the table: the hashes less than
+ * that theta cannot have changed while the table was read. {@link #toByteArray()} returns the
+ * snapshot as the standard Union image.</p>
+ *
+ * <p>{@link #reset()} must not be called while other writers are updating the union.</p>
+ */
+final class ConcurrentDirectUnion extends SetOperation implements Union {
+  private final Memory mem_;
+  private final long seed_;
+  private final short seedHash_;
+  private final int lgNomLongs_;
+  private final int lgArrLongs_;
+  private final int preBytes_;
+  private final int hashTableThreshold_;
+  private final long countOffsetBytes_;
+
+  private ConcurrentDirectUnion(Memory mem, long seed, int lgNomLongs) {
+    mem_ = mem;
+    seed_ = seed;
+    seedHash_ = computeSeedHash(seed);
+    lgNomLongs_ = lgNomLongs;
+    lgArrLongs_ = lgNomLongs + 1;
+    preBytes_ = Family.UNION.getMinPreLongs() << 3;
+    hashTableThreshold_ = (int) Math.floor(REBUILD_THRESHOLD * (1 << lgArrLongs_));
+    countOffsetBytes_ = PreambleUtil.getMemBytes(lgArrLongs_, Family.UNION.getMinPreLongs());
+  }
+
+  /**
+   * Construct a new concurrent Union in the given destination Memory.
+   * Called by SetOperation.Builder.
+   *
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
+   * @param dstMem the given Memory object destination. It will be cleared prior to use.
+   * @return this class
+   */
+  static ConcurrentDirectUnion initNewInstance(int lgNomLongs, long seed, float p, Memory dstMem) {
+    checkCompareAndSwap(dstMem);
+    long reqBytes = getMemBytes(lgNomLongs);
+    if (dstMem.getCapacity() < reqBytes) {
+      throw new SketchesArgumentException(
+          "Memory capacity is too small: " + dstMem.getCapacity() + " < " + reqBytes);
+    }
+    //writes the preamble and clears the hash table
+    DirectQuickSelectSketch.getInstance(lgNomLongs, seed, p, ResizeFactor.X1, dstMem, true);
+    dstMem.putLong(UNION_THETA_LONG, dstMem.getLong(THETA_LONG));
+    ConcurrentDirectUnion union = new ConcurrentDirectUnion(dstMem, seed, lgNomLongs);
+    dstMem.putLong(union.countOffsetBytes_, 0L);
+    return union;
+  }
+
+  /**
+   * Wrap a concurrent Union around the given Memory that was initialized by
+   * {@link #initNewInstance(int, long, float, Memory)}, possibly by another process.
+   * @param srcMem The source Memory object.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @return this class
+   */
+  static ConcurrentDirectUnion wrapInstance(Memory srcMem, long seed) {
+    checkCompareAndSwap(srcMem);
+    Family.UNION.checkFamilyID(srcMem.getByte(FAMILY_BYTE));
+    int serVer = srcMem.getByte(SER_VER_BYTE);
+    if (serVer != 3) {
+      throw new SketchesArgumentException("SerVer must be 3: " + serVer);
+    }
+    Util.checkSeedHashes(computeSeedHash(seed), srcMem.getShort(SEED_HASH_SHORT));
+    int lgNomLongs = srcMem.getByte(LG_NOM_LONGS_BYTE);
+    int lgArrLongs = srcMem.getByte(LG_ARR_LONGS_BYTE);
+    if (lgArrLongs != (lgNomLongs + 1)) {
+      throw new SketchesArgumentException(
+          "A concurrent Union requires a full size hash table: " + lgArrLongs);
+    }
+    long reqBytes = getMemBytes(lgNomLongs);
+    if (srcMem.getCapacity() < reqBytes) {
+      throw new SketchesArgumentException(
+          "Memory capacity is too small: " + srcMem.getCapacity() + " < " + reqBytes);
+    }
+    return new ConcurrentDirectUnion(srcMem, seed, lgNomLongs);
+  }
+
+  /**
+   * Returns the number of bytes of Memory required by a concurrent Union.
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>.
+   * @return the number of bytes of Memory required by a concurrent Union.
+   */
+  static long getMemBytes(int lgNomLongs) {
+    return PreambleUtil.getMemBytes(lgNomLongs + 1, Family.UNION.getMinPreLongs()) + 8;
+  }
+
+  @Override
+  public CompactSketch getResult(boolean dstOrdered, Memory dstMem) {
+    Snapshot snap = getSnapshot();
+    long[] cache = snap.cache;
+    long thetaLong = min(snap.thetaLong, snap.unionThetaLong);
+    int k = 1 << lgNomLongs_;
+    int curCount = HashOperations.count(cache, thetaLong);
+    if (curCount > k) {
+      //equivalent to the rebuild of the gadget by the single threaded union
+      long[] tmpArr = cache.clone();
+      thetaLong = selectExcludingZeros(tmpArr, HashOperations.count(tmpArr, Long.MAX_VALUE), k + 1);
+      curCount = HashOperations.count(cache, thetaLong);
+    }
+    double p = mem_.getFloat(P_FLOAT);
+    double thetaR = thetaLong / MAX_THETA_LONG_AS_DOUBLE;
+    long[] compactCacheR = compactCache(cache, curCount, thetaLong, dstOrdered);
+    boolean emptyR = (snap.empty && (p >= thetaR) && (curCount == 0));
+    return createCompactSketch(compactCacheR, emptyR, seedHash_, curCount, thetaLong,
+        dstOrdered, dstMem);
+  }
+
+  @Override
+  public CompactSketch getResult() {
+    return getResult(true, null);
+  }
+
+  @Override
+  public void reset() {
+    mem_.clear(preBytes_, (8L << lgArrLongs_) + 8L);
+    mem_.putByte(FLAGS_BYTE, (byte) EMPTY_FLAG_MASK);
+    mem_.putInt(RETAINED_ENTRIES_INT, 0);
+    long thetaLong = (long) (mem_.getFloat(P_FLOAT) * MAX_THETA_LONG_AS_DOUBLE);
+    mem_.putLong(THETA_LONG, thetaLong);
+    mem_.putLong(UNION_THETA_LONG, thetaLong);
+  }
+
+  /**
+   * Returns the standard Union image of a snapshot of this union, without the count.
+   * The image can be heapified or wrapped as a regular Union.
+   */
+  @Override
+  public byte[] toByteArray() {
+    Snapshot snap = getSnapshot();
+    int bytes = (int) countOffsetBytes_;
+    byte[] byteArr = new byte[bytes];
+    NativeMemory dstMem = new NativeMemory(byteArr);
+    NativeMemory.copy(mem_, 0, dstMem, 0, preBytes_);
+    dstMem.putInt(RETAINED_ENTRIES_INT, HashOperations.count(snap.cache, snap.thetaLong));
+    dstMem.putLong(THETA_LONG, snap.thetaLong);
+    dstMem.putLong(UNION_THETA_LONG, snap.unionThetaLong);
+    if (!snap.empty) {
+      dstMem.clearBits(FLAGS_BYTE, (byte) EMPTY_FLAG_MASK);
+    }
+    dstMem.putLongArray(preBytes_, snap.cache, 0, snap.cache.length);
+    return byteArr;
+  }
+
+  @Override
+  public Family getFamily() {
+    return Family.UNION;
+  }
+
+  @Override
+  public void update(Sketch sketch) {
+    //UNION Empty Rule: AND the empty states
+    Sketch sketchIn = (sketch == null) ? null : sketch.getSnapshot();
+    if ((sketchIn == null) || sketchIn.isEmpty()) {
+      //null/empty is interpreted as (Theta = 1.0, count = 0, empty = T).  Nothing changes
+      return;
+    }
+    Util.checkSeedHashes(seedHash_, sketchIn.getSeedHash());
+    long thetaLongIn = sketchIn.getThetaLong();
+    lowerUnionTheta(thetaLongIn); //Theta rule with incoming
+    long thetaLong = min(getUnionThetaLong(), getThetaLong());
+    int curCountIn = sketchIn.getRetainedEntries(true);
+    long[] cacheIn = sketchIn.getCache(); //if off-heap this will be a copy
+
+    if (sketchIn.isOrdered()) { //Only true if Compact. Use early stop
+      for (int i = 0; i < curCountIn; i++ ) {
+        long hashIn = cacheIn[i];
+        if (hashIn >= thetaLong) break; // "early stop"
+        hashInsert(hashIn);
+      }
+    }
+    else { //either not-ordered compact or Hash Table form. A HT may have dirty values.
+      int arrLongs = cacheIn.length;
+      for (int i = 0, c = 0; (i < arrLongs) && (c < curCountIn); i++ ) {
+        long hashIn = cacheIn[i];
+        if ((hashIn <= 0L) || (hashIn >= thetaLong)) continue; //rejects dirty values
+        hashInsert(hashIn);
+        c++; //insures against invalid state inside the incoming sketch
+      }
+    }
+  }
+
+  @Override
+  public void update(Memory skMem) {
+    update(wrapImage(skMem));
+  }
+
+  @Override
+  public void update(List<Memory> skMems) {
+    if (skMems == null) return;
+    List<Sketch> sketches = new ArrayList<Sketch>(skMems.size());
+    //Check all images first, so that a rejected list does not change this union
+    long minThetaLong = Long.MAX_VALUE;
+    for (Memory skMem : skMems) {
+      Sketch sketch = wrapImage(skMem);
+      if ((sketch != null) && !sketch.isEmpty()) {
+        Util.checkSeedHashes(seedHash_, sketch.getSeedHash());
+        minThetaLong = min(minThetaLong, sketch.getThetaLong());
+      }
+      sketches.add(sketch);
+    }
+    //Then apply the theta rule with all the images at once
+    lowerUnionTheta(minThetaLong);
+    for (Sketch sketch : sketches) {
+      update(sketch);
+    }
+  }
+
+  @Override
+  public void update(long datum) {
+    hashInsert(hash(datum, seed_) >>> 1);
+  }
+
+  @Override
+  public void update(double datum) {
+    // hash() canonicalizes -0.0, 0.0 and all NaN forms
+    hashInsert(hash(datum, seed_) >>> 1);
+  }
+
+  @Override
+  public void update(String datum) {
+    if (datum == null || datum.isEmpty()) return;
+    hashInsert(hash64(datum, seed_) >>> 1);
+  }
+
+  @Override
+  public void update(byte[] data) {
+    if ((data == null) || (data.length == 0)) return;
+    hashInsert(hash(data, seed_)[0] >>> 1);
+  }
+
+  @Override
+  public void update(char[] data) {
+    if ((data == null) || (data.length == 0)) return;
+    hashInsert(hash(data, seed_)[0] >>> 1);
+  }
+
+  @Override
+  public void update(int[] data) {
+    if ((data == null) || (data.length == 0)) return;
+    hashInsert(hash(data, seed_)[0] >>> 1);
+  }
+
+  @Override
+  public void update(long[] data) {
+    if ((data == null) || (data.length == 0)) return;
+    hashInsert(hash(data, seed_)[0] >>> 1);
+  }
+
+  //restricted methods
+
+  private static void checkCompareAndSwap(Memory mem) {
+    if (!MemoryUtil.isCompareAndSwapSupported(mem)) {
+      throw new SketchesArgumentException("A concurrent Union requires a NativeMemory, "
+          + "or a MemoryRegion of one, that supports compare-and-swap.");
+    }
+  }
+
+  /**
+   * Checks the given sketch image as the single threaded union does and wraps it.
+   * @param skMem the given sketch image
+   * @return the wrapped sketch, or null if the image is null or empty
+   */
+  private Sketch wrapImage(Memory skMem) {
+    //UNION Empty Rule: AND the empty states
+    if (skMem == null) return null;
+    int cap = (int)skMem.getCapacity();
+    int fam = skMem.getByte(FAMILY_BYTE);
+    if (fam != 3) {
+      throw new SketchesArgumentException("Family must be COMPACT or SET_SKETCH (old): " + fam);
+    }
+    int serVer = skMem.getByte(SER_VER_BYTE);
+    if ((serVer < 1) || (serVer > SER_VER_COMPRESSED)) {
+      throw new SketchesArgumentException("SerVer is unknown: " + serVer);
+    }
+    if (cap <= ((serVer == 1) ? 24 : 8)) return null; //empty
+    return Sketch.wrap(skMem, seed_);
+  }
+
+  /**
+   * Inserts the given hash unless it is a duplicate or not less than theta.
+   * @param hash the given hash, which is not zero
+   */
+  private void hashInsert(long hash) {
+    HashOperations.checkHashCorruption(hash);
+    if ((mem_.getByte(FLAGS_BYTE) & EMPTY_FLAG_MASK) > 0) {
+      mem_.clearBits(FLAGS_BYTE, (byte) EMPTY_FLAG_MASK); //all writers only ever clear this bit
+    }
+    while (true) {
+      long thetaLong = getThetaLong();
+      if (HashOperations.continueCondition(thetaLong, hash)) return;
+      int inserted = searchOrInsert(hash, thetaLong);
+      if (inserted == 0) return; //a duplicate
+      if (inserted > 0) {
+        long count = mem_.getAndAddLong(countOffsetBytes_, 1L) + 1L;
+        if (count == hashTableThreshold_) {
+          rebuild(count);
+        }
+        return;
+      }
+      //no free slot: the writer that reached the threshold did not finish the rebuild
+      rebuild(MemoryUtil.getLongVolatile(mem_, countOffsetBytes_));
+    }
+  }
+
+  /**
+   * Searches the probe chain of the given hash up to the first empty slot and inserts the hash
+   * into the first dirty slot of the chain, or else into the empty slot, if it is not found.
+   * @param hash the given hash, which is not zero
+   * @param thetaLong the theta that was read by the caller. Slots that are not less than this
+   * theta are dirty.
+   * @return 1 if inserted, 0 if found, -1 if the hash table has no free slot
+   */
+  private int searchOrInsert(long hash, long thetaLong) {
+    int arrLongs = 1 << lgArrLongs_;
+    int arrayMask = arrLongs - 1;
+    int stride = (2 * (int) ((hash >> lgArrLongs_) & HashOperations.STRIDE_MASK)) + 1;
+    while (true) {
+      int curProbe = (int) (hash & arrayMask);
+      long freeOffsetBytes = -1L;
+      long freeValue = 0L;
+      for (int probes = 0; probes < arrLongs; probes++) {
+        long offsetBytes = preBytes_ + (curProbe << 3);
+        long curValue = mem_.getLong(offsetBytes);
+        if (curValue == hash) return 0;
+        if ((curValue == 0L) || (curValue >= thetaLong)) { //empty or dirty
+          if (freeOffsetBytes < 0L) {
+            freeOffsetBytes = offsetBytes;
+            freeValue = curValue;
+          }
+          if (curValue == 0L) break; //end of the probe chain
+        }
+        curProbe = (curProbe + stride) & arrayMask;
+      }
+      if (freeOffsetBytes < 0L) return -1;
+      if (MemoryUtil.compareAndSwapLong(mem_, freeOffsetBytes, freeValue, hash)) return 1;
+      //lost the race for this slot, search again
+    }
+  }
+
+  /**
+   * Lowers theta to the (k+1)th smallest hash of the hash table, which turns all but k hashes
+   * dirty, and lowers the count by the number of hashes that turned dirty.
+   * @param count the count that caused the rebuild
+   */
+  private void rebuild(long count) {
+    long[] hashes = getHashes(getThetaLong());
+    int k = 1 << lgNomLongs_;
+    if (hashes.length > k) {
+      lowerThetaLong(hashes[k]); //the (k+1)th smallest hash
+      lowerUnionTheta(getThetaLong()); //Theta rule with gadget
+    }
+    //hashes inserted meanwhile stay counted
+    mem_.getAndAddLong(countOffsetBytes_, min(hashes.length, k) - count);
+  }
+
+  /**
+   * Returns the distinct hashes of the hash table that are less than the given theta, sorted in
+   * ascending order.
+   * @param thetaLong the given theta
+   * @return the sorted distinct hashes
+   */
+  private long[] getHashes(long thetaLong) {
+    int arrLongs = 1 << lgArrLongs_;
+    long[] hashes = new long[arrLongs];
+    int count = 0;
+    for (int i = 0; i < arrLongs; i++) {
+      long hash = mem_.getLong(preBytes_ + (i << 3));
+      if ((hash != 0L) && (hash < thetaLong)) {
+        hashes[count++] = hash;
+      }
+    }
+    Arrays.sort(hashes, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if ((distinct == 0) || (hashes[i] != hashes[distinct - 1])) {
+        hashes[distinct++] = hashes[i];
+      }
+    }
+    return Arrays.copyOf(hashes, distinct);
+  }
+
+  /**
+   * Returns a consistent snapshot of this union as a hash table in the standard layout.
+   * @return a consistent snapshot of this union
+   */
+  private Snapshot getSnapshot() {
+    boolean empty = (mem_.getByte(FLAGS_BYTE) & EMPTY_FLAG_MASK) > 0;
+    int arrLongs = 1 << lgArrLongs_;
+    long[] cache = new long[arrLongs];
+    for (int i = 0; i < arrLongs; i++) {
+      cache[i] = mem_.getLong(preBytes_ + (i << 3));
+    }
+    //the hashes less than the theta read after the table have not changed while it was read
+    long thetaLong = getThetaLong();
+    long unionThetaLong = getUnionThetaLong();
+    long[] hashes = new long[arrLongs];
+    int count = 0;
+    for (int i = 0; i < arrLongs; i++) {
+      if ((cache[i] != 0L) && (cache[i] < thetaLong)) {
+        hashes[count++] = cache[i];
+      }
+    }
+    Arrays.fill(cache, 0L);
+    for (int i = 0; i < count; i++) {
+      if (HashOperations.hashSearch(cache, lgArrLongs_, hashes[i]) < 0) {
+        HashOperations.hashInsertOnly(cache, lgArrLongs_, hashes[i]);
+      }
+    }
+    return new Snapshot(cache, thetaLong, unionThetaLong, empty);
+  }
+
+  /**
+   * Lowers the gadget theta to the given theta, if it is smaller.
+   * @param thetaLong the given theta
+   */
+  private void lowerThetaLong(long thetaLong) {
+    long curThetaLong = getThetaLong();
+    while (thetaLong < curThetaLong) {
+      if (MemoryUtil.compareAndSwapLong(mem_, THETA_LONG, curThetaLong, thetaLong)) return;
+      curThetaLong = getThetaLong();
+    }
+  }
+
+  /**
+   * Lowers the union theta to the given theta, if it is smaller.
+   * @param thetaLong the given theta
+   */
+  private void lowerUnionTheta(long thetaLong) {
+    long curThetaLong = getUnionThetaLong();
+    while (thetaLong < curThetaLong) {
+      if (MemoryUtil.compareAndSwapLong(mem_, UNION_THETA_LONG, curThetaLong, thetaLong)) return;
+      curThetaLong = getUnionThetaLong();
+    }
+  }
+
+  private long getThetaLong() {
+    return MemoryUtil.getLongVolatile(mem_, THETA_LONG);
+  }
+
+  private long getUnionThetaLong() {
+    return MemoryUtil.getLongVolatile(mem_, UNION_THETA_LONG);
+  }
+
+  private static final class Snapshot {
+    final long[] cache;
+    final long thetaLong;
+    final long unionThetaLong;
+    final boolean empty;
+
+    Snapshot(long[] cache, long thetaLong, long unionThetaLong, boolean empty) {
+      this.cache = cache;
+      this.thetaLong = thetaLong;
+      this.unionThetaLong = unionThetaLong;
+      this.empty = empty;
+    }
+  }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import com.yahoo.sketches.Family;
+import com.yahoo.sketches.ResizeFactor;
+import com.yahoo.sketches.memory.Memory;
+
+/**
+ * A thread-safe QuickSelect sketch on the Java heap that is shared by many writer threads.
+ *
+ * <p>Writers normally do not update this sketch directly. Instead, each writer thread holds its
+ * own {@link ConcurrentHeapThetaBuffer}, which pre-filters hashes against the theta published by
+ * this sketch and propagates its buffered hashes into this sketch in the background.</p>
+ *
+ * <p>All mutations of the internal gadget are serialized by the monitor of this sketch. After
+ * every mutation the theta, estimate and empty state of the gadget are published to volatile
+ * fields, so that {@link #getEstimate()} and the theta pre-filtering of the buffers never take a
+ * lock. The published estimate lags the data presented to the buffers by at most two local
+ * buffer loads per writer thread.</p>
+ */
+final class ConcurrentHeapQuickSelectSketch extends UpdateSketch {
+  private final HeapQuickSelectSketch gadget_;
+
+  //published after every mutation of the gadget
+  private volatile long volatileThetaLong_;
+  private volatile double volatileEstimate_;
+  private volatile boolean volatileEmpty_;
+
+  ConcurrentHeapQuickSelectSketch(int lgNomLongs, long seed, float p, ResizeFactor rf) {
+    gadget_ = HeapQuickSelectSketch.getInstance(lgNomLongs, seed, p, rf, false);
+    publish();
+  }
+
+  //Sketch
+
+  @Override
+  public double getEstimate() {
+    return volatileEstimate_;
+  }
+
+  @Override
+  public synchronized double getLowerBound(int numStdDev) {
+    return gadget_.getLowerBound(numStdDev);
+  }
+
+  @Override
+  public synchronized double getUpperBound(int numStdDev) {
+    return gadget_.getUpperBound(numStdDev);
+  }
+
+  @Override
+  public synchronized int getRetainedEntries(boolean valid) {
+    return gadget_.getRetainedEntries(valid);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return volatileEmpty_;
+  }
+
+  @Override
+  public synchronized byte[] toByteArray() {
+    return gadget_.toByteArray();
+  }
+
+  @Override
+  public Family getFamily() {
+    return gadget_.getFamily();
+  }
+
+  @Override
+  public boolean isDirect() {
+    return false;
+  }
+
+  //UpdateSketch
+
+  @Override
+  public synchronized CompactSketch compact(boolean dstOrdered, Memory dstMem) {
+    return gadget_.compact(dstOrdered, dstMem);
+  }
+
+  @Override
+  public synchronized UpdateSketch rebuild() {
+    gadget_.rebuild();
+    publish();
+    return this;
+  }
+
+  @Override
+  public synchronized void reset() {
+    gadget_.reset();
+    publish();
+  }
+
+  @Override
+  public ResizeFactor getResizeFactor() {
+    return gadget_.getResizeFactor();
+  }
+
+  //restricted methods
+
+  @Override
+  synchronized UpdateReturnState hashUpdate(long hash) {
+    UpdateReturnState state = gadget_.hashUpdate(hash);
+    publish();
+    return state;
+  }
+
+  /**
+   * This is also the propagation target of the {@link ConcurrentHeapThetaBuffer}s.
+   */
+  @Override
+  synchronized void hashUpdateAll(long[] hashes, int count) {
+    gadget_.hashUpdateAll(hashes, count);
+    publish();
+  }
+
+  @Override
+  int getPreambleLongs() {
+    return gadget_.getPreambleLongs();
+  }
+
+  @Override
+  short getSeedHash() {
+    return gadget_.getSeedHash();
+  }
+
+  @Override
+  long getThetaLong() {
+    return volatileThetaLong_;
+  }
+
+  /**
+   * Returns a copy of the hash table of the gadget, which may be modified concurrently.
+   * @return a copy of the hash table of the gadget
+   */
+  @Override
+  synchronized long[] getCache() {
+    return gadget_.getCache().clone();
+  }
+
+  @Override
+  Memory getMemory() {
+    return null;
+  }
+
+  /**
+   * Returns a compact copy of the gadget that is taken in one critical section.
+   * @return a compact copy of the gadget
+   */
+  @Override
+  synchronized Sketch getSnapshot() {
+    return gadget_.compact(false, null);
+  }
+
+  @Override
+  synchronized int getLgArrLongs() {
+    return gadget_.getLgArrLongs();
+  }
+
+  @Override
+  int getLgNomLongs() {
+    return gadget_.getLgNomLongs();
+  }
+
+  @Override
+  int getLgResizeFactor() {
+    return gadget_.getLgResizeFactor();
+  }
+
+  @Override
+  float getP() {
+    return gadget_.getP();
+  }
+
+  @Override
+  long getSeed() {
+    return gadget_.getSeed();
+  }
+
+  @Override
+  boolean isDirty() {
+    return false;
+  }
+
+  //must be called while holding the monitor of this sketch
+  private void publish() {
+    volatileThetaLong_ = gadget_.getThetaLong();
+    volatileEstimate_ = gadget_.getEstimate();
+    volatileEmpty_ = gadget_.isEmpty();
+  }
+
+}
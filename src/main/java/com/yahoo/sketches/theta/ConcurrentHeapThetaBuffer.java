@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.theta.UpdateReturnState.InsertedCountIncremented;
+import static com.yahoo.sketches.theta.UpdateReturnState.RejectedDuplicate;
+import static com.yahoo.sketches.theta.UpdateReturnState.RejectedOverTheta;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.yahoo.sketches.Family;
+import com.yahoo.sketches.HashOperations;
+import com.yahoo.sketches.ResizeFactor;
+import com.yahoo.sketches.memory.Memory;
+
+/**
+ * A small, single-threaded hash buffer that is owned by one writer thread and feeds a shared
+ * {@link ConcurrentHeapQuickSelectSketch}.
+ *
+ * <p>Incoming hashes are first compared against the theta published by the shared sketch, so
+ * that once the shared sketch is in estimation mode most updates are rejected without any
+ * synchronization. Accepted hashes are de-duplicated in a local hash table of twice the local
+ * nominal entries. When the local nominal entries are reached, the buffered hashes are handed to
+ * the common ForkJoinPool, which inserts them into the shared sketch. At most one propagation of
+ * each buffer is in flight at any time.</p>
+ *
+ * <p>All read methods, such as getEstimate() and compact(), delegate to the shared sketch and
+ * therefore do not include the hashes that are still held by this buffer. Call
+ * {@link #rebuild()} to propagate them.</p>
+ *
+ * <p>An instance of this class must not be used by more than one thread at a time.</p>
+ */
+final class ConcurrentHeapThetaBuffer extends UpdateSketch {
+  private final ConcurrentHeapQuickSelectSketch shared_;
+  private final int lgArrLongs_;
+  private final int localNomLongs_;
+  private final long[] cache_;
+  private int curCount_;
+  private ForkJoinTask<?> propagation_; //in flight, or null
+
+  ConcurrentHeapThetaBuffer(int lgLocalNomLongs, ConcurrentHeapQuickSelectSketch shared) {
+    shared_ = shared;
+    lgArrLongs_ = lgLocalNomLongs + 1;
+    localNomLongs_ = 1 << lgLocalNomLongs;
+    cache_ = new long[1 << lgArrLongs_];
+    curCount_ = 0;
+    propagation_ = null;
+  }
+
+  //Sketch
+
+  @Override
+  public double getEstimate() {
+    return shared_.getEstimate();
+  }
+
+  @Override
+  public double getLowerBound(int numStdDev) {
+    return shared_.getLowerBound(numStdDev);
+  }
+
+  @Override
+  public double getUpperBound(int numStdDev) {
+    return shared_.getUpperBound(numStdDev);
+  }
+
+  @Override
+  public int getRetainedEntries(boolean valid) {
+    return shared_.getRetainedEntries(valid);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return shared_.isEmpty();
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    return shared_.toByteArray();
+  }
+
+  @Override
+  public Family getFamily() {
+    return shared_.getFamily();
+  }
+
+  @Override
+  public boolean isDirect() {
+    return false;
+  }
+
+  //UpdateSketch
+
+  @Override
+  public CompactSketch compact(boolean dstOrdered, Memory dstMem) {
+    return shared_.compact(dstOrdered, dstMem);
+  }
+
+  /**
+   * Propagates all hashes held by this buffer into the shared sketch and waits until they,
+   * and any propagation still in flight, have been inserted.
+   * @return this buffer
+   */
+  @Override
+  public UpdateSketch rebuild() {
+    awaitPropagation();
+    if (curCount_ > 0) {
+      shared_.hashUpdateAll(drainCache(), curCount_);
+      curCount_ = 0;
+    }
+    return this;
+  }
+
+  /**
+   * Discards the hashes held by this buffer that have not yet been propagated.
+   * The shared sketch is not affected.
+   */
+  @Override
+  public void reset() {
+    awaitPropagation();
+    Arrays.fill(cache_, 0L);
+    curCount_ = 0;
+  }
+
+  @Override
+  public ResizeFactor getResizeFactor() {
+    return shared_.getResizeFactor();
+  }
+
+  //restricted methods
+
+  @Override
+  UpdateReturnState hashUpdate(long hash) {
+    HashOperations.checkHashCorruption(hash);
+    if (shared_.isEmpty()) {
+      shared_.hashUpdateAll(cache_, 0); //only marks the shared sketch as not empty
+    }
+
+    //The over-theta test against the published theta of the shared sketch
+    if (HashOperations.continueCondition(shared_.getThetaLong(), hash)) {
+      return RejectedOverTheta;
+    }
+
+    //The local duplicate test
+    if (HashOperations.hashSearchOrInsert(cache_, lgArrLongs_, hash) >= 0) {
+      return RejectedDuplicate;
+    }
+    if (++curCount_ >= localNomLongs_) {
+      propagate();
+    }
+    return InsertedCountIncremented;
+  }
+
+  @Override
+  void hashUpdateAll(long[] hashes, int count) {
+    if (shared_.isEmpty()) {
+      shared_.hashUpdateAll(hashes, 0); //only marks the shared sketch as not empty
+    }
+    for (int i = 0; i < count; i++) {
+      hashUpdate(hashes[i]);
+    }
+  }
+
+  @Override
+  int getPreambleLongs() {
+    return shared_.getPreambleLongs();
+  }
+
+  @Override
+  short getSeedHash() {
+    return shared_.getSeedHash();
+  }
+
+  @Override
+  long getThetaLong() {
+    return shared_.getThetaLong();
+  }
+
+  @Override
+  long[] getCache() {
+    return shared_.getCache();
+  }
+
+  @Override
+  Sketch getSnapshot() {
+    return shared_.getSnapshot();
+  }
+
+  @Override
+  Memory getMemory() {
+    return null;
+  }
+
+  @Override
+  int getLgArrLongs() {
+    return shared_.getLgArrLongs();
+  }
+
+  @Override
+  int getLgNomLongs() {
+    return shared_.getLgNomLongs();
+  }
+
+  @Override
+  int getLgResizeFactor() {
+    return shared_.getLgResizeFactor();
+  }
+
+  @Override
+  float getP() {
+    return shared_.getP();
+  }
+
+  @Override
+  long getSeed() {
+    return shared_.getSeed();
+  }
+
+  @Override
+  boolean isDirty() {
+    return false;
+  }
+
+  //Hands the buffered hashes to the common pool. Waits for the previous propagation, if any.
+  private void propagate() {
+    awaitPropagation();
+    final long[] hashes = drainCache();
+    final int count = curCount_;
+    curCount_ = 0;
+    propagation_ = ForkJoinPool.commonPool().submit(new Runnable() {
+      @Override
+      public void run() {
+        shared_.hashUpdateAll(hashes, count);
+      }
+    });
+  }
+
+  private void awaitPropagation() {
+    if (propagation_ != null) {
+      propagation_.join();
+      propagation_ = null;
+    }
+  }
+
+  //Returns the valid hashes of the local cache in a new array and clears the local cache
+  private long[] drainCache() {
+    final long[] hashes = new long[curCount_];
+    int j = 0;
+    for (int i = 0; i < cache_.length; i++) {
+      final long hash = cache_[i];
+      if (hash != 0) {
+        hashes[j++] = hash;
+        cache_[i] = 0L;
+      }
+    }
+    return hashes;
+  }
+
+}
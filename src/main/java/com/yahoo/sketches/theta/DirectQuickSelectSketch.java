@@ -56,6 +56,7 @@ import com.yahoo.sketches.Util;
 import com.yahoo.sketches.memory.Memory;
 import com.yahoo.sketches.memory.MemoryRequest;
 import com.yahoo.sketches.memory.NativeMemory;
+import com.yahoo.sketches.memory.UncheckedMemory;
 
 /**
  * The default Theta Sketch using the QuickSelect algorithm.
@@ -79,6 +80,7 @@ final class DirectQuickSelectSketch extends DirectUpdateSketch {
   private boolean empty_;
   
   private Memory mem_;
+  private UncheckedMemory fastMem_; //mem_, validated when assigned, for the hash table probes
   
   private DirectQuickSelectSketch(int lgNomLongs, long seed, float p, ResizeFactor rf, 
       int preambleLongs) {
@@ -164,7 +166,7 @@ final class DirectQuickSelectSketch extends DirectUpdateSketch {
     dqss.curCount_ = curCount;
     dqss.thetaLong_ = thetaLong;
     dqss.empty_ = true;
-    dqss.mem_ = dstMem;
+    dqss.setMemory(dstMem);
     return dqss;
   }
   
@@ -252,7 +254,7 @@ final class DirectQuickSelectSketch extends DirectUpdateSketch {
     dqss.curCount_ = curCount;
     dqss.thetaLong_ = thetaLong;
     dqss.empty_ = (flags & EMPTY_FLAG_MASK) > 0;
-    dqss.mem_ = srcMem;
+    dqss.setMemory(srcMem);
     return dqss;
   }
   
@@ -364,66 +366,100 @@ final class DirectQuickSelectSketch extends DirectUpdateSketch {
     }
     
     //The duplicate test
-    if (HashOperations.hashSearchOrInsert(mem_, lgArrLongs_, hash, preambleLongs_ << 3) >= 0) {
+    final int preBytes = preambleLongs_ << 3;
+    if (HashOperations.hashSearchOrInsert(fastMem_, lgArrLongs_, hash, preBytes) >= 0) {
       return RejectedDuplicate; //Duplicate, not inserted
     }
     //insertion occurred, increment curCount
-    mem_.putInt(RETAINED_ENTRIES_INT, ++curCount_); //update curCount
+    fastMem_.putInt(RETAINED_ENTRIES_INT, ++curCount_); //update curCount
     
     if (curCount_ > hashTableThreshold_) { //we need to do something, we are out of space
-      
-      if (lgArrLongs_ > lgNomLongs_) { //at full size, rebuild
-        //Assumes no dirty values, changes thetaLong_, curCount_
-        assert 
-          (lgArrLongs_ == lgNomLongs_ + 1) : "lgArr: " + lgArrLongs_ + ", lgNom: " + lgNomLongs_;
-        quickSelectAndRebuild(mem_, preambleLongs_, lgNomLongs_, lgArrLongs_, curCount_);  //rebuild
-        curCount_ = mem_.getInt(RETAINED_ENTRIES_INT);
-        thetaLong_ = mem_.getLong(THETA_LONG);
-      } //end of rebuild
-      
-      else { //Not at full size, resize. Should not get here if lgRF = 0 and memCap is too small.
-        int lgRF = getLgResizeFactor();
-        int actLgRF = actLgResizeFactor(mem_.getCapacity(), lgArrLongs_, preambleLongs_, lgRF);
-        int tgtLgArrLongs = Math.min(lgArrLongs_ + actLgRF, lgNomLongs_ + 1);
-        if (actLgRF > 0) { //Expand in current Memory
-          resize(mem_, preambleLongs_, lgArrLongs_, tgtLgArrLongs);
-          //update locals
-          lgArrLongs_ = mem_.getByte(LG_ARR_LONGS_BYTE);
-          hashTableThreshold_ = setHashTableThreshold(lgNomLongs_, lgArrLongs_);
-        } //end of Expand in current memory
-        
-        else { //Request more memory, then resize
-          int preBytes = preambleLongs_ << 3;
-          tgtLgArrLongs = Math.min(lgArrLongs_ + lgRF, lgNomLongs_ + 1);
-          int tgtArrBytes = 8 << tgtLgArrLongs;
-          int reqBytes = tgtArrBytes + preBytes;
-          //if (tgtArrBytes < 2*(curMemCap));
-          
-          MemoryRequest memReq = mem_.getMemoryRequest();
-          Memory dstMem = memReq.request(reqBytes);
-          if (dstMem == null) { //returned a null
-            throw new SketchesArgumentException("MemoryRequest callback cannot be null.");
-          }
-          long newCap = dstMem.getCapacity();
-          if (newCap < reqBytes) {
-            memReq.free(dstMem);
-            throw new SketchesArgumentException("Requested memory not granted: " + newCap + " < " 
-                + reqBytes);
-          }
-          moveAndResize(mem_, preambleLongs_, lgArrLongs_, dstMem, tgtLgArrLongs, thetaLong_);
-          
-          memReq.free(mem_, dstMem); //normal free mechanism via MemoryRequest
-          mem_ = dstMem;
-          lgArrLongs_ = mem_.getByte(LG_ARR_LONGS_BYTE);
-          hashTableThreshold_ = setHashTableThreshold(lgNomLongs_, lgArrLongs_);
-        } //end of Request more memory to resize
-      } //end of resize
+      resizeOrRebuild();
     }
     return InsertedCountIncremented;
   }
   
+  @Override
+  void hashUpdateAll(long[] hashes, int count) {
+    if (empty_) {
+      mem_.clearBits(FLAGS_BYTE, (byte)EMPTY_FLAG_MASK);
+      empty_ = false;
+    }
+    final int preBytes = preambleLongs_ << 3;
+    for (int i = 0; i < count; i++) {
+      final long hash = hashes[i];
+      //theta may have been lowered by a rebuild earlier in this batch
+      if (HashOperations.continueCondition(thetaLong_, hash)) {
+        continue;
+      }
+      if (HashOperations.hashSearchOrInsert(fastMem_, lgArrLongs_, hash, preBytes) >= 0) {
+        continue; //Duplicate, not inserted
+      }
+      fastMem_.putInt(RETAINED_ENTRIES_INT, ++curCount_);
+      if (curCount_ > hashTableThreshold_) {
+        resizeOrRebuild();
+      }
+    }
+  }
+  
+  //Used by hashUpdate() and hashUpdateAll() when the hash table is out of space.
+  private final void resizeOrRebuild() {
+    if (lgArrLongs_ > lgNomLongs_) { //at full size, rebuild
+      //Assumes no dirty values, changes thetaLong_, curCount_
+      assert 
+        (lgArrLongs_ == lgNomLongs_ + 1) : "lgArr: " + lgArrLongs_ + ", lgNom: " + lgNomLongs_;
+      quickSelectAndRebuild(mem_, preambleLongs_, lgNomLongs_, lgArrLongs_, curCount_);  //rebuild
+      curCount_ = mem_.getInt(RETAINED_ENTRIES_INT);
+      thetaLong_ = mem_.getLong(THETA_LONG);
+    } //end of rebuild
+  
+    else { //Not at full size, resize. Should not get here if lgRF = 0 and memCap is too small.
+      int lgRF = getLgResizeFactor();
+      int actLgRF = actLgResizeFactor(mem_.getCapacity(), lgArrLongs_, preambleLongs_, lgRF);
+      int tgtLgArrLongs = Math.min(lgArrLongs_ + actLgRF, lgNomLongs_ + 1);
+      if (actLgRF > 0) { //Expand in current Memory
+        resize(mem_, preambleLongs_, lgArrLongs_, tgtLgArrLongs);
+        //update locals
+        lgArrLongs_ = mem_.getByte(LG_ARR_LONGS_BYTE);
+        hashTableThreshold_ = setHashTableThreshold(lgNomLongs_, lgArrLongs_);
+      } //end of Expand in current memory
+    
+      else { //Request more memory, then resize
+        int preBytes = preambleLongs_ << 3;
+        tgtLgArrLongs = Math.min(lgArrLongs_ + lgRF, lgNomLongs_ + 1);
+        int tgtArrBytes = 8 << tgtLgArrLongs;
+        int reqBytes = tgtArrBytes + preBytes;
+        //if (tgtArrBytes < 2*(curMemCap));
+      
+        MemoryRequest memReq = mem_.getMemoryRequest();
+        Memory dstMem = memReq.request(reqBytes);
+        if (dstMem == null) { //returned a null
+          throw new SketchesArgumentException("MemoryRequest callback cannot be null.");
+        }
+        long newCap = dstMem.getCapacity();
+        if (newCap < reqBytes) {
+          memReq.free(dstMem);
+          throw new SketchesArgumentException("Requested memory not granted: " + newCap + " < " 
+              + reqBytes);
+        }
+        moveAndResize(mem_, preambleLongs_, lgArrLongs_, dstMem, tgtLgArrLongs, thetaLong_);
+      
+        memReq.free(mem_, dstMem); //normal free mechanism via MemoryRequest
+        setMemory(dstMem);
+        lgArrLongs_ = mem_.getByte(LG_ARR_LONGS_BYTE);
+        hashTableThreshold_ = setHashTableThreshold(lgNomLongs_, lgArrLongs_);
+      } //end of Request more memory to resize
+    } //end of resize
+  }
+  
   //special set methods
   
+  //The hash table must fit in the given Memory, which is checked by the callers.
+  private void setMemory(Memory mem) {
+    mem_ = mem;
+    fastMem_ = UncheckedMemory.wrap(mem);
+  }
+  
   /**
    * Returns the cardinality limit given the current size of the hash table array.
    * 
@@ -374,7 +374,20 @@ final class HeapAlphaSketch extends HeapUpdateSketch {
     }
     return UpdateReturnState.InsertedCountIncremented;
   }
-  
+
+  @Override
+  void hashUpdateAll(long[] hashes, int count) {
+    empty_ = false;
+    for (int i = 0; i < count; i++) {
+      final long hash = hashes[i];
+      //theta is decremented on every insert in sketch mode, so most hashes stop here
+      if (HashOperations.continueCondition(thetaLong_, hash)) {
+        continue;
+      }
+      hashUpdate(hash); //the alpha insert and theta update logic is not duplicated here
+    }
+  }
+
   /**
    * Enhanced Knuth-style Open Addressing, Double Hash insert. 
    * The insertion process will overwrite an already existing, dirty (over-theta) value if one is 
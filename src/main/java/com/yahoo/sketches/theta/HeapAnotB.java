@@ -8,6 +8,7 @@ package com.yahoo.sketches.theta;
 import static com.yahoo.sketches.HashOperations.hashArrayInsert;
 import static com.yahoo.sketches.HashOperations.hashSearch;
 import static com.yahoo.sketches.theta.CompactSketch.compactCache;
+import static com.yahoo.sketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
 import static java.lang.Math.min;
 
 import java.util.Arrays;
@@ -21,6 +22,7 @@ import com.yahoo.sketches.memory.Memory;
  * @author Kevin Lang
  */
 final class HeapAnotB extends SetOperation implements AnotB {
+  private final long seed_;
   private final short seedHash_;
   private Sketch a_;
   private Sketch b_;
@@ -38,13 +40,14 @@ final class HeapAnotB extends SetOperation implements AnotB {
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
    */
   HeapAnotB(long seed) {
+    seed_ = seed;
     seedHash_ = computeSeedHash(seed);
   }
   
   @Override
   public void update(Sketch a, Sketch b) { 
-    a_ = a;
-    b_ = b;
+    a_ = (a == null) ? null : a.getSnapshot();
+    b_ = (b == null) ? null : b.getSnapshot();
     thetaLong_ = Long.MAX_VALUE;
     empty_ = true;
     cache_ = null;
@@ -54,6 +57,13 @@ final class HeapAnotB extends SetOperation implements AnotB {
     compute();
   }
   
+  @Override
+  public void update(Memory a, Memory b) {
+    Sketch skA = (a == null) ? null : Sketch.wrap(a, seed_);
+    Sketch skB = (b == null) ? null : Sketch.wrap(b, seed_);
+    update(skA, skB);
+  }
+  
   @Override
   public CompactSketch getResult(boolean dstOrdered, Memory dstMem) {
     long[] compactCache = (curCount_ <= 0) ? new long[0] : Arrays.copyOfRange(cache_, 0, curCount_);
@@ -122,7 +132,7 @@ final class HeapAnotB extends SetOperation implements AnotB {
     //O    N    3    0    24    Return A: (ThA, |A|, E(a))
     //O    E    3    1    25    Return (min, |A|, E(a))
     //O    C    3    2    26    B -> H; => O,H
-    //O    O    3    3    27    B -> H; => O,H
+    //O    O    3    3    27    sweep A and B in order, on nomatch -> list
     //O    H    3    4    28    scan A early stop, search B, on nomatch -> list
     //H    N    4    0    32    Return A: (ThA, |A|, E(a))
     //H    E    4    1    33    Return (min, |A|, E(a))
@@ -197,8 +207,7 @@ final class HeapAnotB extends SetOperation implements AnotB {
         scanAllAsearchB(); //builds cache, curCount from A, HT
         break; //(min, n, Ea)
       }
-      case 26: 
-      case 27: { //A ordered early stop, B compact or ordered 
+      case 26: { //A ordered early stop, B compact 
         Util.checkSeedHashes(seedHash_, a_.getSeedHash());
         Util.checkSeedHashes(seedHash_, b_.getSeedHash());
         thetaLong_ = min(a_.getThetaLong(), b_.getThetaLong());
@@ -207,6 +216,14 @@ final class HeapAnotB extends SetOperation implements AnotB {
         scanEarlyStopAsearchB();
         break; //(min, n, Ea)
       }
+      case 27: { //A and B ordered, no hash table
+        Util.checkSeedHashes(seedHash_, a_.getSeedHash());
+        Util.checkSeedHashes(seedHash_, b_.getSeedHash());
+        thetaLong_ = min(a_.getThetaLong(), b_.getThetaLong());
+        empty_ = a_.isEmpty();
+        sweepAandB();
+        break; //(min, n, Ea)
+      }
       case 20: 
       case 36: { //A compact or HT, B is already HT
         Util.checkSeedHashes(seedHash_, a_.getSeedHash());
@@ -273,6 +290,49 @@ final class HeapAnotB extends SetOperation implements AnotB {
     }
   }
   
+  //Sketches A and B are ordered compact, which enables a single sweep of both with early stop.
+  //The hashes of direct sketches are read in place.
+  private void sweepAandB() {
+    int countA = a_.getRetainedEntries(true);
+    int countB = b_.getRetainedEntries(true);
+    long[] arrA = null;
+    long[] arrB = null;
+    Memory memA = null;
+    Memory memB = null;
+    int preBytesA = 0;
+    int preBytesB = 0;
+    if (a_.isDirect()) {
+      memA = a_.getMemory();
+      preBytesA = (memA.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    } else {
+      arrA = a_.getCache(); //not a copy
+    }
+    if (b_.isDirect()) {
+      memB = b_.getMemory();
+      preBytesB = (memB.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    } else {
+      arrB = b_.getCache(); //not a copy
+    }
+    cache_ = new long[countA];
+    int j = 0;
+    long hashB = (countB > 0) ? hashAt(arrB, memB, preBytesB, 0) : Long.MAX_VALUE;
+    for (int i = 0; i < countA; i++) {
+      long hashA = hashAt(arrA, memA, preBytesA, i);
+      if (hashA >= thetaLong_) {
+        break; //early stop
+      }
+      while (hashB < hashA) {
+        hashB = (++j < countB) ? hashAt(arrB, memB, preBytesB, j) : Long.MAX_VALUE;
+      }
+      if (hashB == hashA) continue;
+      cache_[curCount_++] = hashA;
+    }
+  }
+  
+  private static long hashAt(long[] arr, Memory mem, int preBytes, int index) {
+    return (arr != null) ? arr[index] : mem.getLong(preBytes + (index << 3));
+  }
+  
   private void reset() {
     a_ = null;
     b_ = null;
@@ -295,19 +295,41 @@ final class HeapQuickSelectSketch extends HeapUpdateSketch { //UpdateSketch impl
     curCount_++;
     
     if (curCount_ > hashTableThreshold_) { //we need to do something, we are out of space
-      //must rebuild or resize
-      if (lgArrLongs_ <= lgNomLongs_) { //resize
-        resizeCache();
-      } 
-      else { //Already at tgt size, must rebuild
-        assert (lgArrLongs_ == lgNomLongs_ + 1) : "lgArr: " + lgArrLongs_ + ", lgNom: " + lgNomLongs_;
-        quickSelectAndRebuild(); //Changes thetaLong_, curCount_, reassigns cache
-      }
+      resizeOrRebuild();
     }
     return InsertedCountIncremented;
 
   }
   
+  @Override
+  void hashUpdateAll(long[] hashes, int count) {
+    empty_ = false;
+    for (int i = 0; i < count; i++) {
+      final long hash = hashes[i];
+      //theta may have been lowered by a rebuild earlier in this batch
+      if (HashOperations.continueCondition(thetaLong_, hash)) {
+        continue;
+      }
+      if (HashOperations.hashSearchOrInsert(cache_, lgArrLongs_, hash) >= 0) {
+        continue; //Duplicate, not inserted
+      }
+      if (++curCount_ > hashTableThreshold_) {
+        resizeOrRebuild();
+      }
+    }
+  }
+  
+  //Used by hashUpdate() and hashUpdateAll() when the hash table is out of space.
+  private final void resizeOrRebuild() {
+    if (lgArrLongs_ <= lgNomLongs_) { //resize
+      resizeCache();
+    } 
+    else { //Already at tgt size, must rebuild
+      assert (lgArrLongs_ == lgNomLongs_ + 1) : "lgArr: " + lgArrLongs_ + ", lgNom: " + lgNomLongs_;
+      quickSelectAndRebuild(); //Changes thetaLong_, curCount_, reassigns cache
+    }
+  }
+  
   //Must resize. Changes lgArrLongs_ and cache_. theta and count don't change.
   // Used by hashUpdate()
   private final void resizeCache() {
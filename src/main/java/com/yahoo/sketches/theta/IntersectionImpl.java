@@ -241,7 +241,8 @@ final class IntersectionImpl extends SetOperation implements Intersection {
   }
   
   @Override
-  public void update(Sketch sketchIn) {
+  public void update(Sketch sketch) {
+    Sketch sketchIn = (sketch == null) ? null : sketch.getSnapshot();
     if (sketchIn == null) { //null := Th = 1.0, count = 0, empty = true
       //Can't check the seedHash
       empty_ = setEmpty(true, mem_); //The Empty rule is OR
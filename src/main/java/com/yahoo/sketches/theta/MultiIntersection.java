@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.theta.CompactSketch.createCompactSketch;
+import static com.yahoo.sketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
+import static java.lang.Math.min;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.yahoo.sketches.HashOperations;
+import com.yahoo.sketches.SketchesStateException;
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.memory.Memory;
+
+/**
+ * Intersects many sketches at once.
+ *
+ * <p>The theta and empty rules are applied with all the sketches first. If any sketch is null or
+ * has no entries the result has no entries and no hash is examined. Otherwise the sketches are
+ * ordered by their retained entries and then by theta, and the hashes of the smallest sketch
+ * that are below theta become the candidates. The candidates are probed against each of the
+ * other sketches in turn: ordered sketches are searched with a galloping search of their sorted
+ * hashes, the others are scanned against a small hash table of the candidates. The probing stops
+ * as soon as no candidates are left.</p>
+ *
+ * <p>The result is identical to the result of presenting all the sketches to an Intersection.
+ * </p>
+ */
+final class MultiIntersection {
+
+  private MultiIntersection() {}
+
+  /**
+   * Intersects the given sketches.
+   * @param sketches the given sketches. A null sketch is interpreted as an empty sketch.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @return the ordered CompactSketch result on the heap
+   */
+  static CompactSketch intersect(Iterable<? extends Sketch> sketches, long seed) {
+    short seedHash = Util.computeSeedHash(seed);
+    List<Sketch> list = new ArrayList<Sketch>();
+    long thetaLong = Long.MAX_VALUE;
+    boolean empty = false;
+    boolean noEntries = false;
+    for (Sketch sketchIn : sketches) {
+      Sketch sketch = (sketchIn == null) ? null : sketchIn.getSnapshot();
+      if (sketch == null) { //null := Th = 1.0, count = 0, empty = true
+        empty = true;
+        noEntries = true;
+        continue;
+      }
+      Util.checkSeedHashes(seedHash, sketch.getSeedHash());
+      thetaLong = min(thetaLong, sketch.getThetaLong()); //Theta rule
+      empty |= sketch.isEmpty(); //Empty rule
+      noEntries |= (sketch.getRetainedEntries(true) == 0);
+      list.add(sketch);
+    }
+    if (list.isEmpty() && !empty) {
+      throw new SketchesStateException(
+          "Intersecting no sketches is not a legal result.");
+    }
+    if (noEntries) {
+      return createCompactSketch(new long[0], empty, seedHash, 0, thetaLong, true, null);
+    }
+
+    //smallest first
+    Collections.sort(list, new Comparator<Sketch>() {
+      @Override
+      public int compare(Sketch a, Sketch b) {
+        int entriesA = a.getRetainedEntries(true);
+        int entriesB = b.getRetainedEntries(true);
+        if (entriesA != entriesB) return (entriesA < entriesB) ? -1 : 1;
+        long thetaA = a.getThetaLong();
+        long thetaB = b.getThetaLong();
+        return (thetaA < thetaB) ? -1 : ((thetaA == thetaB) ? 0 : 1);
+      }
+    });
+
+    long[] candidates = candidates(list.get(0), thetaLong);
+    int count = candidates.length;
+    for (int i = 1; (i < list.size()) && (count > 0); i++) {
+      Sketch sketch = list.get(i);
+      count = sketch.isOrdered()
+          ? probeOrdered(candidates, count, sketch)
+          : probeUnordered(candidates, count, sketch);
+    }
+    long[] cache = (count == candidates.length) ? candidates : Arrays.copyOf(candidates, count);
+    return createCompactSketch(cache, empty, seedHash, count, thetaLong, true, null);
+  }
+
+  //Returns the sorted hashes of the given sketch that are less than theta
+  private static long[] candidates(Sketch sketch, long thetaLong) {
+    long[] cache = sketch.getCache();
+    long[] out = new long[sketch.getRetainedEntries(true)];
+    int count = 0;
+    for (int i = 0; i < cache.length; i++) {
+      long hash = cache[i];
+      if ((hash <= 0L) || (hash >= thetaLong)) continue;
+      out[count++] = hash;
+    }
+    if (count < out.length) {
+      out = Arrays.copyOf(out, count);
+    }
+    if (!sketch.isOrdered()) {
+      Arrays.sort(out);
+    }
+    return out;
+  }
+
+  /**
+   * Keeps the candidates that are found in the given ordered sketch.
+   * @param candidates the sorted candidates, which are compacted in place
+   * @param count the number of candidates
+   * @param sketch the given ordered sketch
+   * @return the number of remaining candidates
+   */
+  private static int probeOrdered(long[] candidates, int count, Sketch sketch) {
+    int entries = sketch.getRetainedEntries(true);
+    long[] arr = null;
+    Memory mem = null;
+    int preBytes = 0;
+    if (sketch.isDirect()) {
+      mem = sketch.getMemory();
+      preBytes = (mem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+    } else {
+      arr = sketch.getCache(); //not a copy
+    }
+    int matches = 0;
+    int lo = 0; //all hashes of the sketch before lo are less than the current candidate
+    for (int c = 0; (c < count) && (lo < entries); c++) {
+      long hash = candidates[c];
+      //gallop to find an upper bound, then binary search in (lo, hi]
+      int step = 1;
+      int hi = lo;
+      while ((hi < entries) && (hashAt(arr, mem, preBytes, hi) < hash)) {
+        lo = hi + 1;
+        hi += step;
+        step <<= 1;
+      }
+      hi = min(hi, entries - 1);
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        long v = hashAt(arr, mem, preBytes, mid);
+        if (v < hash) {
+          lo = mid + 1;
+        } else if (v > hash) {
+          hi = mid - 1;
+        } else {
+          candidates[matches++] = hash;
+          lo = mid + 1;
+          break;
+        }
+      }
+    }
+    return matches;
+  }
+
+  private static long hashAt(long[] arr, Memory mem, int preBytes, int index) {
+    return (arr != null) ? arr[index] : mem.getLong(preBytes + (index << 3));
+  }
+
+  /**
+   * Keeps the candidates that are found in the given unordered sketch.
+   * @param candidates the sorted candidates, which are compacted in place
+   * @param count the number of candidates
+   * @param sketch the given unordered sketch
+   * @return the number of remaining candidates
+   */
+  private static int probeUnordered(long[] candidates, int count, Sketch sketch) {
+    int lgArrLongs = SetOperation.computeMinLgArrLongsFromCount(count);
+    long[] hashTable = new long[1 << lgArrLongs];
+    for (int c = 0; c < count; c++) {
+      HashOperations.hashInsertOnly(hashTable, lgArrLongs, candidates[c]);
+    }
+    long[] cacheIn = sketch.getCache();
+    int matches = 0;
+    for (int i = 0; (i < cacheIn.length) && (matches < count); i++) {
+      long hashIn = cacheIn[i];
+      if (hashIn <= 0L) continue;
+      if (HashOperations.hashSearch(hashTable, lgArrLongs, hashIn) == -1) continue;
+      candidates[matches++] = hashIn;
+    }
+    Arrays.sort(candidates, 0, matches);
+    return matches;
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import com.yahoo.sketches.ResizeFactor;
+
+/**
+ * Unions a list of sketches by recursively splitting the list in halves. Each leaf presents its
+ * sketches to its own heap union, and the partial unions are merged tree-wise on the way back.
+ *
+ * <p>Because the union result only depends on the set of presented hashes and thetas, and not on
+ * the order in which they are presented, the result is identical to that of a serial union.</p>
+ */
+final class ParallelUnionTask extends RecursiveTask<UnionImpl> {
+  private static final long serialVersionUID = 1L;
+  private static final int MIN_LEAF_SKETCHES = 16;
+
+  private final List<? extends Sketch> sketches_;
+  private final int from_;
+  private final int to_;
+  private final int leafSketches_;
+  private final int lgNomLongs_;
+  private final long seed_;
+  private final float p_;
+  private final ResizeFactor rf_;
+
+  /**
+   * Creates the root task
+   * @param sketches the sketches to union
+   * @param parallelism the parallelism of the pool the task will be run in
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
+   * @param rf <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   */
+  ParallelUnionTask(List<? extends Sketch> sketches, int parallelism, int lgNomLongs, long seed,
+      float p, ResizeFactor rf) {
+    //about 4 leaves per worker for load balancing
+    this(sketches, 0, sketches.size(),
+        Math.max(MIN_LEAF_SKETCHES, sketches.size() / (4 * Math.max(parallelism, 1))),
+        lgNomLongs, seed, p, rf);
+  }
+
+  private ParallelUnionTask(List<? extends Sketch> sketches, int from, int to, int leafSketches,
+      int lgNomLongs, long seed, float p, ResizeFactor rf) {
+    sketches_ = sketches;
+    from_ = from;
+    to_ = to;
+    leafSketches_ = leafSketches;
+    lgNomLongs_ = lgNomLongs;
+    seed_ = seed;
+    p_ = p;
+    rf_ = rf;
+  }
+
+  @Override
+  protected UnionImpl compute() {
+    if ((to_ - from_) <= leafSketches_) {
+      UnionImpl union = UnionImpl.initNewHeapInstance(lgNomLongs_, seed_, p_, rf_);
+      for (int i = from_; i < to_; i++) {
+        union.update(sketches_.get(i));
+      }
+      return union;
+    }
+    int mid = (from_ + to_) >>> 1;
+    ParallelUnionTask left = new ParallelUnionTask(
+        sketches_, from_, mid, leafSketches_, lgNomLongs_, seed_, p_, rf_);
+    ParallelUnionTask right = new ParallelUnionTask(
+        sketches_, mid, to_, leafSketches_, lgNomLongs_, seed_, p_, rf_);
+    right.fork();
+    UnionImpl union = left.compute();
+    union.merge(right.join());
+    return union;
+  }
+
+}
@@ -50,6 +50,10 @@ import com.yahoo.sketches.memory.NativeMemory;
  *  3   ||---------------------------Start of Long Array-------------------------------------|
  *  </pre>
  *  
+ *  <p>The compressed form of an ordered CompactSketch has SerVer 4 and the same preamble, 
+ *  except that byte 3 holds the Golomb-Rice parameter and bytes 12 to 15 hold the number of 
+ *  longs of compressed data, which follow the preamble. See {@link RiceCodec}.</p>
+ *  
  *  @author Lee Rhodes
  */
 final class PreambleUtil {
@@ -71,6 +75,10 @@ final class PreambleUtil {
   static final int THETA_LONG                 = 16; //8-byte aligned
   static final int UNION_THETA_LONG           = 24; //8-byte aligned, only used by Union
   
+  //SerVer 4: compressed compact ordered sketches
+  static final int RICE_PARAM_BYTE            = 3;  //in place of lgNomLongs
+  static final int DATA_LONGS_INT             = 12; //in place of p
+  
   // flag bit masks
   static final int BIG_ENDIAN_FLAG_MASK = 1; //SerVer 1, 2, 3
   static final int READ_ONLY_FLAG_MASK  = 2; //Set but not read. Reserved. SerVer 1, 2, 3
@@ -86,6 +94,7 @@ final class PreambleUtil {
   
   //Other constants
   static final int SER_VER                    = 3;
+  static final int SER_VER_COMPRESSED         = 4;
   
   static final boolean NATIVE_ORDER_IS_BIG_ENDIAN  = 
       (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN);
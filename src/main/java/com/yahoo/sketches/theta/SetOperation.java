@@ -14,10 +14,15 @@ import static com.yahoo.sketches.theta.PreambleUtil.FAMILY_BYTE;
 import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_BYTE;
 import static java.lang.Math.max;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import com.yahoo.sketches.Family;
 import com.yahoo.sketches.SketchesArgumentException;
 import com.yahoo.sketches.Util;
 import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.MemoryRegion;
 
 /**
  * The parent API for all Set Operations
@@ -119,6 +124,48 @@ public abstract class SetOperation {
     }
   }
 
+  /**
+   * Attaches to a concurrent Union in the given Memory, which was created by
+   * {@link SetOperationBuilder#buildConcurrentUnion()}, possibly in another process.
+   * This method assumes the 
+   * <a href="{@docRoot}/resources/dictionary.html#defaultUpdateSeed">Default Update Seed</a>.
+   * @param srcMem the Memory of a concurrent Union
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return a concurrent Union backed by the given Memory
+   */
+  public static Union wrapConcurrentUnion(Memory srcMem) {
+    return wrapConcurrentUnion(srcMem, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Attaches to a concurrent Union in the given Memory, which was created by
+   * {@link SetOperationBuilder#buildConcurrentUnion()}, possibly in another process.
+   * @param srcMem the Memory of a concurrent Union
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @return a concurrent Union backed by the given Memory
+   */
+  public static Union wrapConcurrentUnion(Memory srcMem, long seed) {
+    return ConcurrentDirectUnion.wrapInstance(srcMem, seed);
+  }
+
+  /**
+   * Returns the union of the given sketches computed in parallel by the given pool, using the
+   * <a href="{@docRoot}/resources/dictionary.html#defaultNomEntries">Default Nominal Entries</a>
+   * and the
+   * <a href="{@docRoot}/resources/dictionary.html#defaultUpdateSeed">Default Update Seed</a>.
+   * The result is identical to the result of a serial Union of the same sketches.
+   * Use {@link SetOperationBuilder#parallelUnion(Iterable, ForkJoinPool)} for other
+   * configurations.
+   * @param sketches the sketches to union. Null or empty sketches are ignored.
+   * @param pool the ForkJoinPool that computes the union
+   * @return the ordered CompactSketch result of the union
+   */
+  public static CompactSketch parallelUnion(Iterable<? extends Sketch> sketches,
+      ForkJoinPool pool) {
+    return builder().parallelUnion(sketches, pool);
+  }
+
   /**
    * Returns the maximum required storage bytes given a nomEntries parameter for Union operations
    * @param nomEntries <a href="{@docRoot}/resources/dictionary.html#nomEntries">Nominal Entres</a>
@@ -130,6 +177,17 @@ public abstract class SetOperation {
     return (nomEnt << 4) + (Family.UNION.getMaxPreLongs() << 3);
   }
   
+  /**
+   * Returns the required storage bytes given a nomEntries parameter for a concurrent Union
+   * @param nomEntries <a href="{@docRoot}/resources/dictionary.html#nomEntries">Nominal Entres</a>
+   * This will become the ceiling power of 2 if it is not.
+   * @return the required storage bytes given a nomEntries parameter
+   */
+  public static int getMaxConcurrentUnionBytes(int nomEntries) {
+    int nomEnt = ceilingPowerOf2(nomEntries);
+    return (int) ConcurrentDirectUnion.getMemBytes(Integer.numberOfTrailingZeros(nomEnt));
+  }
+  
   /**
    * Returns the maximum required storage bytes given a nomEntries parameter for Intersection 
    * operations
@@ -168,6 +226,30 @@ public abstract class SetOperation {
     return newLgArrLongs;
   }
   
+  /**
+   * Returns a view of each of the sketch images that are packed one after the other into the
+   * given buffer. Image <i>i</i> occupies the bytes from <i>offsets[i]</i> inclusive to
+   * <i>offsets[i + 1]</i> exclusive. An image of zero bytes is returned as null.
+   * @param buffer the Memory that holds the packed images
+   * @param offsets the byte offsets of the images followed by the end offset of the last image
+   * @return a list of views of the images, or null if the buffer or the offsets are null
+   */
+  static List<Memory> packedImages(Memory buffer, long[] offsets) {
+    if ((buffer == null) || (offsets == null)) return null;
+    List<Memory> images = new ArrayList<Memory>(offsets.length);
+    long capacity = buffer.getCapacity();
+    for (int i = 0; i < (offsets.length - 1); i++) {
+      long offsetBytes = offsets[i];
+      long lengthBytes = offsets[i + 1] - offsetBytes;
+      if ((offsetBytes < 0) || (lengthBytes < 0) || (offsets[i + 1] > capacity)) {
+        throw new SketchesArgumentException("Offsets must not decrease and must be within the "
+            + "buffer capacity: " + offsetBytes + ", " + offsets[i + 1] + ", " + capacity);
+      }
+      images.add((lengthBytes == 0) ? null : new MemoryRegion(buffer, offsetBytes, lengthBytes));
+    }
+    return images;
+  }
+  
   /**
    * Returns true if given Family id is one of the set operations
    * @param id the given Family id
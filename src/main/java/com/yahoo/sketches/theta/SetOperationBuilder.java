@@ -11,6 +11,10 @@ import static com.yahoo.sketches.Util.LS;
 import static com.yahoo.sketches.Util.TAB;
 import static com.yahoo.sketches.Util.ceilingPowerOf2;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import com.yahoo.sketches.Family;
 import com.yahoo.sketches.ResizeFactor;
 import com.yahoo.sketches.SketchesArgumentException;
@@ -221,6 +225,73 @@ public class SetOperationBuilder {
     return (Union) build(nomEntries, Family.UNION);
   }
 
+  /**
+   * Returns a Union in the Memory given by {@link #initMemory(Memory)} that can be updated
+   * concurrently by many threads, or by many processes that share the Memory through a
+   * memory-mapped file. It is lock-free: hashes are inserted with compare-and-swap, and the
+   * occasional rebuild only lowers theta, which any writer can do, so no hashes are ever moved.
+   * The hash table is allocated at its full size, thus the ResizeFactor is ignored.
+   * The Memory must have a capacity of at least
+   * {@link SetOperation#getMaxConcurrentUnionBytes(int)} and must support compare-and-swap, i.e.,
+   * it must be a NativeMemory, such as a MemoryMappedFile, or a MemoryRegion of one.
+   * Other processes can attach to the same Memory with
+   * {@link SetOperation#wrapConcurrentUnion(Memory, long)}.
+   * @return a concurrent Union object
+   */
+  public Union buildConcurrentUnion() {
+    if (bDstMem == null) {
+      throw new SketchesArgumentException("A concurrent Union requires a destination Memory.");
+    }
+    return ConcurrentDirectUnion.initNewInstance(bLgNomLongs, bSeed, bP, bDstMem);
+  }
+
+  /**
+   * Returns the union of the given sketches computed in parallel by the given pool, with the
+   * current configuration of this Builder. The destination Memory is ignored.
+   * The sketches are divided into contiguous runs, each run is presented to its own union on the
+   * heap, and the partial unions are merged tree-wise. The result is identical to the result of
+   * presenting all the sketches to a single Union in any order.
+   * @param sketches the sketches to union. Null or empty sketches are ignored.
+   * @param pool the ForkJoinPool that computes the union
+   * @return the ordered CompactSketch result of the union
+   */
+  public CompactSketch parallelUnion(Iterable<? extends Sketch> sketches, ForkJoinPool pool) {
+    List<Sketch> list = new ArrayList<Sketch>();
+    for (Sketch sketch : sketches) {
+      list.add(sketch);
+    }
+    ParallelUnionTask task =
+        new ParallelUnionTask(list, pool.getParallelism(), bLgNomLongs, bSeed, bP, bRF);
+    return pool.invoke(task).getResult(true, null);
+  }
+
+  /**
+   * Returns the union of the given sketches with the current configuration of this Builder.
+   * The destination Memory is ignored.
+   * If all the given sketches are ordered compact sketches, as are all stored sketches by default,
+   * their sorted hash arrays are merged with a k-way merge that stops at theta, without building
+   * a hash table. Otherwise the sketches are presented to a Union on the heap.
+   * In both cases the result is the same.
+   * @param sketches the sketches to union. Null or empty sketches are ignored.
+   * @return the ordered CompactSketch result of the union
+   */
+  public CompactSketch sortedMergeUnion(Iterable<? extends Sketch> sketches) {
+    List<Sketch> list = new ArrayList<Sketch>();
+    boolean ordered = true;
+    for (Sketch sketch : sketches) {
+      list.add(sketch);
+      if ((sketch != null) && !sketch.isOrdered()) { ordered = false; }
+    }
+    if (ordered) {
+      return SortedMergeUnion.union(list, bLgNomLongs, bSeed, bP);
+    }
+    UnionImpl union = UnionImpl.initNewHeapInstance(bLgNomLongs, bSeed, bP, bRF);
+    for (Sketch sketch : list) {
+      union.update(sketch);
+    }
+    return union.getResult(true, null);
+  }
+
   /**
    * Convenience method, returns a configured SetOperation Intersection with
    * <a href="{@docRoot}/resources/dictionary.html#defaultNomEntries">Default Nominal Entries</a>
@@ -230,6 +301,19 @@ public class SetOperationBuilder {
     return (Intersection) build(Family.INTERSECTION);
   }
 
+  /**
+   * Returns the intersection of the given sketches with the seed of this Builder.
+   * The sketches are ordered by their retained entries and theta, and the hashes of the smallest
+   * sketch are probed against the others. If any sketch is null or has no entries, or if the
+   * intersection becomes empty, no further hashes are examined.
+   * The result is the same as the result of presenting all the sketches to an Intersection.
+   * @param sketches the sketches to intersect. A null sketch is interpreted as an empty sketch.
+   * @return the ordered CompactSketch result of the intersection
+   */
+  public CompactSketch intersect(Iterable<? extends Sketch> sketches) {
+    return MultiIntersection.intersect(sketches, bSeed);
+  }
+
   /**
    * Convenience method, returns a configured SetOperation ANotB with
    * <a href="{@docRoot}/resources/dictionary.html#defaultNomEntries">Default Nominal Entries</a>
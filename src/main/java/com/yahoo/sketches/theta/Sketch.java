@@ -17,6 +17,7 @@ import static com.yahoo.sketches.theta.PreambleUtil.FLAGS_BYTE;
 import static com.yahoo.sketches.theta.PreambleUtil.MAX_THETA_LONG_AS_DOUBLE;
 import static com.yahoo.sketches.theta.PreambleUtil.ORDERED_FLAG_MASK;
 import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_COMPRESSED;
 import static com.yahoo.sketches.theta.PreambleUtil.extractFamilyID;
 import static com.yahoo.sketches.theta.PreambleUtil.extractFlags;
 import static com.yahoo.sketches.theta.PreambleUtil.extractPreLongs;
@@ -271,6 +272,9 @@ public abstract class Sketch {
     if (serVer == 2) {
       return ForwardCompatibility.heapify2to3(srcMem, seed);
     }
+    if (serVer == SER_VER_COMPRESSED) {
+      return RiceCodec.heapify(srcMem, seed);
+    }
     throw new SketchesArgumentException("Unknown Serialization Version: " + serVer);
   }
   
@@ -293,6 +297,8 @@ public abstract class Sketch {
    * been explicity stored as direct objects can be wrapped. 
    * An attempt to "wrap" earlier version sketches will result in a "heapified", normal 
    * Java Heap version of the sketch where all data will be copied to the heap.
+   * The same applies to compressed (Serialization Version 4) compact sketches, which must be
+   * decoded.
    * @param srcMem an image of a Sketch where the image seed hash matches the given seed hash.
    * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
@@ -314,13 +320,16 @@ public abstract class Sketch {
               "Corrupted: " + family + " family image: must have SerVer = 3 and preLongs = 3");
         }
       }
-      case COMPACT: { //serVer 1, 2, or 3, preLongs = 1, 2, or 3
+      case COMPACT: { //serVer 1, 2, 3 or 4, preLongs = 1, 2, or 3
         if (serVer == 1) {
           return ForwardCompatibility.heapify1to3(srcMem, seed);
         }
         else if (serVer == 2) {
           return ForwardCompatibility.heapify2to3(srcMem, seed);
         }
+        else if (serVer == SER_VER_COMPRESSED) {
+          return RiceCodec.heapify(srcMem, seed);
+        }
         int flags = extractFlags(pre0);
         boolean compact = (flags & (byte)COMPACT_FLAG_MASK) > 0;
         boolean ordered = (flags & (byte)ORDERED_FLAG_MASK) > 0;
@@ -458,6 +467,14 @@ public abstract class Sketch {
    */
   abstract Memory getMemory();
 
+  /**
+   * Returns this sketch, or a copy of it if it can be modified concurrently, so that the
+   * theta, the retained entries and the cache read by the set operations are consistent.
+   * @return this sketch or a consistent copy of it
+   */
+  Sketch getSnapshot() {
+    return this;
+  }
   
   /**
    * Returns true if given Family id is one of the theta sketches
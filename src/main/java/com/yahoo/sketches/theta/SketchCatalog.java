@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.MemoryRegion;
+
+//@formatter:off
+/**
+ * A read-only catalog of many compact sketches stored back to back in one Memory, typically a
+ * {@link com.yahoo.sketches.memory.MemoryMappedFile MemoryMappedFile}, together with an index
+ * from a <i>long</i> key to the location of each sketch image. Catalogs are written by the
+ * {@link SketchCatalogBuilder}.
+ *
+ * <p>Nothing is copied or heapified: the index is searched in place and each sketch is returned
+ * as a {@link Sketch#wrap(Memory) wrapped} view over a {@link MemoryRegion} of the catalog.
+ * The sketches of many keys can be presented to a Union with {@link #union(long[], Union)}.</p>
+ *
+ * <pre>
+ * MemoryMappedFile mem = new MemoryMappedFile(file, 0, file.length());
+ * SketchCatalog catalog = SketchCatalog.wrap(mem);
+ * Union union = SetOperation.builder().buildUnion();
+ * catalog.union(keys, union);
+ * CompactSketch result = union.getResult();
+ * mem.freeMemory();
+ * </pre>
+ *
+ * <p>MAP: The catalog starts with a preamble of four longs, followed by the sketch images,
+ * each of which is a multiple of 8 bytes, followed by the index. The index holds one entry of
+ * three longs per sketch: the key, the offset of the image from the start of the catalog and the
+ * length of the image in bytes. The entries are sorted by key and the keys are unique.</p>
+ *
+ * <pre>
+ * Long || Start Byte Adr:
+ * Adr:
+ *      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0              |
+ *  0   ||---------------Magic---------------|    Seed Hash    | SerVer | Preamble_Longs     |
+ *
+ *      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |     8              |
+ *  1   ||---------------------------Number of Sketches--------------------------------------|
+ *
+ *      ||   23   |   22   |   21   |   20   |   19   |   18   |   17   |    16              |
+ *  2   ||---------------------------Offset of the Index-------------------------------------|
+ *
+ *      ||   31   |   30   |   29   |   28   |   27   |   26   |   25   |    24              |
+ *  3   ||---------------------------Total Bytes---------------------------------------------|
+ * </pre>
+ */
+public final class SketchCatalog {
+  // Preamble byte Addresses
+  static final int PREAMBLE_LONGS_BYTE = 0;
+  static final int SER_VER_BYTE        = 1;
+  static final int SEED_HASH_SHORT     = 2;
+  static final int MAGIC_INT           = 4;
+  static final int NUM_SKETCHES_LONG   = 8;
+  static final int INDEX_OFFSET_LONG   = 16;
+  static final int TOTAL_BYTES_LONG    = 24;
+
+  //Other constants
+  static final int PREAMBLE_LONGS = 4;
+  static final int SER_VER = 1;
+  static final int MAGIC = 0x534B4354; //"SKCT"
+  static final int INDEX_ENTRY_BYTES = 24;
+  static final int KEY_OFFSET = 0;
+  static final int IMAGE_OFFSET = 8;
+  static final int IMAGE_LENGTH = 16;
+
+  private final Memory mem_;
+  private final long seed_;
+  private final long numSketches_;
+  private final long indexOffset_;
+
+  private SketchCatalog(Memory mem, long seed, long numSketches, long indexOffset) {
+    mem_ = mem;
+    seed_ = seed;
+    numSketches_ = numSketches;
+    indexOffset_ = indexOffset;
+  }
+
+  /**
+   * Wrap a catalog around the given Memory with the default seed.
+   * @param mem the Memory that holds the catalog, which must not be modified while it is wrapped
+   * @return a catalog that reads the given Memory
+   */
+  public static SketchCatalog wrap(Memory mem) {
+    return wrap(mem, DEFAULT_UPDATE_SEED);
+  }
+
+  /**
+   * Wrap a catalog around the given Memory.
+   * @param mem the Memory that holds the catalog, which must not be modified while it is wrapped
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See Update Hash Seed</a>.
+   * @return a catalog that reads the given Memory
+   */
+  public static SketchCatalog wrap(Memory mem, long seed) {
+    long capacity = mem.getCapacity();
+    if (capacity < (PREAMBLE_LONGS << 3)) {
+      throw new SketchesArgumentException(
+          "Memory too small for a catalog preamble: " + capacity);
+    }
+    int preLongs = mem.getByte(PREAMBLE_LONGS_BYTE) & 0XFF;
+    int serVer = mem.getByte(SER_VER_BYTE) & 0XFF;
+    int magic = mem.getInt(MAGIC_INT);
+    if ((preLongs != PREAMBLE_LONGS) || (serVer != SER_VER) || (magic != MAGIC)) {
+      throw new SketchesArgumentException("Memory does not hold a sketch catalog: preLongs: "
+          + preLongs + ", serVer: " + serVer + ", magic: " + Integer.toHexString(magic));
+    }
+    Util.checkSeedHashes(Util.computeSeedHash(seed), mem.getShort(SEED_HASH_SHORT));
+    long numSketches = mem.getLong(NUM_SKETCHES_LONG);
+    long indexOffset = mem.getLong(INDEX_OFFSET_LONG);
+    long totalBytes = mem.getLong(TOTAL_BYTES_LONG);
+    if ((numSketches < 0) || (indexOffset < (PREAMBLE_LONGS << 3))
+        || (totalBytes != (indexOffset + (numSketches * INDEX_ENTRY_BYTES)))
+        || (totalBytes > capacity)) {
+      throw new SketchesArgumentException("Corrupted catalog: sketches: " + numSketches
+          + ", index offset: " + indexOffset + ", total bytes: " + totalBytes
+          + ", capacity: " + capacity);
+    }
+    return new SketchCatalog(mem, seed, numSketches, indexOffset);
+  }
+
+  /**
+   * Returns the number of sketches in this catalog
+   * @return the number of sketches in this catalog
+   */
+  public long getNumSketches() {
+    return numSketches_;
+  }
+
+  /**
+   * Returns the key of the sketch at the given position of the index. The keys are in ascending
+   * order.
+   * @param index the given position, from zero to the number of sketches, exclusive
+   * @return the key of the sketch at the given position of the index
+   */
+  public long getKey(long index) {
+    checkIndex(index);
+    return mem_.getLong(entryOffset(index) + KEY_OFFSET);
+  }
+
+  /**
+   * Returns true if this catalog holds a sketch for the given key
+   * @param key the given key
+   * @return true if this catalog holds a sketch for the given key
+   */
+  public boolean contains(long key) {
+    return find(key) >= 0;
+  }
+
+  /**
+   * Returns a view of the image of the sketch for the given key, or null if there is none
+   * @param key the given key
+   * @return a view of the image of the sketch for the given key, or null if there is none
+   */
+  public Memory getImage(long key) {
+    long index = find(key);
+    return (index < 0) ? null : imageAt(index);
+  }
+
+  /**
+   * Returns the sketch for the given key wrapped in place, or null if there is none
+   * @param key the given key
+   * @return the sketch for the given key wrapped in place, or null if there is none
+   */
+  public Sketch getSketch(long key) {
+    Memory image = getImage(key);
+    return (image == null) ? null : Sketch.wrap(image, seed_);
+  }
+
+  /**
+   * Presents the sketches of the given keys to the given Union. Keys that are not in this
+   * catalog are ignored. The images are presented together with {@link Union#update(List)}, so
+   * only the hashes below the minimum theta of all the images are inserted.
+   * @param keys the given keys
+   * @param union the given Union, which must have the same seed as this catalog
+   */
+  public void union(long[] keys, Union union) {
+    List<Memory> images = new ArrayList<Memory>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      Memory image = getImage(keys[i]);
+      if (image != null) {
+        images.add(image);
+      }
+    }
+    union.update(images);
+  }
+
+  /**
+   * Returns the Memory that holds this catalog
+   * @return the Memory that holds this catalog
+   */
+  public Memory getMemory() {
+    return mem_;
+  }
+
+  //restricted
+
+  //Returns the position of the given key in the index, or -1 if not found
+  private long find(long key) {
+    long lo = 0;
+    long hi = numSketches_ - 1;
+    while (lo <= hi) {
+      long mid = (lo + hi) >>> 1;
+      long midKey = mem_.getLong(entryOffset(mid) + KEY_OFFSET);
+      if (midKey < key) {
+        lo = mid + 1;
+      } else if (midKey > key) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private Memory imageAt(long index) {
+    long entry = entryOffset(index);
+    long offset = mem_.getLong(entry + IMAGE_OFFSET);
+    long length = mem_.getLong(entry + IMAGE_LENGTH);
+    if ((offset < (PREAMBLE_LONGS << 3)) || (length < 8) || ((offset + length) > indexOffset_)) {
+      throw new SketchesArgumentException("Corrupted catalog index entry " + index
+          + ": offset: " + offset + ", length: " + length);
+    }
+    return new MemoryRegion(mem_, offset, length);
+  }
+
+  private long entryOffset(long index) {
+    return indexOffset_ + (index * INDEX_ENTRY_BYTES);
+  }
+
+  private void checkIndex(long index) {
+    if ((index < 0) || (index >= numSketches_)) {
+      throw new SketchesArgumentException("Index out of range: " + index);
+    }
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+import static com.yahoo.sketches.theta.CompactSketch.compactCache;
+import static com.yahoo.sketches.theta.CompactSketch.createCompactSketch;
+import static com.yahoo.sketches.theta.SketchCatalog.IMAGE_LENGTH;
+import static com.yahoo.sketches.theta.SketchCatalog.IMAGE_OFFSET;
+import static com.yahoo.sketches.theta.SketchCatalog.INDEX_ENTRY_BYTES;
+import static com.yahoo.sketches.theta.SketchCatalog.INDEX_OFFSET_LONG;
+import static com.yahoo.sketches.theta.SketchCatalog.KEY_OFFSET;
+import static com.yahoo.sketches.theta.SketchCatalog.MAGIC;
+import static com.yahoo.sketches.theta.SketchCatalog.MAGIC_INT;
+import static com.yahoo.sketches.theta.SketchCatalog.NUM_SKETCHES_LONG;
+import static com.yahoo.sketches.theta.SketchCatalog.PREAMBLE_LONGS;
+import static com.yahoo.sketches.theta.SketchCatalog.PREAMBLE_LONGS_BYTE;
+import static com.yahoo.sketches.theta.SketchCatalog.SEED_HASH_SHORT;
+import static com.yahoo.sketches.theta.SketchCatalog.SER_VER;
+import static com.yahoo.sketches.theta.SketchCatalog.SER_VER_BYTE;
+import static com.yahoo.sketches.theta.SketchCatalog.TOTAL_BYTES_LONG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.NativeMemory;
+
+/**
+ * For building a {@link SketchCatalog}. The sketches are added with their keys and are stored
+ * as ordered compact images. The catalog is then written into a Memory of at least
+ * {@link #getRequiredBytes()}, for example a
+ * {@link com.yahoo.sketches.memory.MemoryMappedFile MemoryMappedFile} of that size.
+ */
+public final class SketchCatalogBuilder {
+  private long bSeed;
+  private final List<Entry> entries_;
+  private long imageBytes_;
+
+  /**
+   * Constructor for building a new catalog with the default seed.
+   */
+  public SketchCatalogBuilder() {
+    bSeed = DEFAULT_UPDATE_SEED;
+    entries_ = new ArrayList<Entry>();
+    imageBytes_ = 0;
+  }
+
+  /**
+   * Sets the long seed value that is required by the hashing function.
+   * All the sketches added to the catalog must have been created with this seed.
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @return this SketchCatalogBuilder
+   */
+  public SketchCatalogBuilder setSeed(long seed) {
+    bSeed = seed;
+    return this;
+  }
+
+  /**
+   * Returns the seed
+   * @return the seed
+   */
+  public long getSeed() {
+    return bSeed;
+  }
+
+  /**
+   * Adds the given sketch with the given key. The sketch is compacted and ordered if it is not
+   * already, and its image is copied.
+   * @param key the given key, which must be unique within the catalog
+   * @param sketch the given sketch
+   * @return this SketchCatalogBuilder
+   */
+  public SketchCatalogBuilder add(long key, Sketch sketch) {
+    if (sketch == null) {
+      throw new SketchesArgumentException("Sketch must not be null.");
+    }
+    CompactSketch csk;
+    if (sketch instanceof UpdateSketch) {
+      csk = ((UpdateSketch) sketch).compact(true, null);
+    } else if (sketch.isOrdered()) {
+      csk = (CompactSketch) sketch;
+    } else {
+      int curCount = sketch.getRetainedEntries(true);
+      long thetaLong = sketch.getThetaLong();
+      long[] cache = compactCache(sketch.getCache(), curCount, thetaLong, true);
+      csk = createCompactSketch(
+          cache, sketch.isEmpty(), sketch.getSeedHash(), curCount, thetaLong, true, null);
+    }
+    byte[] image = csk.toByteArray();
+    entries_.add(new Entry(key, image, csk.getSeedHash()));
+    imageBytes_ += image.length;
+    return this;
+  }
+
+  /**
+   * Returns the number of sketches added so far
+   * @return the number of sketches added so far
+   */
+  public int getNumSketches() {
+    return entries_.size();
+  }
+
+  /**
+   * Returns the number of bytes required by the catalog of the sketches added so far
+   * @return the number of bytes required by the catalog of the sketches added so far
+   */
+  public long getRequiredBytes() {
+    return (PREAMBLE_LONGS << 3) + imageBytes_ + ((long) entries_.size() * INDEX_ENTRY_BYTES);
+  }
+
+  /**
+   * Writes the catalog of the sketches added so far into the given Memory.
+   * @param dstMem the destination Memory, which must hold at least {@link #getRequiredBytes()}
+   * @return a SketchCatalog that wraps the given Memory
+   */
+  public SketchCatalog build(Memory dstMem) {
+    long totalBytes = getRequiredBytes();
+    if (dstMem.getCapacity() < totalBytes) {
+      throw new SketchesArgumentException("Insufficient dstMem capacity: "
+          + dstMem.getCapacity() + " < " + totalBytes);
+    }
+    short seedHash = Util.computeSeedHash(bSeed);
+    List<Entry> sorted = new ArrayList<Entry>(entries_);
+    Collections.sort(sorted, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry a, Entry b) {
+        return (a.key < b.key) ? -1 : ((a.key == b.key) ? 0 : 1);
+      }
+    });
+
+    //images in key order, so that the sketches of neighboring keys are close in the file
+    long offset = PREAMBLE_LONGS << 3;
+    long indexOffset = offset + imageBytes_;
+    long entryOffset = indexOffset;
+    for (int i = 0; i < sorted.size(); i++) {
+      Entry entry = sorted.get(i);
+      if ((i > 0) && (entry.key == sorted.get(i - 1).key)) {
+        throw new SketchesArgumentException("Duplicate key: " + entry.key);
+      }
+      Util.checkSeedHashes(seedHash, entry.seedHash);
+      dstMem.putByteArray(offset, entry.image, 0, entry.image.length);
+      dstMem.putLong(entryOffset + KEY_OFFSET, entry.key);
+      dstMem.putLong(entryOffset + IMAGE_OFFSET, offset);
+      dstMem.putLong(entryOffset + IMAGE_LENGTH, entry.image.length);
+      offset += entry.image.length;
+      entryOffset += INDEX_ENTRY_BYTES;
+    }
+
+    dstMem.putByte(PREAMBLE_LONGS_BYTE, (byte) PREAMBLE_LONGS);
+    dstMem.putByte(SER_VER_BYTE, (byte) SER_VER);
+    dstMem.putShort(SEED_HASH_SHORT, seedHash);
+    dstMem.putInt(MAGIC_INT, MAGIC);
+    dstMem.putLong(NUM_SKETCHES_LONG, sorted.size());
+    dstMem.putLong(INDEX_OFFSET_LONG, indexOffset);
+    dstMem.putLong(TOTAL_BYTES_LONG, totalBytes);
+    return SketchCatalog.wrap(dstMem, bSeed);
+  }
+
+  /**
+   * Returns the catalog of the sketches added so far as a byte array
+   * @return the catalog of the sketches added so far as a byte array
+   */
+  public byte[] toByteArray() {
+    long totalBytes = getRequiredBytes();
+    if (totalBytes > Integer.MAX_VALUE) {
+      throw new SketchesArgumentException(
+          "Catalog too large for a byte array, build it into a Memory: " + totalBytes);
+    }
+    byte[] byteArray = new byte[(int) totalBytes];
+    build(new NativeMemory(byteArray));
+    return byteArray;
+  }
+
+  private static final class Entry {
+    final long key;
+    final byte[] image;
+    final short seedHash;
+
+    Entry(long key, byte[] image, short seedHash) {
+      this.key = key;
+      this.image = image;
+      this.seedHash = seedHash;
+    }
+  }
+
+}
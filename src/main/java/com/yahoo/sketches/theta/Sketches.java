@@ -233,17 +233,17 @@ public final class Sketches {
   //Restricted static methods
   
   static int getPreambleLongs(Memory srcMem) {
-    return srcMem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F; //for SerVer 1,2,3
+    return srcMem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F; //for SerVer 1,2,3,4
   }
   
   static int getRetainedEntries(Memory srcMem) {
     int preLongs = getPreambleLongs(srcMem);
-    return (preLongs == 1) ? 0 : srcMem.getInt(RETAINED_ENTRIES_INT); //for SerVer 1,2,3
+    return (preLongs == 1) ? 0 : srcMem.getInt(RETAINED_ENTRIES_INT); //for SerVer 1,2,3,4
   }
   
   static long getThetaLong(Memory srcMem) {
     int preLongs = getPreambleLongs(srcMem);
-    return (preLongs < 3) ? Long.MAX_VALUE : srcMem.getLong(THETA_LONG); //for SerVer 1,2,3
+    return (preLongs < 3) ? Long.MAX_VALUE : srcMem.getLong(THETA_LONG); //for SerVer 1,2,3,4
   }
   
   static boolean getEmpty(Memory srcMem) {
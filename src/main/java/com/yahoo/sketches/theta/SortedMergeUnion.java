@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.theta.CompactSketch.createCompactSketch;
+import static com.yahoo.sketches.theta.PreambleUtil.MAX_THETA_LONG_AS_DOUBLE;
+import static com.yahoo.sketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
+import static java.lang.Math.min;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.yahoo.sketches.Util;
+import com.yahoo.sketches.memory.Memory;
+
+/**
+ * Unions ordered compact sketches with a k-way merge of their sorted hash arrays.
+ *
+ * <p>The current smallest hash of every input is kept in a binary min-heap. Distinct hashes are
+ * emitted in ascending order until theta, the minimum theta of the inputs, is reached, or until
+ * k + 1 distinct hashes have been seen, in which case the (k + 1)th hash becomes theta.
+ * No hash table is built and the result is already ordered. Hashes of direct inputs are read in
+ * place from their Memory.</p>
+ *
+ * <p>The result is identical to the result of a Union with the same configuration.</p>
+ */
+final class SortedMergeUnion {
+  private final long thetaLong_;
+
+  //one entry per input that has hashes below theta
+  private final long[][] arrs_;   //hashes of heap inputs, or null
+  private final Memory[] mems_;   //Memory of direct inputs, or null
+  private final int[] preBytes_;  //offset of the first hash of direct inputs
+  private final int[] pos_;       //index of the current hash
+  private final int[] counts_;    //number of hashes
+  private final long[] heads_;    //the current hash
+
+  //binary min-heap of input indices, ordered by heads_
+  private final int[] heap_;
+  private int heapSize_;
+
+  private SortedMergeUnion(int numInputs, long thetaLong) {
+    thetaLong_ = thetaLong;
+    arrs_ = new long[numInputs][];
+    mems_ = new Memory[numInputs];
+    preBytes_ = new int[numInputs];
+    pos_ = new int[numInputs];
+    counts_ = new int[numInputs];
+    heads_ = new long[numInputs];
+    heap_ = new int[numInputs];
+    heapSize_ = 0;
+  }
+
+  /**
+   * Unions the given ordered sketches.
+   * @param sketches the given sketches, which must all be null or ordered
+   * @param lgNomLongs <a href="{@docRoot}/resources/dictionary.html#lgNomLogs">See lgNomLongs</a>
+   * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
+   * @param p <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability, <i>p</i></a>
+   * @return the ordered CompactSketch result on the heap
+   */
+  static CompactSketch union(List<? extends Sketch> sketches, int lgNomLongs, long seed, float p) {
+    short seedHash = Util.computeSeedHash(seed);
+    long thetaLong = (long) (p * MAX_THETA_LONG_AS_DOUBLE);
+    //Theta rule with all the inputs first, so that the merge stops as early as possible
+    for (Sketch sketch : sketches) {
+      if ((sketch == null) || sketch.isEmpty()) continue;
+      Util.checkSeedHashes(seedHash, sketch.getSeedHash());
+      thetaLong = min(thetaLong, sketch.getThetaLong());
+    }
+    SortedMergeUnion merge = new SortedMergeUnion(sketches.size(), thetaLong);
+    for (Sketch sketch : sketches) {
+      if ((sketch == null) || sketch.isEmpty()) continue;
+      merge.add(sketch);
+    }
+    boolean presented = merge.heapSize_ > 0;
+
+    int k = 1 << lgNomLongs;
+    long[] cache = new long[min(k, merge.totalCount())];
+    int curCount = 0;
+    long prevHash = 0;
+    while (merge.heapSize_ > 0) {
+      long hash = merge.pollHash();
+      if (hash == prevHash) continue; //duplicate
+      if (curCount == k) { //the (k + 1)th distinct hash
+        thetaLong = hash;
+        break;
+      }
+      cache[curCount++] = hash;
+      prevHash = hash;
+    }
+    if (curCount < cache.length) {
+      cache = Arrays.copyOf(cache, curCount);
+    }
+    double thetaR = thetaLong / MAX_THETA_LONG_AS_DOUBLE;
+    boolean empty = !presented && (p >= thetaR) && (curCount == 0);
+    return createCompactSketch(cache, empty, seedHash, curCount, thetaLong, true, null);
+  }
+
+  //Adds the input if its first hash is below theta
+  private void add(Sketch sketch) {
+    int count = sketch.getRetainedEntries(true);
+    if (count == 0) return;
+    long[] arr = null;
+    Memory mem = null;
+    int preBytes = 0;
+    long head;
+    if (sketch.isDirect()) {
+      mem = sketch.getMemory();
+      preBytes = (mem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F) << 3;
+      head = mem.getLong(preBytes);
+    }
+    else {
+      arr = sketch.getCache(); //not a copy
+      head = arr[0];
+    }
+    if (head >= thetaLong_) return; //"early stop" before the first hash
+    //only fill the slot once the input is kept, since a skipped input does not take a slot
+    int i = heapSize_;
+    arrs_[i] = arr;
+    mems_[i] = mem;
+    preBytes_[i] = preBytes;
+    heads_[i] = head;
+    pos_[i] = 0;
+    counts_[i] = count;
+    heap_[i] = i;
+    heapSize_++;
+    siftUp(i);
+  }
+
+  private int totalCount() {
+    long total = 0;
+    for (int i = 0; i < heapSize_; i++) {
+      total += counts_[i];
+    }
+    return (int) min(total, Integer.MAX_VALUE);
+  }
+
+  //Removes and returns the smallest current hash, and advances its input
+  private long pollHash() {
+    int src = heap_[0];
+    long hash = heads_[src];
+    int pos = ++pos_[src];
+    long next = Long.MAX_VALUE;
+    if (pos < counts_[src]) {
+      next = (arrs_[src] != null)
+          ? arrs_[src][pos] : mems_[src].getLong(preBytes_[src] + (pos << 3));
+    }
+    if (next < thetaLong_) {
+      heads_[src] = next;
+    }
+    else { //this input is done
+      heap_[0] = heap_[--heapSize_];
+    }
+    siftDown(0);
+    return hash;
+  }
+
+  private void siftUp(int index) {
+    int i = index;
+    int src = heap_[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heads_[heap_[parent]] <= heads_[src]) break;
+      heap_[i] = heap_[parent];
+      i = parent;
+    }
+    heap_[i] = src;
+  }
+
+  private void siftDown(int index) {
+    if (heapSize_ == 0) return;
+    int i = index;
+    int src = heap_[i];
+    while (true) {
+      int child = (2 * i) + 1;
+      if (child >= heapSize_) break;
+      if (((child + 1) < heapSize_) && (heads_[heap_[child + 1]] < heads_[heap_[child]])) {
+        child++;
+      }
+      if (heads_[src] <= heads_[heap_[child]]) break;
+      heap_[i] = heap_[child];
+      i = child;
+    }
+    heap_[i] = src;
+  }
+
+}
@@ -5,6 +5,8 @@
 
 package com.yahoo.sketches.theta;
 
+import java.util.List;
+
 import com.yahoo.sketches.memory.Memory;
 
 /**
@@ -35,6 +37,39 @@ public interface Union {
    */
   void update(Memory mem);
   
+  /**
+   * Union the given list of Memory images, each of which is accepted by {@link #update(Memory)}.
+   * 
+   * <p>The preambles of all the images are read first, to check the seed hashes and to apply the
+   * theta rule with the minimum theta of all the images. Only the hashes below that minimum theta
+   * are then presented to this union. The result is the same as calling {@link #update(Memory)}
+   * for each image, but with far fewer inserts and rebuilds of the internal hash table.</p>
+   * 
+   * <p>If the given list is null, or any image in the list is null, it is ignored.</p>
+   * 
+   * <p>The default implementation calls {@link #update(Memory)} for each image.</p>
+   * @param mems the list of Memory images of the sketches to be merged
+   */
+  default void update(List<Memory> mems) {
+    if (mems == null) return;
+    for (Memory mem : mems) {
+      if (mem != null) { update(mem); }
+    }
+  }
+  
+  /**
+   * Union the Memory images that are packed one after the other into the given buffer.
+   * Image <i>i</i> occupies the bytes from <i>offsets[i]</i> inclusive to <i>offsets[i + 1]</i>
+   * exclusive, so there is one more offset than there are images.
+   * Otherwise this is the same as {@link #update(List)}.
+   * @param buffer the Memory that holds the packed images
+   * @param offsets the byte offsets of the images in the buffer followed by the end offset of
+   * the last image. The offsets must not decrease.
+   */
+  default void update(Memory buffer, long[] offsets) {
+    update(SetOperation.packedImages(buffer, offsets));
+  }
+  
   /**
    * Present this union with a long.
    * 
@@ -17,10 +17,13 @@ import static com.yahoo.sketches.theta.PreambleUtil.PREAMBLE_LONGS_BYTE;
 import static com.yahoo.sketches.theta.PreambleUtil.RETAINED_ENTRIES_INT;
 import static com.yahoo.sketches.theta.PreambleUtil.SEED_HASH_SHORT;
 import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_COMPRESSED;
 import static com.yahoo.sketches.theta.PreambleUtil.THETA_LONG;
 import static com.yahoo.sketches.theta.PreambleUtil.UNION_THETA_LONG;
 import static java.lang.Math.min;
 
+import java.util.List;
+
 import com.yahoo.sketches.Family;
 import com.yahoo.sketches.HashOperations;
 import com.yahoo.sketches.ResizeFactor;
@@ -163,9 +166,9 @@ final class UnionImpl extends SetOperation implements Union {
   }
   
   @Override
-  public void update(Sketch sketchIn) { //Only valid for theta Sketches using SerVer = 3
+  public void update(Sketch sketch) { //Only valid for theta Sketches using SerVer = 3
     //UNION Empty Rule: AND the empty states
-    
+    Sketch sketchIn = (sketch == null) ? null : sketch.getSnapshot();
     if ((sketchIn == null)  || sketchIn.isEmpty()) {
       //null/empty is interpreted as (Theta = 1.0, count = 0, empty = T).  Nothing changes
       return;
@@ -215,26 +218,34 @@ final class UnionImpl extends SetOperation implements Union {
   public void update(Memory skMem) {
     //UNION Empty Rule: AND the empty states
     if (skMem == null) return;
-    int cap = (int)skMem.getCapacity();
-    int fam = skMem.getByte(FAMILY_BYTE);
-    if (fam != 3) { //
-      throw new SketchesArgumentException("Family must be COMPACT or SET_SKETCH (old): " + fam);
-    }
-    int serVer = skMem.getByte(SER_VER_BYTE);
-    if (serVer == 1) { //older SetSketch, which is compact and ordered
-      if (cap <= 24) return; //empty
-      processVer1(skMem);
-    }
-    else if (serVer == 2) { //older SetSketch, which is compact and ordered
-      if (cap <= 8) return; //empty
-      processVer2(skMem);
-    }
-    else if (serVer == 3) { //Only the OpenSource sketches
-      if (cap <= 8) return; //empty
-      processVer3(skMem);
+    int serVer = checkImage(skMem);
+    if (serVer == 0) return; //empty
+    processImage(skMem, serVer);
+  }
+  
+  @Override
+  public void update(List<Memory> skMems) {
+    if (skMems == null) return;
+    int[] serVers = new int[skMems.size()];
+    //Check all preambles first, so that a rejected list does not change this union
+    long minThetaLong = unionThetaLong_;
+    int i = 0;
+    for (Memory skMem : skMems) {
+      int serVer = (skMem == null) ? 0 : checkImage(skMem);
+      if (serVer != 0) {
+        minThetaLong = min(minThetaLong, imageThetaLong(skMem, serVer));
+      }
+      serVers[i++] = serVer;
     }
-    else {
-      throw new SketchesArgumentException("SerVer is unknown: " + serVer);
+    //Then apply the theta rule with all the images at once
+    unionThetaLong_ = minThetaLong;
+    //Then only the hashes below the minimum theta reach the gadget
+    i = 0;
+    for (Memory skMem : skMems) {
+      int serVer = serVers[i++];
+      if (serVer != 0) {
+        processImage(skMem, serVer);
+      }
     }
   }
   
@@ -273,6 +284,77 @@ final class UnionImpl extends SetOperation implements Union {
     gadget_.update(data);
   }
   
+  /**
+   * Merges the state of the given union into this union, so that the result of this union is the
+   * same as if all the sketches presented to the given union had been presented to this union.
+   * Both unions must have been configured the same way. Used by the parallel union.
+   * @param that the given union, which is not modified
+   */
+  void merge(UnionImpl that) {
+    unionThetaLong_ = min(unionThetaLong_, that.unionThetaLong_); //Theta rule with incoming
+    long[] cacheIn = that.gadget_.getCache(); //if off-heap this will be a copy
+    if (!that.gadget_.isEmpty()) {
+      gadget_.hashUpdateAll(cacheIn, 0); //only marks the gadget as not empty
+    }
+    for (int i = 0; i < cacheIn.length; i++ ) {
+      long hashIn = cacheIn[i];
+      if ((hashIn <= 0L) || (hashIn >= unionThetaLong_)) continue; //rejects dirty values
+      gadget_.hashUpdate(hashIn); //backdoor update, hash function is bypassed
+    }
+    unionThetaLong_ = min(unionThetaLong_, gadget_.getThetaLong()); //Theta rule with gadget
+    if (unionMem_ != null) unionMem_.putLong(UNION_THETA_LONG, unionThetaLong_);
+  }
+
+  /**
+   * Checks the family, serialization version and seed hash of the given sketch image.
+   * @param skMem the given sketch image
+   * @return the serialization version of the image, or zero if the image is empty.
+   */
+  private int checkImage(Memory skMem) {
+    int cap = (int)skMem.getCapacity();
+    int fam = skMem.getByte(FAMILY_BYTE);
+    if (fam != 3) { //
+      throw new SketchesArgumentException("Family must be COMPACT or SET_SKETCH (old): " + fam);
+    }
+    int serVer = skMem.getByte(SER_VER_BYTE);
+    if (serVer == 1) { //older SetSketch, which is compact and ordered
+      if (cap <= 24) return 0; //empty
+    }
+    else if ((serVer >= 2) && (serVer <= SER_VER_COMPRESSED)) { //older SetSketch, OpenSource
+      if (cap <= 8) return 0; //empty
+      Util.checkSeedHashes(seedHash_, skMem.getShort(SEED_HASH_SHORT));
+    }
+    else {
+      throw new SketchesArgumentException("SerVer is unknown: " + serVer);
+    }
+    return serVer;
+  }
+  
+  //the image must have been checked by checkImage()
+  private void processImage(Memory skMem, int serVer) {
+    if (serVer == 1) {
+      processVer1(skMem);
+    }
+    else if (serVer == 2) {
+      processVer2(skMem);
+    }
+    else if (serVer == 3) {
+      processVer3(skMem);
+    }
+    else {
+      processVer4(skMem);
+    }
+  }
+  
+  //the theta of a sketch image that has been checked by checkImage()
+  private static long imageThetaLong(Memory skMem, int serVer) {
+    if (serVer == 1) {
+      return skMem.getLong(THETA_LONG);
+    }
+    int preLongs = skMem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F;
+    return (preLongs < 3) ? Long.MAX_VALUE : skMem.getLong(THETA_LONG);
+  }
+  
   //no seedhash, assumes given seed is correct. No p, no empty flag, 
   // can only be compact, ordered, size > 24
   private void processVer1(Memory skMem) {
@@ -293,7 +375,6 @@ final class UnionImpl extends SetOperation implements Union {
   //has seedhash and p, could have 0 entries & theta, 
   // can only be compact, ordered, size >= 8
   private void processVer2(Memory skMem) {
-    Util.checkSeedHashes(seedHash_, skMem.getShort(SEED_HASH_SHORT));
     int preLongs = skMem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F;
     int curCount = skMem.getInt(RETAINED_ENTRIES_INT);
     long thetaLongIn;
@@ -317,10 +398,22 @@ final class UnionImpl extends SetOperation implements Union {
     if (unionMem_ != null) unionMem_.putLong(UNION_THETA_LONG, unionThetaLong_);
   }
   
+  //has seedhash, could have 0 entries & theta, compressed, ordered, size >= 8
+  private void processVer4(Memory skMem) {
+    RiceCodec.Decoder decoder = new RiceCodec.Decoder(skMem);
+    unionThetaLong_ = min(unionThetaLong_, decoder.getThetaLong()); //Theta rule
+    while (decoder.hasNext()) {
+      long hashIn = decoder.next();
+      if (hashIn >= unionThetaLong_) break; // "early stop"
+      gadget_.hashUpdate(hashIn); //backdoor update, hash function is bypassed
+    }
+    unionThetaLong_ = min(unionThetaLong_, gadget_.getThetaLong());
+    if (unionMem_ != null) unionMem_.putLong(UNION_THETA_LONG, unionThetaLong_);
+  }
+  
   //has seedhash, p, could have 0 entries & theta, 
   // could be unordered, ordered, compact, or not, size >= 8
   private void processVer3(Memory skMem) {
-    Util.checkSeedHashes(seedHash_, skMem.getShort(SEED_HASH_SHORT));
     int preLongs = skMem.getByte(PREAMBLE_LONGS_BYTE) & 0X3F;
     int curCount = skMem.getInt(RETAINED_ENTRIES_INT);
     long thetaLongIn;
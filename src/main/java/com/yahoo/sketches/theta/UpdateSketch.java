@@ -6,10 +6,16 @@
 package com.yahoo.sketches.theta;
 
 import static com.yahoo.sketches.hash.MurmurHash3.hash;
+import static com.yahoo.sketches.hash.MurmurHash3.hash64;
+import static com.yahoo.sketches.hash.MurmurHash3.hashEach;
 import static com.yahoo.sketches.theta.UpdateReturnState.RejectedNullOrEmpty;
-import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.nio.ByteBuffer;
+
+import com.yahoo.sketches.HashOperations;
 import com.yahoo.sketches.ResizeFactor;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.hash.MurmurHash3Hasher;
 import com.yahoo.sketches.memory.Memory;
 
 /**
@@ -20,6 +26,8 @@ import com.yahoo.sketches.memory.Memory;
  * @author Lee Rhodes 
  */
 public abstract class UpdateSketch extends Sketch {
+  //The number of keys hashed and filtered together by the batch update methods
+  private static final int BATCH_CHUNK_LONGS = 1024;
   
   UpdateSketch() {}
   
@@ -127,8 +135,7 @@ public abstract class UpdateSketch extends Sketch {
    * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
    */
   public UpdateReturnState update(long datum) {
-    long[] data = { datum };
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(hash(datum, getSeed()) >>> 1);
   }
   
   /**
@@ -143,14 +150,14 @@ public abstract class UpdateSketch extends Sketch {
    * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
    */
   public UpdateReturnState update(double datum) {
-    double d = (datum == 0.0) ? 0.0 : datum; // canonicalize -0.0, 0.0
-    long[] data = { Double.doubleToLongBits(d) };// canonicalize all NaN forms
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    // hash() canonicalizes -0.0, 0.0 and all NaN forms
+    return hashUpdate(hash(datum, getSeed()) >>> 1);
   }
   
   /**
    * Present this sketch with the given String. 
-   * The string is converted to a byte array using UTF8 encoding. 
+   * The string is hashed as its UTF8 encoding, which is computed on the fly without allocating a 
+   * byte array. The result is the same as updating with the UTF8 bytes of the string. 
    * If the string is null or empty no update attempt is made and the method returns.
    * 
    * <p>Note: this will not produce the same output hash values as the {@link #update(char[])} 
@@ -165,8 +172,7 @@ public abstract class UpdateSketch extends Sketch {
     if (datum == null || datum.isEmpty()) {
       return RejectedNullOrEmpty; 
     }
-    byte[] data = datum.getBytes(UTF_8);
-    return hashUpdate(hash(data, getSeed())[0] >>> 1);
+    return hashUpdate(hash64(datum, getSeed()) >>> 1);
   }
   
   /**
@@ -184,6 +190,63 @@ public abstract class UpdateSketch extends Sketch {
     return hashUpdate(hash(data, getSeed())[0] >>> 1);
   }
   
+  /**
+   * Present this sketch with the given region of bytes in the given Memory, which is hashed in
+   * place. This produces the same result as {@link #update(byte[])} of a copy of the region.
+   * If the Memory is null or the region is empty no update attempt is made and the method
+   * returns.
+   * 
+   * @param mem The given Memory.
+   * @param offsetBytes the offset of the first byte of the region in the Memory.
+   * @param lengthBytes the length of the region in bytes.
+   * @return 
+   * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
+   */
+  public UpdateReturnState update(Memory mem, long offsetBytes, long lengthBytes) {
+    if ((mem == null) || (lengthBytes == 0)) {
+      return RejectedNullOrEmpty;
+    }
+    return hashUpdate(hash(mem, offsetBytes, lengthBytes, getSeed())[0] >>> 1);
+  }
+  
+  /**
+   * Present this sketch with the given region of bytes in the given ByteBuffer, which is hashed
+   * in place with absolute gets. This produces the same result as {@link #update(byte[])} of a
+   * copy of the region, regardless of the byte order of the buffer.
+   * If the buffer is null or the region is empty no update attempt is made and the method
+   * returns.
+   * 
+   * @param buf The given ByteBuffer.
+   * @param offset the absolute index of the first byte of the region in the buffer.
+   * @param length the length of the region in bytes.
+   * @return 
+   * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
+   */
+  public UpdateReturnState update(ByteBuffer buf, int offset, int length) {
+    if ((buf == null) || (length == 0)) {
+      return RejectedNullOrEmpty;
+    }
+    return hashUpdate(hash(buf, offset, length, getSeed())[0] >>> 1);
+  }
+  
+  /**
+   * Present this sketch with the key presented so far to the given hasher, which allows composite
+   * keys to be hashed without building a temporary array. The hasher is not reset.
+   * If the hasher is null or has not been presented any bytes no update attempt is made and the
+   * method returns.
+   * 
+   * @param hasher The given hasher, which must have the seed of this sketch.
+   * @return 
+   * <a href="{@docRoot}/resources/dictionary.html#updateReturnState">See Update Return State</a>
+   */
+  public UpdateReturnState update(MurmurHash3Hasher hasher) {
+    if ((hasher == null) || (hasher.getLengthBytes() == 0)) {
+      return RejectedNullOrEmpty;
+    }
+    hasher.checkSeed(getSeed());
+    return hashUpdate(hasher.finish64() >>> 1);
+  }
+  
   /**
    * Present this sketch with the given char array. 
    * If the char array is null or empty no update attempt is made and the method returns.
@@ -232,8 +295,91 @@ public abstract class UpdateSketch extends Sketch {
     return hashUpdate(hash(data, getSeed())[0] >>> 1);
   }
   
+  /**
+   * Present this sketch with each long of the given array in the range <i>[from, to)</i> as an
+   * individual datum. This produces the same sketch as calling {@link #update(long)} for each
+   * element in order, but hashes the keys in a tight loop and rejects hashes that are not less
+   * than theta before the hash table is probed.
+   * If the long array is null or the range is empty no update attempt is made and the method
+   * returns.
+   *
+   * @param keys The given long array.
+   * @param from the index of the first key to be presented, inclusive.
+   * @param to the index of the last key to be presented, exclusive.
+   */
+  public void updateAll(long[] keys, int from, int to) {
+    if (keys == null) { return; }
+    checkBatchRange(from, to, keys.length);
+    final int count = to - from;
+    if (count == 0) { return; }
+    final long[] hashes = new long[Math.min(count, BATCH_CHUNK_LONGS)];
+    for (int i = from; i < to; i += hashes.length) {
+      final int len = Math.min(hashes.length, to - i);
+      hashEach(keys, i, i + len, getSeed(), hashes);
+      hashUpdateAll(hashes, filterHashes(hashes, len));
+    }
+  }
+
+  /**
+   * Present this sketch with each long stored in the given Memory as an individual datum.
+   * The longs are read starting at <i>offsetBytes</i>. This produces the same sketch as calling
+   * {@link #update(long)} for each of the longs in order.
+   * If the Memory is null or the count is zero no update attempt is made and the method returns.
+   *
+   * @param mem the given Memory containing the longs to be presented.
+   * @param offsetBytes the offset in bytes of the first long to be presented.
+   * @param count the number of longs to be presented.
+   */
+  public void updateAll(Memory mem, long offsetBytes, int count) {
+    if (mem == null) { return; }
+    if ((offsetBytes < 0) || (count < 0)
+        || ((offsetBytes + ((long) count << 3)) > mem.getCapacity())) {
+      throw new SketchesArgumentException("Invalid batch: offsetBytes: " + offsetBytes
+          + ", count: " + count + ", capacity: " + mem.getCapacity());
+    }
+    if (count == 0) { return; }
+    final long[] hashes = new long[Math.min(count, BATCH_CHUNK_LONGS)];
+    for (int i = 0; i < count; i += hashes.length) {
+      final int len = Math.min(hashes.length, count - i);
+      hashEach(mem, offsetBytes + ((long) i << 3), len, getSeed(), hashes);
+      hashUpdateAll(hashes, filterHashes(hashes, len));
+    }
+  }
+
   //restricted methods
-  
+
+  /**
+   * Shifts the first <i>len</i> raw 64-bit hashes of the given array into the 63-bit hash space
+   * of the sketch and compacts the hashes that are less than the current theta to the front of
+   * the array.
+   *
+   * @param hashes on entry the raw hashes, on exit the accepted hashes.
+   * @param len the number of raw hashes.
+   * @return the number of accepted hashes.
+   */
+  private int filterHashes(final long[] hashes, final int len) {
+    final long thetaLong = getThetaLong();
+    int count = 0;
+    for (int i = 0; i < len; i++) {
+      final long hash = hashes[i] >>> 1;
+      if (HashOperations.continueCondition(thetaLong, hash)) { continue; }
+      hashes[count++] = hash;
+    }
+    return count;
+  }
+
+  /**
+   * Batch counterpart of {@link #hashUpdate(long)}. This is called once for every chunk of a
+   * batch update, even if no hashes were accepted, so that the sketch is marked as not empty.
+   * The given hashes were filtered against theta at the time they were computed, but theta may
+   * decrease while they are being inserted.
+   * <p>Don't ever call this unless you really know what you are doing!</p>
+   *
+   * @param hashes the given array of valid, non-negative hash values.
+   * @param count the number of hashes at the front of the array to be inserted.
+   */
+  abstract void hashUpdateAll(long[] hashes, int count);
+
   /**
    * All potential updates converge here.
    * <p>Don't ever call this unless you really know what you are doing!</p>
@@ -298,4 +444,18 @@ public abstract class UpdateSketch extends Sketch {
     return (lgTarget <= lgMin) ? lgMin : (lgRR == 0) ? lgTarget : (lgTarget - lgMin) % lgRR + lgMin;
   }
   
+  /**
+   * Checks that the range <i>[from, to)</i> is a valid range of an array of the given length.
+   * 
+   * @param from the start of the range, inclusive
+   * @param to the end of the range, exclusive
+   * @param length the length of the array
+   */
+  static final void checkBatchRange(int from, int to, int length) {
+    if ((from < 0) || (from > to) || (to > length)) {
+      throw new SketchesArgumentException("Invalid batch range: from: " + from + ", to: " + to 
+          + ", length: " + length);
+    }
+  }
+  
 }
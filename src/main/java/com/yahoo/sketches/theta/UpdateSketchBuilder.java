@@ -22,7 +22,9 @@ import com.yahoo.sketches.memory.Memory;
  * @author Lee Rhodes 
  */
 public class UpdateSketchBuilder {
+  private static final int DEFAULT_LOCAL_LG_NOM_LONGS = 4;
   private int bLgNomLongs;
+  private int bLocalLgNomLongs;
   private long bSeed;
   private ResizeFactor bRF;
   private Family bFam;
@@ -42,10 +44,12 @@ public class UpdateSketchBuilder {
    * <li>{@link com.yahoo.sketches.Family#QUICKSELECT}</li>
    * <li>Input Sampling Probability: 1.0</li>
    * <li>Memory: null</li>
+   * <li>Local Nominal Entries of concurrent buffers: 16</li>
    * </ul>
    */
   public UpdateSketchBuilder() {
     bLgNomLongs = Integer.numberOfTrailingZeros(DEFAULT_NOMINAL_ENTRIES);
+    bLocalLgNomLongs = DEFAULT_LOCAL_LG_NOM_LONGS;
     bSeed = DEFAULT_UPDATE_SEED;
     bP = (float) 1.0;
     bRF = ResizeFactor.X8;
@@ -72,6 +76,27 @@ public class UpdateSketchBuilder {
     return bLgNomLongs;
   }
   
+  /**
+   * Sets the Nominal Entries of the thread-local buffers built by buildLocal(UpdateSketch).
+   * A buffer propagates its hashes to the shared sketch each time it has accumulated this many.
+   * Larger values reduce contention on the shared sketch at the cost of a staler estimate.
+   * @param localNomEntries the local nominal entries. 
+   * This will become the ceiling power of 2 if it is not.
+   * @return this UpdateSketchBuilder
+   */
+  public UpdateSketchBuilder setLocalNominalEntries(int localNomEntries) {
+    bLocalLgNomLongs = Integer.numberOfTrailingZeros(ceilingPowerOf2(localNomEntries));
+    return this;
+  }
+  
+  /**
+   * Returns Log-base 2 Local Nominal Entries
+   * @return Log-base 2 Local Nominal Entries
+   */
+  public int getLocalLgNominalEntries() {
+    return bLocalLgNomLongs;
+  }
+  
   /**
    * Sets the long seed value that is required by the hashing function.
    * @param seed <a href="{@docRoot}/resources/dictionary.html#seed">See seed</a>
@@ -213,6 +238,46 @@ public class UpdateSketchBuilder {
     return build();
   }  
   
+  /**
+   * Returns a thread-safe QuickSelect UpdateSketch on the Java heap with the current 
+   * configuration of this Builder. This sketch is intended to be updated concurrently through 
+   * thread-local buffers obtained from {@link #buildLocal(UpdateSketch)}. Its getEstimate() 
+   * method never blocks.
+   * 
+   * <p>The Family must be QUICKSELECT and no destination Memory may be configured.</p>
+   * 
+   * @return a shared, thread-safe UpdateSketch
+   */
+  public UpdateSketch buildShared() {
+    if (bFam != Family.QUICKSELECT) {
+      throw new SketchesArgumentException(
+          "Only the QuickSelect Family can be built as a shared sketch: " + bFam.toString());
+    }
+    if (bDstMem != null) {
+      throw new SketchesArgumentException("A shared sketch cannot be made Direct to Memory.");
+    }
+    return new ConcurrentHeapQuickSelectSketch(bLgNomLongs, bSeed, bP, bRF);
+  }
+  
+  /**
+   * Returns a new thread-local buffer that feeds the given shared sketch. 
+   * The buffer must be confined to a single writer thread. It pre-filters updates against the 
+   * theta of the shared sketch and propagates the surviving hashes in the background each time 
+   * it holds the configured local nominal entries. Calling rebuild() on the buffer propagates the 
+   * remaining hashes and waits for completion.
+   * 
+   * @param shared a sketch obtained from {@link #buildShared()}
+   * @return a new thread-local buffer of the given shared sketch
+   */
+  public UpdateSketch buildLocal(UpdateSketch shared) {
+    if (!(shared instanceof ConcurrentHeapQuickSelectSketch)) {
+      throw new SketchesArgumentException(
+          "The given sketch was not built by buildShared(): " + shared);
+    }
+    return new ConcurrentHeapThetaBuffer(bLocalLgNomLongs, 
+        (ConcurrentHeapQuickSelectSketch) shared);
+  }
+  
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -223,7 +288,8 @@ public class UpdateSketchBuilder {
       .append("p:").append(TAB).append(bP).append(LS)
       .append("ResizeFactor:").append(TAB).append(bRF).append(LS)
       .append("Family:").append(TAB).append(bFam).append(LS)
-      .append("DstMemory:").append(TAB).append(bDstMem != null).append(LS);
+      .append("DstMemory:").append(TAB).append(bDstMem != null).append(LS)
+      .append("LocalLgK:").append(TAB).append(bLocalLgNomLongs).append(LS);
     return sb.toString();
   }
   
@@ -6,6 +6,7 @@
 package com.yahoo.sketches.tuple;
 
 import com.yahoo.sketches.hash.MurmurHash3;
+import com.yahoo.sketches.hash.MurmurHash3Hasher;
 import com.yahoo.sketches.memory.Memory;
 
 /**
@@ -28,7 +29,7 @@ public abstract class ArrayOfDoublesUpdatableSketch extends ArrayOfDoublesSketch
    * @param values The given values
    */
   public void update(final long key, final double[] values) {
-    update(new long[] {key}, values);
+    insertOrIgnore(MurmurHash3.hash(key, seed_) >>> 1, values);
   }
 
   /**
@@ -39,7 +40,7 @@ public abstract class ArrayOfDoublesUpdatableSketch extends ArrayOfDoublesSketch
    * @param values The given values
    */
   public void update(final double key, final double[] values) {
-    update(Util.doubleToLongArray(key), values);
+    insertOrIgnore(MurmurHash3.hash(key, seed_) >>> 1, values);
   }
 
   /**
@@ -89,6 +90,21 @@ public abstract class ArrayOfDoublesUpdatableSketch extends ArrayOfDoublesSketch
     insertOrIgnore(MurmurHash3.hash(key, seed_)[0] >>> 1, values);
   }
 
+  /**
+   * Updates this sketch with the key presented so far to the given hasher and double values.
+   * The hasher allows composite keys to be hashed without building a temporary array, and it is
+   * not reset. If the hasher is null or has not been presented any bytes the method returns.
+   * The values will be stored or added to the ones associated with the key 
+   * 
+   * @param hasher The given hasher, which must have the seed of this sketch
+   * @param values The given values
+   */
+  public void update(final MurmurHash3Hasher hasher, final double[] values) {
+    if (hasher == null || hasher.getLengthBytes() == 0) return;
+    hasher.checkSeed(seed_);
+    insertOrIgnore(hasher.finish64() >>> 1, values);
+  }
+
   /**
    * Gets the configured nominal number of entries
    * @return nominal number of entries
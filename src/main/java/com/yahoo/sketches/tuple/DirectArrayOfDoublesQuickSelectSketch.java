@@ -15,6 +15,7 @@ import com.yahoo.sketches.HashOperations;
 import com.yahoo.sketches.SketchesArgumentException;
 import com.yahoo.sketches.memory.Memory;
 import com.yahoo.sketches.memory.NativeMemory;
+import com.yahoo.sketches.memory.UncheckedMemory;
 
 /**
  * Direct QuickSelect tuple sketch of type ArrayOfDoubles.
@@ -26,6 +27,8 @@ final class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSel
 
   // these values exist only on heap, never serialized
   private Memory mem_;
+  // mem_, once the hash table and values are known to fit, for the hash table probes and values
+  private UncheckedMemory fastMem_;
   // these can be derived from the mem_ contents, but are kept here for performance
   private int keysOffset_;
   private int valuesOffset_;
@@ -57,6 +60,7 @@ final class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSel
       Integer.numberOfTrailingZeros(MIN_NOM_ENTRIES)
     );
     checkIfEnoughMemory(dstMem, startingCapacity, numValues);
+    fastMem_ = UncheckedMemory.wrap(dstMem);
     mem_.putByte(PREAMBLE_LONGS_BYTE, (byte) 1);
     mem_.putByte(SERIAL_VERSION_BYTE, serialVersionUID);
     mem_.putByte(FAMILY_ID_BYTE, (byte) Family.TUPLE.getID());
@@ -111,6 +115,8 @@ final class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSel
     valuesOffset_ = keysOffset_ + SIZE_OF_KEY_BYTES * getCurrentCapacity();
     // to do: make parent take care of its own parts
     lgCurrentCapacity_ = Integer.numberOfTrailingZeros(getCurrentCapacity());
+    checkIfEnoughMemory(mem_, getCurrentCapacity(), numValues_);
+    fastMem_ = UncheckedMemory.wrap(mem_);
     theta_ = mem_.getLong(THETA_LONG);
     isEmpty_ = mem_.isAllBitsSet(FLAGS_BYTE, (byte) (1 << Flags.IS_EMPTY.ordinal()));
     setRebuildThreshold();
@@ -190,7 +196,7 @@ final class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSel
   protected void setValues(final int index, final double[] values) {
     long offset = valuesOffset_ + SIZE_OF_VALUE_BYTES * numValues_ * index;
     for (int i = 0; i < numValues_; i++) {
-      mem_.putDouble(offset, values[i]);
+      fastMem_.putDouble(offset, values[i]);
       offset += SIZE_OF_VALUE_BYTES;
     }
   }
@@ -199,7 +205,7 @@ final class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSel
   protected void updateValues(final int index, final double[] values) {
     long offset = valuesOffset_ + SIZE_OF_VALUE_BYTES * numValues_ * index;
     for (int i = 0; i < numValues_; i++) {
-      mem_.putDouble(offset, mem_.getDouble(offset) + values[i]);
+      fastMem_.putDouble(offset, fastMem_.getDouble(offset) + values[i]);
       offset += SIZE_OF_VALUE_BYTES;
     }
   }
@@ -243,17 +249,17 @@ final class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSel
 
   @Override
   protected int insertKey(final long key) {
-    return HashOperations.hashInsertOnly(mem_, lgCurrentCapacity_, key, ENTRIES_START);
+    return HashOperations.hashInsertOnly(fastMem_, lgCurrentCapacity_, key, ENTRIES_START);
   }
 
   @Override
   protected int findOrInsertKey(final long key) {
-    return HashOperations.hashSearchOrInsert(mem_, lgCurrentCapacity_, key, ENTRIES_START);
+    return HashOperations.hashSearchOrInsert(fastMem_, lgCurrentCapacity_, key, ENTRIES_START);
   }
 
   @Override
   protected double[] find(final long key) {
-    final int index = HashOperations.hashSearch(mem_, lgCurrentCapacity_, key, ENTRIES_START);
+    final int index = HashOperations.hashSearch(fastMem_, lgCurrentCapacity_, key, ENTRIES_START);
     if (index == -1) return null;
     final double[] array = new double[numValues_];
     mem_.getDoubleArray(valuesOffset_ + SIZE_OF_VALUE_BYTES * numValues_ * index, 
@@ -8,6 +8,7 @@ package com.yahoo.sketches.tuple;
 import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
 
 import com.yahoo.sketches.hash.MurmurHash3;
+import com.yahoo.sketches.hash.MurmurHash3Hasher;
 import com.yahoo.sketches.memory.Memory;
 
 /**
@@ -62,7 +63,7 @@ public class UpdatableSketch<U, S extends UpdatableSummary<U>> extends QuickSele
    * @param value The given U value
    */
   public void update(final long key, final U value) {
-  update(new long[] {key}, value);
+    insertOrIgnore(MurmurHash3.hash(key, DEFAULT_UPDATE_SEED) >>> 1, value);
   }
 
   /**
@@ -73,7 +74,7 @@ public class UpdatableSketch<U, S extends UpdatableSummary<U>> extends QuickSele
    * @param value The given U value
    */
   public void update(final double key, final U value) {
-    update(Util.doubleToLongArray(key), value);
+    insertOrIgnore(MurmurHash3.hash(key, DEFAULT_UPDATE_SEED) >>> 1, value);
   }
 
   /**
@@ -123,6 +124,21 @@ public class UpdatableSketch<U, S extends UpdatableSummary<U>> extends QuickSele
     insertOrIgnore(MurmurHash3.hash(key, DEFAULT_UPDATE_SEED)[0] >>> 1, value);
   }
 
+  /**
+   * Updates this sketch with the key presented so far to the given hasher and a U value.
+   * The hasher allows composite keys to be hashed without building a temporary array, and it is
+   * not reset. If the hasher is null or has not been presented any bytes the method returns.
+   * The value is passed to update() method of the Summary object associated with the key 
+   * 
+   * @param hasher The given hasher, which must have the default update seed
+   * @param value The given U value
+   */
+  public void update(final MurmurHash3Hasher hasher, final U value) {
+    if (hasher == null || hasher.getLengthBytes() == 0) return;
+    hasher.checkSeed(DEFAULT_UPDATE_SEED);
+    insertOrIgnore(hasher.finish64() >>> 1, value);
+  }
+
   private void insertOrIgnore(final long key, final U value) {
     setNotEmpty();
     if (key >= getThetaLong()) return;
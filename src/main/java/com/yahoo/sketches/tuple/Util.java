@@ -33,12 +33,6 @@ final class Util {
     return lgStart;
   }
 
-  static final long[] doubleToLongArray(final double value) {
-    final double d = (value == 0.0) ? 0.0 : value; // canonicalize -0.0, 0.0
-    final long[] array = { Double.doubleToLongBits(d) }; // canonicalize all NaN forms
-    return array;
-  }
-
   static final byte[] stringToByteArray(final String value) {
     if (value == null || value.isEmpty()) return null;
     return value.getBytes(UTF_8);
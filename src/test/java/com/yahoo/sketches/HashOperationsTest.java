@@ -114,6 +114,18 @@ public class HashOperationsTest {
     assertEquals(table[2], 1L);
   }
 
+  @Test
+  public void testHashSearchOrInsertCASMemory() {
+    long[] table = new long[32];
+    table[1] = 1;
+    Memory mem = new NativeMemory(table);
+    int index = hashSearchOrInsertCAS(mem, 5, 1, 0); //duplicate
+    assertEquals(index, 1);
+    index = hashSearchOrInsertCAS(mem, 5, 33, 0); //collides with 1, stride 3
+    assertEquals(index, ~4);
+    assertEquals(table[4], 33L);
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016, Yahoo! Inc. Licensed under the terms of the Apache License 2.0. See LICENSE file
+ * at the project root for terms.
+ */
+
+package com.yahoo.sketches.frequencies;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+
+public class ConcurrentLongsSketchTest {
+
+  @Test
+  public void checkConcurrentUpdates() throws InterruptedException {
+    final int numThreads = 8;
+    final int perThread = 50000;
+    final ConcurrentLongsSketch sketch = new ConcurrentLongsSketch(1 << 7, 4);
+    assertTrue(sketch.isEmpty());
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int seed = t;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perThread; i++) {
+            //items 0 to 9 are heavy hitters, the rest is a long tail
+            long item = (i % 2 == 0) ? (i / 2) % 10 : 1000 + (seed * perThread) + i;
+            sketch.update(item);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) { thread.join(); }
+
+    assertEquals(sketch.getStreamLength(), (long) numThreads * perThread);
+    long trueCount = (long) numThreads * perThread / 20;
+    for (int item = 0; item < 10; item++) {
+      assertTrue(sketch.getLowerBound(item) <= trueCount);
+      assertTrue(sketch.getUpperBound(item) >= trueCount);
+      assertTrue(sketch.getEstimate(item) - sketch.getLowerBound(item)
+          <= sketch.getMaximumError());
+    }
+    LongsSketch result = sketch.getResult();
+    assertEquals(result.getStreamLength(), sketch.getStreamLength());
+    LongsSketch.Row[] rows = sketch.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES);
+    assertTrue(rows.length >= 10);
+    for (int item = 0; item < 10; item++) {
+      assertTrue(result.getUpperBound(item) >= trueCount);
+    }
+    sketch.reset();
+    assertTrue(sketch.isEmpty());
+  }
+
+  @Test
+  public void checkSingleShardMatchesLongsSketch() {
+    ConcurrentLongsSketch sketch = new ConcurrentLongsSketch(1 << 5, 1);
+    LongsSketch expected = new LongsSketch(1 << 5);
+    for (int i = 0; i < 10000; i++) {
+      long item = DistTest.randomGeometricDist(0.05);
+      sketch.update(item, 2);
+      expected.update(item, 2);
+    }
+    assertEquals(sketch.getNumShards(), 1);
+    assertEquals(sketch.getMaximumError(), expected.getMaximumError());
+    for (int item = 0; item < 100; item++) {
+      assertEquals(sketch.getEstimate(item), expected.getEstimate(item));
+    }
+  }
+
+  @Test
+  public void checkDefaultShards() {
+    ConcurrentLongsSketch sketch = new ConcurrentLongsSketch(1 << 4);
+    assertTrue(Integer.bitCount(sketch.getNumShards()) == 1);
+    assertTrue(sketch.getNumShards() >= Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNumShardsNotPowerOf2() {
+    new ConcurrentLongsSketch(1 << 4, 3);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNegativeCount() {
+    new ConcurrentLongsSketch(1 << 4, 2).update(1, -1);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
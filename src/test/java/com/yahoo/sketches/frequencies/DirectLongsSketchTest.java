@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016, Yahoo! Inc. Licensed under the terms of the Apache License 2.0. See LICENSE file
+ * at the project root for terms.
+ */
+
+package com.yahoo.sketches.frequencies;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.AllocMemory;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class DirectLongsSketchTest {
+
+  @Test
+  public void checkMatchesHeapWithoutPurge() {
+    int maxMapSize = 1 << 6;
+    Memory mem = new NativeMemory(new byte[(int) DirectLongsSketch.getRequiredBytes(maxMapSize)]);
+    DirectLongsSketch direct = DirectLongsSketch.initNew(maxMapSize, mem);
+    LongsSketch heap = new LongsSketch(maxMapSize);
+    assertTrue(direct.isEmpty());
+    for (int i = 0; i < 1000; i++) {
+      direct.update(i % 40, i % 3);
+      heap.update(i % 40, i % 3);
+    }
+    assertEquals(direct.getStreamLength(), heap.getStreamLength());
+    assertEquals(direct.getMaximumError(), 0);
+    assertEquals(direct.getNumActiveItems(), heap.getNumActiveItems());
+    for (int item = 0; item < 50; item++) {
+      assertEquals(direct.getEstimate(item), heap.getEstimate(item));
+      assertEquals(direct.getUpperBound(item), heap.getUpperBound(item));
+      assertEquals(direct.getLowerBound(item), heap.getLowerBound(item));
+    }
+    assertEquals(direct.getFrequentItems(ErrorType.NO_FALSE_POSITIVES),
+        heap.getFrequentItems(ErrorType.NO_FALSE_POSITIVES));
+  }
+
+  @Test
+  public void checkPurgeBounds() {
+    int maxMapSize = 1 << 5;
+    Memory mem = new NativeMemory(new byte[(int) DirectLongsSketch.getRequiredBytes(maxMapSize)]);
+    DirectLongsSketch sketch = DirectLongsSketch.initNew(maxMapSize, mem);
+    int n = 100000;
+    long[] trueCounts = new long[200];
+    for (int i = 0; i < n; i++) {
+      int item = (i % 2 == 0) ? (i / 2) % 5 : 5 + (i % 195);
+      sketch.update(item);
+      trueCounts[item]++;
+    }
+    assertEquals(sketch.getStreamLength(), n);
+    assertTrue(sketch.getMaximumError() > 0);
+    assertTrue(sketch.getNumActiveItems() <= sketch.getMaximumMapCapacity());
+    for (int item = 0; item < trueCounts.length; item++) {
+      assertTrue(sketch.getLowerBound(item) <= trueCounts[item]);
+      assertTrue(sketch.getUpperBound(item) >= trueCounts[item]);
+    }
+    LongsSketch.Row[] rows = sketch.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertTrue(rows.length >= 5);
+    for (int i = 1; i < rows.length; i++) {
+      assertTrue(rows[i - 1].getEstimate() >= rows[i].getEstimate());
+    }
+  }
+
+  @Test
+  public void checkMapPurgeMatchesHeapMap() {
+    int mapSize = 1 << 8;
+    Random rand = new Random(1);
+    long tableBytes = DirectReversePurgeLongHashMap.getTableBytes(mapSize);
+    Memory mem = new NativeMemory(new byte[32 + (int) tableBytes]);
+    DirectReversePurgeLongHashMap direct = new DirectReversePurgeLongHashMap(mem, 32, 8);
+    direct.clear();
+    ReversePurgeLongHashMap heap = new ReversePurgeLongHashMap(mapSize);
+    for (int purges = 0; purges < 5; purges++) {
+      while (direct.getNumActive() < direct.getCapacity()) {
+        long key = rand.nextInt(1000);
+        long value = 1 + rand.nextInt(100);
+        direct.adjustOrPutValue(key, value);
+        heap.adjustOrPutValue(key, value);
+      }
+      assertEquals(direct.purge(64), heap.purge(64));
+      assertEquals(direct.getNumActive(), heap.getNumActive());
+      for (long key = 0; key < 1000; key++) {
+        assertEquals(direct.get(key), heap.get(key));
+      }
+    }
+  }
+
+  @Test
+  public void checkWrapAndHeapify() {
+    int maxMapSize = 1 << 4;
+    Memory mem = new NativeMemory(new byte[(int) DirectLongsSketch.getRequiredBytes(maxMapSize)]);
+    DirectLongsSketch sketch1 = DirectLongsSketch.initNew(maxMapSize, mem);
+    for (int i = 0; i < 500; i++) { sketch1.update(i % 30); }
+
+    DirectLongsSketch sketch2 = DirectLongsSketch.wrap(mem);
+    assertEquals(sketch2.getStreamLength(), 500);
+    assertEquals(sketch2.getMaximumError(), sketch1.getMaximumError());
+    sketch2.update(7, 100);
+    assertEquals(sketch1.getStreamLength(), 600);
+    assertEquals(sketch1.getEstimate(7), sketch2.getEstimate(7));
+
+    LongsSketch heap1 = LongsSketch.getInstance(mem);
+    LongsSketch heap2 = LongsSketch.getInstance(new NativeMemory(sketch1.toByteArray()));
+    LongsSketch heap3 = sketch1.toHeap();
+    assertEquals(heap1.getStreamLength(), 600);
+    assertEquals(heap2.getStreamLength(), 600);
+    assertEquals(heap1.getMaximumError(), sketch1.getMaximumError());
+    for (int item = 0; item < 30; item++) {
+      assertEquals(heap1.getEstimate(item), sketch1.getEstimate(item));
+      assertEquals(heap2.getEstimate(item), sketch1.getEstimate(item));
+      assertEquals(heap3.getEstimate(item), sketch1.getEstimate(item));
+    }
+    println(sketch1.toString());
+
+    sketch1.reset();
+    assertTrue(sketch2.isEmpty());
+    assertEquals(sketch2.getStreamLength(), 0);
+    assertTrue(LongsSketch.getInstance(new NativeMemory(sketch2.toByteArray())).isEmpty());
+  }
+
+  @Test
+  public void checkMerge() {
+    int maxMapSize = 1 << 5;
+    Memory mem1 = new NativeMemory(new byte[(int) DirectLongsSketch.getRequiredBytes(maxMapSize)]);
+    Memory mem2 = new NativeMemory(new byte[(int) DirectLongsSketch.getRequiredBytes(maxMapSize)]);
+    DirectLongsSketch direct1 = DirectLongsSketch.initNew(maxMapSize, mem1);
+    DirectLongsSketch direct2 = DirectLongsSketch.initNew(maxMapSize, mem2);
+    LongsSketch heap = new LongsSketch(maxMapSize);
+    for (int i = 0; i < 10000; i++) {
+      direct1.update(DistTest.randomGeometricDist(0.05));
+      direct2.update(DistTest.randomGeometricDist(0.05) + 10);
+      heap.update(DistTest.randomGeometricDist(0.05) + 20);
+    }
+    long error = direct1.getMaximumError() + direct2.getMaximumError() + heap.getMaximumError();
+    direct1.merge(direct2).merge(heap);
+    assertEquals(direct1.getStreamLength(), 30000);
+    assertTrue(direct1.getMaximumError() >= error);
+    assertTrue(direct1.getNumActiveItems() <= direct1.getMaximumMapCapacity());
+    assertEquals(direct1.merge((LongsSketch) null).getStreamLength(), 30000);
+    assertEquals(direct1.merge(new LongsSketch(8)).getStreamLength(), 30000);
+  }
+
+  @Test
+  public void checkOffHeap() {
+    int maxMapSize = 1 << 8;
+    NativeMemory mem = new AllocMemory(DirectLongsSketch.getRequiredBytes(maxMapSize));
+    DirectLongsSketch sketch = DirectLongsSketch.initNew(maxMapSize, mem);
+    for (int i = 0; i < 10000; i++) { sketch.update(i % 300); }
+    assertEquals(sketch.getStreamLength(), 10000);
+    assertFalse(sketch.isEmpty());
+    assertTrue(sketch.getMemory() == mem);
+    mem.freeMemory();
+  }
+
+  @Test
+  public void checkRequiredBytes() {
+    assertEquals(DirectLongsSketch.getRequiredBytes(8), 32 + (18 * 8));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkMemoryTooSmall() {
+    DirectLongsSketch.initNew(1 << 4, new NativeMemory(new byte[100]));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkMapSizeTooSmall() {
+    DirectLongsSketch.getRequiredBytes(4);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkWrapHeapImage() {
+    LongsSketch heap = new LongsSketch(1 << 4);
+    heap.update(1);
+    DirectLongsSketch.wrap(new NativeMemory(heap.toByteArray()));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNegativeCount() {
+    Memory mem = new NativeMemory(new byte[(int) DirectLongsSketch.getRequiredBytes(8)]);
+    DirectLongsSketch.initNew(8, mem).update(1, -1);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
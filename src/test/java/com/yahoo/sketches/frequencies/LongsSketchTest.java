@@ -497,6 +497,63 @@ public class LongsSketchTest {
     printSketch(size, new long[] {5, 4, 3, 2, 1, 1, 1, 1, 1, 1, 1});
   }
 
+  @Test
+  public void checkBatchUpdateNoPurge() {
+    LongsSketch expected = new LongsSketch(1 << 12);
+    LongsSketch batched = new LongsSketch(1 << 12);
+    long[] items = new long[5000];
+    long[] counts = new long[items.length];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = (i * 7) % 1000;
+      counts[i] = i % 4;
+      expected.update(items[i], counts[i]);
+    }
+    batched.update(items, counts, 0, 2000);
+    batched.update(items, counts, 2000, items.length);
+    assertEquals(batched.getStreamLength(), expected.getStreamLength());
+    assertEquals(batched.getNumActiveItems(), expected.getNumActiveItems());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(batched.getEstimate(i), expected.getEstimate(i));
+    }
+    LongsSketch ones = new LongsSketch(1 << 12);
+    ones.update(items, 10, 10); //empty range
+    assertTrue(ones.isEmpty());
+    ones.update(items, 0, items.length);
+    assertEquals(ones.getStreamLength(), items.length);
+    assertEquals(ones.getEstimate(0), 5);
+  }
+
+  @Test
+  public void checkBatchUpdateSkewedWithPurges() {
+    LongsSketch sketch = new LongsSketch(1 << 6);
+    long[] items = new long[100000];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = randomGeometricDist(0.01);
+    }
+    sketch.update(items, 0, items.length);
+    assertEquals(sketch.getStreamLength(), items.length);
+    long[] trueCounts = new long[2000];
+    for (long item : items) {
+      if (item < trueCounts.length) { trueCounts[(int) item]++; }
+    }
+    for (int i = 0; i < trueCounts.length; i++) {
+      assertTrue(sketch.getLowerBound(i) <= trueCounts[i]);
+      assertTrue(sketch.getUpperBound(i) >= trueCounts[i]);
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBatchUpdateNegativeCount() {
+    LongsSketch sketch = new LongsSketch(1 << 6);
+    sketch.update(new long[] {1, 2}, new long[] {1, -1}, 0, 2);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBatchUpdateBadRange() {
+    LongsSketch sketch = new LongsSketch(1 << 6);
+    sketch.update(new long[4], 3, 2);
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: " + this.getClass().getName());
@@ -5,7 +5,12 @@
 
 package com.yahoo.sketches.frequencies;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
 
 import org.testng.annotations.Test;
 
@@ -25,4 +30,77 @@ public class ReversePurgeLongHashMapTest {
     assertNull(map.getActiveValues());
   }
 
+  @Test
+  public void checkIncrementalPurgeMatchesPurge() {
+    int mapSize = 1 << 10;
+    Random rand = new Random(1);
+    ReversePurgeLongHashMap map1 = new ReversePurgeLongHashMap(mapSize);
+    ReversePurgeLongHashMap map2 = new ReversePurgeLongHashMap(mapSize);
+    while (map1.getNumActive() < map1.getCapacity()) {
+      long key = rand.nextLong();
+      long value = 1 + rand.nextInt(100);
+      map1.adjustOrPutValue(key, value);
+      map2.adjustOrPutValue(key, value);
+    }
+    long[] keys = map1.getActiveKeys();
+    assertEquals(map2.purgeIncrementally(64), map1.purge(64));
+    assertTrue(map2.isPurging());
+    assertEquals(map2.getNumOccupied(), keys.length);
+    for (long key : keys) {
+      assertEquals(map2.get(key), map1.get(key));
+    }
+
+    // new keys and dead keys that are updated again are live while the sweep progresses
+    int step = 0;
+    while (map2.isPurging()) {
+      long key = (step % 2 == 0) ? rand.nextLong() : keys[step];
+      map1.adjustOrPutValue(key, 5);
+      map2.adjustOrPutValue(key, 5);
+      assertTrue(map2.getNumOccupied() <= map2.getCapacity() + (mapSize / 16) + 1);
+      step++;
+    }
+    assertTrue(step <= mapSize / 8);
+    assertEquals(map2.getNumOccupied(), map1.getNumActive());
+    for (long key : map1.getActiveKeys()) {
+      assertEquals(map2.get(key), map1.get(key));
+    }
+  }
+
+  @Test
+  public void checkFinishPurge() {
+    ReversePurgeLongHashMap map = new ReversePurgeLongHashMap(64);
+    for (int i = 1; i <= map.getCapacity(); i++) {
+      map.adjustOrPutValue(i, i);
+    }
+    long median = map.purgeIncrementally(1024);
+    assertTrue(map.isPurging());
+    assertEquals(map.get(1), 0);
+    assertEquals(map.getNumActive(), map.getCapacity() - median);
+    assertEquals(map.getActiveKeys().length, map.getCapacity() - median);
+    int count = 0;
+    ReversePurgeLongHashMap.Iterator iter = map.iterator();
+    while (iter.next()) {
+      assertEquals(iter.getValue(), iter.getKey() - median);
+      count++;
+    }
+    assertEquals(count, map.getCapacity() - median);
+    //the accessors skip the dead keys without deleting them
+    assertTrue(map.isPurging());
+    assertEquals(map.getNumOccupied(), map.getCapacity());
+    map.serializeToString();
+    assertFalse(map.isPurging());
+    assertEquals(map.getNumOccupied(), map.getNumActive());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
 }
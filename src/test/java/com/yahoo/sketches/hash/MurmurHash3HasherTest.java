@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.hash;
+
+import static com.yahoo.sketches.Util.DEFAULT_UPDATE_SEED;
+import static com.yahoo.sketches.hash.MurmurHash3.hash;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.hll.HllSketch;
+import com.yahoo.sketches.theta.UpdateReturnState;
+import com.yahoo.sketches.theta.UpdateSketch;
+import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketch;
+import com.yahoo.sketches.tuple.ArrayOfDoublesUpdatableSketchBuilder;
+
+public class MurmurHash3HasherTest {
+
+  @Test
+  public void checkRandomFieldSequences() {
+    long seed = 12345;
+    Random rand = new Random(1);
+    MurmurHash3Hasher hasher = new MurmurHash3Hasher(seed);
+    ByteBuffer concat = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    long[] hashOut = new long[2];
+    for (int trial = 0; trial < 1000; trial++) {
+      hasher.reset();
+      concat.clear();
+      int fields = rand.nextInt(8);
+      for (int f = 0; f < fields; f++) {
+        switch (rand.nextInt(4)) {
+          case 0: {
+            byte b = (byte) rand.nextInt();
+            hasher.putByte(b);
+            concat.put(b);
+            break;
+          }
+          case 1: {
+            int v = rand.nextInt();
+            hasher.putInt(v);
+            concat.putInt(v);
+            break;
+          }
+          case 2: {
+            long v = rand.nextLong();
+            hasher.putLong(v);
+            concat.putLong(v);
+            break;
+          }
+          default: {
+            byte[] bytes = new byte[rand.nextInt(40)];
+            rand.nextBytes(bytes);
+            int off = rand.nextInt(bytes.length + 1);
+            int len = rand.nextInt((bytes.length - off) + 1);
+            hasher.putBytes(bytes, off, len);
+            concat.put(bytes, off, len);
+          }
+        }
+      }
+      byte[] expectedBytes = Arrays.copyOf(concat.array(), concat.position());
+      long[] expected = hash(expectedBytes, seed);
+      assertEquals(hasher.getLengthBytes(), expectedBytes.length);
+      assertEquals(hasher.finish(), expected);
+      assertEquals(hasher.finish(hashOut), expected);
+      assertEquals(hasher.finish64(), expected[0]);
+    }
+  }
+
+  @Test
+  public void checkLongsAndInts() {
+    long seed = 9001;
+    long[] longs = {1, -1, Long.MIN_VALUE, 42, 0, 7};
+    int[] ints = {1, -1, Integer.MIN_VALUE, 42, 0, 7, 9};
+    MurmurHash3Hasher hasher = new MurmurHash3Hasher(seed);
+    for (int n = 1; n <= longs.length; n++) {
+      hasher.reset();
+      for (int i = 0; i < n; i++) { hasher.putLong(longs[i]); }
+      assertEquals(hasher.finish(), hash(Arrays.copyOf(longs, n), seed));
+    }
+    for (int n = 1; n <= ints.length; n++) {
+      hasher.reset();
+      for (int i = 0; i < n; i++) { hasher.putInt(ints[i]); }
+      assertEquals(hasher.finish(), hash(Arrays.copyOf(ints, n), seed));
+    }
+  }
+
+  @Test
+  public void checkStrings() {
+    String[] strings = {"", "a", "tenant-17", "caf\u00e9", "\u4e2d\u6587\u5b57\u7b26\u4e32",
+        "emoji \ud83d\ude00 pair", "lone \ud83d high", "lone \ude00 low", "end \ud83d",
+        "\u0000\u007f\u0080\u07ff\u0800\uffff"};
+    MurmurHash3Hasher hasher = new MurmurHash3Hasher(DEFAULT_UPDATE_SEED);
+    for (String s : strings) {
+      hasher.reset().putString(s);
+      assertEquals(hasher.finish(), hash(s.getBytes(UTF_8), DEFAULT_UPDATE_SEED), s);
+    }
+  }
+
+  @Test
+  public void checkSketchUpdates() {
+    MurmurHash3Hasher hasher = new MurmurHash3Hasher(DEFAULT_UPDATE_SEED);
+    UpdateSketch theta1 = UpdateSketch.builder().build();
+    UpdateSketch theta2 = UpdateSketch.builder().build();
+    HllSketch hll1 = HllSketch.builder().setLogBuckets(10).setDenseMode(true).build();
+    HllSketch hll2 = HllSketch.builder().setLogBuckets(10).setDenseMode(true).build();
+    ArrayOfDoublesUpdatableSketch tuple1 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    ArrayOfDoublesUpdatableSketch tuple2 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    double[] values = {1.0};
+    for (int i = 0; i < 10000; i++) {
+      long[] key = {i % 7, i};
+      hasher.reset().putLong(key[0]).putLong(key[1]);
+      theta1.update(key);
+      theta2.update(hasher);
+      hll1.update(key);
+      hll2.update(hasher);
+      tuple1.update(key, values);
+      tuple2.update(hasher, values);
+    }
+    assertEquals(theta2.toByteArray(), theta1.toByteArray());
+    assertEquals(hll2.toByteArray(), hll1.toByteArray());
+    assertEquals(tuple2.getEstimate(), tuple1.getEstimate());
+    assertEquals(theta2.update(hasher.reset()), UpdateReturnState.RejectedNullOrEmpty);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSeedMismatch() {
+    UpdateSketch.builder().build().update(new MurmurHash3Hasher(123).putLong(1));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBytesOutOfRange() {
+    new MurmurHash3Hasher(0).putBytes(new byte[8], 4, 5);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -7,10 +7,19 @@ package com.yahoo.sketches.hash;
 import static com.yahoo.sketches.hash.MurmurHash3.hash;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.yahoo.sketches.SketchesArgumentException;
 import com.yahoo.sketches.hash.MurmurHash3;
+import com.yahoo.sketches.memory.AllocMemory;
+import com.yahoo.sketches.memory.MemoryRegion;
+import com.yahoo.sketches.memory.NativeMemory;
 
 /**
  * Tests the MurmurHash3 against specific, known hash results given known
@@ -214,6 +223,35 @@ public class MurmurHash3Test {
   }
   
   
+  @Test
+  public void checkPrimitiveLongHash() {
+    long[] hashOut = new long[2];
+    long[] keys = {0L, 1L, -1L, Long.MAX_VALUE, Long.MIN_VALUE, 0x0807060504030201L};
+    long[] seeds = {0L, 9001L, -1L};
+    for (long seed : seeds) {
+      for (long key : keys) {
+        long[] expected = hash(new long[] {key}, seed);
+        Assert.assertEquals(hash(key, seed), expected[0]);
+        Assert.assertEquals(hash(key, seed, hashOut), expected);
+      }
+    }
+  }
+
+  @Test
+  public void checkPrimitiveDoubleHash() {
+    long[] hashOut = new long[2];
+    double[] keys = {1.0, -1.5, Double.MAX_VALUE, Double.POSITIVE_INFINITY};
+    for (double key : keys) {
+      long[] expected = hash(new long[] {Double.doubleToLongBits(key)}, 9001L);
+      Assert.assertEquals(hash(key, 9001L), expected[0]);
+      Assert.assertEquals(hash(key, 9001L, hashOut), expected);
+    }
+    //canonicalization of -0.0 and NaN
+    Assert.assertEquals(hash(-0.0, 0L), hash(0.0, 0L));
+    Assert.assertEquals(hash(Double.longBitsToDouble(0x7ff0000000000001L), 0L),
+        hash(Double.NaN, 0L));
+  }
+
   //Helper methods
   private static long[] stringToLongs(String in) {
     byte[] bArr = in.getBytes(UTF_8);
@@ -253,6 +291,117 @@ public class MurmurHash3Test {
     return out;
   }
 
+  @Test
+  public void checkHashEachLongs() {
+    long seed = 9001;
+    long[] keys = new long[103];
+    for (int i = 0; i < keys.length; i++) { keys[i] = (i * 0x9E3779B97F4A7C15L) - 7; }
+    long[] out = new long[100];
+    for (int from = 0; from < 3; from++) {
+      MurmurHash3.hashEach(keys, from, from + 100, seed, out);
+      for (int i = 0; i < 100; i++) {
+        Assert.assertEquals(out[i], hash(new long[] {keys[from + i]}, seed)[0]);
+      }
+    }
+    MurmurHash3.hashEach(keys, 5, 5, seed, out); //empty range
+  }
+
+  @Test
+  public void checkHashEachInts() {
+    long seed = 9001;
+    int[] keys = new int[] {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 42, -42};
+    long[] out = new long[keys.length];
+    MurmurHash3.hashEach(keys, 0, keys.length, seed, out);
+    for (int i = 0; i < keys.length; i++) {
+      Assert.assertEquals(out[i], hash(new int[] {keys[i]}, seed)[0]);
+    }
+  }
+
+  @Test
+  public void checkHashEachMemory() {
+    long seed = 9001;
+    NativeMemory mem = new NativeMemory(new byte[8 * 21]);
+    for (int i = 0; i < 21; i++) { mem.putLong(i << 3, i * 31L); }
+    long[] out = new long[20];
+    MurmurHash3.hashEach(new MemoryRegion(mem, 8, 8 * 20), 0, 20, seed, out);
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(out[i], hash((i + 1) * 31L, seed));
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkHashEachBadRange() {
+    MurmurHash3.hashEach(new long[4], 2, 5, 0, new long[4]);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkHashEachOutputTooSmall() {
+    MurmurHash3.hashEach(new int[4], 0, 4, 0, new long[3]);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkHashEachMemoryOutOfBounds() {
+    MurmurHash3.hashEach(new NativeMemory(new byte[32]), 8, 4, 0, new long[4]);
+  }
+
+  @Test
+  public void checkHashMemoryAndByteBufferRegions() {
+    long seed = 9001;
+    byte[] bytes = new byte[64];
+    for (int i = 0; i < bytes.length; i++) { bytes[i] = (byte) ((i * 37) + 11); }
+    NativeMemory mem = new NativeMemory(bytes);
+    NativeMemory offHeap = new AllocMemory(bytes.length);
+    offHeap.putByteArray(0, bytes, 0, bytes.length);
+    ByteBuffer heapBuf = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+    ByteBuffer directBuf = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+    directBuf.put(bytes);
+    for (int offset = 0; offset < 5; offset++) {
+      for (int len = 0; len <= 40; len++) {
+        long[] expected = hash(Arrays.copyOfRange(bytes, offset, offset + len), seed);
+        Assert.assertEquals(hash(mem, offset, len, seed), expected);
+        Assert.assertEquals(hash(offHeap, offset, len, seed), expected);
+        Assert.assertEquals(hash(new MemoryRegion(mem, offset, len + 1), 0, len, seed), expected);
+        Assert.assertEquals(hash(heapBuf, offset, len, seed), expected);
+        Assert.assertEquals(hash(directBuf, offset, len, seed), expected);
+      }
+    }
+    Assert.assertEquals(directBuf.position(), bytes.length); //absolute gets only
+    offHeap.freeMemory();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkHashMemoryOutOfBounds() {
+    hash(new NativeMemory(new byte[16]), 8, 9, 0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkHashByteBufferPastLimit() {
+    ByteBuffer buf = ByteBuffer.allocate(16);
+    buf.limit(8);
+    hash(buf, 0, 9, 0);
+  }
+
+  @Test
+  public void checkHashStringMatchesUtf8Bytes() {
+    long seed = 9001;
+    char[] alphabet = {'a', 'Z', '0', '\u00e9', '\u07ff', '\u0800', '\u4e2d', '\uffff',
+        '\ud83d', '\ude00'}; //includes both halves of a surrogate pair
+    Random rand = new Random(1);
+    long[] hashOut = new long[2];
+    for (int trial = 0; trial < 2000; trial++) {
+      char[] chars = new char[rand.nextInt(60)];
+      boolean ascii = rand.nextBoolean();
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = alphabet[rand.nextInt(ascii ? 3 : alphabet.length)];
+      }
+      String key = new String(chars);
+      long[] expected = hash(key.getBytes(UTF_8), seed);
+      Assert.assertEquals(hash(key, seed), expected, key);
+      Assert.assertEquals(hash(key, seed, hashOut), expected, key);
+      Assert.assertEquals(MurmurHash3.hash64(key, seed), expected[0], key);
+    }
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
@@ -10,8 +10,11 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import com.yahoo.sketches.memory.NativeMemory;
+
 public class HllSketchTest
 {
   @Test(dataProvider = "sketches")
@@ -38,6 +41,28 @@ public class HllSketchTest
     Assert.assertEquals(unioned.inversePowerOf2Sum(), sketch.inversePowerOf2Sum(), 0.0000001);
   }
 
+  @Test
+  public void testUpdateMemoryAndByteBufferRegions() {
+    HllSketch expected = HllSketch.builder().setLogBuckets(10).setDenseMode(true).build();
+    HllSketch fromMem = HllSketch.builder().setLogBuckets(10).setDenseMode(true).build();
+    HllSketch fromBuf = HllSketch.builder().setLogBuckets(10).setDenseMode(true).build();
+    byte[] bytes = new byte[256];
+    for (int i = 0; i < bytes.length; i++) { bytes[i] = (byte) i; }
+    NativeMemory mem = new NativeMemory(bytes);
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    for (int offset = 0; offset < 200; offset++) {
+      for (int len = 1; len < 40; len += 3) {
+        expected.update(Arrays.copyOfRange(bytes, offset, offset + len));
+        fromMem.update(mem, offset, len);
+        fromBuf.update(buf, offset, len);
+      }
+    }
+    fromMem.update((NativeMemory) null, 0, 1);
+    fromBuf.update(buf, 0, 0);
+    Assert.assertEquals(fromMem.toByteArray(), expected.toByteArray());
+    Assert.assertEquals(fromBuf.toByteArray(), expected.toByteArray());
+  }
+
   @Test
   public void testEmptyToByteArray() {
     HllSketch sketch = HllSketch.builder().setLogBuckets(10).setDenseMode(true).build();
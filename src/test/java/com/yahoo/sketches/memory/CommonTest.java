@@ -241,6 +241,19 @@ public class CommonTest {
     long newLong = mem.getLong(0);
     assertEquals(oldLong, 500);
     assertEquals(newLong, 501);
+    
+    mem.putInt(0, 500);
+    assertFalse(MemoryUtil.compareAndSwapInt(mem, 0, 499, 502));
+    assertEquals(mem.getInt(0), 500);
+    assertTrue(MemoryUtil.compareAndSwapInt(mem, 0, 500, 502));
+    assertEquals(mem.getInt(0), 502);
+    
+    mem.putLong(0, 500);
+    assertFalse(MemoryUtil.compareAndSwapLong(mem, 0, 499, 502));
+    assertEquals(mem.getLong(0), 500);
+    assertTrue(MemoryUtil.compareAndSwapLong(mem, 0, 500, 502));
+    assertEquals(mem.getLong(0), 502);
+    assertEquals(MemoryUtil.getLongVolatile(mem, 0), 502);
   }
   
   //enable println to visually check
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.memory;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.theta.UpdateSketch;
+
+public class MemoryPoolTest {
+
+  @Test
+  public void checkSizeClasses() {
+    MemoryPool pool = new MemoryPool(1 << 12);
+    assertEquals(pool.getClassBytes(pool.sizeClass(1)), 64);
+    assertEquals(pool.getClassBytes(pool.sizeClass(64)), 64);
+    assertEquals(pool.getClassBytes(pool.sizeClass(65)), 80);
+    assertEquals(pool.getClassBytes(pool.sizeClass(129)), 160);
+    assertEquals(pool.getClassBytes(pool.sizeClass(1000)), 1024);
+    assertEquals(pool.getClassBytes(pool.sizeClass(1025)), 1280);
+    assertEquals(pool.getClassBytes(pool.sizeClass(4096)), 4096);
+    for (int b = 1; b <= 4096; b++) {
+      long classBytes = pool.getClassBytes(pool.sizeClass(b));
+      assertTrue(classBytes >= b);
+      assertTrue((b <= 64) || (classBytes < (b * 1.25 + 16)));
+    }
+  }
+
+  @Test
+  public void checkRequestAndReuse() {
+    MemoryPool pool = new MemoryPool(1 << 12);
+    Memory mem1 = pool.request(100);
+    assertEquals(mem1.getCapacity(), 112);
+    assertTrue(mem1.getMemoryRequest() == pool);
+    mem1.putLong(0, 12345L);
+    assertEquals(pool.getNumSlabs(), 1);
+    assertEquals(pool.getNumBlocks(), 1);
+    assertEquals(pool.getAllocatedBytes(), 112);
+    assertEquals(pool.getRequestedBytes(), 100);
+    long address = mem1.getAddress(0);
+
+    pool.free(mem1);
+    assertEquals(mem1.getCapacity(), 0);
+    assertEquals(pool.getNumBlocks(), 0);
+    assertEquals(pool.getAllocatedBytes(), 0);
+    assertEquals(pool.getFreeBytes(), 1 << 12);
+
+    Memory mem2 = pool.request(112);
+    assertEquals(mem2.getAddress(0), address); //reused
+    assertEquals(mem2.getLong(0), 0L); //cleared
+    pool.freeAll();
+    assertEquals(pool.getNumSlabs(), 0);
+    assertEquals(pool.getReservedBytes(), 0);
+  }
+
+  @Test
+  public void checkNewSlabs() {
+    MemoryPool pool = new MemoryPool(1 << 12);
+    Memory[] mems = new Memory[100];
+    for (int i = 0; i < mems.length; i++) {
+      mems[i] = pool.request(1000);
+      mems[i].fill((byte) i);
+    }
+    assertEquals(pool.getNumSlabs(), 25);
+    for (int i = 0; i < mems.length; i++) {
+      assertEquals(mems[i].getByte(1023), (byte) i); //no overlaps
+    }
+    assertEquals(pool.getUtilization(), 100000.0 / (25 << 12), 0.0);
+
+    //the tail of the last slab goes to the free lists
+    Memory mem = pool.request(3000);
+    assertEquals(pool.getNumSlabs(), 26);
+    assertEquals(pool.getFreeBytes(), 4096 - 3072);
+    for (int i = 0; i < mems.length; i++) { pool.free(mems[i]); }
+    pool.free(mem);
+    assertEquals(pool.getNumBlocks(), 0);
+    assertEquals(pool.getFreeBytes(), pool.getReservedBytes());
+    println(pool.toString());
+    pool.freeAll();
+  }
+
+  @Test
+  public void checkLargeBlocks() {
+    MemoryPool pool = new MemoryPool(1 << 12);
+    Memory mem = pool.request(10000);
+    assertTrue(mem instanceof AllocMemory);
+    assertEquals(mem.getCapacity(), 10000);
+    assertEquals(pool.getNumSlabs(), 0);
+    assertEquals(pool.getReservedBytes(), 10000);
+    pool.free(mem);
+    assertEquals(pool.getReservedBytes(), 0);
+    assertEquals(mem.getCapacity(), 0);
+    pool.request(10000);
+    pool.freeAll();
+    assertEquals(pool.getReservedBytes(), 0);
+  }
+
+  @Test
+  public void checkRequestCopy() {
+    MemoryPool pool = new MemoryPool();
+    Memory mem1 = pool.request(64);
+    for (int i = 0; i < 8; i++) { mem1.putLong(i << 3, i + 1); }
+    Memory mem2 = pool.request(mem1, 32, 256);
+    for (int i = 0; i < 4; i++) { assertEquals(mem2.getLong(i << 3), i + 1); }
+    for (int i = 4; i < 32; i++) { assertEquals(mem2.getLong(i << 3), 0); }
+    pool.free(mem1, mem2);
+    assertEquals(pool.getNumBlocks(), 1);
+    pool.freeAll();
+  }
+
+  @Test
+  public void checkGrowingSketches() {
+    MemoryPool pool = new MemoryPool(1 << 16);
+    int k = 4096;
+    UpdateSketch[] sketches = new UpdateSketch[20];
+    for (int s = 0; s < sketches.length; s++) {
+      Memory mem = pool.request(512);
+      sketches[s] = UpdateSketch.builder().initMemory(mem).build(k);
+    }
+    for (int s = 0; s < sketches.length; s++) {
+      for (int i = 0; i < (s * 200); i++) { sketches[s].update(i); }
+    }
+    for (int s = 0; s < sketches.length; s++) {
+      assertEquals(sketches[s].getEstimate(), s * 200, 0.0);
+    }
+    assertEquals(pool.getNumBlocks(), sketches.length); //the old blocks were freed
+    println(pool.toString());
+    pool.freeAll();
+  }
+
+  @Test
+  public void checkForeignMemoryIgnored() {
+    MemoryPool pool = new MemoryPool();
+    NativeMemory mem = new NativeMemory(new byte[64]);
+    pool.free(mem);
+    assertEquals(mem.getCapacity(), 64);
+    MemoryPool pool2 = new MemoryPool();
+    Memory mem2 = pool2.request(64);
+    pool.free(mem2);
+    assertEquals(mem2.getCapacity(), 64);
+    pool2.freeAll();
+    pool2.free(mem2); //stale after freeAll()
+    assertEquals(pool2.getNumBlocks(), 0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkDoubleFree() {
+    MemoryPool pool = new MemoryPool();
+    Memory mem = pool.request(64);
+    pool.free(mem);
+    try {
+      pool.free(mem);
+    } finally {
+      pool.freeAll();
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSlabBytesNotPowerOf2() {
+    new MemoryPool(5000);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSlabBytesTooSmall() {
+    new MemoryPool(1024);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkZeroRequest() {
+    new MemoryPool().request(0);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -12,6 +12,8 @@ import static com.yahoo.sketches.memory.CommonTest.setGetPartialArraysWithOffset
 import static com.yahoo.sketches.memory.CommonTest.setGetTests;
 import static com.yahoo.sketches.memory.CommonTest.toHexStringAllMemTests;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static java.lang.Math.*;
 
@@ -338,6 +340,21 @@ public class MemoryRegionTest {
     
   }
   
+  @Test
+  public void checkCompareAndSwapThroughRegions() {
+    NativeMemory mem = new NativeMemory(new byte[64]);
+    Memory region = new MemoryRegion(new MemoryRegion(mem, 8, 48), 8, 32);
+    assertTrue(MemoryUtil.isCompareAndSwapSupported(mem));
+    assertTrue(MemoryUtil.isCompareAndSwapSupported(region));
+    region.putLong(8, 5L);
+    assertFalse(MemoryUtil.compareAndSwapLong(region, 8, 4L, 6L));
+    assertTrue(MemoryUtil.compareAndSwapLong(region, 8, 5L, 6L));
+    assertEquals(mem.getLong(24), 6L);
+    assertEquals(MemoryUtil.getLongVolatile(region, 8), 6L);
+    assertTrue(MemoryUtil.compareAndSwapInt(region, 0, 0, 7));
+    assertEquals(mem.getInt(16), 7);
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
@@ -527,6 +527,23 @@ public class NativeMemoryTest {
     new NativeMemory(byteArr);
   }
   
+  @Test
+  public void checkCopyLargerThanThreshold() {
+    int longs = (int) ((3 * UnsafeUtil.UNSAFE_COPY_THRESHOLD) / 8) + 1;
+    long[] srcArr = new long[longs];
+    for (int i = 0; i < longs; i++) { srcArr[i] = i; }
+    NativeMemory src = new NativeMemory(srcArr);
+    NativeMemory dst = new NativeMemory(new long[longs + 2]);
+    NativeMemory.copy(src, 0, dst, 8, longs << 3);
+    for (int i = 0; i < longs; i++) { assertEquals(dst.getLong((i + 1) << 3), i); }
+    assertEquals(dst.getLong((longs + 1) << 3), 0L);
+
+    NativeMemory mem = new NativeMemory(new long[2 * longs]);
+    mem.putLongArray(0, srcArr, 0, longs);
+    mem.copy(0, longs << 3, longs << 3);
+    for (int i = 0; i < longs; i++) { assertEquals(mem.getLong((longs + i) << 3), i); }
+  }
+  
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
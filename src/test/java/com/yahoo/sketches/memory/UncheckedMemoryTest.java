@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.memory;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+
+public class UncheckedMemoryTest {
+
+  @Test
+  public void checkHeapArrays() {
+    checkAccessors(new NativeMemory(new byte[256]));
+    checkAccessors(new NativeMemory(new long[32]));
+    checkAccessors(new NativeMemory(ByteBuffer.allocate(256)));
+  }
+
+  @Test
+  public void checkOffHeap() {
+    NativeMemory mem = new AllocMemory(256);
+    checkAccessors(mem);
+    mem.freeMemory();
+  }
+
+  @Test
+  public void checkRegions() {
+    NativeMemory mem = new NativeMemory(new byte[1024]);
+    MemoryRegion region = new MemoryRegion(mem, 128, 512);
+    MemoryRegion subRegion = new MemoryRegion(region, 64, 256);
+    checkAccessors(subRegion);
+    UncheckedMemory um = UncheckedMemory.wrap(subRegion);
+    um.putLong(0, 42L);
+    assertEquals(mem.getLong(128 + 64), 42L);
+
+    UncheckedMemory um2 = UncheckedMemory.wrap(mem, 8, 16);
+    assertEquals(um2.getCapacity(), 16);
+    um2.putLong(8, -1L);
+    assertEquals(mem.getLong(16), -1L);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkRegionOutOfBounds() {
+    UncheckedMemory.wrap(new NativeMemory(new byte[64]), 32, 64);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkFreedMemory() {
+    NativeMemory mem = new AllocMemory(64);
+    mem.freeMemory();
+    UncheckedMemory.wrap(mem);
+  }
+
+  private static void checkAccessors(Memory mem) {
+    UncheckedMemory um = UncheckedMemory.wrap(mem);
+    assertTrue(um.getMemory() == mem);
+    assertEquals(um.getCapacity(), mem.getCapacity());
+    um.putLong(0, 0x0102030405060708L);
+    assertEquals(mem.getLong(0), 0x0102030405060708L);
+    assertEquals(um.getLong(0), 0x0102030405060708L);
+    um.putInt(8, 12345);
+    assertEquals(mem.getInt(8), 12345);
+    assertEquals(um.getInt(8), 12345);
+    um.putByte(12, (byte) -3);
+    assertEquals(mem.getByte(12), (byte) -3);
+    assertEquals(um.getByte(12), (byte) -3);
+    um.putShort(14, (short) -12345);
+    assertEquals(mem.getShort(14), (short) -12345);
+    assertEquals(um.getShort(14), (short) -12345);
+    um.putDouble(16, 1.5);
+    assertEquals(mem.getDouble(16), 1.5);
+    assertEquals(um.getDouble(16), 1.5);
+    mem.putLong(248, 7L);
+    assertEquals(um.getLong(248), 7L);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
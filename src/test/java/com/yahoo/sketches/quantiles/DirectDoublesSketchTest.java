@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+
+package com.yahoo.sketches.quantiles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.AllocMemory;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.MemoryPool;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class DirectDoublesSketchTest {
+
+  @BeforeMethod
+  public void setUp() {
+    DoublesSketch.rand.setSeed(32749); // make sketches deterministic for testing
+  }
+
+  @Test
+  public void checkMatchesHeap() {
+    int k = 16;
+    int n = 1000;
+    DoublesSketch.rand.setSeed(7);
+    DoublesSketch heap = DoublesSketch.builder().build(k);
+    for (int i = 0; i < n; i++) { heap.update(n - i); }
+
+    DoublesSketch.rand.setSeed(7);
+    Memory mem = new NativeMemory(new byte[(int) DirectDoublesSketch.getUpdatableStorageBytes(k, n)]);
+    DoublesSketch direct = DoublesSketch.builder().initMemory(mem).build(k);
+    assertTrue(direct instanceof DirectDoublesSketch);
+    assertTrue(direct.isEmpty());
+    for (int i = 0; i < n; i++) { direct.update(n - i); }
+
+    assertEquals(direct.getN(), heap.getN());
+    assertEquals(direct.getMinValue(), 1.0);
+    assertEquals(direct.getMaxValue(), (double) n);
+    assertEquals(direct.getBaseBufferCount(), heap.getBaseBufferCount());
+    assertEquals(direct.getBitPattern(), heap.getBitPattern());
+    assertEquals(direct.getRetainedItems(), heap.getRetainedItems());
+    assertEquals(direct.toByteArray(true), heap.toByteArray(true));
+    double[] fractions = {0.0, 0.1, 0.25, 0.5, 0.75, 0.9, 1.0};
+    assertEquals(direct.getQuantiles(fractions), heap.getQuantiles(fractions));
+    double[] splitPoints = {100, 500, 900};
+    assertEquals(direct.getPMF(splitPoints), heap.getPMF(splitPoints));
+    assertEquals(direct.getCDF(splitPoints), heap.getCDF(splitPoints));
+    double[] manySplitPoints = new double[60]; //sorts the base buffer
+    for (int i = 0; i < manySplitPoints.length; i++) { manySplitPoints[i] = 10 + (16 * i); }
+    assertEquals(direct.getPMF(manySplitPoints), heap.getPMF(manySplitPoints));
+  }
+
+  @Test
+  public void checkQuantilesWithinError() {
+    int k = 128;
+    int n = 100000;
+    Memory mem = new NativeMemory(new byte[(int) DirectDoublesSketch.getUpdatableStorageBytes(k, n)]);
+    DoublesSketch sketch = DirectDoublesSketch.newInstance(k, mem);
+    for (int i = 1; i <= n; i++) { sketch.update(i); }
+    sketch.update(Double.NaN); //ignored
+    assertEquals(sketch.getN(), n);
+    double eps = Util.EpsilonFromK.getAdjustedEpsilon(k);
+    for (int i = 1; i < 10; i++) {
+      double fraction = i / 10.0;
+      assertEquals(sketch.getQuantile(fraction), fraction * n, 2 * eps * n);
+    }
+    assertEquals(sketch.getQuantile(0.0), 1.0);
+    assertEquals(sketch.getQuantile(1.0), (double) n);
+  }
+
+  @Test
+  public void checkWrapAndHeapify() {
+    int k = 32;
+    Memory mem = new NativeMemory(new byte[(int) DirectDoublesSketch.getUpdatableStorageBytes(k, 2000)]);
+    DoublesSketch sketch1 = DirectDoublesSketch.newInstance(k, mem);
+    for (int i = 0; i < 1000; i++) { sketch1.update(i); }
+
+    DoublesSketch sketch2 = DoublesSketch.wrap(mem);
+    assertEquals(sketch2.getN(), 1000);
+    for (int i = 1000; i < 2000; i++) { sketch2.update(i); }
+    assertEquals(sketch1.getN(), 2000);
+    assertEquals(sketch1.getMaxValue(), 1999.0);
+    assertEquals(sketch1.getQuantile(0.5), sketch2.getQuantile(0.5));
+
+    DoublesSketch heap1 = DoublesSketch.heapify(mem);
+    DoublesSketch heap2 = DoublesSketch.heapify(new NativeMemory(sketch1.toByteArray()));
+    assertTrue(heap1 instanceof HeapDoublesSketch);
+    assertEquals(heap1.getN(), 2000);
+    assertEquals(heap1.toByteArray(), sketch1.toByteArray());
+    assertEquals(heap2.toByteArray(), sketch1.toByteArray());
+    assertEquals(heap1.getQuantile(0.5), sketch1.getQuantile(0.5));
+
+    byte[] byteArr = new byte[sketch1.getStorageBytes()];
+    sketch1.putMemory(new NativeMemory(byteArr));
+    assertEquals(byteArr, sketch1.toByteArray());
+    println(sketch1.toString(true, true));
+
+    sketch1.reset();
+    assertTrue(sketch2.isEmpty());
+    assertTrue(DoublesSketch.heapify(new NativeMemory(sketch2.toByteArray())).isEmpty());
+  }
+
+  @Test
+  public void checkGrowthThroughMemoryPool() {
+    int k = 16;
+    MemoryPool pool = new MemoryPool();
+    Memory mem = pool.request(DirectDoublesSketch.getUpdatableStorageBytes(k, 0));
+    DirectDoublesSketch direct = DirectDoublesSketch.newInstance(k, mem);
+    DoublesSketch.rand.setSeed(11);
+    for (int i = 0; i < 10000; i++) { direct.update(i); }
+    DoublesSketch.rand.setSeed(11);
+    DoublesSketch heap = DoublesSketch.builder().build(k);
+    for (int i = 0; i < 10000; i++) { heap.update(i); }
+
+    assertFalse(direct.getMemory() == mem);
+    assertTrue(direct.getMemory().getCapacity()
+        >= DirectDoublesSketch.getUpdatableStorageBytes(k, 10000));
+    assertEquals(pool.getNumBlocks(), 1);
+    assertEquals(direct.toByteArray(), heap.toByteArray());
+    pool.freeAll();
+  }
+
+  @Test
+  public void checkOffHeap() {
+    int k = 64;
+    NativeMemory mem = new AllocMemory(DirectDoublesSketch.getUpdatableStorageBytes(k, 10000));
+    DoublesSketch sketch = DoublesSketch.builder().initMemory(mem).build(k);
+    for (int i = 0; i < 10000; i++) { sketch.update(i); }
+    assertEquals(sketch.getN(), 10000);
+    assertEquals(sketch.getMinValue(), 0.0);
+    assertEquals(sketch.getMaxValue(), 9999.0);
+    mem.freeMemory();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkGrowthWithoutMemoryRequest() {
+    int k = 16;
+    Memory mem = new NativeMemory(new byte[(int) DirectDoublesSketch.getUpdatableStorageBytes(k, 0)]);
+    DoublesSketch sketch = DirectDoublesSketch.newInstance(k, mem);
+    for (int i = 0; i < 100; i++) { sketch.update(i); }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkMemoryTooSmall() {
+    DirectDoublesSketch.newInstance(16, new NativeMemory(new byte[16]));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkWrapHeapImage() {
+    DoublesSketch heap = DoublesSketch.builder().build(16);
+    for (int i = 0; i < 100; i++) { heap.update(i); }
+    DoublesSketch.wrap(new NativeMemory(heap.toByteArray()));
+  }
+
+  @Test
+  public void checkUnionAndDownSample() {
+    int k = 64;
+    Memory mem = new NativeMemory(new byte[(int) DirectDoublesSketch.getUpdatableStorageBytes(k, 5000)]);
+    DoublesSketch direct = DirectDoublesSketch.newInstance(k, mem);
+    for (int i = 0; i < 5000; i++) { direct.update(i); }
+
+    DoublesUnion union = DoublesUnion.builder().setK(k).build();
+    union.update(direct);
+    DoublesSketch result = union.getResult();
+    assertEquals(result.getN(), 5000);
+    assertEquals(result.getMaxValue(), 4999.0);
+    assertEquals(direct.getN(), 5000); //not modified by the union
+
+    DoublesSketch small = direct.downSample(16);
+    assertEquals(small.getK(), 16);
+    assertEquals(small.getN(), 5000);
+    assertEquals(small.getMinValue(), 0.0);
+    assertEquals(small.getMaxValue(), 4999.0);
+  }
+
+  @Test
+  public void checkBatchUpdate() {
+    int k = 16;
+    double[] items = new double[3000];
+    for (int i = 0; i < items.length; i++) { items[i] = (i * 31) % 1009; }
+    DoublesSketch.rand.setSeed(3);
+    DoublesSketch heap = DoublesSketch.builder().build(k);
+    heap.update(items, 100, items.length);
+    DoublesSketch.rand.setSeed(3);
+    Memory mem = new NativeMemory(new byte[(int) DirectDoublesSketch.getUpdatableStorageBytes(k, 3000)]);
+    DoublesSketch direct = DirectDoublesSketch.newInstance(k, mem);
+    direct.update(items, 100, items.length);
+    assertEquals(direct.toByteArray(), heap.toByteArray());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
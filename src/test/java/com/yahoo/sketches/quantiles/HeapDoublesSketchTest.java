@@ -904,6 +904,104 @@ public class HeapDoublesSketchTest {
     return qs;
   }
   
+  @Test
+  public void checkBatchUpdateMatchesItemUpdates() {
+    int k = 16;
+    double[] items = new double[10000];
+    for (int i = 0; i < items.length; i++) {
+      items[i] = (i % 97 == 0) ? Double.NaN : (i * 7919) % 10007;
+    }
+    int[][] ranges = {{0, 0}, {0, 5}, {3, 40}, {0, 32}, {17, 10000}, {0, 10000}};
+    for (int[] range : ranges) {
+      DoublesSketch.rand.setSeed(13);
+      DoublesSketch sketch1 = DoublesSketch.builder().build(k);
+      for (int i = range[0]; i < range[1]; i++) { sketch1.update(items[i]); }
+      DoublesSketch.rand.setSeed(13);
+      DoublesSketch sketch2 = DoublesSketch.builder().build(k);
+      sketch2.update(items, range[0], range[1]);
+      assertEquals(sketch2.getN(), sketch1.getN());
+      assertEquals(sketch2.getMinValue(), sketch1.getMinValue());
+      assertEquals(sketch2.getMaxValue(), sketch1.getMaxValue());
+      assertEquals(sketch2.toByteArray(), sketch1.toByteArray());
+    }
+  }
+
+  @Test
+  public void checkBatchUpdateInPieces() {
+    int k = 8;
+    double[] items = new double[1000];
+    for (int i = 0; i < items.length; i++) { items[i] = items.length - i; }
+    DoublesSketch.rand.setSeed(5);
+    DoublesSketch sketch1 = DoublesSketch.builder().build(k);
+    sketch1.update(items, 0, items.length);
+    DoublesSketch.rand.setSeed(5);
+    DoublesSketch sketch2 = DoublesSketch.builder().build(k);
+    sketch2.update(items, 0, 3);
+    sketch2.update(items, 3, 500);
+    sketch2.update(items, 500, items.length);
+    assertEquals(sketch2.toByteArray(), sketch1.toByteArray());
+    sketch2.update(null, 0, 10);
+    assertEquals(sketch2.getN(), items.length);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBatchUpdateBadRange() {
+    DoublesSketch sketch = DoublesSketch.builder().build(16);
+    sketch.update(new double[10], 5, 11);
+  }
+
+  @Test
+  public void checkCachedAuxiliaryMatchesHistogram() {
+    int k = 32;
+    HeapDoublesSketch qs = HeapDoublesSketch.getInstance(k);
+    for (int i = 0; i < 5000; i++) { qs.update((i * 7919) % 1000); }
+    int[] numSplitPointsArr = {1, 10, 49, 50, 200};
+    for (int numSplitPoints : numSplitPointsArr) {
+      double[] splitPoints = new double[numSplitPoints];
+      for (int j = 0; j < numSplitPoints; j++) { splitPoints[j] = (j * 1000.0) / numSplitPoints; }
+      long[] counters = DoublesUtil.internalBuildHistogram(splitPoints, qs);
+      double[] pmf = qs.getPMF(splitPoints);
+      double[] cdf = qs.getCDF(splitPoints);
+      long subtotal = 0;
+      for (int j = 0; j < counters.length; j++) {
+        subtotal += counters[j];
+        assertEquals(pmf[j], counters[j] / 5000.0);
+        assertEquals(cdf[j], subtotal / 5000.0);
+      }
+    }
+  }
+
+  @Test
+  public void checkCachedAuxiliaryInvalidation() {
+    HeapDoublesSketch qs = HeapDoublesSketch.getInstance(16);
+    for (int i = 0; i < 1000; i++) { qs.update(i); }
+    DoublesAuxiliary aux = qs.getAuxiliary();
+    qs.getQuantile(0.5);
+    qs.getCDF(new double[] {500});
+    assertTrue(qs.getAuxiliary() == aux);
+
+    qs.update(1000);
+    assertTrue(qs.aux_ == null);
+    assertEquals(qs.getAuxiliary().auxN_, 1001);
+    qs.update(new double[] {1001, 1002}, 0, 2);
+    assertTrue(qs.aux_ == null);
+    assertEquals(qs.getCDF(new double[] {2000})[0], 1.0);
+
+    DoublesUnion union = DoublesUnionBuilder.build(qs);
+    HeapDoublesSketch other = HeapDoublesSketch.getInstance(16);
+    for (int i = 0; i < 1000; i++) { other.update(-1 - i); }
+    qs.getQuantile(0.5);
+    union.update(other);
+    assertTrue(qs.aux_ == null);
+    assertEquals(qs.getAuxiliary().auxN_, 2003);
+    long[] counters = DoublesUtil.internalBuildHistogram(new double[] {0}, qs);
+    assertEquals(qs.getCDF(new double[] {0})[0], counters[0] / 2003.0);
+
+    qs.reset();
+    assertTrue(qs.aux_ == null);
+    assertTrue(Double.isNaN(qs.getQuantile(0.5)));
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());
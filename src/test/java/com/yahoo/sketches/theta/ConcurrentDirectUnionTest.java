@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class ConcurrentDirectUnionTest {
+
+  @Test
+  public void checkSingleThreadMatchesUnion() {
+    int k = 512;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    Union cu = SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+    assertTrue(cu.getResult().isEmpty());
+
+    for (int s = 0; s < 8; s++) {
+      UpdateSketch sk = UpdateSketch.builder().build(k);
+      for (int i = 0; i < 3000; i++) { sk.update((s * 1000) + i); } //overlapping
+      CompactSketch csk = sk.compact(s % 2 == 0, null);
+      cu.update(csk);
+      u.update(csk);
+    }
+    cu.update(1L);
+    u.update(1L);
+
+    CompactSketch r1 = cu.getResult();
+    CompactSketch r2 = u.getResult();
+    assertEquals(r1.getEstimate(), r2.getEstimate(), 0.0);
+    assertEquals(r1.getThetaLong(), r2.getThetaLong());
+    assertEquals(r1.toByteArray(), r2.toByteArray());
+    assertEquals(cu.getResult(false, null).getEstimate(), r2.getEstimate(), 0.0);
+  }
+
+  @Test
+  public void checkMultipleThreads() throws Exception {
+    final int k = 1024;
+    final int numThreads = 4;
+    final int sketchesPerThread = 25;
+    final int perSketch = 2000;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    final Union cu =
+        SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+
+    final CompactSketch[] sketches = new CompactSketch[numThreads * sketchesPerThread];
+    for (int s = 0; s < sketches.length; s++) {
+      UpdateSketch sk = UpdateSketch.builder().build(k);
+      for (int i = 0; i < perSketch; i++) { sk.update(((long) s * perSketch) + i); }
+      sketches[s] = sk.compact();
+      u.update(sketches[s]);
+    }
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int start = t * sketchesPerThread;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int s = start; s < (start + sketchesPerThread); s++) { cu.update(sketches[s]); }
+        }
+      });
+      threads[t].start();
+    }
+    for (int t = 0; t < numThreads; t++) { threads[t].join(); }
+
+    //The result is independent of the order of the updates
+    CompactSketch r1 = cu.getResult();
+    CompactSketch r2 = u.getResult();
+    assertEquals(r1.getEstimate(), r2.getEstimate(), 0.0);
+    assertEquals(r1.toByteArray(), r2.toByteArray());
+  }
+
+  @Test
+  public void checkMultipleThreadsManyRebuilds() throws Exception {
+    final int k = 16;
+    final int numThreads = 8;
+    final int perThread = 50000;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    final Union cu =
+        SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    final Union cu2 = SetOperation.wrapConcurrentUnion(mem);
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final long start = t * (perThread / 2L); //overlap with the previous thread
+      final Union target = (t % 2 == 0) ? cu : cu2;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (long i = start; i < (start + perThread); i++) { target.update(i); }
+        }
+      });
+      threads[t].start();
+      for (long i = start; i < (start + perThread); i++) { u.update(i); }
+    }
+    for (int t = 0; t < numThreads; t++) { threads[t].join(); }
+    assertEquals(cu.getResult().toByteArray(), u.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkRebuildByNextWriterAfterDeadWriter() {
+    int k = 64;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    Union cu = SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+    for (int i = 0; i < 100; i++) {
+      cu.update(i);
+      u.update(i);
+    }
+    //a writer reached the rebuild threshold and died before it rebuilt
+    long countOffsetBytes = SetOperation.getMaxConcurrentUnionBytes(k) - 8;
+    mem.putLong(countOffsetBytes, 1L << 40);
+    assertEquals(cu.getResult().toByteArray(), u.getResult().toByteArray());
+    for (int i = 100; i < 1000; i++) {
+      cu.update(i);
+      u.update(i);
+    }
+    assertTrue(mem.getLong(countOffsetBytes) < (2 * k));
+    assertEquals(cu.getResult().toByteArray(), u.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkWrapAndSerialize() {
+    int k = 64;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    Union cu1 = SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    Union cu2 = SetOperation.wrapConcurrentUnion(mem);
+    for (int i = 0; i < 1000; i++) {
+      if (i % 2 == 0) { cu1.update(i); } else { cu2.update(i); }
+    }
+    double est = cu1.getResult().getEstimate();
+    assertEquals(cu2.getResult().getEstimate(), est, 0.0);
+    assertEquals(cu1.getResult().getRetainedEntries(true), k);
+
+    Union u = (Union) SetOperation.heapify(new NativeMemory(cu1.toByteArray()));
+    assertEquals(u.getResult().getEstimate(), est, 0.0);
+
+    cu2.reset();
+    assertTrue(cu1.getResult().isEmpty());
+    cu1.update("a");
+    assertFalse(cu2.getResult().isEmpty());
+    assertEquals(cu2.getResult().getEstimate(), 1.0, 0.0);
+  }
+
+  @Test
+  public void checkStringUpdatesMatchUnion() {
+    int k = 64;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    Union cu = SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+    String[] data = {"a", "\u00e9t\u00e9", "\u4e2d\u6587", "\ud83d\ude00", "", null};
+    for (int i = 0; i < 1000; i++) {
+      String datum = data[i % data.length];
+      String s = (datum == null) ? null : datum + ((datum.isEmpty()) ? "" : Integer.toString(i));
+      cu.update(s);
+      u.update(s);
+    }
+    assertEquals(cu.getResult().toByteArray(), u.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkUpdateMemory() {
+    int k = 128;
+    UpdateSketch sk = UpdateSketch.builder().build(k);
+    for (int i = 0; i < 1000; i++) { sk.update(i); }
+    Memory skMem = new NativeMemory(sk.compact(true, null).toByteArray());
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    Union cu = SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    cu.update((Memory) null);
+    cu.update(skMem);
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+    u.update(skMem);
+    assertEquals(cu.getResult().getEstimate(), u.getResult().getEstimate(), 0.0);
+  }
+
+  @Test
+  public void checkBatchUpdateMemories() {
+    int k = 256;
+    List<Memory> images = new ArrayList<Memory>();
+    for (int s = 0; s < 50; s++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(64 << (s % 4)).build();
+      for (long i = s * 300; i < ((s * 300) + 1000); i++) { sk.update(i); }
+      images.add(new NativeMemory(sk.compact().toByteArray()));
+    }
+    images.add(null);
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    Union cu = SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+    cu.update(images);
+    Union u = SetOperation.builder().setNominalEntries(k).buildUnion();
+    u.update(images);
+    assertEquals(cu.getResult().toByteArray(), u.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkRejectedBatchKeepsTheta() {
+    UpdateSketch sk1 = UpdateSketch.builder().build(64);
+    for (int i = 0; i < 1000; i++) { sk1.update(i); } //estimation mode
+    UpdateSketch sk2 = UpdateSketch.builder().setSeed(123).build();
+    sk2.update(1L);
+    List<Memory> images = new ArrayList<Memory>();
+    images.add(new NativeMemory(sk1.compact().toByteArray()));
+    images.add(new NativeMemory(sk2.compact().toByteArray()));
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(64)]);
+    Union cu = SetOperation.builder().setNominalEntries(64).initMemory(mem).buildConcurrentUnion();
+    cu.update(2000L);
+    try {
+      cu.update(images);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    CompactSketch result = cu.getResult();
+    assertEquals(result.getThetaLong(), Long.MAX_VALUE);
+    assertEquals(result.getEstimate(), 1.0, 0.0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNoMemory() {
+    SetOperation.builder().buildConcurrentUnion();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkMemoryTooSmall() {
+    int k = 64;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxUnionBytes(k)]);
+    SetOperation.builder().setNominalEntries(k).initMemory(mem).buildConcurrentUnion();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkWrapResizingUnion() {
+    int k = 64;
+    Memory mem = new NativeMemory(new byte[SetOperation.getMaxConcurrentUnionBytes(k)]);
+    SetOperation.builder().setNominalEntries(k).initMemory(mem).buildUnion();
+    SetOperation.wrapConcurrentUnion(mem);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.Family;
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class ConcurrentHeapQuickSelectSketchTest {
+
+  @Test
+  public void checkExactModeSingleThread() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(4096)
+        .setLocalNominalEntries(8);
+    UpdateSketch shared = bldr.buildShared();
+    UpdateSketch local = bldr.buildLocal(shared);
+    assertTrue(local.isEmpty());
+    assertTrue(shared.isEmpty());
+
+    int n = 1000;
+    for (int i = 0; i < n; i++) { local.update(i); }
+    local.update(0); //duplicate
+    local.rebuild(); //propagate the remainder
+
+    assertFalse(shared.isEmpty());
+    assertEquals(shared.getEstimate(), n, 0.0);
+    assertEquals(local.getEstimate(), n, 0.0);
+    assertEquals(shared.getRetainedEntries(true), n);
+    assertEquals(shared.compact().getEstimate(), n, 0.0);
+    Sketch heapified = Sketch.heapify(new NativeMemory(shared.toByteArray()));
+    assertEquals(heapified.getEstimate(), n, 0.0);
+  }
+
+  @Test
+  public void checkEstimationModeMultipleThreads() throws Exception {
+    int k = 1024;
+    final int numThreads = 4;
+    final int perThread = 50000;
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(k);
+    final UpdateSketch shared = bldr.buildShared();
+    final UpdateSketch[] locals = new UpdateSketch[numThreads];
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      locals[t] = bldr.buildLocal(shared);
+      final UpdateSketch local = locals[t];
+      final long start = (long) t * perThread;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (long i = start; i < (start + perThread); i++) { local.update(i); }
+          local.rebuild();
+        }
+      });
+      threads[t].start();
+    }
+    for (int t = 0; t < numThreads; t++) { threads[t].join(); }
+
+    double n = (double) numThreads * perThread;
+    assertTrue(shared.isEstimationMode());
+    double est = shared.getEstimate();
+    assertEquals(est, n, n * 0.1);
+    assertTrue(shared.getLowerBound(3) <= est);
+    assertTrue(shared.getUpperBound(3) >= est);
+    assertEquals(shared.compact().getEstimate(), est, 0.0);
+  }
+
+  @Test
+  public void checkLocalResetAndDirectUpdate() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setLocalNominalEntries(16);
+    UpdateSketch shared = bldr.buildShared();
+    UpdateSketch local = bldr.buildLocal(shared);
+    for (int i = 0; i < 10; i++) { local.update(i); } //stays local
+    local.reset();
+    local.rebuild();
+    assertEquals(shared.getEstimate(), 0.0, 0.0);
+    assertFalse(shared.isEmpty());
+
+    shared.update(1L);
+    assertEquals(shared.getEstimate(), 1.0, 0.0);
+    shared.reset();
+    assertTrue(shared.isEmpty());
+  }
+
+  @Test
+  public void checkSamplingMarksSharedNotEmpty() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setP((float) 0.0001);
+    UpdateSketch shared = bldr.buildShared();
+    UpdateSketch local = bldr.buildLocal(shared);
+    local.update(1L);
+    assertFalse(shared.isEmpty());
+  }
+
+  @Test
+  public void checkSetOperationsUseOneSnapshot() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries(64);
+    UpdateSketch shared = bldr.buildShared();
+    UpdateSketch local = bldr.buildLocal(shared);
+    for (int i = 0; i < 1000; i++) { local.update(i); }
+    local.rebuild();
+    Sketch snapshot = local.getSnapshot();
+    assertTrue(snapshot.isCompact());
+    assertEquals(snapshot.getThetaLong(), shared.getThetaLong());
+    assertEquals(snapshot.getRetainedEntries(true), shared.getRetainedEntries(true));
+    CompactSketch copy = shared.compact();
+
+    Union union = SetOperation.builder().setNominalEntries(64).buildUnion();
+    union.update(shared);
+    Union copyUnion = SetOperation.builder().setNominalEntries(64).buildUnion();
+    copyUnion.update(copy);
+    assertEquals(union.getResult().getEstimate(), copyUnion.getResult().getEstimate(), 0.0);
+    Intersection inter = SetOperation.builder().buildIntersection();
+    inter.update(local);
+    assertEquals(inter.getResult().getEstimate(), copy.getEstimate(), 0.0);
+    AnotB aNotB = SetOperation.builder().buildANotB();
+    aNotB.update(shared, null);
+    assertEquals(aNotB.getResult().getEstimate(), copy.getEstimate(), 0.0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBuildSharedAlpha() {
+    UpdateSketch.builder().setFamily(Family.ALPHA).buildShared();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBuildSharedDirect() {
+    UpdateSketch.builder().initMemory(new NativeMemory(new byte[1 << 16])).buildShared();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBuildLocalWrongShared() {
+    UpdateSketchBuilder bldr = UpdateSketch.builder();
+    bldr.buildLocal(bldr.build());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -11,6 +11,7 @@ import static org.testng.Assert.assertTrue;
 import org.testng.annotations.Test;
 
 import com.yahoo.sketches.Family;
+import com.yahoo.sketches.SketchesArgumentException;
 import com.yahoo.sketches.Util;
 import com.yahoo.sketches.memory.Memory;
 import com.yahoo.sketches.memory.NativeMemory;
@@ -303,6 +304,61 @@ public class HeapAnotBTest {
     assertEquals(est, k/4.0, 0.0);
   }
   
+  @Test
+  public void checkOrderedSweep() {
+    int[] kA = { 64, 4096 };
+    for (int k : kA) {
+      UpdateSketch skA = Sketches.updateSketchBuilder().setNominalEntries(k).build();
+      UpdateSketch skB = Sketches.updateSketchBuilder().setNominalEntries(1024).build();
+      for (int i = 0; i < 3000; i++) { skA.update(i); }
+      for (int i = 1000; i < 5000; i += 2) { skB.update(i); }
+      AnotB aNotB = Sketches.setOperationBuilder().buildANotB();
+      aNotB.update(skA.compact(false, null), skB); //searches the hash table of B
+      byte[] expected = aNotB.getResult().toByteArray();
+
+      CompactSketch cskA = skA.compact(true, null);
+      CompactSketch cskB = skB.compact(true, null);
+      Memory memA = new NativeMemory(cskA.toByteArray());
+      Memory memB = new NativeMemory(cskB.toByteArray());
+      aNotB.update(cskA, cskB);
+      assertEquals(aNotB.getResult().toByteArray(), expected);
+      aNotB.update(Sketch.wrap(memA), cskB);
+      assertEquals(aNotB.getResult().toByteArray(), expected);
+      aNotB.update(cskA, Sketch.wrap(memB));
+      assertEquals(aNotB.getResult().toByteArray(), expected);
+      aNotB.update(memA, memB);
+      assertEquals(aNotB.getResult().toByteArray(), expected);
+    }
+  }
+
+  @Test
+  public void checkMemoryInputs() {
+    UpdateSketch skA = Sketches.updateSketchBuilder().build();
+    for (int i = 0; i < 100; i++) { skA.update(i); }
+    Memory memA = new NativeMemory(skA.compact(true, null).toByteArray());
+    Memory memEmpty = new NativeMemory(Sketches.updateSketchBuilder().build().compact().toByteArray());
+    AnotB aNotB = Sketches.setOperationBuilder().buildANotB();
+    aNotB.update(memA, null);
+    assertEquals(aNotB.getResult().getEstimate(), 100.0, 0.0);
+    aNotB.update(memA, memEmpty);
+    assertEquals(aNotB.getResult().getEstimate(), 100.0, 0.0);
+    aNotB.update(memA, memA);
+    CompactSketch csk = aNotB.getResult();
+    assertEquals(csk.getEstimate(), 0.0, 0.0);
+    assertFalse(csk.isEmpty());
+    aNotB.update(null, memA);
+    assertTrue(aNotB.getResult().isEmpty());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkMemoryInputSeedMismatch() {
+    UpdateSketch skA = Sketches.updateSketchBuilder().setSeed(123).build();
+    skA.update(1);
+    Memory memA = new NativeMemory(skA.compact(true, null).toByteArray());
+    AnotB aNotB = Sketches.setOperationBuilder().buildANotB();
+    aNotB.update(memA, null);
+  }
+
   @Test
   public void checkGetResult() {
     UpdateSketch skA = Sketches.updateSketchBuilder().build();
@@ -314,6 +370,34 @@ public class HeapAnotBTest {
     assertEquals(csk.getCurrentBytes(true), 8);
   }
   
+  @Test
+  public void checkDefaultMemoryUpdate() {
+    UpdateSketch skA = UpdateSketch.builder().build();
+    UpdateSketch skB = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) { skA.update(i); }
+    for (int i = 50; i < 150; i++) { skB.update(i); }
+    Memory memA = new NativeMemory(skA.compact().toByteArray());
+    Memory memB = new NativeMemory(skB.compact().toByteArray());
+    //an implementation that only implements the abstract methods
+    final AnotB heap = SetOperation.builder().buildANotB();
+    AnotB other = new AnotB() {
+      @Override
+      public void update(Sketch a, Sketch b) { heap.update(a, b); }
+
+      @Override
+      public CompactSketch getResult(boolean dstOrdered, Memory dstMem) {
+        return heap.getResult(dstOrdered, dstMem);
+      }
+
+      @Override
+      public CompactSketch getResult() { return heap.getResult(); }
+    };
+    other.update(memA, memB);
+    assertEquals(other.getResult().getEstimate(), 50.0, 0.0);
+    other.update(memA, null);
+    assertEquals(other.getResult().getEstimate(), 100.0, 0.0);
+  }
+
   @Test
   public void checkGetFamily() {
     //cheap trick
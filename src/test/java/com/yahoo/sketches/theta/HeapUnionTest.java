@@ -12,9 +12,13 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import com.yahoo.sketches.Family;
 import com.yahoo.sketches.SketchesArgumentException;
@@ -567,6 +571,171 @@ public class HeapUnionTest {
     assertEquals(compEst2, compEst1, 0.0);
   }
   
+  @Test
+  public void checkBatchUpdateMemories() {
+    int k = 1024;
+    List<Memory> images = new ArrayList<Memory>();
+    for (int s = 0; s < 200; s++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(64 << (s % 5)).build();
+      long start = (long) s * 500;
+      for (long i = start; i < (start + 1000); i++) { sk.update(i); } //overlapping
+      boolean ordered = (s % 2 == 0) || (s % 7 == 3) || (s % 11 == 5); //old versions are ordered
+      Memory mem = new NativeMemory(sk.compact(ordered, null).toByteArray());
+      if (s % 7 == 3) { mem = convertSerV3toSerV2(mem); }
+      else if (s % 11 == 5) { mem = convertSerV3toSerV1(mem); }
+      images.add(mem);
+    }
+    images.add(null);
+    images.add(new NativeMemory(UpdateSketch.builder().build().compact().toByteArray()));
+
+    Union union1 = SetOperation.builder().buildUnion(k);
+    for (Memory mem : images) { union1.update(mem); }
+    byte[] expected = union1.getResult().toByteArray();
+
+    Union union2 = SetOperation.builder().buildUnion(k);
+    union2.update(images);
+    assertEquals(union2.getResult().toByteArray(), expected);
+
+    //pack all images into one buffer
+    long[] offsets = new long[images.size() + 1];
+    for (int i = 0; i < images.size(); i++) {
+      Memory mem = images.get(i);
+      offsets[i + 1] = offsets[i] + ((mem == null) ? 0 : mem.getCapacity());
+    }
+    Memory buffer = new NativeMemory(new byte[(int) offsets[images.size()]]);
+    for (int i = 0; i < images.size(); i++) {
+      Memory mem = images.get(i);
+      if (mem != null) { NativeMemory.copy(mem, 0, buffer, offsets[i], mem.getCapacity()); }
+    }
+    Union union3 = SetOperation.builder().buildUnion(k);
+    union3.update(buffer, offsets);
+    assertEquals(union3.getResult().toByteArray(), expected);
+
+    union3.update((List<Memory>) null);
+    union3.update((Memory) null, null);
+    assertEquals(union3.getResult().toByteArray(), expected);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBatchUpdateBadOffsets() {
+    Union union = SetOperation.builder().buildUnion();
+    union.update(new NativeMemory(new byte[64]), new long[] {0, 32, 16});
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBatchUpdateSeedHashFirst() {
+    UpdateSketch sk1 = UpdateSketch.builder().build();
+    UpdateSketch sk2 = UpdateSketch.builder().setSeed(123).build();
+    sk1.update(1L);
+    sk2.update(1L);
+    List<Memory> images = new ArrayList<Memory>();
+    images.add(new NativeMemory(sk1.compact().toByteArray()));
+    images.add(new NativeMemory(sk2.compact().toByteArray()));
+    Union union = SetOperation.builder().buildUnion();
+    try {
+      union.update(images);
+    } finally {
+      assertTrue(union.getResult().isEmpty()); //nothing was merged
+    }
+  }
+
+  @Test
+  public void checkRejectedBatchKeepsTheta() {
+    UpdateSketch sk1 = UpdateSketch.builder().build(64);
+    for (int i = 0; i < 1000; i++) { sk1.update(i); } //estimation mode
+    UpdateSketch sk2 = UpdateSketch.builder().setSeed(123).build();
+    sk2.update(1L);
+    List<Memory> images = new ArrayList<Memory>();
+    images.add(new NativeMemory(sk1.compact().toByteArray()));
+    images.add(new NativeMemory(sk2.compact().toByteArray()));
+    Union union = SetOperation.builder().buildUnion();
+    union.update(2000L);
+    try {
+      union.update(images);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    CompactSketch result = union.getResult();
+    assertEquals(result.getThetaLong(), Long.MAX_VALUE);
+    assertEquals(result.getEstimate(), 1.0, 0.0);
+  }
+
+  @Test
+  public void checkDefaultBatchUpdates() {
+    UpdateSketch sk1 = UpdateSketch.builder().build();
+    UpdateSketch sk2 = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) { sk1.update(i); }
+    for (int i = 50; i < 150; i++) { sk2.update(i); }
+    byte[] bytes1 = sk1.compact().toByteArray();
+    byte[] bytes2 = sk2.compact().toByteArray();
+    NativeMemory buffer = new NativeMemory(new byte[bytes1.length + bytes2.length]);
+    buffer.putByteArray(0, bytes1, 0, bytes1.length);
+    buffer.putByteArray(bytes1.length, bytes2, 0, bytes2.length);
+    long[] offsets = {0, bytes1.length, bytes1.length + bytes2.length};
+
+    Union union = new MemoryOnlyUnion(SetOperation.builder().buildUnion());
+    union.update(buffer, offsets);
+    assertEquals(union.getResult().getEstimate(), 150.0, 0.0);
+    union = new MemoryOnlyUnion(SetOperation.builder().buildUnion());
+    List<Memory> images = new ArrayList<Memory>();
+    images.add(new NativeMemory(bytes1));
+    images.add(null);
+    images.add(new NativeMemory(bytes2));
+    union.update(images);
+    assertEquals(union.getResult().getEstimate(), 150.0, 0.0);
+  }
+
+  //an implementation that only implements the abstract methods of Union
+  private static final class MemoryOnlyUnion implements Union {
+    private final Union union;
+
+    MemoryOnlyUnion(Union union) {
+      this.union = union;
+    }
+
+    @Override
+    public void update(Sketch sketchIn) { union.update(sketchIn); }
+
+    @Override
+    public void update(Memory mem) { union.update(mem); }
+
+    @Override
+    public void update(long datum) { union.update(datum); }
+
+    @Override
+    public void update(double datum) { union.update(datum); }
+
+    @Override
+    public void update(String datum) { union.update(datum); }
+
+    @Override
+    public void update(byte[] data) { union.update(data); }
+
+    @Override
+    public void update(int[] data) { union.update(data); }
+
+    @Override
+    public void update(char[] data) { union.update(data); }
+
+    @Override
+    public void update(long[] data) { union.update(data); }
+
+    @Override
+    public CompactSketch getResult(boolean dstOrdered, Memory dstMem) {
+      return union.getResult(dstOrdered, dstMem);
+    }
+
+    @Override
+    public CompactSketch getResult() { return union.getResult(); }
+
+    @Override
+    public byte[] toByteArray() { return union.toByteArray(); }
+
+    @Override
+    public void reset() { union.reset(); }
+  }
+
   @Test
   public void checkGetFamily() {
     int k = 16;
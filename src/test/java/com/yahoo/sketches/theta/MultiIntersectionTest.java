@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.SketchesStateException;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class MultiIntersectionTest {
+
+  @Test
+  public void checkIdenticalToIntersection() {
+    int[] numKeys = { 10, 300, 20000 };
+    for (int n : numKeys) {
+      List<Sketch> list = new ArrayList<Sketch>();
+      for (int s = 0; s < 12; s++) {
+        UpdateSketch sk = UpdateSketch.builder().setNominalEntries((s % 2 == 0) ? 512 : 4096)
+            .build();
+        int start = s * (n / 40); //every sketch shares most of its keys with the others
+        for (int i = start; i < (start + n); i++) { sk.update(i); }
+        switch (s % 4) {
+          case 0: list.add(sk); break;
+          case 1: list.add(sk.compact(false, null)); break;
+          case 2: list.add(sk.compact(true, null)); break;
+          default: list.add(Sketch.wrap(new NativeMemory(sk.compact().toByteArray())));
+        }
+      }
+      Intersection inter = SetOperation.builder().buildIntersection();
+      for (Sketch sk : list) { inter.update(sk); }
+      CompactSketch expected = inter.getResult();
+      CompactSketch result = SetOperation.builder().intersect(list);
+      assertTrue(result.isOrdered());
+      assertEquals(result.getEstimate(), expected.getEstimate(), 0.0);
+      assertEquals(result.toByteArray(), expected.toByteArray());
+    }
+  }
+
+  @Test
+  public void checkDisjoint() {
+    List<Sketch> list = new ArrayList<Sketch>();
+    for (int s = 0; s < 3; s++) {
+      UpdateSketch sk = UpdateSketch.builder().build();
+      for (int i = 0; i < 100; i++) { sk.update((s * 100) + i); }
+      list.add(sk.compact());
+    }
+    Intersection inter = SetOperation.builder().buildIntersection();
+    for (Sketch sk : list) { inter.update(sk); }
+    CompactSketch result = SetOperation.builder().intersect(list);
+    assertEquals(result.getRetainedEntries(true), 0);
+    assertFalse(result.isEmpty());
+    assertEquals(result.toByteArray(), inter.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkNullAndEmptyInputs() {
+    UpdateSketch sk = UpdateSketch.builder().setNominalEntries(64).build();
+    for (int i = 0; i < 1000; i++) { sk.update(i); }
+    List<Sketch> list = new ArrayList<Sketch>();
+    list.add(sk);
+    list.add(UpdateSketch.builder().build());
+    Intersection inter = SetOperation.builder().buildIntersection();
+    for (Sketch s : list) { inter.update(s); }
+    CompactSketch result = SetOperation.builder().intersect(list);
+    assertTrue(result.isEmpty());
+    assertEquals(result.getThetaLong(), sk.getThetaLong());
+    assertEquals(result.toByteArray(), inter.getResult().toByteArray());
+
+    list.clear();
+    list.add(null);
+    list.add(sk);
+    result = SetOperation.builder().intersect(list);
+    assertTrue(result.isEmpty());
+    assertEquals(result.getRetainedEntries(true), 0);
+
+    list.clear();
+    list.add(null);
+    assertTrue(SetOperation.builder().intersect(list).isEmpty());
+  }
+
+  @Test(expectedExceptions = SketchesStateException.class)
+  public void checkNoInputs() {
+    SetOperation.builder().intersect(new ArrayList<Sketch>());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSeedHashMismatch() {
+    UpdateSketch sk = UpdateSketch.builder().setSeed(123).build();
+    sk.update(1L);
+    List<Sketch> list = new ArrayList<Sketch>();
+    list.add(sk);
+    SetOperation.builder().intersect(list);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
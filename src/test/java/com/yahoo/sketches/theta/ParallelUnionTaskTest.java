@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class ParallelUnionTaskTest {
+
+  @Test
+  public void checkIdenticalToSerialUnion() {
+    int k = 1024;
+    List<Sketch> sketches = new ArrayList<Sketch>();
+    long key = 0;
+    for (int s = 0; s < 600; s++) {
+      UpdateSketchBuilder bldr = UpdateSketch.builder().setNominalEntries((s % 3 == 0) ? 512 : k);
+      if (s % 50 == 7) { bldr.setP((float) 0.9); }
+      UpdateSketch sk = bldr.build();
+      int n = (s % 10) * 300;
+      key -= n / 2; //overlap with the previous sketch
+      for (int i = 0; i < n; i++) { sk.update(key++); }
+      switch (s % 4) {
+        case 0: sketches.add(sk); break;
+        case 1: sketches.add(sk.compact(false, null)); break;
+        case 2: sketches.add(sk.compact(true, null)); break;
+        default: sketches.add(Sketch.wrap(new NativeMemory(sk.compact().toByteArray())));
+      }
+    }
+    sketches.add(null);
+
+    Union serial = SetOperation.builder().setNominalEntries(k).buildUnion();
+    for (Sketch sk : sketches) { serial.update(sk); }
+    CompactSketch expected = serial.getResult();
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      CompactSketch result =
+          SetOperation.builder().setNominalEntries(k).parallelUnion(sketches, pool);
+      assertEquals(result.getEstimate(), expected.getEstimate(), 0.0);
+      assertEquals(result.getLowerBound(2), expected.getLowerBound(2), 0.0);
+      assertEquals(result.getUpperBound(2), expected.getUpperBound(2), 0.0);
+      assertEquals(result.toByteArray(), expected.toByteArray());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkSmallInputs() {
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    List<Sketch> sketches = new ArrayList<Sketch>();
+    assertTrue(SetOperation.parallelUnion(sketches, pool).isEmpty());
+
+    UpdateSketch sk = UpdateSketch.builder().build();
+    sketches.add(sk);
+    assertTrue(SetOperation.parallelUnion(sketches, pool).isEmpty());
+
+    sk.update(1L);
+    assertEquals(SetOperation.parallelUnion(sketches, pool).getEstimate(), 1.0, 0.0);
+  }
+
+  @Test
+  public void checkSampledUnion() {
+    List<Sketch> sketches = new ArrayList<Sketch>();
+    for (int s = 0; s < 100; s++) {
+      UpdateSketch sk = UpdateSketch.builder().build();
+      sk.update(s);
+      sketches.add(sk);
+    }
+    SetOperationBuilder bldr = SetOperation.builder().setP((float) 0.5);
+    Union serial = bldr.buildUnion();
+    for (Sketch sk : sketches) { serial.update(sk); }
+    CompactSketch result = bldr.parallelUnion(sketches, ForkJoinPool.commonPool());
+    assertEquals(result.toByteArray(), serial.getResult().toByteArray());
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static com.yahoo.sketches.theta.PreambleUtil.DATA_LONGS_INT;
+import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_BYTE;
+import static com.yahoo.sketches.theta.PreambleUtil.SER_VER_COMPRESSED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class RiceCodecTest {
+
+  @Test
+  public void checkRoundTrip() {
+    int[] counts = {0, 1, 2, 100, 4096, 100000};
+    for (int n : counts) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(4096).build();
+      for (int i = 0; i < n; i++) { sk.update(i); }
+      checkRoundTrip(sk.compact(true, null));
+      checkRoundTrip(sk.compact(false, null));
+    }
+  }
+
+  @Test
+  public void checkIntersectionResult() { //empty = false, theta < 1.0, no entries
+    UpdateSketch a = UpdateSketch.builder().setNominalEntries(64).build();
+    UpdateSketch b = UpdateSketch.builder().setNominalEntries(64).build();
+    for (int i = 0; i < 1000; i++) { a.update(i); b.update(i + 1000); }
+    Intersection inter = SetOperation.builder().buildIntersection();
+    inter.update(a);
+    inter.update(b);
+    CompactSketch csk = inter.getResult();
+    assertEquals(csk.getRetainedEntries(true), 0);
+    checkRoundTrip(csk);
+  }
+
+  @Test
+  public void checkSmallerImage() {
+    UpdateSketch sk = UpdateSketch.builder().setNominalEntries(4096).build();
+    for (int i = 0; i < 100000; i++) { sk.update(i); }
+    CompactSketch csk = sk.compact(true, null);
+    byte[] plain = csk.toByteArray(false);
+    byte[] compressed = csk.toByteArray(true);
+    assertEquals(plain, csk.toByteArray());
+    assertEquals(compressed[SER_VER_BYTE], SER_VER_COMPRESSED);
+    println("plain: " + plain.length + ", compressed: " + compressed.length);
+    assertTrue(compressed.length < (plain.length * 0.85));
+  }
+
+  @Test
+  public void checkUnion() {
+    Union expected = SetOperation.builder().buildUnion();
+    Union union = SetOperation.builder().buildUnion();
+    Union directUnion = SetOperation.builder().initMemory(new NativeMemory(new byte[1 << 20]))
+        .buildUnion();
+    for (int s = 0; s < 10; s++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(512 << s).build();
+      for (int i = 0; i < 20000; i++) { sk.update((s * 5000) + i); }
+      CompactSketch csk = sk.compact(true, null);
+      expected.update(csk);
+      NativeMemory mem = new NativeMemory(csk.toByteArray(true));
+      union.update(mem);
+      directUnion.update(mem);
+    }
+    byte[] result = expected.getResult().toByteArray();
+    assertEquals(union.getResult().toByteArray(), result);
+    assertEquals(directUnion.getResult().toByteArray(), result);
+  }
+
+  @Test
+  public void checkEmptyUnion() {
+    CompactSketch csk = UpdateSketch.builder().build().compact(true, null);
+    Union union = SetOperation.builder().buildUnion();
+    union.update(new NativeMemory(csk.toByteArray(true)));
+    assertTrue(union.getResult().isEmpty());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSeedMismatch() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    sk.update(1);
+    Sketch.heapify(new NativeMemory(sk.compact(true, null).toByteArray(true)), 123);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkTruncatedImage() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) { sk.update(i); }
+    byte[] bytes = sk.compact(true, null).toByteArray(true);
+    NativeMemory mem = new NativeMemory(bytes);
+    mem.putInt(DATA_LONGS_INT, mem.getInt(DATA_LONGS_INT) + 1);
+    Sketch.heapify(mem);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkCorruptedCount() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) { sk.update(i); }
+    byte[] bytes = sk.compact(true, null).toByteArray(true);
+    NativeMemory mem = new NativeMemory(bytes);
+    mem.putInt(PreambleUtil.RETAINED_ENTRIES_INT, 1000); //runs past the data
+    Sketch.heapify(mem);
+  }
+
+  private static void checkRoundTrip(CompactSketch csk) {
+    byte[] compressed = csk.toByteArray(true);
+    NativeMemory mem = new NativeMemory(compressed);
+    byte[] expected = csk.isOrdered() ? csk.toByteArray() : orderedImage(csk);
+    Sketch heap = Sketch.heapify(mem);
+    Sketch wrapped = Sketch.wrap(mem);
+    Sketch sketchesHeap = Sketches.heapifySketch(mem);
+    assertTrue(heap.isOrdered());
+    assertEquals(heap.isEmpty(), csk.isEmpty());
+    assertEquals(heap.getEstimate(), csk.getEstimate(), 0.0);
+    assertEquals(heap.toByteArray(), expected);
+    assertEquals(wrapped.toByteArray(), expected);
+    assertEquals(sketchesHeap.toByteArray(), expected);
+    assertEquals(Sketches.getEstimate(mem), csk.getEstimate(), 0.0);
+  }
+
+  private static byte[] orderedImage(CompactSketch csk) {
+    int curCount = csk.getRetainedEntries(true);
+    long[] cache = CompactSketch.compactCache(csk.getCache(), curCount, csk.getThetaLong(), true);
+    return CompactSketch.createCompactSketch(cache, csk.isEmpty(), csk.getSeedHash(), curCount,
+        csk.getThetaLong(), true, null).toByteArray();
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.Memory;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class SketchCatalogTest {
+
+  @Test
+  public void checkWriteAndRead() {
+    int numSketches = 200;
+    SketchCatalogBuilder bldr = new SketchCatalogBuilder();
+    UpdateSketch[] sketches = new UpdateSketch[numSketches];
+    for (int s = 0; s < numSketches; s++) {
+      sketches[s] = UpdateSketch.builder().setNominalEntries(256).build();
+      for (int i = 0; i < (s * 10); i++) { sketches[s].update((s * 7) + i); }
+      long key = ((s % 2) == 0) ? s * 1000L : -s; //not added in key order
+      if ((s % 3) == 0) {
+        bldr.add(key, sketches[s]);
+      } else {
+        bldr.add(key, sketches[s].compact((s % 3) == 1, null));
+      }
+    }
+    assertEquals(bldr.getNumSketches(), numSketches);
+    byte[] bytes = bldr.toByteArray();
+    assertEquals(bytes.length, bldr.getRequiredBytes());
+
+    SketchCatalog catalog = SketchCatalog.wrap(new NativeMemory(bytes));
+    assertEquals(catalog.getNumSketches(), numSketches);
+    for (int i = 1; i < numSketches; i++) {
+      assertTrue(catalog.getKey(i - 1) < catalog.getKey(i));
+    }
+    for (int s = 0; s < numSketches; s++) {
+      long key = ((s % 2) == 0) ? s * 1000L : -s;
+      assertTrue(catalog.contains(key));
+      Sketch sk = catalog.getSketch(key);
+      assertTrue(sk.isDirect());
+      assertTrue(sk.isOrdered() || sk.isEmpty());
+      assertEquals(sk.getEstimate(), sketches[s].getEstimate(), 0.0);
+      assertEquals(sk.toByteArray(), sketches[s].compact(true, null).toByteArray());
+    }
+    assertFalse(catalog.contains(1L));
+    assertNull(catalog.getSketch(1L));
+    assertNull(catalog.getImage(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void checkUnion() {
+    SketchCatalogBuilder bldr = new SketchCatalogBuilder();
+    Union expected = SetOperation.builder().buildUnion();
+    long[] keys = new long[51];
+    for (int s = 0; s < 100; s++) {
+      UpdateSketch sk = UpdateSketch.builder().setNominalEntries(1024).build();
+      for (int i = 0; i < 2000; i++) { sk.update((s * 1000) + i); }
+      bldr.add(s, sk);
+      if ((s % 2) == 0) {
+        keys[s / 2] = s;
+        expected.update(sk);
+      }
+    }
+    keys[50] = -1; //missing keys are ignored
+
+    Memory mem = new NativeMemory(new byte[(int) bldr.getRequiredBytes()]);
+    SketchCatalog catalog = bldr.build(mem);
+    assertTrue(catalog.getMemory() == mem);
+    Union union = SetOperation.builder().buildUnion();
+    catalog.union(keys, union);
+    assertEquals(union.getResult().toByteArray(), expected.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkEmptyCatalog() {
+    SketchCatalog catalog = SketchCatalog.wrap(new NativeMemory(new SketchCatalogBuilder()
+        .toByteArray()));
+    assertEquals(catalog.getNumSketches(), 0);
+    assertFalse(catalog.contains(0));
+    Union union = SetOperation.builder().buildUnion();
+    catalog.union(new long[] {1, 2, 3}, union);
+    assertTrue(union.getResult().isEmpty());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkDuplicateKey() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    new SketchCatalogBuilder().add(1, sk).add(1, sk).toByteArray();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNullSketch() {
+    new SketchCatalogBuilder().add(1, null);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSketchSeedMismatch() {
+    UpdateSketch sk = UpdateSketch.builder().setSeed(123).build();
+    new SketchCatalogBuilder().add(1, sk).toByteArray();
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkCatalogSeedMismatch() {
+    UpdateSketch sk = UpdateSketch.builder().setSeed(123).build();
+    SketchCatalogBuilder bldr = new SketchCatalogBuilder().setSeed(123).add(1, sk);
+    assertEquals(bldr.getSeed(), 123);
+    SketchCatalog.wrap(new NativeMemory(bldr.toByteArray()));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkInsufficientMemory() {
+    SketchCatalogBuilder bldr = new SketchCatalogBuilder().add(1, UpdateSketch.builder().build());
+    bldr.build(new NativeMemory(new byte[(int) bldr.getRequiredBytes() - 8]));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNotACatalog() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    sk.update(1);
+    SketchCatalog.wrap(new NativeMemory(sk.compact().toByteArray()));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkTooSmall() {
+    SketchCatalog.wrap(new NativeMemory(new byte[16]));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkCorruptedHeader() {
+    byte[] bytes = new SketchCatalogBuilder().add(1, UpdateSketch.builder().build()).toByteArray();
+    NativeMemory mem = new NativeMemory(bytes);
+    mem.putLong(SketchCatalog.NUM_SKETCHES_LONG, 2);
+    SketchCatalog.wrap(mem);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkCorruptedIndexEntry() {
+    byte[] bytes = new SketchCatalogBuilder().add(1, UpdateSketch.builder().build()).toByteArray();
+    NativeMemory mem = new NativeMemory(bytes);
+    long indexOffset = mem.getLong(SketchCatalog.INDEX_OFFSET_LONG);
+    mem.putLong(indexOffset + SketchCatalog.IMAGE_LENGTH, 1024);
+    SketchCatalog.wrap(mem).getSketch(1);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkKeyIndexOutOfRange() {
+    byte[] bytes = new SketchCatalogBuilder().add(1, UpdateSketch.builder().build()).toByteArray();
+    SketchCatalog.wrap(new NativeMemory(bytes)).getKey(1);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
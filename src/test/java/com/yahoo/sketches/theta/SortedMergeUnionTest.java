@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016, Yahoo! Inc.
+ * Licensed under the terms of the Apache License 2.0. See LICENSE file at the project root for terms.
+ */
+package com.yahoo.sketches.theta;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.sketches.SketchesArgumentException;
+import com.yahoo.sketches.memory.NativeMemory;
+
+public class SortedMergeUnionTest {
+
+  @Test
+  public void checkIdenticalToUnion() {
+    int[] unionKs = { 64, 512, 4096 };
+    int[] numKeys = { 10, 200, 5000 };
+    for (int unionK : unionKs) {
+      for (int n : numKeys) {
+        List<Sketch> ordered = new ArrayList<Sketch>();
+        List<Sketch> unordered = new ArrayList<Sketch>();
+        for (int s = 0; s < 40; s++) {
+          UpdateSketch sk = UpdateSketch.builder().setNominalEntries((s % 2 == 0) ? 256 : 1024)
+              .build();
+          long start = (long) s * (n / 2); //overlap with the previous sketch
+          for (long i = start; i < (start + n); i++) { sk.update(i); }
+          CompactSketch csk = sk.compact(true, null);
+          ordered.add((s % 3 == 0) ? Sketch.wrap(new NativeMemory(csk.toByteArray())) : csk);
+          unordered.add(sk);
+        }
+        SetOperationBuilder bldr = SetOperation.builder().setNominalEntries(unionK);
+        Union union = bldr.buildUnion();
+        for (Sketch sk : ordered) { union.update(sk); }
+        byte[] expected = union.getResult().toByteArray();
+        assertEquals(bldr.sortedMergeUnion(ordered).toByteArray(), expected);
+        assertEquals(bldr.sortedMergeUnion(unordered).toByteArray(), expected);
+      }
+    }
+  }
+
+  @Test
+  public void checkNonEmptyWithoutEntries() {
+    UpdateSketch sk1 = UpdateSketch.builder().setP((float) 0.5).build();
+    sk1.update(1L); //not empty, but most likely no entries
+    UpdateSketch sk2 = UpdateSketch.builder().build();
+    for (int i = 0; i < 100; i++) { sk2.update(i); }
+    List<Sketch> list = new ArrayList<Sketch>();
+    list.add(sk1.compact());
+    list.add(null);
+    list.add(UpdateSketch.builder().build().compact());
+    list.add(sk2.compact());
+
+    SetOperationBuilder bldr = SetOperation.builder();
+    Union union = bldr.buildUnion();
+    for (Sketch sk : list) { union.update(sk); }
+    CompactSketch expected = union.getResult();
+    CompactSketch result = bldr.sortedMergeUnion(list);
+    assertEquals(result.getThetaLong(), expected.getThetaLong());
+    assertEquals(result.toByteArray(), expected.toByteArray());
+  }
+
+  @Test
+  public void checkSkippedHeapInputFollowedByDirectInput() {
+    UpdateSketch sk1 = UpdateSketch.builder().setNominalEntries(16).build();
+    for (int i = 0; i < 100000; i++) { sk1.update(i); }
+    UpdateSketch sk2 = UpdateSketch.builder().build();
+    for (int i = 200000; i < 200050; i++) { sk2.update(i); }
+    UpdateSketch sk3 = UpdateSketch.builder().build();
+    for (int i = 300000; i < 400000; i++) { sk3.update(i); }
+    CompactSketch csk1 = sk1.compact(true, null);
+    CompactSketch csk2 = sk2.compact(true, null);
+    //the exact heap input is skipped since its first hash is not below theta
+    assertTrue(csk2.getCache()[0] >= csk1.getThetaLong());
+
+    List<Sketch> list = new ArrayList<Sketch>();
+    list.add(csk1);
+    list.add(csk2);
+    list.add(Sketch.wrap(new NativeMemory(sk3.compact(true, null).toByteArray())));
+
+    SetOperationBuilder bldr = SetOperation.builder();
+    Union union = bldr.buildUnion();
+    for (Sketch sk : list) { union.update(sk); }
+    CompactSketch expected = union.getResult();
+    CompactSketch result = bldr.sortedMergeUnion(list);
+    assertEquals(result.getRetainedEntries(true), expected.getRetainedEntries(true));
+    assertEquals(result.toByteArray(), expected.toByteArray());
+  }
+
+  @Test
+  public void checkSampledUnion() {
+    List<Sketch> list = new ArrayList<Sketch>();
+    UpdateSketch sk = UpdateSketch.builder().build();
+    for (int i = 0; i < 1000; i++) { sk.update(i); }
+    list.add(sk.compact());
+    SetOperationBuilder bldr = SetOperation.builder().setP((float) 0.3);
+    Union union = bldr.buildUnion();
+    union.update(list.get(0));
+    assertEquals(bldr.sortedMergeUnion(list).toByteArray(), union.getResult().toByteArray());
+  }
+
+  @Test
+  public void checkEmpty() {
+    List<Sketch> list = new ArrayList<Sketch>();
+    assertTrue(SetOperation.builder().sortedMergeUnion(list).isEmpty());
+    list.add(UpdateSketch.builder().build().compact());
+    CompactSketch result = SetOperation.builder().sortedMergeUnion(list);
+    assertTrue(result.isEmpty());
+    assertEquals(result.getEstimate(), 0.0, 0.0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkSeedHashMismatch() {
+    UpdateSketch sk = UpdateSketch.builder().setSeed(123).build();
+    sk.update(1L);
+    List<Sketch> list = new ArrayList<Sketch>();
+    list.add(sk.compact());
+    SetOperation.builder().sortedMergeUnion(list);
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: "+this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -6,11 +6,17 @@ package com.yahoo.sketches.theta;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.testng.annotations.Test;
 
 import com.yahoo.sketches.Family;
 import com.yahoo.sketches.ResizeFactor;
+import com.yahoo.sketches.SketchesArgumentException;
 import com.yahoo.sketches.memory.Memory;
 import com.yahoo.sketches.memory.NativeMemory;
 import com.yahoo.sketches.theta.UpdateSketch;
@@ -121,6 +127,99 @@ public class UpdateSketchTest {
     assertEquals(csk.getCurrentBytes(true), 8);
   }
   
+  @Test
+  public void checkUpdateAllMatchesSingleUpdates() {
+    int k = 512;
+    int n = 5000;
+    long[] keys = new long[n + 2];
+    for (int i = 0; i < keys.length; i++) { keys[i] = i % 4000; } //include duplicates
+    NativeMemory keyMem = new NativeMemory(new byte[n << 3]);
+    keyMem.putLongArray(0, keys, 1, n);
+
+    Family[] families = { Family.QUICKSELECT, Family.ALPHA, Family.QUICKSELECT };
+    for (int f = 0; f < families.length; f++) {
+      boolean direct = (f == 2);
+      UpdateSketch sk1 = buildSketch(families[f], k, direct);
+      UpdateSketch sk2 = buildSketch(families[f], k, direct);
+      UpdateSketch sk3 = buildSketch(families[f], k, direct);
+      for (int i = 1; i <= n; i++) { sk1.update(keys[i]); }
+      sk2.updateAll(keys, 1, n + 1);
+      sk3.updateAll(keyMem, 0, n);
+      assertEquals(sk2.getEstimate(), sk1.getEstimate(), 0.0);
+      assertEquals(sk3.getEstimate(), sk1.getEstimate(), 0.0);
+      assertEquals(sk2.compact().toByteArray(), sk1.compact().toByteArray());
+      assertEquals(sk3.compact().toByteArray(), sk1.compact().toByteArray());
+    }
+  }
+
+  @Test
+  public void checkUpdateAllEmptyAndNull() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    sk.updateAll((long[]) null, 0, 0);
+    sk.updateAll((Memory) null, 0, 0);
+    sk.updateAll(new long[4], 2, 2);
+    assertTrue(sk.isEmpty());
+
+    //presented keys mark the sketch as not empty even if all are rejected by p
+    sk = UpdateSketch.builder().setP((float) 0.0001).build();
+    sk.updateAll(new long[] {1L}, 0, 1);
+    assertFalse(sk.isEmpty());
+    assertEquals(sk.getRetainedEntries(true), 0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkUpdateAllBadRange() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    sk.updateAll(new long[4], 3, 5);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkUpdateAllBadMemoryRange() {
+    UpdateSketch sk = UpdateSketch.builder().build();
+    sk.updateAll(new NativeMemory(new byte[16]), 8, 2);
+  }
+
+  private static UpdateSketch buildSketch(Family family, int k, boolean direct) {
+    UpdateSketchBuilder bldr = UpdateSketch.builder().setFamily(family);
+    if (direct) {
+      bldr.initMemory(new NativeMemory(new byte[Sketch.getMaxUpdateSketchBytes(k)]));
+    }
+    return bldr.build(k);
+  }
+
+  @Test
+  public void checkUpdateMemoryAndByteBufferRegions() {
+    UpdateSketch expected = UpdateSketch.builder().build();
+    UpdateSketch fromMem = UpdateSketch.builder().build();
+    UpdateSketch fromBuf = UpdateSketch.builder().build();
+    byte[] bytes = "The quick brown fox jumps over the lazy dog".getBytes(UTF_8);
+    NativeMemory mem = new NativeMemory(bytes);
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    for (int offset = 0; offset < bytes.length; offset++) {
+      for (int len = 1; (offset + len) <= bytes.length; len++) {
+        expected.update(Arrays.copyOfRange(bytes, offset, offset + len));
+        fromMem.update(mem, offset, len);
+        fromBuf.update(buf, offset, len);
+      }
+    }
+    assertEquals(fromMem.toByteArray(), expected.toByteArray());
+    assertEquals(fromBuf.toByteArray(), expected.toByteArray());
+    assertEquals(fromMem.update((Memory) null, 0, 1), UpdateReturnState.RejectedNullOrEmpty);
+    assertEquals(fromBuf.update(buf, 3, 0), UpdateReturnState.RejectedNullOrEmpty);
+  }
+
+  @Test
+  public void checkUpdateStringMatchesUtf8Bytes() {
+    UpdateSketch fromStrings = UpdateSketch.builder().setNominalEntries(1024).build();
+    UpdateSketch fromBytes = UpdateSketch.builder().setNominalEntries(1024).build();
+    for (int i = 0; i < 10000; i++) {
+      String s = "http://example.com/\u00e9/" + i + ((i % 3 == 0) ? "/\ud83d\ude00" : "");
+      fromStrings.update(s);
+      fromBytes.update(s.getBytes(UTF_8));
+    }
+    assertEquals(fromStrings.toByteArray(), fromBytes.toByteArray());
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: "+this.getClass().getName());